@@ -0,0 +1,22 @@
+package com.example.ragchatstorage.reactive;
+
+import com.example.ragchatstorage.tokenizer.CharacterTokenEstimator;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * WebFlux + R2DBC deployment of the chat storage API. Serves the same /api/v1/sessions
+ * contract as the servlet application against the same schema, without a thread per request.
+ */
+@SpringBootApplication
+@EnableScheduling
+// Same token estimates as the servlet application (app.tokens.*)
+@Import(CharacterTokenEstimator.class)
+public class ReactiveChatStorageApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveChatStorageApplication.class, args);
+    }
+}
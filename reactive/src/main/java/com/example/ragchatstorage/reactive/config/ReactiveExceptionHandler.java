@@ -0,0 +1,120 @@
+package com.example.ragchatstorage.reactive.config;
+
+import com.example.ragchatstorage.dto.ErrorResponse;
+import com.example.ragchatstorage.exception.BadRequestException;
+import com.example.ragchatstorage.exception.BusinessException;
+import com.example.ragchatstorage.exception.DuplicateResourceException;
+import com.example.ragchatstorage.exception.NotFoundException;
+import com.example.ragchatstorage.exception.RateLimitExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.time.Instant;
+import java.util.stream.Collectors;
+
+/**
+ * Same status codes and ErrorResponse envelope as the servlet GlobalExceptionHandler.
+ */
+@RestControllerAdvice
+@Slf4j
+public class ReactiveExceptionHandler {
+
+    @ExceptionHandler(NotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleNotFound(NotFoundException ex, ServerWebExchange exchange) {
+        log.warn("Resource not found: {}", ex.getMessage());
+        return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage(), exchange);
+    }
+
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ErrorResponse> handleBadRequest(BadRequestException ex, ServerWebExchange exchange) {
+        log.warn("Bad request: {}", ex.getMessage());
+        return buildResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), exchange);
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ErrorResponse> handleValidation(WebExchangeBindException ex, ServerWebExchange exchange) {
+        String message = ex.getBindingResult().getFieldErrors().stream()
+                .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                .collect(Collectors.joining(", "));
+        log.warn("Validation failed: {}", message);
+        return buildResponse(HttpStatus.BAD_REQUEST, message, exchange);
+    }
+
+    /**
+     * Missing parameters, type mismatches and unreadable bodies (400)
+     */
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<ErrorResponse> handleInput(ServerWebInputException ex, ServerWebExchange exchange) {
+        log.warn("Invalid request: {}", ex.getReason());
+        return buildResponse(HttpStatus.BAD_REQUEST, ex.getReason(), exchange);
+    }
+
+    @ExceptionHandler(DuplicateResourceException.class)
+    public ResponseEntity<ErrorResponse> handleDuplicate(DuplicateResourceException ex, ServerWebExchange exchange) {
+        log.warn("Duplicate resource: {}", ex.getMessage());
+        return buildResponse(HttpStatus.CONFLICT, ex.getMessage(), exchange);
+    }
+
+    @ExceptionHandler(BusinessException.class)
+    public ResponseEntity<ErrorResponse> handleBusiness(BusinessException ex, ServerWebExchange exchange) {
+        log.warn("Business rule violation: {}", ex.getMessage());
+        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage(), exchange);
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimit(RateLimitExceededException ex, ServerWebExchange exchange) {
+        log.warn("Rate limit exceeded: {}", ex.getMessage());
+        return buildResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), exchange);
+    }
+
+    @ExceptionHandler(org.springframework.dao.DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorResponse> handleDataIntegrityViolation(
+            org.springframework.dao.DataIntegrityViolationException ex, ServerWebExchange exchange) {
+        log.warn("Data integrity violation: {}", ex.getMessage());
+        return buildResponse(HttpStatus.BAD_REQUEST,
+                "Data integrity violation. Possible duplicate or invalid data.", exchange);
+    }
+
+    @ExceptionHandler(org.springframework.dao.DataAccessException.class)
+    public ResponseEntity<ErrorResponse> handleDataAccessException(
+            org.springframework.dao.DataAccessException ex, ServerWebExchange exchange) {
+        log.error("Data access error: {}", ex.getMessage(), ex);
+        return buildResponse(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Database operation failed. Please try again later.", exchange);
+    }
+
+    /**
+     * 404 for unknown routes, 405, 415 and the like raised by WebFlux itself
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ErrorResponse> handleResponseStatus(ResponseStatusException ex, ServerWebExchange exchange) {
+        log.warn("Request rejected: {}", ex.getMessage());
+        return buildResponse(ex.getStatusCode(), ex.getReason(), exchange);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorResponse> handleGeneric(Exception ex, ServerWebExchange exchange) {
+        log.error("Unexpected error: {}", ex.getMessage(), ex);
+        return buildResponse(HttpStatus.INTERNAL_SERVER_ERROR,
+                "An unexpected error occurred. Please contact support.", exchange);
+    }
+
+    private ResponseEntity<ErrorResponse> buildResponse(HttpStatusCode status, String message, ServerWebExchange exchange) {
+        HttpStatus resolved = HttpStatus.resolve(status.value());
+        ErrorResponse body = new ErrorResponse(
+                Instant.now(),
+                status.value(),
+                resolved != null ? resolved.getReasonPhrase() : "",
+                message,
+                exchange.getRequest().getPath().value());
+        return ResponseEntity.status(status).body(body);
+    }
+}
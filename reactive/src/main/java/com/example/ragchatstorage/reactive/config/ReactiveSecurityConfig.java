@@ -0,0 +1,98 @@
+package com.example.ragchatstorage.reactive.config;
+
+import com.example.ragchatstorage.config.ApiKeyAuthentication;
+import com.example.ragchatstorage.config.ApiKeyRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.server.WebFilter;
+
+import java.util.Arrays;
+
+/**
+ * API key authentication for the reactive variant, backed by the same ApiKeyRegistry
+ * (hashed keys, constant-time match, hot reload) as the servlet application.
+ */
+@Configuration
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    @Value("${security.api-key-header:X-API-KEY}")
+    private String apiKeyHeader;
+
+    @Value("${app.cors.allowed-origins:http://localhost:3000}")
+    private String allowedOrigins;
+
+    @Value("${app.cors.allowed-methods:GET,POST,PATCH,DELETE,OPTIONS}")
+    private String allowedMethods;
+
+    @Value("${app.cors.max-age:3600}")
+    private long maxAge;
+
+    @Bean
+    public ApiKeyRegistry apiKeyRegistry(@Value("${security.api-keys:changeme}") String inlineKeys,
+                                         @Value("${security.api-keys-file:}") String keysFile) {
+        // No admin endpoints here
+        return new ApiKeyRegistry(inlineKeys, keysFile, "");
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, ApiKeyRegistry apiKeyRegistry) {
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .authorizeExchange(exchange -> exchange
+                        .pathMatchers(
+                                "/actuator/**",
+                                "/swagger-ui/**",
+                                "/swagger-ui.html",
+                                "/v3/api-docs/**",
+                                "/webjars/**"
+                        ).permitAll()
+                        .pathMatchers("/api/**").authenticated()
+                        .anyExchange().denyAll())
+                // Servlet app answers unauthenticated requests with Spring Security's default 403
+                .exceptionHandling(handling -> handling
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)))
+                .addFilterAt(apiKeyFilter(apiKeyRegistry), SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+
+    private WebFilter apiKeyFilter(ApiKeyRegistry apiKeyRegistry) {
+        return (exchange, chain) -> {
+            String apiKey = exchange.getRequest().getHeaders().getFirst(apiKeyHeader);
+            ApiKeyAuthentication authenticated = apiKey != null ? apiKeyRegistry.match(apiKey) : null;
+            if (authenticated == null) {
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange)
+                    .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authenticated));
+        };
+    }
+
+    private CorsConfigurationSource corsConfigurationSource() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setAllowedOrigins(Arrays.asList(allowedOrigins.split(",")));
+        configuration.setAllowedMethods(Arrays.asList(allowedMethods.split(",")));
+        configuration.addAllowedHeader("*");
+        configuration.setMaxAge(maxAge);
+
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", configuration);
+        return source;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.ragchatstorage.reactive.controller;
+
+import com.example.ragchatstorage.dto.CreateMessageRequest;
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.PagedResponse;
+import com.example.ragchatstorage.reactive.mapper.ResponseMapper;
+import com.example.ragchatstorage.reactive.service.ChatMessageService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/sessions/{sessionId}/messages")
+@RequiredArgsConstructor
+@Tag(name = "Chat Messages", description = "APIs for managing chat messages within sessions")
+@SecurityRequirement(name = "ApiKeyAuth")
+public class ChatMessageController {
+
+    private final ChatMessageService messageService;
+    private final ResponseMapper responseMapper;
+
+    @Value("${app.pagination.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Add a message to a session", description = "Creates a new message within a chat session with optional RAG context")
+    public Mono<MessageResponse> addMessage(
+            @Parameter(description = "Session ID", required = true) @PathVariable String sessionId,
+            @Valid @RequestBody CreateMessageRequest request) {
+        return messageService.addMessage(sessionId, request)
+                .doOnNext(created -> log.info("Message saved. messageId={} sessionId={} sender={}",
+                        created.getId(), sessionId, request.sender()))
+                .map(responseMapper::toDto);
+    }
+
+    @GetMapping
+    @Operation(summary = "Get messages from a session", description = "Retrieves paginated message history for a chat session")
+    public Mono<PagedResponse<MessageResponse>> getMessages(
+            @Parameter(description = "Session ID", required = true) @PathVariable String sessionId,
+            @Parameter(description = "Page number (0-indexed)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size) {
+
+        int pageSize = Math.min(size != null ? size : defaultPageSize, maxPageSize);
+
+        return messageService.getMessages(sessionId, page, pageSize)
+                .map(result -> new PagedResponse<>(
+                        result.content().stream().map(responseMapper::toDto).toList(),
+                        result.page(),
+                        result.size(),
+                        result.totalElements(),
+                        result.totalPages(),
+                        result.last()));
+    }
+}
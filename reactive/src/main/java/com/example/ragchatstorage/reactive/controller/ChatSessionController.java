@@ -0,0 +1,71 @@
+package com.example.ragchatstorage.reactive.controller;
+
+import com.example.ragchatstorage.dto.CreateSessionRequest;
+import com.example.ragchatstorage.dto.FavoriteSessionRequest;
+import com.example.ragchatstorage.dto.RenameSessionRequest;
+import com.example.ragchatstorage.dto.SessionResponse;
+import com.example.ragchatstorage.reactive.mapper.ResponseMapper;
+import com.example.ragchatstorage.reactive.service.ChatSessionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/sessions")
+@RequiredArgsConstructor
+@Tag(name = "Chat Sessions", description = "APIs for managing chat sessions")
+@SecurityRequirement(name = "ApiKeyAuth")
+public class ChatSessionController {
+
+    private final ChatSessionService sessionService;
+    private final ResponseMapper responseMapper;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Create a new chat session", description = "Creates a new chat session for a user")
+    public Mono<SessionResponse> createSession(@Valid @RequestBody CreateSessionRequest request) {
+        return sessionService.createSession(request).map(responseMapper::toDto);
+    }
+
+    @GetMapping
+    @Operation(summary = "Get sessions for a user",
+            description = "Retrieves all chat sessions for a user with optional favorite filter")
+    public Flux<SessionResponse> getSessions(
+            @Parameter(description = "User ID", required = true) @RequestParam String userId,
+            @Parameter(description = "Filter by favorite status") @RequestParam(required = false) Boolean favorite) {
+        return sessionService.getSessionsForUser(userId, favorite).map(responseMapper::toDto);
+    }
+
+    @PatchMapping("/{id}/rename")
+    @Operation(summary = "Rename a session", description = "Updates the title of a chat session")
+    public Mono<SessionResponse> rename(
+            @Parameter(description = "Session ID", required = true) @PathVariable String id,
+            @Valid @RequestBody RenameSessionRequest request) {
+        return sessionService.renameSession(id, request.title()).map(responseMapper::toDto);
+    }
+
+    @PatchMapping("/{id}/favorite")
+    @Operation(summary = "Mark/unmark session as favorite", description = "Updates the favorite status of a chat session")
+    public Mono<SessionResponse> markFavorite(
+            @Parameter(description = "Session ID", required = true) @PathVariable String id,
+            @Valid @RequestBody FavoriteSessionRequest request) {
+        return sessionService.markFavorite(id, request.favorite()).map(responseMapper::toDto);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Delete a session", description = "Deletes a chat session and all its messages")
+    public Mono<Void> deleteSession(@Parameter(description = "Session ID", required = true) @PathVariable String id) {
+        return sessionService.deleteSession(id)
+                .doOnSuccess(ignored -> log.info("Session deleted. sessionId={}", id));
+    }
+}
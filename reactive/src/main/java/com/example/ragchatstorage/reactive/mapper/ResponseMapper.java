@@ -0,0 +1,65 @@
+package com.example.ragchatstorage.reactive.mapper;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.SessionResponse;
+import com.example.ragchatstorage.reactive.model.ChatMessage;
+import com.example.ragchatstorage.reactive.model.ChatSession;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps R2DBC rows to the response DTOs shared with the servlet application.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResponseMapper {
+
+    private static final TypeReference<List<Map<String, Object>>> CONTEXT_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public SessionResponse toDto(ChatSession session) {
+        return new SessionResponse(
+                session.getId(),
+                session.getUserId(),
+                session.getTitle(),
+                session.isFavorite(),
+                session.getCreatedAt(),
+                session.getUpdatedAt(),
+                session.getVersion() != null ? session.getVersion() : 0L,
+                session.getParentSessionId(),
+                session.getForkSeq());
+    }
+
+    public MessageResponse toDto(ChatMessage message) {
+        return new MessageResponse(
+                message.getId(),
+                message.getSessionId(),
+                message.getSeq(),
+                message.getSender() != null ? message.getSender().name() : null,
+                message.getContent(),
+                message.getUserId(),
+                readContext(message.getContext()),
+                message.getCreatedAt(),
+                message.getStatus() != null ? message.getStatus().name() : null,
+                message.getTokenCount());
+    }
+
+    private List<Map<String, Object>> readContext(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, CONTEXT_TYPE);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unreadable message context", ex);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.ragchatstorage.reactive.model;
+
+import com.example.ragchatstorage.model.MessageStatus;
+import com.example.ragchatstorage.model.SenderType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * R2DBC mapping of the chat_messages table (see the JPA ChatMessage for the schema).
+ * The RAG context is kept as the raw JSON column value.
+ */
+@Table("chat_messages")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChatMessage {
+
+    @Id
+    private String id;
+
+    private String sessionId;
+
+    private long seq;
+
+    private SenderType sender;
+
+    private String content;
+
+    private String context;
+
+    private String userId;
+
+    @Builder.Default
+    private MessageStatus status = MessageStatus.COMPLETE;
+
+    private Instant createdAt;
+
+    private Integer tokenCount;
+
+    private Long cumulativeTokens;
+}
@@ -0,0 +1,55 @@
+package com.example.ragchatstorage.reactive.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * R2DBC mapping of the chat_sessions table (see the JPA ChatSession for the schema).
+ */
+@Table("chat_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChatSession {
+
+    @Id
+    private String id;
+
+    private String userId;
+
+    private String title;
+
+    private boolean favorite;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    // Message seq counter; written only by ChatSessionRepository.incrementLastSeq, never by save()
+    @ReadOnlyProperty
+    private long lastSeq;
+
+    // Running token total, advanced with the seq by ChatSessionRepository.incrementLastSeq
+    @ReadOnlyProperty
+    private Long totalTokens;
+
+    // Fork origin (see the JPA ChatSession); forks are created through the servlet API only
+    @ReadOnlyProperty
+    private String parentSessionId;
+
+    @ReadOnlyProperty
+    private Long forkSeq;
+
+    // Boxed: Spring Data treats a null version as a new entity, a primitive 0 would not work for inserts
+    @Version
+    private Long version;
+}
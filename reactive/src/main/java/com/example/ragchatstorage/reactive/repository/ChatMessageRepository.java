@@ -0,0 +1,22 @@
+package com.example.ragchatstorage.reactive.repository;
+
+import com.example.ragchatstorage.reactive.model.ChatMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ChatMessageRepository extends ReactiveCrudRepository<ChatMessage, String> {
+
+    Flux<ChatMessage> findBySessionIdOrderBySeqAsc(String sessionId, Pageable pageable);
+
+    Mono<Long> countBySessionId(String sessionId);
+
+    @Modifying
+    @Query("DELETE FROM chat_messages WHERE session_id = :sessionId")
+    Mono<Integer> deleteBySessionId(String sessionId);
+}
@@ -0,0 +1,26 @@
+package com.example.ragchatstorage.reactive.repository;
+
+import com.example.ragchatstorage.reactive.model.ChatSession;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ChatSessionRepository extends ReactiveCrudRepository<ChatSession, String> {
+
+    Flux<ChatSession> findByUserIdOrderByUpdatedAtDesc(String userId);
+
+    Flux<ChatSession> findByUserIdAndFavoriteOrderByUpdatedAtDesc(String userId, boolean favorite);
+
+    /**
+     * Allocates the next message seq and adds the message's tokens to the session total (see the
+     * JPA ChatSessionRepository.nextSeq); the new values are read back with findById in the
+     * same transaction.
+     */
+    @Modifying
+    @Query("UPDATE chat_sessions SET last_seq = last_seq + 1, total_tokens = total_tokens + :tokens WHERE id = :id")
+    Mono<Integer> incrementLastSeq(String id, int tokens);
+}
@@ -0,0 +1,110 @@
+package com.example.ragchatstorage.reactive.service;
+
+import com.example.ragchatstorage.dto.CreateMessageRequest;
+import com.example.ragchatstorage.dto.PagedResponse;
+import com.example.ragchatstorage.exception.BadRequestException;
+import com.example.ragchatstorage.exception.BusinessException;
+import com.example.ragchatstorage.exception.NotFoundException;
+import com.example.ragchatstorage.model.SenderType;
+import com.example.ragchatstorage.reactive.model.ChatMessage;
+import com.example.ragchatstorage.reactive.repository.ChatMessageRepository;
+import com.example.ragchatstorage.reactive.repository.ChatSessionRepository;
+import com.example.ragchatstorage.tokenizer.TokenEstimator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatMessageService {
+
+    private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final R2dbcEntityTemplate template;
+    private final ObjectMapper objectMapper;
+    private final TokenEstimator tokenEstimator;
+
+    @Transactional
+    public Mono<ChatMessage> addMessage(String sessionId, CreateMessageRequest request) {
+        int tokens = tokenEstimator.estimate(request.content());
+        return sessionRepository.incrementLastSeq(sessionId, tokens)
+                .filter(updated -> updated > 0)
+                .flatMap(updated -> sessionRepository.findById(sessionId))
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Session not found: " + sessionId)))
+                .flatMap(session -> {
+                    String userId = null;
+                    if (request.sender() == SenderType.USER) {
+                        if (!session.getUserId().equals(request.userId())) {
+                            log.error("User ID mismatch. Expected={}, Got={}", session.getUserId(), request.userId());
+                            return Mono.error(new BusinessException("User ID does not match session owner"));
+                        }
+                        userId = request.userId();
+                    }
+
+                    ChatMessage message = ChatMessage.builder()
+                            .id(UUID.randomUUID().toString())
+                            .sessionId(session.getId())
+                            .seq(session.getLastSeq())
+                            .sender(request.sender())
+                            .content(request.content())
+                            .context(toJson(request))
+                            .userId(userId)
+                            .tokenCount(tokens)
+                            .cumulativeTokens(session.getTotalTokens())
+                            .createdAt(Instant.now())
+                            .build();
+                    return template.insert(message);
+                });
+    }
+
+    public Mono<PagedResponse<ChatMessage>> getMessages(String sessionId, int page, int size) {
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            return Mono.error(new BadRequestException("Session ID cannot be null or empty"));
+        }
+        if (page < 0) {
+            return Mono.error(new BadRequestException("Page number cannot be negative"));
+        }
+        if (size <= 0) {
+            return Mono.error(new BadRequestException("Page size must be positive"));
+        }
+
+        return sessionRepository.existsById(sessionId)
+                .flatMap(exists -> {
+                    if (!exists) {
+                        return Mono.error(new NotFoundException("Session not found: " + sessionId));
+                    }
+                    // Page and total are independent queries; run them concurrently
+                    return Mono.zip(
+                            messageRepository.findBySessionIdOrderBySeqAsc(sessionId, PageRequest.of(page, size))
+                                    .collectList(),
+                            messageRepository.countBySessionId(sessionId));
+                })
+                .map(result -> {
+                    long total = result.getT2();
+                    int totalPages = (int) Math.ceil((double) total / size);
+                    return new PagedResponse<>(result.getT1(), page, size, total, totalPages, page + 1 >= totalPages);
+                });
+    }
+
+    private String toJson(CreateMessageRequest request) {
+        if (request.context() == null) {
+            return null;
+        }
+        try {
+            // Same shape as the JPA ContextItem JSON column
+            return objectMapper.writeValueAsString(request.context());
+        } catch (JsonProcessingException ex) {
+            throw new BadRequestException("Invalid message context: " + ex.getOriginalMessage());
+        }
+    }
+}
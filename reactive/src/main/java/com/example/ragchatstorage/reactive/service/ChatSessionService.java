@@ -0,0 +1,77 @@
+package com.example.ragchatstorage.reactive.service;
+
+import com.example.ragchatstorage.dto.CreateSessionRequest;
+import com.example.ragchatstorage.exception.NotFoundException;
+import com.example.ragchatstorage.reactive.model.ChatSession;
+import com.example.ragchatstorage.reactive.repository.ChatMessageRepository;
+import com.example.ragchatstorage.reactive.repository.ChatSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatSessionService {
+
+    private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final R2dbcEntityTemplate template;
+
+    public Mono<ChatSession> createSession(CreateSessionRequest request) {
+        Instant now = Instant.now();
+        ChatSession session = ChatSession.builder()
+                // Ids are assigned here, so insert explicitly (save() would issue an UPDATE)
+                .id(UUID.randomUUID().toString())
+                .userId(request.userId())
+                .title(request.title())
+                .favorite(false)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        return template.insert(session);
+    }
+
+    public Flux<ChatSession> getSessionsForUser(String userId, Boolean favorite) {
+        if (favorite != null) {
+            return sessionRepository.findByUserIdAndFavoriteOrderByUpdatedAtDesc(userId, favorite);
+        }
+        return sessionRepository.findByUserIdOrderByUpdatedAtDesc(userId);
+    }
+
+    public Mono<ChatSession> getById(String id) {
+        return sessionRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Session not found: " + id)));
+    }
+
+    public Mono<ChatSession> renameSession(String id, String newTitle) {
+        return getById(id).flatMap(session -> {
+            session.setTitle(newTitle);
+            session.setUpdatedAt(Instant.now());
+            return sessionRepository.save(session);
+        });
+    }
+
+    public Mono<ChatSession> markFavorite(String id, boolean favorite) {
+        return getById(id).flatMap(session -> {
+            session.setFavorite(favorite);
+            session.setUpdatedAt(Instant.now());
+            return sessionRepository.save(session);
+        });
+    }
+
+    @Transactional
+    public Mono<Void> deleteSession(String id) {
+        return getById(id)
+                .flatMap(session -> messageRepository.deleteBySessionId(id)
+                        .then(sessionRepository.delete(session)))
+                .doOnSuccess(ignored -> log.debug("[SERVICE] Session deleted. SessionId={}", id));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.ragchatstorage.reactive;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.SessionResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+class ReactiveApiIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void sessionAndMessageLifecycle_shouldMatchServletContract() {
+        // Given
+        String userId = "reactive-" + UUID.randomUUID();
+        SessionResponse session = webTestClient.post().uri("/api/v1/sessions")
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userId\":\"" + userId + "\",\"title\":\"Reactive\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(SessionResponse.class).returnResult().getResponseBody();
+        assertNotNull(session);
+
+        // When
+        MessageResponse message = webTestClient.post().uri("/api/v1/sessions/{id}/messages", session.id())
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"sender\":\"USER\",\"content\":\"Hi\",\"userId\":\"" + userId + "\","
+                        + "\"context\":[{\"sourceId\":\"doc-1\",\"snippet\":\"text\",\"metadata\":{\"page\":2}}]}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(MessageResponse.class).returnResult().getResponseBody();
+
+        // Then
+        assertNotNull(message);
+        assertEquals("COMPLETE", message.status());
+        webTestClient.get().uri("/api/v1/sessions/{id}/messages?size=10", session.id())
+                .header("X-API-KEY", API_KEY)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.totalElements").isEqualTo(1)
+                .jsonPath("$.last").isEqualTo(true)
+                .jsonPath("$.content[0].content").isEqualTo("Hi")
+                .jsonPath("$.content[0].context[0].metadata.page").isEqualTo(2);
+
+        webTestClient.patch().uri("/api/v1/sessions/{id}/favorite", session.id())
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"favorite\":true}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.favorite").isEqualTo(true);
+
+        webTestClient.get().uri("/api/v1/sessions?userId={userId}&favorite=true", userId)
+                .header("X-API-KEY", API_KEY)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(1);
+
+        webTestClient.delete().uri("/api/v1/sessions/{id}", session.id())
+                .header("X-API-KEY", API_KEY)
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/api/v1/sessions/{id}/messages", session.id())
+                .header("X-API-KEY", API_KEY)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.status").isEqualTo(404);
+    }
+
+    @Test
+    void addMessage_shouldApplySharedValidationAndOwnershipRules() {
+        // Given
+        SessionResponse session = webTestClient.post().uri("/api/v1/sessions")
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userId\":\"owner\"}")
+                .exchange()
+                .expectBody(SessionResponse.class).returnResult().getResponseBody();
+        assertNotNull(session);
+
+        // When & Then
+        webTestClient.post().uri("/api/v1/sessions/{id}/messages", session.id())
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"sender\":\"USER\",\"content\":\"\",\"userId\":\"owner\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.post().uri("/api/v1/sessions/{id}/messages", session.id())
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"sender\":\"USER\",\"content\":\"Hi\",\"userId\":\"someone-else\"}")
+                .exchange()
+                .expectStatus().isEqualTo(422);
+    }
+
+    @Test
+    void api_withoutValidKey_shouldBeRejected() {
+        webTestClient.get().uri("/api/v1/sessions?userId=u")
+                .exchange()
+                .expectStatus().isForbidden();
+
+        webTestClient.get().uri("/api/v1/sessions?userId=u")
+                .header("X-API-KEY", "wrong")
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+}
@@ -0,0 +1,31 @@
+-- H2 equivalent of the servlet app's schema (db/migration) for the reactive tests
+CREATE TABLE IF NOT EXISTS chat_sessions (
+    id VARCHAR(36) PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    title VARCHAR(500),
+    favorite BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    last_seq BIGINT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    parent_session_id VARCHAR(36),
+    fork_seq BIGINT,
+    total_tokens BIGINT DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS chat_messages (
+    id VARCHAR(36) PRIMARY KEY,
+    session_id VARCHAR(255) NOT NULL,
+    seq BIGINT NOT NULL,
+    sender VARCHAR(50) NOT NULL,
+    content CLOB NOT NULL,
+    context CLOB,
+    user_id VARCHAR(255),
+    status VARCHAR(20) NOT NULL DEFAULT 'COMPLETE',
+    created_at TIMESTAMP(6) NOT NULL,
+    token_count INT,
+    cumulative_tokens BIGINT
+);
+
+CREATE INDEX IF NOT EXISTS idx_session_id_created_at ON chat_messages (session_id, created_at);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_session_id_seq ON chat_messages (session_id, seq);
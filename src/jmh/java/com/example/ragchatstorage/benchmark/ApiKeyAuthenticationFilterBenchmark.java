@@ -0,0 +1,81 @@
+package com.example.ragchatstorage.benchmark;
+
+import com.example.ragchatstorage.config.ApiKeyAuthentication;
+import com.example.ragchatstorage.config.ApiKeyAuthenticationEntryFilter;
+import com.example.ragchatstorage.config.ApiKeyAuthenticationProvider;
+import com.example.ragchatstorage.config.ApiKeyRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of API key authentication.
+ *
+ * filterValidKey / filterInvalidKey measure the registry fast path used by the filter;
+ * providerManagerValidKey measures the previous route through ProviderManager for comparison.
+ *
+ * Run: ./gradlew jmh -PjmhIncludes=ApiKeyAuthenticationFilterBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ApiKeyAuthenticationFilterBenchmark {
+
+    private static final String HEADER = "X-API-KEY";
+
+    private ApiKeyAuthenticationEntryFilter filter;
+    private ProviderManager providerManager;
+    private MockHttpServletRequest validRequest;
+    private MockHttpServletRequest invalidRequest;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        ApiKeyRegistry registry = new ApiKeyRegistry("changeme,frontend-key,backend-key,mobile-key", "", "");
+        filter = new ApiKeyAuthenticationEntryFilter(registry, HEADER);
+        providerManager = new ProviderManager(new ApiKeyAuthenticationProvider(registry));
+
+        validRequest = new MockHttpServletRequest("GET", "/api/v1/sessions");
+        validRequest.addHeader(HEADER, "backend-key");
+        invalidRequest = new MockHttpServletRequest("GET", "/api/v1/sessions");
+        invalidRequest.addHeader(HEADER, "not-a-key");
+        response = new MockHttpServletResponse();
+        chain = (request, response) -> { };
+    }
+
+    @Benchmark
+    public Authentication filterValidKey() throws Exception {
+        // OncePerRequestFilter marks the request as filtered; clear it so every invocation does the work
+        validRequest.clearAttributes();
+        filter.doFilter(validRequest, response, chain);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    @Benchmark
+    public Authentication filterInvalidKey() throws Exception {
+        invalidRequest.clearAttributes();
+        filter.doFilter(invalidRequest, response, chain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public void providerManagerValidKey(Blackhole blackhole) {
+        blackhole.consume(providerManager.authenticate(new ApiKeyAuthentication("backend-key")));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.ragchatstorage.benchmark;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.ContextItem;
+import com.example.ragchatstorage.model.SenderType;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Reading a 100-message page (RAG context on assistant messages) through JPA: entities mapped
+ * with MessageResponse.from (previous read path) vs a constructor-expression projection of a
+ * seq range into MessageResponse (current path). Both run in a read-only transaction against
+ * in-memory H2, so the difference is hydration, persistence-context and mapping cost rather
+ * than I/O. Bytes allocated per page are printed once during setup.
+ *
+ * Run: ./gradlew jmh -PjmhIncludes=MessagePageReadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessagePageReadBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private AnnotationConfigApplicationContext context;
+    private ChatMessageRepository repository;
+    private TransactionTemplate readOnly;
+    private final String sessionId = UUID.randomUUID().toString();
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(JpaConfig.class);
+        repository = context.getBean(ChatMessageRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        repository.saveAll(sampleMessages(sessionId, PAGE_SIZE));
+
+        System.out.printf("%nBytes allocated per 100-message page: entities=%d projection=%d%n",
+                allocatedPerCall(this::entities), allocatedPerCall(this::projection));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MessageResponse> entities() {
+        return readOnly.execute(status -> repository
+                .findBySessionIdOrderBySeqAsc(sessionId, PageRequest.of(0, PAGE_SIZE))
+                .map(MessageResponse::from)
+                .getContent());
+    }
+
+    @Benchmark
+    public List<MessageResponse> projection() {
+        return readOnly.execute(status -> repository.findResponsesBySeqRange(sessionId, 1, PAGE_SIZE));
+    }
+
+    private static long allocatedPerCall(Supplier<?> call) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < 200; i++) {
+            call.get();
+        }
+        int runs = 500;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < runs; i++) {
+            call.get();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / runs;
+    }
+
+    static List<ChatMessage> sampleMessages(String sessionId, int size) {
+        List<ChatMessage> messages = new ArrayList<>(size);
+        Instant now = Instant.now();
+        for (int i = 0; i < size; i++) {
+            boolean assistant = i % 2 == 1;
+            List<ContextItem> context = null;
+            if (assistant) {
+                context = new ArrayList<>();
+                for (int c = 0; c < 3; c++) {
+                    context.add(new ContextItem("doc-" + i + "-" + c,
+                            "Retrieved passage " + c + " for turn " + i + ". ".repeat(40),
+                            Map.of("score", 0.87 - c * 0.1, "page", c + 1, "source", "kb/handbook.pdf")));
+                }
+            }
+            messages.add(ChatMessage.builder()
+                    .sessionId(sessionId)
+                    .seq(i + 1)
+                    .sender(assistant ? SenderType.ASSISTANT : SenderType.USER)
+                    .content((assistant ? "Here is what I found about your question. " : "How do I configure this? ").repeat(8))
+                    .userId(assistant ? null : "user-123")
+                    .context(context)
+                    .createdAt(now.plusMillis(i))
+                    .build());
+        }
+        return messages;
+    }
+
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = ChatMessageRepository.class)
+    static class JpaConfig {
+
+        @Bean
+        DataSource dataSource() {
+            return new DriverManagerDataSource(
+                    "jdbc:h2:mem:page_read_benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        }
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+            LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setPackagesToScan(ChatMessage.class.getPackageName());
+            factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            factory.setJpaPropertyMap(Map.of(AvailableSettings.HBM2DDL_AUTO, "create-drop"));
+            return factory;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.ragchatstorage.benchmark;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.PagedResponse;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.ContextItem;
+import com.example.ragchatstorage.model.SenderType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization cost of a 100-message page with RAG context (3 items per assistant message)
+ * as JSON vs CBOR, with and without gzip. Encoded sizes are printed once during setup.
+ *
+ * Run: ./gradlew jmh -PjmhIncludes=MessagePageSerializationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessagePageSerializationBenchmark {
+
+    private ObjectMapper json;
+    private ObjectMapper cbor;
+    private PagedResponse<MessageResponse> page;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = JsonMapper.builder().addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        cbor = CBORMapper.builder().addModule(new JavaTimeModule()).build();
+        page = samplePage(100);
+
+        System.out.printf("%nBytes per 100-message page: json=%d json+gzip=%d cbor=%d cbor+gzip=%d%n",
+                json.writeValueAsBytes(page).length, gzip(json.writeValueAsBytes(page)).length,
+                cbor.writeValueAsBytes(page).length, gzip(cbor.writeValueAsBytes(page)).length);
+    }
+
+    @Benchmark
+    public byte[] json() throws IOException {
+        return json.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] jsonGzip() throws IOException {
+        return gzip(json.writeValueAsBytes(page));
+    }
+
+    @Benchmark
+    public byte[] cbor() throws IOException {
+        return cbor.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] cborGzip() throws IOException {
+        return gzip(cbor.writeValueAsBytes(page));
+    }
+
+    static PagedResponse<MessageResponse> samplePage(int size) {
+        String sessionId = UUID.randomUUID().toString();
+        List<MessageResponse> messages = new ArrayList<>(size);
+        Instant now = Instant.now();
+        for (int i = 0; i < size; i++) {
+            boolean assistant = i % 2 == 1;
+            List<ContextItem> context = null;
+            if (assistant) {
+                context = new ArrayList<>();
+                for (int c = 0; c < 3; c++) {
+                    context.add(new ContextItem("doc-" + i + "-" + c,
+                            "Retrieved passage " + c + " for turn " + i + ". ".repeat(40),
+                            Map.of("score", 0.87 - c * 0.1, "page", c + 1, "source", "kb/handbook.pdf")));
+                }
+            }
+            ChatMessage message = ChatMessage.builder()
+                    .id(UUID.randomUUID().toString())
+                    .sessionId(sessionId)
+                    .sender(assistant ? SenderType.ASSISTANT : SenderType.USER)
+                    .content((assistant ? "Here is what I found about your question. " : "How do I configure this? ").repeat(8))
+                    .userId(assistant ? null : "user-123")
+                    .context(context)
+                    .createdAt(now.plusMillis(i))
+                    .build();
+            messages.add(MessageResponse.from(message));
+        }
+        return new PagedResponse<>(messages, 0, size, size, 1, true);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.ragchatstorage.benchmark;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
+import com.example.ragchatstorage.storage.JpaMessageStore;
+import com.example.ragchatstorage.storage.MessageStore;
+import com.example.ragchatstorage.storage.SegmentMessageStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending a message and reading a 100-message page through each MessageStore engine: "jpa"
+ * against in-memory H2 (no disk or network, so a lower bound for a real database) and
+ * "segment" against segment files in a temporary directory. Both run inside a transaction, as
+ * in the services, so the segment engine's commit hook is included. The segment engine runs
+ * without fsync to match the in-memory database; with app.storage.segment.fsync=true each append
+ * also waits for the disk.
+ *
+ * Run: ./gradlew jmh -PjmhIncludes=MessageStoreBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MessageStoreBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"jpa", "segment"})
+    public String engine;
+
+    private AnnotationConfigApplicationContext context;
+    private Path segmentDir;
+    private MessageStore store;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+    private List<ChatMessage> samples;
+    private final String readSessionId = UUID.randomUUID().toString();
+    private final String writeSessionId = UUID.randomUUID().toString();
+    private long nextSeq;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new AnnotationConfigApplicationContext(MessagePageReadBenchmark.JpaConfig.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        if ("segment".equals(engine)) {
+            segmentDir = Files.createTempDirectory("segment-benchmark");
+            store = new SegmentMessageStore(segmentDir, DataSize.ofMegabytes(1), false, 1000);
+        } else {
+            store = new JpaMessageStore(context.getBean(ChatMessageRepository.class));
+        }
+        samples = MessagePageReadBenchmark.sampleMessages(readSessionId, PAGE_SIZE);
+        readWrite.executeWithoutResult(status -> samples.forEach(store::append));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (store instanceof SegmentMessageStore segmentStore) {
+            segmentStore.destroy();
+            FileSystemUtils.deleteRecursively(segmentDir);
+        }
+        context.close();
+    }
+
+    @Benchmark
+    public ChatMessage append() {
+        long seq = ++nextSeq;
+        ChatMessage sample = samples.get((int) (seq % 2));
+        ChatMessage message = ChatMessage.builder()
+                .sessionId(writeSessionId)
+                .seq(seq)
+                .sender(sample.getSender())
+                .content(sample.getContent())
+                .userId(sample.getUserId())
+                .context(sample.getContext())
+                .createdAt(sample.getCreatedAt())
+                .build();
+        return readWrite.execute(status -> store.append(message));
+    }
+
+    @Benchmark
+    public List<MessageResponse> readPage() {
+        return readOnly.execute(status -> store.findResponsesBySeqRange(readSessionId, 1, PAGE_SIZE));
+    }
+}
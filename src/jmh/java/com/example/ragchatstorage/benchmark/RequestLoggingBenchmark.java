@@ -0,0 +1,125 @@
+package com.example.ragchatstorage.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import com.example.ragchatstorage.logging.RequestLogSamplingFilter;
+import com.example.ragchatstorage.model.SenderType;
+import net.logstash.logback.appender.LoggingEventAsyncDisruptorAppender;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the request logging done by ChatMessageController.addMessage under
+ * different logging setups, with output discarded so only logging overhead is measured.
+ *
+ * - OFF: controller logger above INFO (logging disabled)
+ * - SYNC_PLAIN / SYNC_JSON: encoder runs on the request thread
+ * - ASYNC_PLAIN / ASYNC_JSON: events handed to the Disruptor ring buffer (production setup)
+ * - ASYNC_JSON_SAMPLED: as ASYNC_JSON with 10% request log sampling
+ *
+ * Run: ./gradlew jmh -PjmhIncludes=RequestLoggingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1)
+public class RequestLoggingBenchmark {
+
+    @Param({"OFF", "SYNC_PLAIN", "SYNC_JSON", "ASYNC_PLAIN", "ASYNC_JSON", "ASYNC_JSON_SAMPLED"})
+    public String setup;
+
+    private LoggerContext context;
+    private Logger controllerLog;
+    private Logger serviceLog;
+    private final String sessionId = UUID.randomUUID().toString();
+    private final String messageId = UUID.randomUUID().toString();
+
+    @Setup
+    public void setUp() {
+        context = new LoggerContext();
+        controllerLog = context.getLogger("com.example.ragchatstorage.controller.ChatMessageController");
+        serviceLog = context.getLogger("com.example.ragchatstorage.service.ChatMessageService");
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+
+        if (setup.equals("OFF")) {
+            root.setLevel(Level.WARN);
+            return;
+        }
+
+        boolean json = setup.contains("JSON");
+        Appender<ILoggingEvent> output = nullAppender(json);
+
+        if (setup.startsWith("ASYNC")) {
+            LoggingEventAsyncDisruptorAppender async = new LoggingEventAsyncDisruptorAppender();
+            async.setContext(context);
+            async.setRingBufferSize(8192);
+            async.setAppendTimeout(new ch.qos.logback.core.util.Duration(0));
+            async.addAppender(output);
+            async.start();
+            root.addAppender(async);
+        } else {
+            root.addAppender(output);
+        }
+
+        if (setup.endsWith("SAMPLED")) {
+            RequestLogSamplingFilter sampler = new RequestLogSamplingFilter();
+            sampler.setLoggerPrefix("com.example.ragchatstorage.controller");
+            sampler.setSampleRate(0.1);
+            sampler.start();
+            context.addTurboFilter(sampler);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void addMessageRequestLogging() {
+        serviceLog.debug("[SERVICE] Adding message. SessionId={}", sessionId);
+        controllerLog.info("Message saved. messageId={} sessionId={} sender={}", messageId, sessionId, SenderType.USER);
+    }
+
+    private Appender<ILoggingEvent> nullAppender(boolean json) {
+        Encoder<ILoggingEvent> encoder;
+        if (json) {
+            LogstashEncoder logstash = new LogstashEncoder();
+            logstash.setIncludeContext(false);
+            encoder = logstash;
+        } else {
+            PatternLayoutEncoder pattern = new PatternLayoutEncoder();
+            pattern.setPattern("%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg%n");
+            encoder = pattern;
+        }
+        encoder.setContext(context);
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        return appender;
+    }
+}
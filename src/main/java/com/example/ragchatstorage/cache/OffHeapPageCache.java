@@ -0,0 +1,216 @@
+package com.example.ragchatstorage.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Serialized response bodies (JSON message pages) kept outside the Java heap, so hot pages do
+ * not pile up as long-lived objects in the old generation.
+ *
+ * One direct buffer of app.page-cache.capacity is allocated at startup and split into blocks of
+ * app.page-cache.block-size; an entry takes as many blocks as its bytes need and gives them back
+ * when evicted, least recently used first. Only the key map and block lists live on the heap.
+ * A body is streamed out of its blocks to the response; a reader pins the entry, so blocks of an
+ * entry evicted meanwhile are only reused once the last reader is done. Bodies over 1/8 of the
+ * capacity are not cached.
+ *
+ * Keys must identify the content exactly (e.g. include its ETag): entries are never updated.
+ *
+ * Metrics: ragchat.page.cache.hits / misses / evictions, ragchat.page.cache.bytes (used) and
+ * ragchat.page.cache.entries.
+ */
+@Slf4j
+@Component
+public class OffHeapPageCache {
+
+    private final boolean enabled;
+    private final int blockSize;
+    private final ByteBuffer slab;
+    private final int[] freeBlocks;
+    private int freeCount;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public OffHeapPageCache(@Value("${app.page-cache.enabled:true}") boolean enabled,
+                            @Value("${app.page-cache.capacity:64MB}") DataSize capacity,
+                            @Value("${app.page-cache.block-size:8KB}") DataSize blockSize,
+                            MeterRegistry meterRegistry) {
+        if (blockSize.toBytes() <= 0 || blockSize.toBytes() > capacity.toBytes()
+                || capacity.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("app.page-cache.block-size must be positive and app.page-cache.capacity "
+                    + "between block-size and 2GB");
+        }
+        this.enabled = enabled;
+        this.blockSize = (int) blockSize.toBytes();
+        int blocks = enabled ? (int) (capacity.toBytes() / this.blockSize) : 0;
+        this.slab = ByteBuffer.allocateDirect(blocks * this.blockSize);
+        this.freeBlocks = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            freeBlocks[i] = blocks - 1 - i;
+        }
+        this.freeCount = blocks;
+
+        this.hits = Counter.builder("ragchat.page.cache.hits")
+                .description("Responses served from the off-heap page cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ragchat.page.cache.misses")
+                .description("Page cache lookups that found no entry")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("ragchat.page.cache.evictions")
+                .description("Page cache entries evicted to make room")
+                .register(meterRegistry);
+        Gauge.builder("ragchat.page.cache.bytes", this, OffHeapPageCache::usedBytes)
+                .description("Off-heap bytes held by cached pages")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("ragchat.page.cache.entries", this, OffHeapPageCache::size)
+                .description("Pages in the off-heap cache")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The cached body for {@code key}, pinned until the returned entry is closed; null on a miss.
+     */
+    public Entry get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null) {
+                entry.pins++;
+            }
+        }
+        (entry != null ? hits : misses).increment();
+        return entry;
+    }
+
+    /**
+     * Copies {@code body} into the cache under {@code key}, evicting older entries as needed.
+     * Does nothing when the body is too large or the room is held by pinned entries.
+     */
+    public void put(String key, byte[] body) {
+        int needed = Math.max(1, (body.length + blockSize - 1) / blockSize);
+        if (!enabled || needed > freeBlocks.length / 8) {
+            return;
+        }
+        int[] blocks = allocate(needed);
+        if (blocks == null) {
+            return;
+        }
+        // The blocks belong to no entry yet, so they are filled without the lock
+        for (int i = 0; i < blocks.length; i++) {
+            int offset = i * blockSize;
+            slab.put(blocks[i] * blockSize, body, offset, Math.min(blockSize, body.length - offset));
+        }
+        Entry entry = new Entry(blocks, body.length);
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                drop(previous);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.values().forEach(this::drop);
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long usedBytes() {
+        return (long) (freeBlocks.length - freeCount) * blockSize;
+    }
+
+    private synchronized int[] allocate(int needed) {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (freeCount < needed && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            drop(entry);
+            evictions.increment();
+        }
+        if (freeCount < needed) {
+            return null;
+        }
+        int[] blocks = new int[needed];
+        for (int i = 0; i < needed; i++) {
+            blocks[i] = freeBlocks[--freeCount];
+        }
+        return blocks;
+    }
+
+    /** Called with the lock held, after the entry left the map. */
+    private void drop(Entry entry) {
+        entry.dropped = true;
+        if (entry.pins == 0) {
+            release(entry);
+        }
+    }
+
+    private void release(Entry entry) {
+        for (int block : entry.blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    /**
+     * A pinned cached body. Close it once written; it must not be used afterwards.
+     */
+    public final class Entry implements AutoCloseable {
+
+        private final int[] blocks;
+        private final int length;
+        private int pins;
+        private boolean dropped;
+
+        private Entry(int[] blocks, int length) {
+            this.blocks = blocks;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            byte[] chunk = new byte[Math.min(blockSize, length)];
+            for (int i = 0, remaining = length; remaining > 0; i++) {
+                int n = Math.min(blockSize, remaining);
+                slab.get(blocks[i] * blockSize, chunk, 0, n);
+                out.write(chunk, 0, n);
+                remaining -= n;
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (OffHeapPageCache.this) {
+                if (--pins == 0 && dropped) {
+                    release(this);
+                }
+            }
+        }
+    }
+}
@@ -1,25 +1,56 @@
 package com.example.ragchatstorage.config;
 
 import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Custom authentication token for API Key authentication.
  * This is used by Spring Security's authentication mechanism.
+ *
+ * Authenticated tokens are built once per registered key by ApiKeyRegistry and shared
+ * across requests, so they carry only a key id (never the key itself) and are sealed
+ * against further modification.
  */
 public class ApiKeyAuthentication extends AbstractAuthenticationToken {
 
+    static final String ADMIN_AUTHORITY = "ROLE_ADMIN";
+
     private final String apiKey;
+    private final String keyId;
+    private final boolean sealed;
 
     public ApiKeyAuthentication(String apiKey) {
         super(null);
         this.apiKey = apiKey;
+        this.keyId = null;
+        this.sealed = false;
         setAuthenticated(false);
     }
 
-    public ApiKeyAuthentication(String apiKey, boolean authenticated) {
-        super(null);
-        this.apiKey = apiKey;
-        setAuthenticated(authenticated);
+    private ApiKeyAuthentication(String keyId, Collection<? extends GrantedAuthority> authorities) {
+        super(authorities);
+        this.apiKey = null;
+        this.keyId = keyId;
+        super.setAuthenticated(true);
+        this.sealed = true;
+    }
+
+    /**
+     * Immutable authenticated token identified by a non-secret key id.
+     */
+    public static ApiKeyAuthentication authenticated(String keyId) {
+        return new ApiKeyAuthentication(keyId, List.of());
+    }
+
+    /**
+     * Immutable authenticated token of an admin key (ROLE_ADMIN, required for /api/v1/admin/**).
+     */
+    public static ApiKeyAuthentication authenticatedAdmin(String keyId) {
+        return new ApiKeyAuthentication(keyId, List.of(new SimpleGrantedAuthority(ADMIN_AUTHORITY)));
     }
 
     @Override
@@ -29,7 +60,22 @@ public class ApiKeyAuthentication extends AbstractAuthenticationToken {
 
     @Override
     public Object getPrincipal() {
-        return apiKey;
+        return sealed ? keyId : apiKey;
+    }
+
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        if (sealed) {
+            throw new IllegalStateException("Shared API key authentication cannot be modified");
+        }
+        super.setAuthenticated(authenticated);
     }
-}
 
+    @Override
+    public void setDetails(Object details) {
+        // Request details cannot live on a token shared between requests (ProviderManager copies them)
+        if (!sealed) {
+            super.setDetails(details);
+        }
+    }
+}
@@ -5,8 +5,6 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Lazy;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -14,20 +12,22 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 
 /**
- * Filter to extract API key from request header and authenticate using Spring Security.
- * This integrates with Spring Security's AuthenticationManager.
- * Uses @Lazy to avoid circular dependency with SecurityConfig.
+ * Filter to extract API key from request header and authenticate it.
+ *
+ * Fast path: the key is matched directly against ApiKeyRegistry and the pre-built
+ * token for that key is placed in the security context, skipping the
+ * AuthenticationManager round trip and per-request token allocation.
  */
 @Component
 public class ApiKeyAuthenticationEntryFilter extends OncePerRequestFilter {
 
-    private final AuthenticationManager authenticationManager;
+    private final ApiKeyRegistry apiKeyRegistry;
+    private final String apiKeyHeader;
 
-    @Value("${security.api-key-header:X-API-KEY}")
-    private String apiKeyHeader;
-
-    public ApiKeyAuthenticationEntryFilter(@Lazy AuthenticationManager authenticationManager) {
-        this.authenticationManager = authenticationManager;
+    public ApiKeyAuthenticationEntryFilter(ApiKeyRegistry apiKeyRegistry,
+                                           @Value("${security.api-key-header:X-API-KEY}") String apiKeyHeader) {
+        this.apiKeyRegistry = apiKeyRegistry;
+        this.apiKeyHeader = apiKeyHeader;
     }
 
     @Override
@@ -38,11 +38,10 @@ public class ApiKeyAuthenticationEntryFilter extends OncePerRequestFilter {
         String apiKey = request.getHeader(apiKeyHeader);
 
         if (apiKey != null) {
-            try {
-                ApiKeyAuthentication authentication = new ApiKeyAuthentication(apiKey);
-                ApiKeyAuthentication authenticated = (ApiKeyAuthentication) authenticationManager.authenticate(authentication);
+            ApiKeyAuthentication authenticated = apiKeyRegistry.match(apiKey);
+            if (authenticated != null) {
                 SecurityContextHolder.getContext().setAuthentication(authenticated);
-            } catch (Exception e) {
+            } else {
                 // Authentication failed - Spring Security will handle 401
                 SecurityContextHolder.clearContext();
             }
@@ -51,4 +50,3 @@ public class ApiKeyAuthenticationEntryFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 }
-
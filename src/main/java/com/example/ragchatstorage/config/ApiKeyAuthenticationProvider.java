@@ -1,56 +1,44 @@
 package com.example.ragchatstorage.config;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-
 /**
  * Spring Security Authentication Provider for API Key authentication.
  * Supports multiple API keys for different clients (frontend, mobile, backend).
- * Validates API keys against configured values from application.yml.
+ * Validates API keys against the hashed keys held by ApiKeyRegistry.
  *
- * Configuration: security.api-keys (comma-separated list)
+ * The request filter calls the registry directly; this provider keeps the
+ * AuthenticationManager contract working for any other caller.
  */
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class ApiKeyAuthenticationProvider implements AuthenticationProvider {
 
-    private final Set<String> validApiKeys;
-
-    public ApiKeyAuthenticationProvider(@Value("${security.api-keys:changeme}") String apiKeys) {
-        // Parse comma-separated API keys into a Set for O(1) lookup
-        this.validApiKeys = new HashSet<>(Arrays.asList(apiKeys.split(",")));
-        this.validApiKeys.removeIf(String::isBlank); // Remove empty strings
-
-        log.info("API Key Authentication initialized with {} valid key(s)", validApiKeys.size());
-    }
+    private final ApiKeyRegistry apiKeyRegistry;
 
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
-        String providedKey = (String) authentication.getPrincipal();
+        String providedKey = (String) authentication.getCredentials();
 
         if (providedKey == null || providedKey.isBlank()) {
             log.warn("API key is missing or empty");
             throw new BadCredentialsException("API key is required");
         }
 
-        // Check if provided key exists in valid keys set
-        if (!validApiKeys.contains(providedKey.trim())) {
-            log.warn("Invalid API key attempt: {}***",
-                    providedKey.substring(0, Math.min(4, providedKey.length())));
+        ApiKeyAuthentication authenticated = apiKeyRegistry.match(providedKey);
+        if (authenticated == null) {
+            log.warn("Invalid API key attempt");
             throw new BadCredentialsException("Invalid API key");
         }
 
-        log.debug("API key authenticated successfully");
-        return new ApiKeyAuthentication(providedKey, true);
+        return authenticated;
     }
 
     @Override
@@ -58,4 +46,3 @@ public class ApiKeyAuthenticationProvider implements AuthenticationProvider {
         return ApiKeyAuthentication.class.isAssignableFrom(authentication);
     }
 }
-
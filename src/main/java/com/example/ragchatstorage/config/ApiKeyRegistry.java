@@ -0,0 +1,181 @@
+package com.example.ragchatstorage.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Registry of accepted API keys, stored only as SHA-256 digests.
+ *
+ * Every key gets a pre-built, immutable authenticated token at load time, so a
+ * successful lookup allocates nothing beyond the digest of the presented key.
+ * Matching compares the presented digest against every registered digest in
+ * constant time, so response timing does not reveal how close a guess was.
+ *
+ * Keys come from security.api-keys (comma-separated). When security.api-keys-file
+ * is set, that file (one key per line, '#' comments allowed) is authoritative and
+ * is re-read whenever its modification time changes - no restart required.
+ *
+ * An entry may be written {@code label:key}; the label becomes the principal name
+ * seen in logs and metrics. Unlabelled keys are named by position ({@code key-1},
+ * {@code key-2}, ...) - nothing derived from the key itself is ever exposed.
+ *
+ * Keys in security.admin-api-keys (same format, named {@code admin-1}, ... by default)
+ * are also accepted everywhere else and are the only ones granted the admin endpoints.
+ * They are not read from the keys file and survive its reloads.
+ */
+@Component
+@Slf4j
+public class ApiKeyRegistry {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final char LABEL_SEPARATOR = ':';
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(ApiKeyRegistry::newDigest);
+
+    private final Path keysFile;
+    private final List<String> adminKeys;
+
+    private volatile Entry[] entries = new Entry[0];
+    private volatile long keysFileModified = Long.MIN_VALUE;
+
+    public ApiKeyRegistry(@Value("${security.api-keys:changeme}") String inlineKeys,
+                          @Value("${security.api-keys-file:}") String keysFile,
+                          @Value("${security.admin-api-keys:}") String adminKeys) {
+        this.keysFile = keysFile == null || keysFile.isBlank() ? null : Path.of(keysFile);
+        this.adminKeys = adminKeys == null ? List.of() : Arrays.asList(adminKeys.split(","));
+
+        if (this.keysFile != null) {
+            if (!reloadKeysFile()) {
+                throw new IllegalStateException("Unable to load API keys from " + this.keysFile);
+            }
+        } else {
+            replaceKeys(Arrays.asList(inlineKeys.split(",")));
+        }
+    }
+
+    /**
+     * Returns the pre-built authenticated token for the presented key, or null when it is not registered.
+     */
+    public ApiKeyAuthentication match(String presentedKey) {
+        if (presentedKey == null || presentedKey.isEmpty()) {
+            return null;
+        }
+
+        byte[] presented = digest(presentedKey);
+        Entry[] snapshot = entries;
+        ApiKeyAuthentication matched = null;
+
+        // Deliberately no early exit: every registered digest is compared on every request
+        for (Entry entry : snapshot) {
+            if (MessageDigest.isEqual(entry.digest(), presented)) {
+                matched = entry.authentication();
+            }
+        }
+        return matched;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Polls the keys file and swaps in a new key set when it has changed.
+     */
+    @Scheduled(fixedDelayString = "${security.api-keys-reload-interval-ms:10000}")
+    public void reloadIfChanged() {
+        if (keysFile == null) {
+            return;
+        }
+        try {
+            if (Files.getLastModifiedTime(keysFile).toMillis() != keysFileModified) {
+                reloadKeysFile();
+            }
+        } catch (IOException ex) {
+            log.warn("API keys file {} is not readable, keeping {} existing key(s): {}",
+                    keysFile, entries.length, ex.getMessage());
+        }
+    }
+
+    synchronized boolean reloadKeysFile() {
+        try {
+            long modified = Files.getLastModifiedTime(keysFile).toMillis();
+            List<String> lines = Files.readAllLines(keysFile, StandardCharsets.UTF_8);
+            List<String> keys = new ArrayList<>(lines.size());
+            for (String line : lines) {
+                if (!line.isBlank() && !line.strip().startsWith("#")) {
+                    keys.add(line);
+                }
+            }
+            replaceKeys(keys);
+            keysFileModified = modified;
+            return true;
+        } catch (IOException ex) {
+            log.warn("Failed to load API keys from {}: {}", keysFile, ex.getMessage());
+            return false;
+        }
+    }
+
+    private void replaceKeys(List<String> rawKeys) {
+        // Keyed by digest hex so duplicate keys collapse into a single entry; admin keys go first and win
+        Map<String, Entry> byDigest = new LinkedHashMap<>();
+        addKeys(byDigest, adminKeys, "admin-", ApiKeyAuthentication::authenticatedAdmin);
+        int admins = byDigest.size();
+        addKeys(byDigest, rawKeys, "key-", ApiKeyAuthentication::authenticated);
+        entries = byDigest.values().toArray(new Entry[0]);
+        log.info("API Key Authentication initialized with {} valid key(s), {} admin", entries.length, admins);
+    }
+
+    private static void addKeys(Map<String, Entry> byDigest, List<String> rawKeys, String defaultPrefix,
+                                Function<String, ApiKeyAuthentication> authentication) {
+        int position = 0;
+        for (String rawKey : rawKeys) {
+            String key = rawKey.strip();
+            String label = null;
+            int separator = key.indexOf(LABEL_SEPARATOR);
+            if (separator > 0) {
+                label = key.substring(0, separator).strip();
+                key = key.substring(separator + 1).strip();
+            }
+            if (key.isEmpty()) {
+                continue;
+            }
+            position++;
+            byte[] digest = digest(key);
+            String keyId = label != null ? label : defaultPrefix + position;
+            byDigest.putIfAbsent(HexFormat.of().formatHex(digest), new Entry(digest, authentication.apply(keyId)));
+        }
+    }
+
+    private static byte[] digest(String key) {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        return digest.digest(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", ex);
+        }
+    }
+
+    private record Entry(byte[] digest, ApiKeyAuthentication authentication) {
+    }
+}
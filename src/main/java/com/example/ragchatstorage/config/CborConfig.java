@@ -0,0 +1,23 @@
+package com.example.ragchatstorage.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * CBOR (RFC 8949) content type alongside JSON.
+ *
+ * Clients that send Accept: application/cbor get the same response structure in a compact
+ * binary encoding - mostly useful for large message pages with RAG context. The mapper is
+ * built from Spring Boot's Jackson builder so modules and features match the JSON output.
+ */
+@Configuration
+public class CborConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
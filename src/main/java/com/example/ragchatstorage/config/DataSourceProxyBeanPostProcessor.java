@@ -0,0 +1,32 @@
+package com.example.ragchatstorage.config;
+
+import com.example.ragchatstorage.metrics.QueryStatsListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps every DataSource bean in a datasource-proxy so per-request statement counts and
+ * DB time can be collected (see QueryStats / RequestMetricsFilter).
+ *
+ * Configuration: app.metrics.db-query-stats.enabled (default true)
+ */
+@Component
+@ConditionalOnProperty(name = "app.metrics.db-query-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class DataSourceProxyBeanPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create(dataSource)
+                    .name(beanName)
+                    .listener(new QueryStatsListener())
+                    .build();
+        }
+        return bean;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.ragchatstorage.config;
 
 import lombok.RequiredArgsConstructor;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -26,6 +27,7 @@ import java.util.Arrays;
  *
  * Security Rules:
  * - All /api/** endpoints require API key authentication
+ * - /api/v1/admin/** additionally requires an admin key (security.admin-api-keys)
  * - Public endpoints: /actuator/**, /swagger-ui/**, /v3/api-docs/**
  * - API key authentication via Spring Security's AuthenticationManager
  *
@@ -72,6 +74,9 @@ public class SecurityConfig {
 
             // Authorization rules
             .authorizeHttpRequests(auth -> auth
+                // Async dispatches of SSE streams were already authorized on the initial request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 // Public endpoints - no authentication required
                 .requestMatchers(
                     "/actuator/**",
@@ -82,6 +87,9 @@ public class SecurityConfig {
                     "/webjars/**"
                 ).permitAll()
 
+                // Cross-user listing and shard maintenance - admin keys only
+                .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
+
                 // Protected endpoints - require authentication
                 .requestMatchers("/api/**").authenticated()
 
@@ -119,6 +127,9 @@ public class SecurityConfig {
             configuration.setAllowedHeaders(Arrays.asList(headers));
         }
 
+        // Let browser clients read ETags for conditional requests
+        configuration.setExposedHeaders(Arrays.asList("ETag"));
+
         // Allow credentials if not wildcard origin
         configuration.setAllowCredentials(!allowedOrigins.equals("*"));
 
@@ -149,6 +160,7 @@ public class SecurityConfig {
                         .allowedOrigins(origins)
                         .allowedMethods(methods)
                         .allowedHeaders(allowedHeaders)
+                        .exposedHeaders("ETag")
                         .allowCredentials(allowCredentials)
                         .maxAge(maxAge);
             }
@@ -0,0 +1,72 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.datasource.ShardRebalancer;
+import com.example.ragchatstorage.dto.SessionResponse;
+import com.example.ragchatstorage.exception.NotFoundException;
+import com.example.ragchatstorage.mapper.ChatSessionMapper;
+import com.example.ragchatstorage.service.ChatSessionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+@Tag(name = "Administration", description = "Cross-user listing and shard maintenance")
+@SecurityRequirement(name = "ApiKeyAuth")
+public class AdminController {
+
+    private final ChatSessionService sessionService;
+    private final ChatSessionMapper sessionMapper;
+    private final ShardRebalancer shardRebalancer;
+
+    @Value("${app.pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    @GetMapping("/sessions")
+    @Operation(summary = "List recent sessions of all users",
+            description = "Most recently updated sessions across every shard")
+    public ResponseEntity<List<SessionResponse>> getRecentSessions(
+            @Parameter(description = "Maximum number of sessions") @RequestParam(defaultValue = "20") int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, maxPageSize));
+
+        return ResponseEntity.ok(sessionMapper.toDtoList(sessionService.getRecentSessions(boundedLimit)));
+    }
+
+    @PostMapping("/users/{userId}/move")
+    @Operation(summary = "Move a user to another shard",
+            description = "Starts copying the user's sessions and messages to the target shard online and returns "
+                    + "202 with the move's status; writes for the user are rejected with 503 while it runs. Poll "
+                    + "the Location header on the same instance for the outcome")
+    public ResponseEntity<ShardRebalancer.MoveStatus> moveUser(
+            @Parameter(description = "User ID", required = true) @PathVariable String userId,
+            @Parameter(description = "Target shard index", required = true) @RequestParam int targetShard) {
+        var status = shardRebalancer.startMove(userId, targetShard);
+        log.info("User move started. moveId={} userId={} targetShard={}", status.moveId(), userId, targetShard);
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/admin/moves/" + status.moveId()))
+                .body(status);
+    }
+
+    @GetMapping("/moves/{moveId}")
+    @Operation(summary = "Get the status of a user move",
+            description = "RUNNING, COMPLETED with the number of moved sessions and messages, or FAILED with the "
+                    + "error; kept for an hour by the instance that started the move")
+    public ResponseEntity<ShardRebalancer.MoveStatus> getMove(
+            @Parameter(description = "Move ID", required = true) @PathVariable String moveId) {
+        return shardRebalancer.moveStatus(moveId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new NotFoundException("Move not found: " + moveId));
+    }
+}
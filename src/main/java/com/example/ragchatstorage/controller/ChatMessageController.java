@@ -1,11 +1,19 @@
 package com.example.ragchatstorage.controller;
 
+import com.example.ragchatstorage.cache.OffHeapPageCache;
+import com.example.ragchatstorage.dto.AppendChunkRequest;
 import com.example.ragchatstorage.dto.CreateMessageRequest;
 import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.MessageWindowResponse;
+import com.example.ragchatstorage.dto.OpenDraftRequest;
 import com.example.ragchatstorage.dto.PagedResponse;
 import com.example.ragchatstorage.mapper.ChatMessageMapper;
+import com.example.ragchatstorage.metrics.ChatMetrics;
 import com.example.ragchatstorage.model.ChatMessage;
 import com.example.ragchatstorage.service.ChatMessageService;
+import com.example.ragchatstorage.service.MessageDraftService;
+import com.example.ragchatstorage.service.ResourceVersionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -15,9 +23,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
 
 @Slf4j
 @RestController
@@ -28,7 +45,12 @@ import org.springframework.web.bind.annotation.*;
 public class ChatMessageController {
 
     private final ChatMessageService messageService;
+    private final MessageDraftService draftService;
     private final ChatMessageMapper messageMapper;
+    private final ChatMetrics chatMetrics;
+    private final ResourceVersionService resourceVersionService;
+    private final OffHeapPageCache pageCache;
+    private final ObjectMapper objectMapper;
 
     @Value("${app.pagination.default-page-size:20}")
     private int defaultPageSize;
@@ -37,85 +59,146 @@ public class ChatMessageController {
     private int maxPageSize;
 
     @PostMapping
-    @Operation(summary = "Add a message to a session", description = "Creates a new message within a chat session with optional RAG context")
+    @Operation(summary = "Add a message to a session",
+            description = "Creates a new message within a chat session with optional RAG context. Retries carrying the "
+                    + "same Idempotency-Key return the message created by the first request")
     public ResponseEntity<MessageResponse> addMessage(
             @Parameter(description = "Session ID", required = true) @PathVariable String sessionId,
+            @Parameter(description = "Client-chosen key (max 128 chars) identifying this message across retries")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody CreateMessageRequest request) {
 
-        long startTime = System.currentTimeMillis();
+        chatMetrics.recordMessagePayload(request);
 
-        log.info("🔵 [START] Adding message to session. SessionId={}, Sender={}, UserId={}, HasContext={}",
-                sessionId, request.sender(), request.userId(),
-                request.context() != null && !request.context().isEmpty());
+        ChatMessage created = messageService.addMessage(sessionId, request, idempotencyKey);
+        log.info("Message saved. messageId={} sessionId={} sender={}", created.getId(), sessionId, request.sender());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(messageMapper.toDto(created));
+    }
 
-        log.debug("📝 Request details: Content length={}, Context items={}",
-                request.content() != null ? request.content().length() : 0,
-                request.context() != null ? request.context().size() : 0);
+    @GetMapping
+    @Operation(summary = "Get messages from a session",
+            description = "Retrieves paginated message history for a chat session. Supports If-None-Match (304 when unchanged) "
+                    + "and Accept: application/cbor for a binary response")
+    public ResponseEntity<PagedResponse<MessageResponse>> getMessages(
+            @Parameter(description = "Session ID", required = true) @PathVariable String sessionId,
+            @Parameter(description = "Page number (0-indexed)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size,
+            WebRequest webRequest,
+            HttpServletResponse servletResponse) throws IOException {
+
+        int pageSize = size != null ? size : defaultPageSize;
+        pageSize = Math.min(pageSize, maxPageSize);
+
+        // Null when the session does not exist (the service reports 404) or has a streaming draft
+        String etag = resourceVersionService.messagesETag(sessionId);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        // Pages vouched for by the ETag are written as JSON from the off-heap cache, without
+        // reading or encoding the messages again
+        String cacheKey = etag != null && pageCache.isEnabled() && EncodedJson.accepted(webRequest)
+                ? sessionId + '/' + page + '/' + pageSize + '/' + etag : null;
+        if (cacheKey != null) {
+            try (OffHeapPageCache.Entry cached = pageCache.get(cacheKey)) {
+                if (cached != null) {
+                    EncodedJson.write(servletResponse, etag, cached.length(), cached::writeTo);
+                    log.info("Messages served from page cache. sessionId={} page={}", sessionId, page);
+                    return null;
+                }
+            }
+        }
 
-        try {
-            log.debug("💾 Calling messageService.addMessage()...");
-            ChatMessage created = messageService.addMessage(sessionId, request);
+        Page<MessageResponse> result = messageService.getMessageResponses(sessionId, page, pageSize);
 
-            long duration = System.currentTimeMillis() - startTime;
-            log.info("✅ [SUCCESS] Message saved. MessageId={}, SessionId={}, Duration={}ms",
-                    created.getId(), sessionId, duration);
+        var content = result.getContent();
 
-            MessageResponse response = messageMapper.toDto(created);
-            log.debug("📤 Returning response with MessageId={}", response.id());
+        PagedResponse<MessageResponse> response = new PagedResponse<>(
+            content,
+            result.getNumber(),
+            result.getSize(),
+            result.getTotalElements(),
+            result.getTotalPages(),
+            result.isLast()
+        );
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        log.info("Messages fetched. sessionId={} page={} count={}", sessionId, page, content.size());
 
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            log.error("❌ [ERROR] Failed to add message. SessionId={}, Duration={}ms, Error={}",
-                    sessionId, duration, e.getMessage(), e);
-            throw e;
+        if (cacheKey != null) {
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            pageCache.put(cacheKey, body);
+            EncodedJson.write(servletResponse, etag, body);
+            return null;
         }
+
+        // Same ETag for JSON and CBOR, so caches must key on Accept as well
+        var ok = ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT);
+        return etag != null ? ok.eTag(etag).body(response) : ok.body(response);
     }
 
-    @GetMapping
-    @Operation(summary = "Get messages from a session", description = "Retrieves paginated message history for a chat session")
-    public ResponseEntity<PagedResponse<MessageResponse>> getMessages(
+    @GetMapping("/window")
+    @Operation(summary = "Get the newest messages fitting a token budget",
+            description = "Returns, oldest first, the newest messages whose stored token estimates add up to at most "
+                    + "maxTokens, selected with an index range instead of reading and re-tokenizing the history")
+    public MessageWindowResponse getMessageWindow(
             @Parameter(description = "Session ID", required = true) @PathVariable String sessionId,
-            @Parameter(description = "Page number (0-indexed)") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Page size") @RequestParam(required = false) Integer size) {
+            @Parameter(description = "Token budget", required = true) @RequestParam long maxTokens) {
+        MessageWindowResponse window = messageService.getMessageWindow(sessionId, maxTokens);
+        log.info("Message window fetched. sessionId={} maxTokens={} count={} tokens={}",
+                sessionId, maxTokens, window.messages().size(), window.tokens());
+        return window;
+    }
 
-        long startTime = System.currentTimeMillis();
-        int pageSize = size != null ? size : defaultPageSize;
-        pageSize = Math.min(pageSize, maxPageSize);
+    @PostMapping("/drafts")
+    @Operation(summary = "Open a streaming assistant message",
+            description = "Creates an ASSISTANT message with status STREAMING and empty content. Append the generated "
+                    + "text with POST /{messageId}/chunks and complete it with POST /{messageId}/finalize")
+    public ResponseEntity<MessageResponse> openDraft(
+            @Parameter(description = "Session ID", required = true) @PathVariable String sessionId,
+            @RequestBody(required = false) OpenDraftRequest request) {
 
-        log.info("🔍 [START] Fetching messages. SessionId={}, Page={}, PageSize={}",
-                sessionId, page, pageSize);
+        ChatMessage draft = draftService.openDraft(sessionId, request);
+        log.info("Draft opened. messageId={} sessionId={}", draft.getId(), sessionId);
 
-        try {
-            Page<ChatMessage> result = messageService.getMessages(sessionId, page, pageSize);
+        return ResponseEntity.status(HttpStatus.CREATED).body(messageMapper.toDto(draft));
+    }
 
-            log.debug("📊 Query result: TotalElements={}, TotalPages={}, CurrentPage={}, HasContent={}",
-                    result.getTotalElements(), result.getTotalPages(), result.getNumber(),
-                    !result.getContent().isEmpty());
+    @PostMapping("/{messageId}/chunks")
+    @Operation(summary = "Append to a streaming assistant message",
+            description = "Chunks are coalesced and written on size/time thresholds; readers of the history see the "
+                    + "partial content shortly after")
+    public ResponseEntity<Void> appendChunk(
+            @Parameter(description = "Session ID", required = true) @PathVariable String sessionId,
+            @Parameter(description = "Message ID", required = true) @PathVariable String messageId,
+            @Valid @RequestBody AppendChunkRequest request) {
 
-            var content = messageMapper.toDtoList(result.getContent());
+        draftService.appendChunk(sessionId, messageId, request.content());
+        return ResponseEntity.accepted().build();
+    }
 
-            PagedResponse<MessageResponse> response = new PagedResponse<>(
-                content,
-                result.getNumber(),
-                result.getSize(),
-                result.getTotalElements(),
-                result.getTotalPages(),
-                result.isLast()
-            );
+    @PostMapping("/{messageId}/finalize")
+    @Operation(summary = "Complete a streaming assistant message",
+            description = "Writes any pending chunks, marks the message COMPLETE and publishes it to message streams")
+    public ResponseEntity<MessageResponse> finalizeDraft(
+            @Parameter(description = "Session ID", required = true) @PathVariable String sessionId,
+            @Parameter(description = "Message ID", required = true) @PathVariable String messageId) {
 
-            long duration = System.currentTimeMillis() - startTime;
-            log.info("✅ [SUCCESS] Messages fetched. SessionId={}, Count={}, Duration={}ms",
-                    sessionId, content.size(), duration);
+        ChatMessage message = draftService.finalizeDraft(sessionId, messageId);
+        log.info("Draft finalized. messageId={} sessionId={} length={}", messageId, sessionId, message.getContent().length());
 
-            return ResponseEntity.ok(response);
+        return ResponseEntity.ok(messageMapper.toDto(message));
+    }
 
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            log.error("❌ [ERROR] Failed to fetch messages. SessionId={}, Duration={}ms, Error={}",
-                    sessionId, duration, e.getMessage(), e);
-            throw e;
-        }
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream new messages in a session",
+            description = "Server-Sent Events stream of messages persisted after subscribing (event name 'message', "
+                    + "id = message id). Slow consumers are disconnected and should re-sync with GET /messages")
+    public SseEmitter streamMessages(
+            @Parameter(description = "Session ID", required = true) @PathVariable String sessionId,
+            HttpServletResponse response) {
+        // Tell nginx not to buffer the stream
+        response.setHeader("X-Accel-Buffering", "no");
+        return messageService.streamMessages(sessionId);
     }
 }
@@ -1,23 +1,36 @@
 package com.example.ragchatstorage.controller;
 
+import com.example.ragchatstorage.dto.BulkFavoriteRequest;
+import com.example.ragchatstorage.dto.BulkRenameRequest;
+import com.example.ragchatstorage.dto.BulkSessionRequest;
+import com.example.ragchatstorage.dto.BulkSessionResponse;
 import com.example.ragchatstorage.dto.CreateSessionRequest;
 import com.example.ragchatstorage.dto.FavoriteSessionRequest;
+import com.example.ragchatstorage.dto.ForkSessionRequest;
 import com.example.ragchatstorage.dto.RenameSessionRequest;
 import com.example.ragchatstorage.dto.SessionResponse;
+import com.example.ragchatstorage.exception.PreconditionFailedException;
 import com.example.ragchatstorage.mapper.ChatSessionMapper;
 import com.example.ragchatstorage.service.ChatMessageService;
 import com.example.ragchatstorage.service.ChatSessionService;
+import com.example.ragchatstorage.service.ResourceVersionService;
+import com.example.ragchatstorage.service.SessionListCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 @Slf4j
 @RestController
@@ -30,70 +43,136 @@ public class ChatSessionController {
     private final ChatSessionService sessionService;
     private final ChatMessageService messageService;
     private final ChatSessionMapper sessionMapper;
+    private final ResourceVersionService resourceVersionService;
+    private final SessionListCache sessionListCache;
 
     @PostMapping
     @Operation(summary = "Create a new chat session", description = "Creates a new chat session for a user")
     public ResponseEntity<SessionResponse> createSession(@Valid @RequestBody CreateSessionRequest request) {
         var created = sessionService.createSession(request);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(sessionMapper.toDto(created));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .eTag(Long.toString(created.getVersion()))
+                .body(sessionMapper.toDto(created));
+    }
+
+    @PostMapping("/{id}/fork")
+    @Operation(summary = "Fork a session",
+            description = "Creates a session for the same user that continues this session's history up to and including "
+                    + "message seq upToSeq (0 for none). The history is shared, not copied")
+    public ResponseEntity<SessionResponse> forkSession(
+            @Parameter(description = "Session ID", required = true) @PathVariable String id,
+            @Valid @RequestBody ForkSessionRequest request) {
+        var fork = sessionService.forkSession(id, request);
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .eTag(Long.toString(fork.getVersion()))
+                .body(sessionMapper.toDto(fork));
     }
 
     @GetMapping
-    @Operation(summary = "Get sessions for a user", description = "Retrieves all chat sessions for a user with optional favorite filter")
+    @Operation(summary = "Get sessions for a user",
+            description = "Retrieves all chat sessions for a user with optional favorite filter. Supports If-None-Match (304 when unchanged)")
     public ResponseEntity<List<SessionResponse>> getSessions(
             @Parameter(description = "User ID", required = true) @RequestParam String userId,
-            @Parameter(description = "Filter by favorite status") @RequestParam(required = false) Boolean favorite) {
-        var sessions = sessionService.getSessionsForUser(userId, favorite);
+            @Parameter(description = "Filter by favorite status") @RequestParam(required = false) Boolean favorite,
+            WebRequest webRequest,
+            HttpServletResponse servletResponse) throws IOException {
+        String etag = resourceVersionService.sessionListETag(userId);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        if (EncodedJson.accepted(webRequest)) {
+            EncodedJson.write(servletResponse, etag, sessionListCache.get(userId, favorite, etag,
+                    () -> sessionService.getSessionResponsesForUser(userId, favorite)));
+            return null;
+        }
 
-        var response = sessionMapper.toDtoList(sessions);
-        return ResponseEntity.ok(response);
+        var response = sessionService.getSessionResponsesForUser(userId, favorite);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(response);
     }
 
     @PatchMapping("/{id}/rename")
-    @Operation(summary = "Rename a session", description = "Updates the title of a chat session")
+    @Operation(summary = "Rename a session",
+            description = "Updates the title of a chat session. With If-Match (the session's ETag / version) the update "
+                    + "only applies if the session is unchanged, otherwise 412")
     public ResponseEntity<SessionResponse> rename(
             @Parameter(description = "Session ID", required = true) @PathVariable String id,
+            @Parameter(description = "Expected session version") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody RenameSessionRequest request) {
-        var updated = sessionService.renameSession(id, request.title());
+        var updated = sessionService.renameSession(id, request.title(), expectedVersion(ifMatch));
 
-        return ResponseEntity.ok(sessionMapper.toDto(updated));
+        return ResponseEntity.ok().eTag(Long.toString(updated.getVersion())).body(sessionMapper.toDto(updated));
     }
 
     @PatchMapping("/{id}/favorite")
-    @Operation(summary = "Mark/unmark session as favorite", description = "Updates the favorite status of a chat session")
+    @Operation(summary = "Mark/unmark session as favorite",
+            description = "Updates the favorite status of a chat session. Supports If-Match like rename")
     public ResponseEntity<SessionResponse> markFavorite(
             @Parameter(description = "Session ID", required = true) @PathVariable String id,
+            @Parameter(description = "Expected session version") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody FavoriteSessionRequest request) {
-        var updated = sessionService.markFavorite(id, request.favorite());
+        var updated = sessionService.markFavorite(id, request.favorite(), expectedVersion(ifMatch));
 
-        return ResponseEntity.ok(sessionMapper.toDto(updated));
+        return ResponseEntity.ok().eTag(Long.toString(updated.getVersion())).body(sessionMapper.toDto(updated));
     }
 
-    @DeleteMapping("/{id}")
-    @Operation(summary = "Delete a session", description = "Deletes a chat session and all its messages")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteSession(@Parameter(description = "Session ID", required = true) @PathVariable String id) {
-        long startTime = System.currentTimeMillis();
+    @PatchMapping("/bulk/favorite")
+    @Operation(summary = "Mark/unmark several sessions as favorite",
+            description = "Updates the favorite status of the given sessions of a user in one statement")
+    public BulkSessionResponse markFavorite(@Valid @RequestBody BulkFavoriteRequest request) {
+        int affected = sessionService.markFavorite(request.userId(), request.ids(), request.favorite());
+        return new BulkSessionResponse(request.ids().size(), affected);
+    }
 
-        log.info("[START] Deleting session. SessionId={}", id);
+    @PatchMapping("/bulk/rename")
+    @Operation(summary = "Rename several sessions", description = "Sets the same title on the given sessions of a user")
+    public BulkSessionResponse rename(@Valid @RequestBody BulkRenameRequest request) {
+        int affected = sessionService.renameSessions(request.userId(), request.ids(), request.title());
+        return new BulkSessionResponse(request.ids().size(), affected);
+    }
 
-        try {
-            log.debug("Deleting messages for session...");
-            messageService.deleteMessagesForSession(id);
+    @PostMapping("/bulk/delete")
+    @Operation(summary = "Delete several sessions",
+            description = "Deletes the given sessions of a user and all their messages in one transaction")
+    public BulkSessionResponse deleteSessions(@Valid @RequestBody BulkSessionRequest request) {
+        int affected = sessionService.deleteSessions(request.userId(), request.ids());
+        log.info("Sessions deleted. userId={} count={}", request.userId(), affected);
+        return new BulkSessionResponse(request.ids().size(), affected);
+    }
 
-            log.debug("Deleting session...");
-            sessionService.deleteSession(id);
+    /**
+     * Session ETags are the quoted version. "*" (or no header) means any version.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            // Weak tags never match under If-Match's strong comparison
+            throw new PreconditionFailedException("If-Match requires a strong ETag");
+        }
+        try {
+            return Long.parseLong(tag.replace("\"", ""));
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException("If-Match does not match the session");
+        }
+    }
 
-            long duration = System.currentTimeMillis() - startTime;
-            log.info("[SUCCESS] Session deleted. SessionId={}, Duration={}ms",
-                    id, duration);
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Delete a session",
+            description = "Deletes a chat session and all its messages. Sessions that have forks cannot be deleted (422)")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteSession(@Parameter(description = "Session ID", required = true) @PathVariable String id) {
+        messageService.deleteMessagesForSession(id);
+        sessionService.deleteSession(id);
 
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            log.error("[ERROR] Failed to delete session. SessionId={}, Duration={}ms, Error={}",
-                    id, duration, e.getMessage(), e);
-            throw e;
-        }
+        log.info("Session deleted. sessionId={}", id);
     }
 }
@@ -0,0 +1,62 @@
+package com.example.ragchatstorage.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes cached, already encoded JSON bodies straight to the servlet response, bypassing the
+ * message converters. Only used for requests the JSON converter would have answered.
+ */
+final class EncodedJson {
+
+    private EncodedJson() {
+    }
+
+    /**
+     * Whether the JSON converter would answer the request: JSON acceptable and CBOR not asked for.
+     */
+    static boolean accepted(WebRequest webRequest) {
+        String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return true;
+        }
+        try {
+            List<MediaType> types = MediaType.parseMediaTypes(accept);
+            return types.stream().anyMatch(type -> type.isCompatibleWith(MediaType.APPLICATION_JSON))
+                    && types.stream().noneMatch(type -> "cbor".equals(type.getSubtype()));
+        } catch (InvalidMediaTypeException ex) {
+            // Left to the regular content negotiation to reject
+            return false;
+        }
+    }
+
+    /**
+     * Writes a 200 JSON response with the headers the conditional GET endpoints set.
+     */
+    static void write(HttpServletResponse servletResponse, String etag, int length, Body body) throws IOException {
+        servletResponse.setStatus(HttpServletResponse.SC_OK);
+        servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        servletResponse.setContentLength(length);
+        servletResponse.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        servletResponse.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        servletResponse.setHeader(HttpHeaders.ETAG, '"' + etag + '"');
+        body.writeTo(servletResponse.getOutputStream());
+    }
+
+    static void write(HttpServletResponse servletResponse, String etag, byte[] body) throws IOException {
+        write(servletResponse, etag, body.length, out -> out.write(body));
+    }
+
+    @FunctionalInterface
+    interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.dto.ContextViewResponse;
+import com.example.ragchatstorage.dto.CreateSummaryRequest;
+import com.example.ragchatstorage.dto.SummaryResponse;
+import com.example.ragchatstorage.service.SessionSummaryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/sessions/{sessionId}")
+@RequiredArgsConstructor
+@Tag(name = "Conversation Compaction", description = "Rolling summaries of long sessions")
+@SecurityRequirement(name = "ApiKeyAuth")
+public class SessionSummaryController {
+
+    private final SessionSummaryService summaryService;
+
+    @PostMapping("/summaries")
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Store a summary",
+            description = "Stores a summary of the session's messages up to upToSeq; it must cover more than the latest one")
+    public SummaryResponse createSummary(
+            @Parameter(description = "Session ID", required = true) @PathVariable String sessionId,
+            @Valid @RequestBody CreateSummaryRequest request) {
+        var summary = summaryService.createSummary(sessionId, request);
+        log.info("Summary stored. sessionId={} upToSeq={}", sessionId, request.upToSeq());
+        return SummaryResponse.from(summary);
+    }
+
+    @GetMapping("/context")
+    @Operation(summary = "Get the context view",
+            description = "Returns the latest summary and only the messages after it, for prompt assembly")
+    public ContextViewResponse getContextView(
+            @Parameter(description = "Session ID", required = true) @PathVariable String sessionId) {
+        return summaryService.getContextView(sessionId);
+    }
+}
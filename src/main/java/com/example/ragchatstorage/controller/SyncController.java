@@ -0,0 +1,36 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.dto.SyncResponse;
+import com.example.ragchatstorage.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/sync")
+@RequiredArgsConstructor
+@Tag(name = "Sync", description = "Incremental synchronization of a user's sessions and messages")
+@SecurityRequirement(name = "ApiKeyAuth")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    @GetMapping
+    @Operation(summary = "Get changes since a watermark",
+            description = "Returns sessions and messages created or modified, and sessions deleted, after the watermark "
+                    + "returned by the previous call (omit it for a full sync). 410 when the watermark has to be dropped; "
+                    + "422 with the segment storage engine")
+    public SyncResponse sync(
+            @Parameter(description = "User ID", required = true) @RequestParam String userId,
+            @Parameter(description = "Watermark from the previous sync") @RequestParam(required = false) String since,
+            @Parameter(description = "Maximum change log entries per call (capped by app.sync.max-changes)")
+            @RequestParam(required = false) Integer limit) {
+        return syncService.changesSince(userId, since, limit);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.ragchatstorage.datasource;
+
+import java.util.Arrays;
+
+/**
+ * Maps 32-bit routing tokens to shards.
+ *
+ * Each shard owns {@code virtualNodes} points on the ring; a token belongs to the shard owning
+ * the first point at or after it (wrapping around). Appending a shard therefore moves only the
+ * tokens that fall just before its new points, about 1/N of them, and only onto the new shard.
+ * Point positions depend on the shard index, so shards must only ever be appended, never reordered.
+ */
+public final class ConsistentHashRing {
+
+    private final long[] points;
+    private final int[] owners;
+    private final int shardCount;
+
+    public ConsistentHashRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("shardCount and virtualNodes must be positive");
+        }
+        this.shardCount = shardCount;
+        long[] packed = new long[shardCount * virtualNodes];
+        int i = 0;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                long point = Integer.toUnsignedLong(ShardKeys.hash("shard-" + shard + "#" + node));
+                // Position in the high bits, owner in the low bits: sorting orders by position
+                packed[i++] = point << 16 | shard;
+            }
+        }
+        Arrays.sort(packed);
+        points = new long[packed.length];
+        owners = new int[packed.length];
+        for (int p = 0; p < packed.length; p++) {
+            points[p] = packed[p] >>> 16;
+            owners[p] = (int) (packed[p] & 0xFFFF);
+        }
+    }
+
+    public int shardFor(int token) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(points, Integer.toUnsignedLong(token));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+}
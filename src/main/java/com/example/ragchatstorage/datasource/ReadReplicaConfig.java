@@ -0,0 +1,83 @@
+package com.example.ragchatstorage.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured DataSource with primary + read replica routing when
+ * app.datasource.replicas (comma-separated JDBC URLs, same credentials as the primary) is set
+ * and sharding (ShardingConfig) is not.
+ *
+ * The pools sit behind the routing proxy, where Boot's pool metrics and "db" health check do
+ * not reach them, so their Hikari metrics are bound here and the replicas get a "replicas"
+ * health component.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replicas:}'.isBlank() and '${app.sharding.urls:}'.isBlank()")
+public class ReadReplicaConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaDataSources replicaDataSources(DataSourceProperties properties,
+                                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                                 @Value("${app.datasource.replicas}") String replicaUrls,
+                                                 @Value("${app.datasource.replica-pool-size:10}") int replicaPoolSize) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls.split(",")) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        meterRegistry.ifAvailable(registry -> {
+            primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.forEach(replica -> replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        });
+        log.info("Routing read-only transactions to {} replica(s)", replicas.size());
+        return new ReplicaDataSources(primary, List.copyOf(replicas));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaDataSources pools) {
+        List<DataSource> replicas = List.copyOf(pools.replicas());
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(pools.primary(), replicas));
+    }
+
+    @Bean
+    public HealthContributor replicasHealthContributor(ReplicaDataSources pools) {
+        Map<String, HealthIndicator> indicators = new LinkedHashMap<>();
+        pools.replicas().forEach(replica -> indicators.put(replica.getPoolName(), new DataSourceHealthIndicator(replica)));
+        return CompositeHealthContributor.fromMap(indicators);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ragchatstorage.datasource;
+
+import com.example.ragchatstorage.service.SessionListChangedEvent;
+import com.example.ragchatstorage.service.SessionWrittenEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Read-your-writes protection for replica routing.
+ *
+ * Write paths record the session (and owning user) they changed through SessionWrittenEvent /
+ * SessionListChangedEvent once the write has committed; for the following
+ * app.datasource.read-your-writes-window, requests touching that session or user are
+ * pinned to the primary (see ReadYourWritesFilter), so a client never reads its own
+ * write back from a lagging replica. Tracking is per instance; with several instances
+ * the load balancer should keep a client on one instance for at least the window.
+ *
+ * No-op when no replicas are configured.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReadYourWrites(@Value("${app.datasource.replicas:}") String replicas,
+                          @Value("${app.datasource.read-your-writes-window:5s}") Duration window,
+                          @Value("${app.datasource.read-your-writes-max-entries:100000}") long maxEntries) {
+        this.recentWrites = replicas.isBlank() ? null
+                : Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(window).build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionWritten(SessionWrittenEvent event) {
+        sessionWritten(event.sessionId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionListChanged(SessionListChangedEvent event) {
+        userWritten(event.userId());
+    }
+
+    public void sessionWritten(String sessionId) {
+        if (recentWrites != null && sessionId != null) {
+            recentWrites.put(sessionKey(sessionId), Boolean.TRUE);
+        }
+    }
+
+    public void userWritten(String userId) {
+        if (recentWrites != null && userId != null) {
+            recentWrites.put(userKey(userId), Boolean.TRUE);
+        }
+    }
+
+    public boolean isSessionRecentlyWritten(String sessionId) {
+        return recentWrites != null && sessionId != null
+                && recentWrites.getIfPresent(sessionKey(sessionId)) != null;
+    }
+
+    public boolean isUserRecentlyWritten(String userId) {
+        return recentWrites != null && userId != null
+                && recentWrites.getIfPresent(userKey(userId)) != null;
+    }
+
+    /**
+     * Runs background work (outside any request) with its reads pinned to the primary.
+     */
+    public <T> T onPrimary(Supplier<T> work) {
+        boolean pinned = isPrimaryRequired();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (!pinned) {
+                PRIMARY_REQUIRED.remove();
+            }
+        }
+    }
+
+    static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+
+    static void requirePrimary(boolean required) {
+        if (required) {
+            PRIMARY_REQUIRED.set(Boolean.TRUE);
+        } else {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    private static String sessionKey(String sessionId) {
+        return "s:" + sessionId;
+    }
+
+    private static String userKey(String userId) {
+        return "u:" + userId;
+    }
+}
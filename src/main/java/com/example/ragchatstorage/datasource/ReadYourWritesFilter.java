@@ -0,0 +1,55 @@
+package com.example.ragchatstorage.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Pins an API request to the primary when the session in its path
+ * (/api/v1/sessions/{id}/...) or the userId parameter was written recently.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("!'${app.datasource.replicas:}'.isBlank() and '${app.sharding.urls:}'.isBlank()")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final String SESSIONS_PATH = "/api/v1/sessions/";
+
+    private final ReadYourWrites readYourWrites;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean pin = readYourWrites.isSessionRecentlyWritten(sessionId(request.getRequestURI()))
+                || readYourWrites.isUserRecentlyWritten(request.getParameter("userId"));
+        ReadYourWrites.requirePrimary(pin);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.requirePrimary(false);
+        }
+    }
+
+    static String sessionId(String uri) {
+        if (!uri.startsWith(SESSIONS_PATH)) {
+            return null;
+        }
+        int start = SESSIONS_PATH.length();
+        int end = uri.indexOf('/', start);
+        String id = end < 0 ? uri.substring(start) : uri.substring(start, end);
+        return id.isEmpty() ? null : id;
+    }
+}
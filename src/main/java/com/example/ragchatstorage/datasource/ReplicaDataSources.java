@@ -0,0 +1,18 @@
+package com.example.ragchatstorage.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.List;
+
+/**
+ * The primary and replica pools behind ReplicaRoutingDataSource. They are not DataSource beans
+ * (the routing proxy is), so this holder closes them when the context shuts down.
+ */
+public record ReplicaDataSources(HikariDataSource primary, List<HikariDataSource> replicas) implements AutoCloseable {
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.ragchatstorage.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Owners of sessions whose IDs were not derived from the owner's token: plain random UUIDs created
+ * before sharding, which ShardKeys would otherwise route by their meaningless leading digits.
+ *
+ * Migration V12 lists every session existing when it ran in the session_aliases directory. That
+ * data is on the pre-sharding database, which must be shard 0, so on startup every listed owner
+ * gets its token, pinned to shard 0 in shard_placements unless it already has a placement: the
+ * owner's old and new sessions then stay together until ShardRebalancer moves them. Session IDs
+ * not generated by ShardKeys.newSessionId are looked up here; entries never change once the token
+ * is set, so lookups are cached.
+ */
+final class SessionAliases {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate directory;
+    private final Cache<String, Optional<Integer>> tokens;
+
+    SessionAliases(DataSource directory, long cacheSize) {
+        this.directory = new JdbcTemplate(directory);
+        this.tokens = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    /**
+     * Sets the token of every listed owner that has none yet, pinning new tokens to shard 0.
+     * Returns the number of owners updated (0 after the first sharded startup).
+     */
+    int assignTokens() {
+        int assigned = 0;
+        List<String> owners;
+        while (!(owners = directory.queryForList(
+                "select distinct user_id from session_aliases where token is null limit " + BATCH_SIZE,
+                String.class)).isEmpty()) {
+            Timestamp now = Timestamp.from(Instant.now());
+            List<Object[]> pins = new ArrayList<>(owners.size());
+            List<Object[]> updates = new ArrayList<>(owners.size());
+            for (String owner : owners) {
+                String token = ShardKeys.tokenPrefix(ShardKeys.userToken(owner));
+                pins.add(new Object[]{token, now});
+                updates.add(new Object[]{token, owner});
+            }
+            // Pins first: a token without its pin would be routed by the ring
+            directory.batchUpdate("insert ignore into shard_placements (token, shard, moving_to, updated_at) "
+                    + "values (?, 0, null, ?)", pins);
+            directory.batchUpdate("update session_aliases set token = ? where user_id = ? and token is null", updates);
+            assigned += owners.size();
+        }
+        return assigned;
+    }
+
+    /** The owner's token of a listed session. */
+    Optional<Integer> tokenOf(String sessionId) {
+        return tokens.get(sessionId, id -> directory.query("select token from session_aliases where session_id = ?",
+                rs -> rs.next() ? Optional.of(Integer.parseUnsignedInt(rs.getString(1), 16)) : Optional.<Integer>empty(),
+                id));
+    }
+
+    /** IDs of the listed sessions whose owners have the token. */
+    List<String> sessionsOf(int token) {
+        return directory.queryForList("select session_id from session_aliases where token = ?", String.class,
+                ShardKeys.tokenPrefix(token));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.ragchatstorage.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * The physical pool of every shard, in ring order. Only present when app.sharding.urls is set.
+ * The pools are not DataSource beans (the routing proxy is), so this holder closes them when the
+ * context shuts down.
+ */
+public record ShardDataSources(List<DataSource> shards) implements AutoCloseable {
+
+    @Override
+    public void close() {
+        for (DataSource shard : shards) {
+            if (shard instanceof HikariDataSource pool) {
+                pool.close();
+            }
+        }
+    }
+}
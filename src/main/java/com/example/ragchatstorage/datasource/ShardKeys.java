@@ -0,0 +1,73 @@
+package com.example.ragchatstorage.datasource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Routing tokens for users and sessions.
+ *
+ * A user's token is a 32-bit hash of the userId. Session IDs are derived from it: they are
+ * version 8 (custom) UUIDs whose first 8 hex digits are the owner's token, so a request that
+ * only carries a session ID is routed to the owner's shard without a lookup. IDs created before
+ * sharding (plain random version 4 UUIDs) carry no token; ShardRouter resolves them through
+ * SessionAliases.
+ */
+public final class ShardKeys {
+
+    // Position of the UUID version digit, and the version marking derived IDs
+    private static final int VERSION_INDEX = 14;
+    private static final char DERIVED_VERSION = '8';
+
+    private ShardKeys() {
+    }
+
+    public static int userToken(String userId) {
+        return hash(userId);
+    }
+
+    public static int sessionToken(String sessionId) {
+        if (sessionId.length() >= 8) {
+            try {
+                return Integer.parseUnsignedInt(sessionId, 0, 8, 16);
+            } catch (NumberFormatException ignored) {
+                // Not a generated ID; fall through to hashing it
+            }
+        }
+        return hash(sessionId);
+    }
+
+    public static String newSessionId(String userId) {
+        String random = UUID.randomUUID().toString();
+        if (userId == null) {
+            return random;
+        }
+        return tokenPrefix(userToken(userId)) + random.substring(8, VERSION_INDEX) + DERIVED_VERSION
+                + random.substring(VERSION_INDEX + 1);
+    }
+
+    /** Whether the ID was generated by newSessionId for an owner, i.e. starts with the owner's token. */
+    public static boolean isDerived(String sessionId) {
+        return sessionId.length() == 36 && sessionId.charAt(VERSION_INDEX) == DERIVED_VERSION;
+    }
+
+    /** The 8 lowercase hex digits every session ID of the token starts with. */
+    public static String tokenPrefix(int token) {
+        String hex = Integer.toHexString(token);
+        return "0".repeat(8 - hex.length()) + hex;
+    }
+
+    /** FNV-1a over UTF-8 with a murmur3 finalizer; stable across JVMs and releases. */
+    static int hash(String value) {
+        int h = 0x811C9DC5;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
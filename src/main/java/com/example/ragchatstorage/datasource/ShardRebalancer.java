@@ -0,0 +1,250 @@
+package com.example.ragchatstorage.datasource;
+
+import com.example.ragchatstorage.exception.BadRequestException;
+import com.example.ragchatstorage.exception.DuplicateResourceException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSetMetaData;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Moves a user's sessions, messages, summaries and change log to another shard while the service keeps running.
+ *
+ * 1. The user's token is marked as moving in the placement directory; after every instance has
+ *    seen it, writes for the token are rejected (503, retryable) while reads continue on the source.
+ * 2. Sessions, messages, summaries and change log entries are copied to the target in one transaction,
+ *    replacing leftovers of an earlier failed attempt. Change log entries get new ids there, so
+ *    sync watermarks of the moved user are answered with 410 and clients sync from scratch.
+ * 3. The directory is switched to the target; once every instance routes there, the source rows
+ *    are deleted.
+ *
+ * The unit of movement is the routing token, so the rare users sharing a token move together.
+ * Pre-sharding sessions of the token's users (see SessionAliases) are moved with them.
+ * A failure before step 3 puts the token back on the source shard.
+ *
+ * The steps wait for the placement refresh twice, so startMove runs moves one at a time on a
+ * background thread and returns at once; their status is kept for an hour by the instance
+ * that started them.
+ */
+@Slf4j
+@Service
+public class ShardRebalancer {
+
+    private static final int BATCH_SIZE = 500;
+    private static final Duration STATUS_RETENTION = Duration.ofHours(1);
+
+    private final ShardRouter shardRouter;
+    private final ExecutorService executor;
+    private final Cache<String, MoveStatus> moves = Caffeine.newBuilder().expireAfterWrite(STATUS_RETENTION).build();
+    private final ConcurrentHashMap<Integer, String> runningByToken = new ConcurrentHashMap<>();
+
+    public ShardRebalancer(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+        this.executor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("shard-rebalancer").daemon().factory());
+    }
+
+    /**
+     * Validates the request and starts the move in the background; poll moveStatus for the outcome.
+     */
+    public MoveStatus startMove(String userId, int targetShard) {
+        validateTarget(targetShard);
+        int token = ShardKeys.userToken(userId);
+        String moveId = UUID.randomUUID().toString();
+        if (runningByToken.putIfAbsent(token, moveId) != null) {
+            throw new DuplicateResourceException("A move of this user is already in progress");
+        }
+        MoveStatus running = new MoveStatus(moveId, userId, targetShard, MoveState.RUNNING, null, null);
+        moves.put(moveId, running);
+        try {
+            executor.execute(() -> runMove(running, token));
+        } catch (RejectedExecutionException ex) {
+            runningByToken.remove(token, moveId);
+            moves.invalidate(moveId);
+            throw new IllegalStateException("Shard rebalancer is shut down", ex);
+        }
+        return running;
+    }
+
+    public Optional<MoveStatus> moveStatus(String moveId) {
+        return Optional.ofNullable(moves.getIfPresent(moveId));
+    }
+
+    /** Runs a move on the calling thread; blocks for twice the placement propagation delay. */
+    public MoveResult moveUser(String userId, int targetShard) {
+        validateTarget(targetShard);
+        int token = ShardKeys.userToken(userId);
+        int sourceShard = shardRouter.shardForToken(token);
+        if (sourceShard == targetShard) {
+            return new MoveResult(userId, sourceShard, targetShard, 0, 0);
+        }
+
+        SessionRows rows = new SessionRows(ShardKeys.tokenPrefix(token) + "%", shardRouter.aliasedSessions(token));
+        DataSource source = shardRouter.shard(sourceShard);
+        DataSource target = shardRouter.shard(targetShard);
+        log.info("Moving token {} (user {}) from shard {} to shard {}", ShardKeys.tokenPrefix(token), userId,
+                sourceShard, targetShard);
+
+        shardRouter.beginMove(token, sourceShard, targetShard);
+        int[] copied;
+        try {
+            awaitPropagation();
+            copied = new TransactionTemplate(new DataSourceTransactionManager(target)).execute(status -> {
+                JdbcTemplate to = new JdbcTemplate(target);
+                deleteRows(to, rows);
+                int sessions = copyRows(source, to, "chat_sessions", "id", rows, null);
+                int messages = copyRows(source, to, "chat_messages", "session_id", rows, null);
+                copyRows(source, to, "session_summaries", "session_id", rows, null);
+                copyRows(source, to, "change_log", "session_id", rows, "id");
+                return new int[]{sessions, messages};
+            });
+        } catch (RuntimeException ex) {
+            log.error("Move of token {} failed, keeping it on shard {}", ShardKeys.tokenPrefix(token), sourceShard, ex);
+            shardRouter.completeMove(token, sourceShard);
+            throw ex;
+        }
+
+        shardRouter.completeMove(token, targetShard);
+        awaitPropagation();
+        new TransactionTemplate(new DataSourceTransactionManager(source)).executeWithoutResult(
+                status -> deleteRows(new JdbcTemplate(source), rows));
+
+        log.info("Moved token {} to shard {}: sessions={} messages={}", ShardKeys.tokenPrefix(token), targetShard,
+                copied[0], copied[1]);
+        return new MoveResult(userId, sourceShard, targetShard, copied[0], copied[1]);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void runMove(MoveStatus running, int token) {
+        try {
+            MoveResult result = moveUser(running.userId(), running.targetShard());
+            moves.put(running.moveId(), running.finished(MoveState.COMPLETED, result, null));
+        } catch (RuntimeException ex) {
+            log.error("Move {} of user {} failed", running.moveId(), running.userId(), ex);
+            moves.put(running.moveId(), running.finished(MoveState.FAILED, null, ex.getMessage()));
+        } finally {
+            runningByToken.remove(token, running.moveId());
+        }
+    }
+
+    private void validateTarget(int targetShard) {
+        if (!shardRouter.isSharded()) {
+            throw new BadRequestException("Sharding is not enabled");
+        }
+        if (targetShard < 0 || targetShard >= shardRouter.shardCount()) {
+            throw new BadRequestException("Unknown shard: " + targetShard);
+        }
+    }
+
+    private static void deleteRows(JdbcTemplate shard, SessionRows rows) {
+        shard.update("delete from change_log where " + rows.where("session_id"), rows.args());
+        shard.update("delete from session_summaries where " + rows.where("session_id"), rows.args());
+        shard.update("delete from chat_messages where " + rows.where("session_id"), rows.args());
+        shard.update("delete from chat_sessions where " + rows.where("id"), rows.args());
+    }
+
+    /**
+     * Copies every column of the matching rows, so columns added later are moved too. A generated
+     * key column is left to the target (rows are inserted in its order) instead of copied.
+     */
+    private static int copyRows(DataSource source, JdbcTemplate target, String table, String column, SessionRows rows,
+                                String generatedKey) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        String[] insert = new String[1];
+        int[] count = new int[1];
+        List<Integer> copied = new ArrayList<>();
+        String select = "select * from " + table + " where " + rows.where(column)
+                + (generatedKey != null ? " order by " + generatedKey : "");
+        new JdbcTemplate(source).query(select, rs -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            if (insert[0] == null) {
+                List<String> names = new ArrayList<>();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    if (!meta.getColumnName(i).equalsIgnoreCase(generatedKey)) {
+                        copied.add(i);
+                        names.add(meta.getColumnName(i));
+                    }
+                }
+                insert[0] = "insert into " + table + " (" + String.join(", ", names) + ") values ("
+                        + String.join(", ", Collections.nCopies(names.size(), "?")) + ")";
+            }
+            Object[] row = new Object[copied.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(copied.get(i));
+            }
+            batch.add(row);
+            count[0]++;
+            if (batch.size() == BATCH_SIZE) {
+                target.batchUpdate(insert[0], batch);
+                batch.clear();
+            }
+        }, rows.args());
+        if (!batch.isEmpty()) {
+            target.batchUpdate(insert[0], batch);
+        }
+        return count[0];
+    }
+
+    private void awaitPropagation() {
+        try {
+            Thread.sleep(shardRouter.propagationDelay());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shard placements to propagate", ex);
+        }
+    }
+
+    /** The token's sessions: derived IDs by their prefix, pre-sharding ones listed by SessionAliases. */
+    private record SessionRows(String idPattern, List<String> aliasedIds) {
+
+        String where(String column) {
+            if (aliasedIds.isEmpty()) {
+                return column + " like ?";
+            }
+            return "(" + column + " like ? or " + column + " in ("
+                    + String.join(", ", Collections.nCopies(aliasedIds.size(), "?")) + "))";
+        }
+
+        Object[] args() {
+            List<Object> args = new ArrayList<>(aliasedIds.size() + 1);
+            args.add(idPattern);
+            args.addAll(aliasedIds);
+            return args.toArray();
+        }
+    }
+
+    public record MoveResult(String userId, int fromShard, int toShard, int sessions, int messages) {
+    }
+
+    public enum MoveState {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    public record MoveStatus(String moveId, String userId, int targetShard, MoveState state, MoveResult result,
+                             String error) {
+
+        MoveStatus finished(MoveState state, MoveResult result, String error) {
+            return new MoveStatus(moveId, userId, targetShard, state, result, error);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.ragchatstorage.datasource;
+
+import com.example.ragchatstorage.exception.ShardRebalancingException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Selects the shard for the current unit of work.
+ *
+ * Users (and, through their derived IDs, sessions and messages) are placed by a consistent-hash
+ * ring over app.sharding.urls. Tokens moved by ShardRebalancer, and those of users with
+ * pre-sharding sessions (see SessionAliases), are recorded in the shard_placements directory on
+ * shard 0 (Flyway migration V3), which overrides the ring and is re-read every
+ * app.sharding.placement-refresh. While a token is being moved, reads keep
+ * going to its old shard and writes are rejected with ShardRebalancingException.
+ *
+ * Every service entry point calls route* / routeWrite* before its first statement; the choice
+ * holds for the rest of the thread's work (see ShardRoutingDataSource) until clear() - called by
+ * ShardRoutingFilter after each request and by background jobs after their work - so a pooled
+ * thread never carries one unit of work's shard into the next. Without sharding all methods
+ * are no-ops.
+ */
+@Slf4j
+@Component
+public class ShardRouter {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final List<DataSource> shards;
+    private final ConsistentHashRing ring;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration placementRefresh;
+    private final ScheduledExecutorService refresher;
+    private final SessionAliases aliases;
+    private volatile Map<Integer, Placement> placements = Map.of();
+
+    public ShardRouter(Optional<ShardDataSources> shardDataSources,
+                       @Value("${app.sharding.virtual-nodes:128}") int virtualNodes,
+                       @Value("${app.sharding.placement-refresh:5s}") Duration placementRefresh,
+                       @Value("${app.sharding.alias-cache-size:100000}") long aliasCacheSize,
+                       PlatformTransactionManager transactionManager) {
+        this.shards = shardDataSources.map(ShardDataSources::shards).orElse(List.of());
+        this.ring = new ConsistentHashRing(Math.max(shards.size(), 1), virtualNodes);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.placementRefresh = placementRefresh;
+        this.aliases = isSharded() ? new SessionAliases(shards.get(0), aliasCacheSize) : null;
+
+        if (isSharded()) {
+            try {
+                int owners = aliases.assignTokens();
+                if (owners > 0) {
+                    log.info("Pinned {} owner(s) of pre-sharding sessions to shard 0", owners);
+                }
+                refreshPlacements();
+            } catch (BadSqlGrammarException ex) {
+                throw new IllegalStateException("shard_placements or session_aliases is missing on shard 0; sharding "
+                        + "needs the Flyway migrations (spring.flyway.enabled)", ex);
+            }
+            refresher = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("shard-placements").daemon().factory());
+            long interval = placementRefresh.toMillis();
+            refresher.scheduleWithFixedDelay(this::refreshQuietly, interval, interval, TimeUnit.MILLISECONDS);
+            log.info("Sharding enabled across {} shards ({} relocated tokens)", shards.size(), placements.size());
+        } else {
+            refresher = null;
+        }
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public int shardCount() {
+        return ring.shardCount();
+    }
+
+    public int shardForUser(String userId) {
+        return shardForToken(ShardKeys.userToken(userId));
+    }
+
+    public int shardForSession(String sessionId) {
+        return shardForToken(sessionToken(sessionId));
+    }
+
+    public void routeByUser(String userId) {
+        if (isSharded() && userId != null) {
+            CURRENT_SHARD.set(shardForUser(userId));
+        }
+    }
+
+    public void routeBySession(String sessionId) {
+        if (isSharded() && sessionId != null) {
+            CURRENT_SHARD.set(shardForSession(sessionId));
+        }
+    }
+
+    public void routeWriteByUser(String userId) {
+        if (isSharded() && userId != null) {
+            CURRENT_SHARD.set(writableShard(ShardKeys.userToken(userId)));
+        }
+    }
+
+    public void routeWriteBySession(String sessionId) {
+        if (isSharded() && sessionId != null) {
+            CURRENT_SHARD.set(writableShard(sessionToken(sessionId)));
+        }
+    }
+
+    /**
+     * Drops the shard chosen for the current thread; statements without a route go to shard 0.
+     */
+    public void clear() {
+        CURRENT_SHARD.remove();
+    }
+
+    /**
+     * Scatter/gather: runs the query in a read-only transaction on every shard in parallel and
+     * returns the per-shard results in shard order. Only for cross-user reads (admin listing).
+     */
+    public <T> List<T> onEachShard(Supplier<T> query) {
+        if (!isSharded()) {
+            T result = readOnlyTransaction.execute(status -> query.get());
+            return Collections.singletonList(result);
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<T>> futures = new ArrayList<>(shards.size());
+            for (int shard = 0; shard < shards.size(); shard++) {
+                int target = shard;
+                futures.add(executor.submit(() -> {
+                    CURRENT_SHARD.set(target);
+                    try {
+                        return readOnlyTransaction.execute(status -> query.get());
+                    } finally {
+                        CURRENT_SHARD.remove();
+                    }
+                }));
+            }
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Shard query failed", ex.getCause());
+        }
+    }
+
+    /**
+     * Runs the work once per shard, in shard order on the calling thread, routed to that shard
+     * (the shard index is passed in; 0 without sharding). For background jobs over data that
+     * every shard keeps for itself; the work manages its own transactions.
+     */
+    public void forEachShard(IntConsumer work) {
+        if (!isSharded()) {
+            work.accept(0);
+            return;
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            CURRENT_SHARD.set(shard);
+            try {
+                work.accept(shard);
+            } finally {
+                CURRENT_SHARD.remove();
+            }
+        }
+    }
+
+    static Integer currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    DataSource shard(int shard) {
+        return shards.get(shard);
+    }
+
+    int shardForToken(int token) {
+        Placement placement = placements.get(token);
+        return placement != null ? placement.shard() : ring.shardFor(token);
+    }
+
+    /** IDs of the pre-sharding sessions (see SessionAliases) whose owners have the token. */
+    List<String> aliasedSessions(int token) {
+        return aliases != null ? aliases.sessionsOf(token) : List.of();
+    }
+
+    /** How long to wait until every instance has re-read the directory. */
+    Duration propagationDelay() {
+        return placementRefresh.multipliedBy(2);
+    }
+
+    void beginMove(int token, int source, int target) {
+        savePlacement(token, source, target);
+    }
+
+    void completeMove(int token, int target) {
+        savePlacement(token, target, null);
+    }
+
+    void refreshPlacements() {
+        Map<Integer, Placement> loaded = new HashMap<>();
+        directory().query("select token, shard, moving_to from shard_placements", rs -> {
+            Integer movingTo = rs.getObject("moving_to") != null ? rs.getInt("moving_to") : null;
+            loaded.put(Integer.parseUnsignedInt(rs.getString("token"), 16), new Placement(rs.getInt("shard"), movingTo));
+        });
+        placements = Map.copyOf(loaded);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private int sessionToken(String sessionId) {
+        if (aliases != null && !ShardKeys.isDerived(sessionId)) {
+            Optional<Integer> owner = aliases.tokenOf(sessionId);
+            if (owner.isPresent()) {
+                return owner.get();
+            }
+        }
+        return ShardKeys.sessionToken(sessionId);
+    }
+
+    private int writableShard(int token) {
+        Placement placement = placements.get(token);
+        if (placement == null) {
+            return ring.shardFor(token);
+        }
+        if (placement.movingTo() != null) {
+            throw new ShardRebalancingException("Data is being moved to another shard, retry shortly");
+        }
+        return placement.shard();
+    }
+
+    private void savePlacement(int token, int shard, Integer movingTo) {
+        String key = ShardKeys.tokenPrefix(token);
+        Timestamp now = Timestamp.from(Instant.now());
+        JdbcTemplate directory = directory();
+        if (directory.update("update shard_placements set shard = ?, moving_to = ?, updated_at = ? where token = ?",
+                shard, movingTo, now, key) == 0) {
+            directory.update("insert into shard_placements (token, shard, moving_to, updated_at) values (?, ?, ?, ?)",
+                    key, shard, movingTo, now);
+        }
+        refreshPlacements();
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshPlacements();
+        } catch (RuntimeException ex) {
+            log.warn("Failed to refresh shard placements, keeping the previous ones", ex);
+        }
+    }
+
+    private JdbcTemplate directory() {
+        return new JdbcTemplate(shards.get(0));
+    }
+
+    private record Placement(int shard, Integer movingTo) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.ragchatstorage.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends each physical connection to the shard selected by ShardRouter for the current thread,
+ * or to shard 0 (which also holds the placement directory) when none is selected - schema
+ * management and other startup work.
+ *
+ * Like ReplicaRoutingDataSource this must sit behind a LazyConnectionDataSourceProxy: services
+ * select the shard inside their @Transactional methods, after the transaction has begun.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRouter.currentShard();
+    }
+}
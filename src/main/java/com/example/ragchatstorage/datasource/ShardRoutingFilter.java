@@ -0,0 +1,35 @@
+package com.example.ragchatstorage.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Clears the shard a request was routed to once it completes, so the next request served by
+ * the same pooled thread starts unrouted instead of inheriting it.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("!'${app.sharding.urls:}'.isBlank()")
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    private final ShardRouter shardRouter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            shardRouter.clear();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.ragchatstorage.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured DataSource with one pool per shard behind a ShardRoutingDataSource
+ * when app.sharding.urls (comma-separated JDBC URLs in ring order, same credentials as
+ * spring.datasource) is set. Read replicas are not combined with sharding.
+ *
+ * Spring's Flyway and Hibernate schema management only reach shard 0; with spring.flyway.enabled
+ * the remaining shards are migrated here at startup. As with ReadReplicaConfig, the pools' Hikari
+ * metrics are bound here and the shards get a "shards" health component.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("!'${app.sharding.urls:}'.isBlank()")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardDataSources shardDataSources(DataSourceProperties properties,
+                                             ObjectProvider<MeterRegistry> meterRegistry,
+                                             @Value("${app.sharding.urls}") String shardUrls,
+                                             @Value("${app.sharding.pool-size:10}") int poolSize,
+                                             @Value("${spring.flyway.enabled:false}") boolean flywayEnabled) {
+        List<DataSource> shards = new ArrayList<>();
+        for (String url : shardUrls.split(",")) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource shard = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            shard.setPoolName("shard-" + shards.size());
+            shard.setMaximumPoolSize(poolSize);
+            meterRegistry.ifAvailable(registry -> shard.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            shards.add(shard);
+        }
+        ShardDataSources pools = new ShardDataSources(List.copyOf(shards));
+
+        if (flywayEnabled) {
+            try {
+                for (int i = 1; i < shards.size(); i++) {
+                    Flyway.configure().dataSource(shards.get(i)).baselineOnMigrate(true).load().migrate();
+                }
+            } catch (RuntimeException ex) {
+                // The bean is never created, so its destroy method would not close the pools
+                pools.close();
+                throw ex;
+            }
+        } else if (shards.size() > 1) {
+            log.warn("Flyway is disabled: shards 1..{} must be provisioned with the schema manually", shards.size() - 1);
+        }
+        log.info("Routing users across {} shard(s)", shards.size());
+        return pools;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources) {
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shardDataSources.shards()));
+    }
+
+    @Bean
+    public HealthContributor shardsHealthContributor(ShardDataSources shardDataSources) {
+        Map<String, HealthIndicator> indicators = new LinkedHashMap<>();
+        List<DataSource> shards = shardDataSources.shards();
+        for (int i = 0; i < shards.size(); i++) {
+            indicators.put("shard-" + i, new DataSourceHealthIndicator(shards.get(i)));
+        }
+        return CompositeHealthContributor.fromMap(indicators);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.ragchatstorage.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+public record AppendChunkRequest(@NotEmpty @Size(max = 65536) String content) {}
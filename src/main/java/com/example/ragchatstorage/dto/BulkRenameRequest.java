@@ -0,0 +1,13 @@
+package com.example.ragchatstorage.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BulkRenameRequest(
+    @NotBlank String userId,
+    @NotEmpty @Size(max = 500) List<@NotBlank String> ids,
+    @NotBlank String title
+) {}
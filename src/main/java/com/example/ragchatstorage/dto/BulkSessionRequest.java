@@ -0,0 +1,15 @@
+package com.example.ragchatstorage.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Sessions of one user to delete in a single request. Ids owned by another user are ignored.
+ */
+public record BulkSessionRequest(
+    @NotBlank String userId,
+    @NotEmpty @Size(max = 500) List<@NotBlank String> ids
+) {}
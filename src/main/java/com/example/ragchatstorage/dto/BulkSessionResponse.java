@@ -0,0 +1,9 @@
+package com.example.ragchatstorage.dto;
+
+/**
+ * Outcome of a bulk session operation: ids sent vs sessions of the user actually changed.
+ */
+public record BulkSessionResponse(
+    int requested,
+    int affected
+) {}
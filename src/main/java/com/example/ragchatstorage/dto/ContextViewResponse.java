@@ -0,0 +1,12 @@
+package com.example.ragchatstorage.dto;
+
+import java.util.List;
+
+/**
+ * What a prompt needs from a session: the latest summary (null if there is none) and the
+ * messages after it, in seq order.
+ */
+public record ContextViewResponse(
+    SummaryResponse summary,
+    List<MessageResponse> messages
+) {}
@@ -0,0 +1,12 @@
+package com.example.ragchatstorage.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Summary of the session's messages up to and including seq {@code upToSeq}.
+ */
+public record CreateSummaryRequest(
+    @Positive long upToSeq,
+    @NotBlank String content
+) {}
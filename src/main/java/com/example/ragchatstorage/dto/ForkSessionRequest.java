@@ -0,0 +1,12 @@
+package com.example.ragchatstorage.dto;
+
+import jakarta.validation.constraints.PositiveOrZero;
+
+/**
+ * Fork of a session keeping its messages up to and including seq {@code upToSeq}. The title
+ * defaults to the parent's.
+ */
+public record ForkSessionRequest(
+    @PositiveOrZero long upToSeq,
+    String title
+) {}
@@ -2,44 +2,77 @@ package com.example.ragchatstorage.dto;
 
 import com.example.ragchatstorage.model.ChatMessage;
 import com.example.ragchatstorage.model.ContextItem;
+import com.example.ragchatstorage.model.MessageStatus;
+import com.example.ragchatstorage.model.SenderType;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public record MessageResponse(
     String id,
     String sessionId,
+    long seq,
     String sender,
     String content,
     String userId, // Added userId
     List<Map<String, Object>> context,
-    Instant createdAt
+    Instant createdAt,
+    String status,
+    Integer tokenCount
 ) {
-    public static MessageResponse from(ChatMessage message) {
-        List<Map<String, Object>> ctx = null;
-        if (message.getContext() != null) {
-            ctx = message.getContext().stream()
-                    .map(MessageResponse::toMap)
-                    .toList();
-        }
+    /**
+     * Target of the constructor expression in ChatMessageRepository.findResponsesBySeqRange,
+     * which reads message pages without loading entities.
+     */
+    public MessageResponse(String id, String sessionId, long seq, SenderType sender, String content, String userId,
+                           List<ContextItem> context, Instant createdAt, MessageStatus status, Integer tokenCount) {
+        this(id,
+            sessionId,
+            seq,
+            sender != null ? sender.name() : null,
+            content,
+            userId,
+            toMaps(context),
+            createdAt,
+            status != null ? status.name() : null,
+            tokenCount);
+    }
 
+    public static MessageResponse from(ChatMessage message) {
         return new MessageResponse(
             message.getId(),
             message.getSessionId(),
-            message.getSender() != null ? message.getSender().name() : null,
+            message.getSeq(),
+            message.getSender(),
             message.getContent(),
             message.getUserId(), // include userId
-            ctx,
-            message.getCreatedAt()
+            message.getContext(),
+            message.getCreatedAt(),
+            message.getStatus(),
+            message.getTokenCount()
         );
     }
 
+    private static List<Map<String, Object>> toMaps(List<ContextItem> items) {
+        if (items == null) {
+            return null;
+        }
+        List<Map<String, Object>> maps = new ArrayList<>(items.size());
+        for (ContextItem item : items) {
+            maps.add(toMap(item));
+        }
+        return maps;
+    }
+
     private static Map<String, Object> toMap(ContextItem item) {
-        return Map.of(
-            "sourceId", item.getSourceId(),
-            "snippet", item.getSnippet(),
-            "metadata", item.getMetadata()
-        );
+        // Map.of rejects nulls, and snippet/metadata are optional
+        Map<String, Object> map = new LinkedHashMap<>(4);
+        map.put("sourceId", item.getSourceId());
+        map.put("snippet", item.getSnippet());
+        map.put("metadata", item.getMetadata());
+        return map;
     }
 }
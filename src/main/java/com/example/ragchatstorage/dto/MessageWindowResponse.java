@@ -0,0 +1,13 @@
+package com.example.ragchatstorage.dto;
+
+import java.util.List;
+
+/**
+ * The newest messages of a session that fit a token budget, oldest first. {@code tokens} is their
+ * estimated total; {@code truncated} tells whether older messages were left out.
+ */
+public record MessageWindowResponse(
+    List<MessageResponse> messages,
+    long tokens,
+    boolean truncated
+) {}
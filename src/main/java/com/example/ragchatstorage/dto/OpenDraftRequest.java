@@ -0,0 +1,7 @@
+package com.example.ragchatstorage.dto;
+
+import java.util.List;
+
+public record OpenDraftRequest(
+    List<ContextItemDto> context
+) {}
@@ -12,6 +12,9 @@ public record SessionResponse(
     String title,
     boolean favorite,
     Instant createdAt,
-    Instant updatedAt
+    Instant updatedAt,
+    long version,
+    String parentSessionId,
+    Long forkSeq
 ) {
 }
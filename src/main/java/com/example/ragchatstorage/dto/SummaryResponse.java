@@ -0,0 +1,18 @@
+package com.example.ragchatstorage.dto;
+
+import com.example.ragchatstorage.model.SessionSummary;
+
+import java.time.Instant;
+
+public record SummaryResponse(
+    String id,
+    String sessionId,
+    long upToSeq,
+    String content,
+    Instant createdAt
+) {
+    public static SummaryResponse from(SessionSummary summary) {
+        return new SummaryResponse(summary.getId(), summary.getSessionId(), summary.getUpToSeq(),
+                summary.getContent(), summary.getCreatedAt());
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.ragchatstorage.dto;
+
+import java.util.List;
+
+/**
+ * Changes of a user's data since the client's watermark, as current state: sessions and
+ * messages created or modified, and ids of deleted sessions (their messages are gone too).
+ * The client stores {@code watermark} and sends it as {@code since} next time; while
+ * {@code hasMore} is true it should call again right away.
+ */
+public record SyncResponse(
+    String watermark,
+    boolean hasMore,
+    List<SessionResponse> sessions,
+    List<MessageResponse> messages,
+    List<String> deletedSessionIds
+) {}
@@ -3,6 +3,7 @@ package com.example.ragchatstorage.exception;
 import com.example.ragchatstorage.dto.ErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -97,6 +98,25 @@ public class GlobalExceptionHandler {
         return buildResponse(HttpStatus.CONFLICT, ex.getMessage(), request);
     }
 
+    /**
+     * Handle failed If-Match preconditions (412 PRECONDITION_FAILED)
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailed(PreconditionFailedException ex, HttpServletRequest request) {
+        log.warn("Precondition failed: {}", ex.getMessage());
+        return buildResponse(HttpStatus.PRECONDITION_FAILED, ex.getMessage(), request);
+    }
+
+    /**
+     * Handle concurrent modification detected by @Version (409 CONFLICT)
+     */
+    @ExceptionHandler(org.springframework.orm.ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLock(
+            org.springframework.orm.ObjectOptimisticLockingFailureException ex, HttpServletRequest request) {
+        log.warn("Optimistic lock failure: {}", ex.getMessage());
+        return buildResponse(HttpStatus.CONFLICT, "The resource was modified concurrently. Please retry.", request);
+    }
+
     /**
      * Handle business logic violations (422 UNPROCESSABLE_ENTITY)
      */
@@ -115,6 +135,27 @@ public class GlobalExceptionHandler {
         return buildResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), request);
     }
 
+    /**
+     * Handle sync watermarks that can no longer be continued from (410 GONE)
+     */
+    @ExceptionHandler(SyncResetRequiredException.class)
+    public ResponseEntity<ErrorResponse> handleSyncResetRequired(SyncResetRequiredException ex, HttpServletRequest request) {
+        log.info("Sync reset required: {}", ex.getMessage());
+        return buildResponse(HttpStatus.GONE, ex.getMessage(), request);
+    }
+
+    /**
+     * Handle writes to data that is moving between shards (503 SERVICE_UNAVAILABLE)
+     */
+    @ExceptionHandler(ShardRebalancingException.class)
+    public ResponseEntity<ErrorResponse> handleShardRebalancing(ShardRebalancingException ex, HttpServletRequest request) {
+        log.warn("Shard rebalancing in progress: {}", ex.getMessage());
+        ResponseEntity<ErrorResponse> response = buildResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), request);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response.getBody());
+    }
+
     /**
      * Handle database exceptions (500)
      */
@@ -0,0 +1,11 @@
+package com.example.ragchatstorage.exception;
+
+/**
+ * Exception thrown when an If-Match precondition does not hold (the resource changed)
+ * HTTP Status: 412 PRECONDITION_FAILED
+ */
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.ragchatstorage.exception;
+
+/**
+ * Exception thrown when a write targets data that is being moved to another shard
+ * HTTP Status: 503 SERVICE_UNAVAILABLE (with Retry-After)
+ */
+public class ShardRebalancingException extends RuntimeException {
+    public ShardRebalancingException(String message) {
+        super(message);
+    }
+}
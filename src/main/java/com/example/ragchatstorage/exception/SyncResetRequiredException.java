@@ -0,0 +1,12 @@
+package com.example.ragchatstorage.exception;
+
+/**
+ * Exception thrown when a sync watermark cannot be continued from (the user's data moved
+ * to another shard); the client starts over with a full sync
+ * HTTP Status: 410 GONE
+ */
+public class SyncResetRequiredException extends RuntimeException {
+    public SyncResetRequiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.ragchatstorage.logging;
+
+import ch.qos.logback.core.PropertyDefinerBase;
+
+import java.util.Locale;
+
+/**
+ * Logback property definer naming the root appender for app.logging.format, so an unknown or
+ * differently cased format cannot leave the root logger pointing at an appender that does not
+ * exist (and the application without any log output).
+ *
+ * Configured in logback-spring.xml:
+ * - format: value of app.logging.format; "json" (any case) selects ASYNC_json, anything else ASYNC_plain
+ */
+public class LogFormatDefiner extends PropertyDefinerBase {
+
+    private String format = "plain";
+
+    @Override
+    public String getPropertyValue() {
+        String normalized = format == null ? "" : format.trim().toLowerCase(Locale.ROOT);
+        if (!normalized.equals("json") && !normalized.equals("plain")) {
+            addWarn("Unknown app.logging.format '" + format + "', falling back to plain");
+            normalized = "plain";
+        }
+        return "ASYNC_" + normalized;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+}
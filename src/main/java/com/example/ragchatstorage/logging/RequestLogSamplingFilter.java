@@ -0,0 +1,43 @@
+package com.example.ragchatstorage.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logback turbo filter that keeps only a sample of INFO (and below) events from the
+ * per-request loggers. WARN and ERROR always pass.
+ *
+ * Turbo filters run before the logging event is created, so a dropped line costs
+ * neither message formatting nor an event allocation.
+ *
+ * Configured in logback-spring.xml:
+ * - loggerPrefix: logger name prefix to sample (e.g. com.example.ragchatstorage.controller)
+ * - sampleRate: fraction of events kept, 0.0 - 1.0 (1.0 keeps everything)
+ */
+public class RequestLogSamplingFilter extends TurboFilter {
+
+    private String loggerPrefix = "com.example.ragchatstorage.controller";
+    private double sampleRate = 1.0;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (sampleRate >= 1.0 || level == null || level.isGreaterOrEqual(Level.WARN)
+                || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        return ThreadLocalRandom.current().nextDouble() < sampleRate ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = Math.max(0.0, Math.min(1.0, sampleRate));
+    }
+}
@@ -16,8 +16,13 @@ public interface ChatMessageMapper {
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "sessionId", ignore = true)
+    @Mapping(target = "seq", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "userId", ignore = true)
+    @Mapping(target = "status", ignore = true)
+    @Mapping(target = "idempotencyKey", ignore = true)
+    @Mapping(target = "tokenCount", ignore = true)
+    @Mapping(target = "cumulativeTokens", ignore = true)
     ChatMessage toEntity(CreateMessageRequest request);
 
     default MessageResponse toDto(ChatMessage message) {
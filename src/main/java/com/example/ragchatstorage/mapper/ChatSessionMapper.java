@@ -15,6 +15,12 @@ public interface ChatSessionMapper {
     @Mapping(target = "favorite", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "lastSeq", ignore = true)
+    @Mapping(target = "parentSessionId", ignore = true)
+    @Mapping(target = "forkSeq", ignore = true)
+    @Mapping(target = "lineage", ignore = true)
+    @Mapping(target = "totalTokens", ignore = true)
+    @Mapping(target = "version", ignore = true)
     ChatSession toEntity(CreateSessionRequest request);
 
     SessionResponse toDto(ChatSession session);
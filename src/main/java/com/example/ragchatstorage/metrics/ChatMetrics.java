@@ -0,0 +1,59 @@
+package com.example.ragchatstorage.metrics;
+
+import com.example.ragchatstorage.dto.ContextItemDto;
+import com.example.ragchatstorage.dto.CreateMessageRequest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Payload-size distributions for incoming chat messages.
+ *
+ * Metrics:
+ * - ragchat.message.content.length: characters in content
+ * - ragchat.message.context.items: RAG context items per message
+ * - ragchat.message.context.length: total snippet characters across a message's context
+ */
+@Component
+public class ChatMetrics {
+
+    private final DistributionSummary contentLength;
+    private final DistributionSummary contextItems;
+    private final DistributionSummary contextLength;
+
+    public ChatMetrics(MeterRegistry meterRegistry) {
+        this.contentLength = DistributionSummary.builder("ragchat.message.content.length")
+                .description("Characters in message content")
+                .baseUnit("chars")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.contextItems = DistributionSummary.builder("ragchat.message.context.items")
+                .description("RAG context items per message")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.contextLength = DistributionSummary.builder("ragchat.message.context.length")
+                .description("Total snippet characters in a message's RAG context")
+                .baseUnit("chars")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void recordMessagePayload(CreateMessageRequest request) {
+        contentLength.record(request.content() != null ? request.content().length() : 0);
+
+        if (request.context() == null) {
+            contextItems.record(0);
+            contextLength.record(0);
+            return;
+        }
+
+        long snippetChars = 0;
+        for (ContextItemDto item : request.context()) {
+            if (item != null && item.snippet() != null) {
+                snippetChars += item.snippet().length();
+            }
+        }
+        contextItems.record(request.context().size());
+        contextLength.record(snippetChars);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.ragchatstorage.metrics;
+
+/**
+ * Per-thread tally of JDBC statements and time spent executing them.
+ *
+ * Filled in by QueryStatsListener (installed on the DataSource proxy) and read by
+ * RequestMetricsFilter at the end of each request. Servlet requests are served on a
+ * single thread, so a ThreadLocal scopes the tally to the current request.
+ */
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = ThreadLocal.withInitial(QueryStats::new);
+
+    private int statements;
+    private long nanos;
+
+    private QueryStats() {
+    }
+
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    public static void reset() {
+        QueryStats stats = CURRENT.get();
+        stats.statements = 0;
+        stats.nanos = 0;
+    }
+
+    void record(int statementCount, long elapsedNanos) {
+        statements += statementCount;
+        nanos += elapsedNanos;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.ragchatstorage.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+/**
+ * datasource-proxy listener that adds every executed statement to the current thread's QueryStats.
+ * Elapsed time is measured here in nanoseconds; datasource-proxy itself only reports milliseconds.
+ */
+public class QueryStatsListener implements QueryExecutionListener {
+
+    private static final ThreadLocal<long[]> STARTED_AT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        STARTED_AT.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = System.nanoTime() - STARTED_AT.get()[0];
+        // A JDBC batch counts once per batched statement
+        int statements = execInfo.isBatch() ? Math.max(execInfo.getBatchSize(), 1) : Math.max(queryInfoList.size(), 1);
+        QueryStats.current().record(statements, elapsed);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.ragchatstorage.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Last change log id handed to a change feed sink, kept per shard next to its change log.
+ * The row is locked while a batch is relayed, so relays on several instances take turns.
+ */
+@Entity
+@Table(name = "change_feed_offsets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeedOffset {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
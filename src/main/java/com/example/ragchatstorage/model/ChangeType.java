@@ -0,0 +1,10 @@
+package com.example.ragchatstorage.model;
+
+public enum ChangeType {
+    /** Session created, renamed or (un)favorited */
+    SESSION_UPSERT,
+    /** Session deleted together with its messages */
+    SESSION_DELETE,
+    /** Message added, or a streaming draft written to */
+    MESSAGE_UPSERT
+}
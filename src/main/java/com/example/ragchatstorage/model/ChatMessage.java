@@ -14,7 +14,11 @@ import java.util.List;
 @Entity
 @Table(name = "chat_messages", indexes = {
     @Index(name = "idx_session_id_created_at", columnList = "session_id, created_at ASC"),
-    @Index(name = "idx_user_id", columnList = "user_id")
+    @Index(name = "idx_user_id", columnList = "user_id"),
+    @Index(name = "idx_session_id_cumulative_tokens", columnList = "session_id, cumulative_tokens")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_session_id_idempotency_key", columnNames = {"session_id", "idempotency_key"}),
+    @UniqueConstraint(name = "uk_session_id_seq", columnNames = {"session_id", "seq"})
 })
 @Data
 @NoArgsConstructor
@@ -30,7 +34,12 @@ public class ChatMessage {
     @Column(name = "session_id", nullable = false, length = 255)
     private String sessionId;
 
+    // Gapless position within the session (1, 2, 3...), allocated at insert time
+    @Column(name = "seq", nullable = false, updatable = false)
+    private long seq;
+
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
     @Column(name = "sender", nullable = false, length = 50)
     private SenderType sender;
 
@@ -45,6 +54,25 @@ public class ChatMessage {
     @Column(name = "user_id", length = 255)
     private String userId;
 
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private MessageStatus status = MessageStatus.COMPLETE;
+
+    // Client-supplied Idempotency-Key of the request that created the message, unique per session
+    @Column(name = "idempotency_key", length = 128, updatable = false)
+    private String idempotencyKey;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
+
+    // Estimated tokens of the content (see TokenEstimator); null until backfilled for older rows
+    @Column(name = "token_count", updatable = false)
+    private Integer tokenCount;
+
+    // Tokens of the session's history up to and including this message, inherited ones included;
+    // changed afterwards only by finalized drafts and the backfill, through queries
+    @Column(name = "cumulative_tokens", updatable = false)
+    private Long cumulativeTokens;
 }
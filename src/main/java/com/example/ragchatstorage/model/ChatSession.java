@@ -5,13 +5,17 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.GenericGenerator;
 
 import java.time.Instant;
 
 @Entity
 @Table(name = "chat_sessions", indexes = {
     @Index(name = "idx_user_id_updated_at", columnList = "user_id, updated_at DESC"),
-    @Index(name = "idx_user_id_favorite_updated_at", columnList = "user_id, favorite, updated_at DESC")
+    @Index(name = "idx_user_id_favorite_updated_at", columnList = "user_id, favorite, updated_at DESC"),
+    @Index(name = "idx_updated_at", columnList = "updated_at DESC"),
+    @Index(name = "idx_parent_session_id", columnList = "parent_session_id")
 })
 @Data
 @NoArgsConstructor
@@ -20,7 +24,9 @@ import java.time.Instant;
 public class ChatSession {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    // UUID-formatted, prefixed with the owner's shard routing token
+    @GeneratedValue(generator = "session-id")
+    @GenericGenerator(name = "session-id", type = SessionIdGenerator.class)
     @Column(length = 36)
     private String id;
 
@@ -38,4 +44,33 @@ public class ChatSession {
 
     @Column(name = "updated_at", nullable = false)
     private Instant updatedAt;
+
+    // Seq of the latest message; set on insert (the fork point for a fork), then only ever
+    // changed by ChatSessionRepository.nextSeq
+    @ColumnDefault("0")
+    @Column(name = "last_seq", nullable = false, updatable = false)
+    private long lastSeq;
+
+    // Session this one was forked from; null for a session created from scratch
+    @Column(name = "parent_session_id", length = 36, updatable = false)
+    private String parentSessionId;
+
+    // Seqs up to here are inherited from ancestors, the session's own messages come after it
+    @Column(name = "fork_seq", updatable = false)
+    private Long forkSeq;
+
+    // Which ancestor holds which inherited seqs, see SessionLineage
+    @Column(name = "lineage", length = 2048, updatable = false)
+    private String lineage;
+
+    // Estimated tokens of the whole history (sum of token_count, inherited messages included);
+    // advanced with the seq by nextSeq. Null until TokenBackfillService has processed the session
+    @ColumnDefault("0")
+    @Column(name = "total_tokens", updatable = false)
+    private Long totalTokens;
+
+    // Optimistic lock; exposed to clients as the session's ETag for If-Match
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
 }
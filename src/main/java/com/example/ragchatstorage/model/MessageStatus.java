@@ -0,0 +1,7 @@
+package com.example.ragchatstorage.model;
+
+public enum MessageStatus {
+    /** Assistant draft still receiving chunks; content is partial */
+    STREAMING,
+    COMPLETE
+}
@@ -0,0 +1,16 @@
+package com.example.ragchatstorage.model;
+
+import com.example.ragchatstorage.datasource.ShardKeys;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Generates session IDs that carry the owner's shard routing token (see ShardKeys).
+ */
+public class SessionIdGenerator implements IdentifierGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return ShardKeys.newSessionId(((ChatSession) object).getUserId());
+    }
+}
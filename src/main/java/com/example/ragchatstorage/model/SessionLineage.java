@@ -0,0 +1,63 @@
+package com.example.ragchatstorage.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where the inherited history of a forked session lives, stored in chat_sessions.lineage as
+ * "sessionId:upToSeq" segments separated by commas, root first. Segment i holds seqs
+ * (upToSeq of segment i - 1, upToSeq of segment i] of that ancestor; the last segment ends at
+ * the fork point, after which the session's own messages start.
+ *
+ * Forking copies the parent's segments cut at the fork point and appends the parent itself
+ * only when the fork point lies in the parent's own messages, so a fork of a fork that only
+ * keeps inherited history points straight at the ancestors that own it.
+ */
+public final class SessionLineage {
+
+    /** Deepest chain of ancestors a fork may read from; bounds the column and the reads per page. */
+    public static final int MAX_DEPTH = 40;
+
+    private SessionLineage() {
+    }
+
+    public record Segment(String sessionId, long upToSeq) {
+    }
+
+    public static List<Segment> parse(String lineage) {
+        if (lineage == null || lineage.isEmpty()) {
+            return List.of();
+        }
+        List<Segment> segments = new ArrayList<>();
+        for (String part : lineage.split(",")) {
+            int colon = part.lastIndexOf(':');
+            segments.add(new Segment(part.substring(0, colon), Long.parseLong(part.substring(colon + 1))));
+        }
+        return segments;
+    }
+
+    /**
+     * Lineage of a fork of {@code parentId} (whose own lineage is {@code parentLineage}) keeping
+     * its history up to {@code upToSeq}. Null when nothing is inherited.
+     */
+    public static String fork(String parentLineage, String parentId, long upToSeq) {
+        List<Segment> segments = new ArrayList<>();
+        long inherited = 0;
+        for (Segment segment : parse(parentLineage)) {
+            if (inherited >= upToSeq) {
+                break;
+            }
+            segments.add(new Segment(segment.sessionId(), Math.min(segment.upToSeq(), upToSeq)));
+            inherited = segment.upToSeq();
+        }
+        if (inherited < upToSeq) {
+            segments.add(new Segment(parentId, upToSeq));
+        }
+        if (segments.isEmpty()) {
+            return null;
+        }
+        List<String> parts = new ArrayList<>(segments.size());
+        segments.forEach(segment -> parts.add(segment.sessionId() + ":" + segment.upToSeq()));
+        return String.join(",", parts);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.ragchatstorage.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Checkpoint of a long conversation: a summary written by the summarizer that stands in for
+ * the session's messages with seq <= upToSeq when a prompt is assembled. The latest one
+ * (highest upToSeq) is used; earlier ones are kept.
+ */
+@Entity
+@Table(name = "session_summaries", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_session_id_up_to_seq", columnNames = {"session_id", "up_to_seq"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SessionSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "session_id", nullable = false, length = 36)
+    private String sessionId;
+
+    // Seq of the last message the summary covers
+    @Column(name = "up_to_seq", nullable = false, updatable = false)
+    private long upToSeq;
+
+    @Column(name = "content", nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,25 @@
+package com.example.ragchatstorage.outbox;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.SessionResponse;
+import com.example.ragchatstorage.model.ChangeType;
+
+import java.time.Instant;
+
+/**
+ * One change log entry as published to the change feed. {@code session} / {@code message}
+ * carry the current state of the changed row when the batch was relayed, and are null when it
+ * has been deleted since (a SESSION_DELETE follows). {@code id} increases per shard, so
+ * consumers can drop redeliveries by keeping the last id seen per shard.
+ */
+public record ChangeEvent(
+    long id,
+    int shard,
+    ChangeType type,
+    String userId,
+    String sessionId,
+    String messageId,
+    Instant changedAt,
+    SessionResponse session,
+    MessageResponse message
+) {}
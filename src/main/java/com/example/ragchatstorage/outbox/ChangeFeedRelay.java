@@ -0,0 +1,213 @@
+package com.example.ragchatstorage.outbox;
+
+import com.example.ragchatstorage.datasource.ShardRouter;
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.SessionResponse;
+import com.example.ragchatstorage.model.ChangeFeedOffset;
+import com.example.ragchatstorage.model.ChangeLogEntry;
+import com.example.ragchatstorage.model.ChangeType;
+import com.example.ragchatstorage.repository.ChangeFeedOffsetRepository;
+import com.example.ragchatstorage.repository.ChangeLogRepository;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
+import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.storage.MessageStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox relay: publishes the change log to the configured ChangeFeedSink.
+ *
+ * The change log is written in the same transaction as every session and message write, so it
+ * is the outbox - nothing is published that did not commit, and nothing committed is missed.
+ * Each poll walks every shard's log from the offset stored on that shard, in batches of
+ * app.outbox.batch-size: the offset row is locked, the batch is hydrated with the current
+ * state of the changed rows (two statements), handed to the sink, and the offset advanced in
+ * the same transaction. A sink failure rolls the offset back, so delivery is at least once and
+ * in change log order, which for one session is commit order (every write locks the session
+ * row before logging). Like sync, only changes older than app.sync.settle-window are relayed,
+ * so a late commit of a lower id is not skipped.
+ *
+ * Without a sink bean (app.outbox.sink=none) the relay is idle. Messages are hydrated from
+ * chat_messages, so a sink with a non-relational MessageStore fails startup.
+ *
+ * Metrics: ragchat.outbox.published, ragchat.outbox.failures, ragchat.outbox.lag (seconds the
+ * oldest unpublished change has been waiting, worst shard).
+ */
+@Slf4j
+@Component
+public class ChangeFeedRelay {
+
+    static final String OFFSET_NAME = "change-feed";
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ChangeFeedOffsetRepository offsetRepository;
+    private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final ObjectProvider<ChangeFeedSink> sinks;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transaction;
+    private final Duration settleWindow;
+    private final int batchSize;
+    private final Counter published;
+    private final Counter failures;
+    private final Map<Integer, Instant> oldestPending = new ConcurrentHashMap<>();
+
+    public ChangeFeedRelay(ChangeLogRepository changeLogRepository,
+                           ChangeFeedOffsetRepository offsetRepository,
+                           ChatSessionRepository sessionRepository,
+                           ChatMessageRepository messageRepository,
+                           ObjectProvider<ChangeFeedSink> sinks,
+                           MessageStore messageStore,
+                           ShardRouter shardRouter,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.sync.settle-window:5s}") Duration settleWindow,
+                           @Value("${app.outbox.batch-size:200}") int batchSize) {
+        this.changeLogRepository = changeLogRepository;
+        this.offsetRepository = offsetRepository;
+        this.sessionRepository = sessionRepository;
+        this.messageRepository = messageRepository;
+        if (!messageStore.relational() && sinks.getIfAvailable() != null) {
+            throw new IllegalStateException("The change feed (app.outbox.sink) is not supported by the configured "
+                    + "storage engine; set app.outbox.sink=none");
+        }
+        this.sinks = sinks;
+        this.shardRouter = shardRouter;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.settleWindow = settleWindow;
+        this.batchSize = batchSize;
+        this.published = Counter.builder("ragchat.outbox.published")
+                .description("Change events handed to the change feed sink")
+                .register(meterRegistry);
+        this.failures = Counter.builder("ragchat.outbox.failures")
+                .description("Change feed batches that failed and will be retried")
+                .register(meterRegistry);
+        Gauge.builder("ragchat.outbox.lag", this, ChangeFeedRelay::lagSeconds)
+                .description("Age in seconds of the oldest change not yet published")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        ChangeFeedSink sink = sinks.getIfAvailable();
+        if (sink == null) {
+            return;
+        }
+        shardRouter.forEachShard(shard -> {
+            try {
+                while (relayBatch(shard, sink) == batchSize) {
+                    // Full batch - there may be more
+                }
+            } catch (RuntimeException ex) {
+                failures.increment();
+                log.warn("Change feed relay failed on shard {}, retrying on the next poll: {}", shard, ex.getMessage());
+            }
+        });
+    }
+
+    /** Returns the number of events published. */
+    private int relayBatch(int shard, ChangeFeedSink sink) {
+        Integer count = transaction.execute(status -> {
+            ChangeFeedOffset offset = lockOffset();
+            List<ChangeLogEntry> changes = changeLogRepository.findByIdGreaterThanOrderByIdAsc(
+                    offset.getLastId(), PageRequest.of(0, batchSize));
+            Instant settledBefore = Instant.now().minus(settleWindow);
+            int settled = 0;
+            while (settled < changes.size() && changes.get(settled).getChangedAt().isBefore(settledBefore)) {
+                settled++;
+            }
+            if (changes.isEmpty()) {
+                oldestPending.remove(shard);
+                return 0;
+            }
+            // Stays at the batch's first change if publishing fails
+            oldestPending.put(shard, changes.get(0).getChangedAt());
+            if (settled == 0) {
+                return 0;
+            }
+            List<ChangeLogEntry> batch = changes.subList(0, settled);
+
+            List<ChangeEvent> events = toEvents(shard, batch);
+            try {
+                sink.publish(events);
+            } catch (Exception ex) {
+                throw new IllegalStateException("Change feed sink rejected a batch: " + ex.getMessage(), ex);
+            }
+            offset.setLastId(batch.get(batch.size() - 1).getId());
+            offset.setUpdatedAt(Instant.now());
+            published.increment(events.size());
+            if (settled < changes.size()) {
+                oldestPending.put(shard, changes.get(settled).getChangedAt());
+            } else {
+                oldestPending.remove(shard);
+            }
+            return events.size();
+        });
+        return count != null ? count : 0;
+    }
+
+    /**
+     * The offset row, locked; created on first use (if two instances race to create it, one
+     * fails this poll and joins the next).
+     */
+    private ChangeFeedOffset lockOffset() {
+        return offsetRepository.findForUpdate(OFFSET_NAME)
+                .orElseGet(() -> offsetRepository.saveAndFlush(new ChangeFeedOffset(OFFSET_NAME, 0, Instant.now())));
+    }
+
+    private List<ChangeEvent> toEvents(int shard, List<ChangeLogEntry> changes) {
+        Set<String> sessionIds = new HashSet<>();
+        Set<String> messageIds = new HashSet<>();
+        for (ChangeLogEntry change : changes) {
+            if (change.getChangeType() == ChangeType.SESSION_UPSERT) {
+                sessionIds.add(change.getSessionId());
+            } else if (change.getChangeType() == ChangeType.MESSAGE_UPSERT) {
+                messageIds.add(change.getMessageId());
+            }
+        }
+        Map<String, SessionResponse> sessions = sessionIds.isEmpty() ? Map.of()
+                : sessionRepository.findResponsesByIdIn(sessionIds).stream()
+                        .collect(Collectors.toMap(SessionResponse::id, Function.identity()));
+        Map<String, MessageResponse> messages = messageIds.isEmpty() ? Map.of()
+                : messageRepository.findResponsesByIdIn(messageIds).stream()
+                        .collect(Collectors.toMap(MessageResponse::id, Function.identity()));
+
+        List<ChangeEvent> events = new ArrayList<>(changes.size());
+        for (ChangeLogEntry change : changes) {
+            events.add(new ChangeEvent(change.getId(), shard, change.getChangeType(), change.getUserId(),
+                    change.getSessionId(), change.getMessageId(), change.getChangedAt(),
+                    change.getChangeType() == ChangeType.SESSION_UPSERT ? sessions.get(change.getSessionId()) : null,
+                    change.getMessageId() != null ? messages.get(change.getMessageId()) : null));
+        }
+        return events;
+    }
+
+    private double lagSeconds() {
+        Instant now = Instant.now();
+        return oldestPending.values().stream()
+                .mapToDouble(since -> Math.max(0, Duration.between(since, now).toMillis() / 1000.0))
+                .max()
+                .orElse(0);
+    }
+}
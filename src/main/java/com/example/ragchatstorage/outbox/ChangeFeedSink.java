@@ -0,0 +1,16 @@
+package com.example.ragchatstorage.outbox;
+
+import java.util.List;
+
+/**
+ * Destination of the change feed. Define a bean of this type to plug in a broker; the built-in
+ * ones are selected with app.outbox.sink (queue, file).
+ */
+public interface ChangeFeedSink {
+
+    /**
+     * Delivers a batch in order. Returning normally acknowledges the whole batch; throwing
+     * makes the relay retry it from its first event on the next poll.
+     */
+    void publish(List<ChangeEvent> events) throws Exception;
+}
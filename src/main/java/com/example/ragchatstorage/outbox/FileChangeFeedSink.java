@@ -0,0 +1,45 @@
+package com.example.ragchatstorage.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Appends the change feed to a local file as JSON lines. A batch is written with one call and
+ * forced to disk before it is acknowledged; a crash in between can repeat it, never drop it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "file")
+public class FileChangeFeedSink implements ChangeFeedSink {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileChangeFeedSink(@Value("${app.outbox.file:change-feed.jsonl}") Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        log.info("Change feed is written to {}", file.toAbsolutePath());
+    }
+
+    @Override
+    public synchronized void publish(List<ChangeEvent> events) throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(events.size() * 256);
+        for (ChangeEvent event : events) {
+            objectMapper.writeValue(batch, event);
+            batch.write('\n');
+        }
+        try (FileOutputStream out = new FileOutputStream(file.toFile(), true)) {
+            batch.writeTo(out);
+            out.getChannel().force(false);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.ragchatstorage.outbox;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process change feed: a bounded queue that consumers in this JVM take events from. A batch
+ * that does not fit is rejected as a whole, so a stalled consumer holds the relay back instead
+ * of losing events.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "queue")
+public class QueueChangeFeedSink implements ChangeFeedSink {
+
+    private final BlockingQueue<ChangeEvent> queue;
+
+    public QueueChangeFeedSink(@Value("${app.outbox.queue-capacity:10000}") int capacity) {
+        this.queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public synchronized void publish(List<ChangeEvent> events) {
+        if (queue.remainingCapacity() < events.size()) {
+            throw new IllegalStateException("Change feed queue is full");
+        }
+        queue.addAll(events);
+    }
+
+    /**
+     * Next event, or null if none arrives within the timeout.
+     */
+    public ChangeEvent poll(Duration timeout) throws InterruptedException {
+        return queue.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public int drainTo(List<ChangeEvent> target) {
+        return queue.drainTo(target);
+    }
+}
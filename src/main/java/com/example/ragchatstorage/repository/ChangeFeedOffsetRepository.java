@@ -0,0 +1,22 @@
+package com.example.ragchatstorage.repository;
+
+import com.example.ragchatstorage.model.ChangeFeedOffset;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ChangeFeedOffsetRepository extends JpaRepository<ChangeFeedOffset, String> {
+
+    /**
+     * Reads the offset with a row lock held until commit.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from ChangeFeedOffset o where o.name = :name")
+    Optional<ChangeFeedOffset> findForUpdate(@Param("name") String name);
+}
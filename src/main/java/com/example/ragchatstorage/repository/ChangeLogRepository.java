@@ -0,0 +1,66 @@
+package com.example.ragchatstorage.repository;
+
+import com.example.ragchatstorage.model.ChangeLogEntry;
+import com.example.ragchatstorage.model.ChangeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Change log writes are single insert ... select statements that take the owner from the
+ * session row, so callers need not load it. They must run in the transaction of the change
+ * (before the session row is deleted, for deletes).
+ */
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+
+    /**
+     * Changes of a user after the watermark, oldest first; served by (user_id, id).
+     */
+    List<ChangeLogEntry> findByUserIdAndIdGreaterThanOrderByIdAsc(String userId, long id, Pageable pageable);
+
+    /**
+     * Changes of all users after an id, oldest first (change feed relay).
+     */
+    List<ChangeLogEntry> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    default void recordSession(String sessionId, ChangeType type) {
+        insertForSession(sessionId, type.name(), Instant.now());
+    }
+
+    default void recordMessage(String sessionId, String messageId) {
+        insertForMessage(sessionId, messageId, ChangeType.MESSAGE_UPSERT.name(), Instant.now());
+    }
+
+    default void recordSessions(String userId, Collection<String> sessionIds, ChangeType type) {
+        insertForSessions(userId, sessionIds, type.name(), Instant.now());
+    }
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into change_log (user_id, session_id, change_type, changed_at) "
+            + "select s.user_id, s.id, :type, :now from chat_sessions s where s.id = :sessionId",
+            nativeQuery = true)
+    int insertForSession(@Param("sessionId") String sessionId, @Param("type") String type,
+                         @Param("now") Instant now);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into change_log (user_id, session_id, message_id, change_type, changed_at) "
+            + "select s.user_id, s.id, :messageId, :type, :now from chat_sessions s where s.id = :sessionId",
+            nativeQuery = true)
+    int insertForMessage(@Param("sessionId") String sessionId, @Param("messageId") String messageId,
+                         @Param("type") String type, @Param("now") Instant now);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into change_log (user_id, session_id, change_type, changed_at) "
+            + "select s.user_id, s.id, :type, :now from chat_sessions s where s.user_id = :userId and s.id in :ids",
+            nativeQuery = true)
+    int insertForSessions(@Param("userId") String userId, @Param("ids") Collection<String> ids,
+                          @Param("type") String type, @Param("now") Instant now);
+}
@@ -1,19 +1,111 @@
 package com.example.ragchatstorage.repository;
 
+import com.example.ragchatstorage.dto.MessageResponse;
 import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.MessageStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, String> {
 
-    Page<ChatMessage> findBySessionIdOrderByCreatedAtAsc(String sessionId, Pageable pageable);
+    Page<ChatMessage> findBySessionIdOrderBySeqAsc(String sessionId, Pageable pageable);
+
+    /**
+     * Messages with seq in [fromSeq, toSeq], selected straight into response records (no entity
+     * hydration). A seek on uk_session_id_seq rather than an OFFSET scan.
+     */
+    @Query("select new com.example.ragchatstorage.dto.MessageResponse(m.id, m.sessionId, m.seq, m.sender, m.content, "
+            + "m.userId, m.context, m.createdAt, m.status, m.tokenCount) "
+            + "from ChatMessage m where m.sessionId = :sessionId and m.seq between :fromSeq and :toSeq order by m.seq asc")
+    List<MessageResponse> findResponsesBySeqRange(@Param("sessionId") String sessionId,
+                                                  @Param("fromSeq") long fromSeq, @Param("toSeq") long toSeq);
+
+    @Query("select new com.example.ragchatstorage.dto.MessageResponse(m.id, m.sessionId, m.seq, m.sender, m.content, "
+            + "m.userId, m.context, m.createdAt, m.status, m.tokenCount) "
+            + "from ChatMessage m where m.id in :ids order by m.sessionId, m.seq")
+    List<MessageResponse> findResponsesByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Messages with seq in [fromSeq, toSeq] whose suffix of the history, counted from them to the
+     * session's end, takes at most total - threshold tokens: those with cumulative tokens before
+     * them of at least {@code threshold}. The first condition is a range on
+     * idx_session_id_cumulative_tokens, the second only drops the boundary message.
+     */
+    @Query("select new com.example.ragchatstorage.dto.MessageResponse(m.id, m.sessionId, m.seq, m.sender, m.content, "
+            + "m.userId, m.context, m.createdAt, m.status, m.tokenCount) "
+            + "from ChatMessage m where m.sessionId = :sessionId and m.cumulativeTokens >= :threshold "
+            + "and m.cumulativeTokens - m.tokenCount >= :threshold and m.seq between :fromSeq and :toSeq "
+            + "order by m.seq asc")
+    List<MessageResponse> findWindowBySeqRange(@Param("sessionId") String sessionId, @Param("fromSeq") long fromSeq,
+                                               @Param("toSeq") long toSeq, @Param("threshold") long threshold);
+
+    @Query("select m.cumulativeTokens from ChatMessage m where m.sessionId = :sessionId and m.seq = :seq")
+    Optional<Long> findCumulativeTokens(@Param("sessionId") String sessionId, @Param("seq") long seq);
+
+    @Query("select new com.example.ragchatstorage.repository.MessageTokens(m.id, m.seq, m.content, m.tokenCount, "
+            + "m.cumulativeTokens) from ChatMessage m where m.sessionId = :sessionId "
+            + "and m.seq between :fromSeq and :toSeq order by m.seq asc")
+    List<MessageTokens> findTokensBySeqRange(@Param("sessionId") String sessionId,
+                                             @Param("fromSeq") long fromSeq, @Param("toSeq") long toSeq);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update ChatMessage m set m.tokenCount = :tokenCount, m.cumulativeTokens = :cumulativeTokens where m.id = :id")
+    int updateTokens(@Param("id") String id, @Param("tokenCount") int tokenCount,
+                     @Param("cumulativeTokens") long cumulativeTokens);
+
+    /**
+     * Moves the running totals of the session's messages from {@code fromSeq} on by
+     * {@code tokens}, after the message at fromSeq changed size (a finalized draft).
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update ChatMessage m set m.cumulativeTokens = m.cumulativeTokens + :tokens "
+            + "where m.sessionId = :sessionId and m.seq >= :fromSeq")
+    int shiftCumulativeTokens(@Param("sessionId") String sessionId, @Param("fromSeq") long fromSeq,
+                              @Param("tokens") long tokens);
+
+    Optional<ChatMessage> findBySessionIdAndIdempotencyKey(String sessionId, String idempotencyKey);
+
+    boolean existsBySessionIdAndStatusAndSeqLessThanEqual(String sessionId, MessageStatus status, long seq);
+
+    @Query("select new com.example.ragchatstorage.repository.Watermark(count(m), max(m.createdAt), "
+            + "coalesce(sum(case when m.status = com.example.ragchatstorage.model.MessageStatus.STREAMING then 1 else 0 end), 0)) "
+            + "from ChatMessage m where m.sessionId = :sessionId")
+    Watermark findWatermarkBySessionId(@Param("sessionId") String sessionId);
+
+    /**
+     * Appends to the content of a streaming draft in place, without reading it.
+     * Returns 0 when the message is not a draft (missing or already finalized).
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ChatMessage m set m.content = concat(m.content, :chunk) "
+            + "where m.id = :id and m.status = com.example.ragchatstorage.model.MessageStatus.STREAMING")
+    int appendContent(@Param("id") String id, @Param("chunk") String chunk);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ChatMessage m set m.status = com.example.ragchatstorage.model.MessageStatus.COMPLETE, "
+            + "m.tokenCount = :tokenCount "
+            + "where m.id = :id and m.status = com.example.ragchatstorage.model.MessageStatus.STREAMING")
+    int completeDraft(@Param("id") String id, @Param("tokenCount") int tokenCount);
 
     @Transactional
     @Modifying
     void deleteBySessionId(String sessionId);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("delete from ChatMessage m where m.sessionId in :sessionIds")
+    int deleteBySessionIdIn(@Param("sessionIds") Collection<String> sessionIds);
 }
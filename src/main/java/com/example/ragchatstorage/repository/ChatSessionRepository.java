@@ -1,10 +1,21 @@
 package com.example.ragchatstorage.repository;
 
+import com.example.ragchatstorage.dto.SessionResponse;
 import com.example.ragchatstorage.model.ChatSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChatSessionRepository extends JpaRepository<ChatSession, String> {
@@ -12,4 +23,131 @@ public interface ChatSessionRepository extends JpaRepository<ChatSession, String
     List<ChatSession> findByUserIdOrderByUpdatedAtDesc(String userId);
 
     List<ChatSession> findByUserIdAndFavoriteOrderByUpdatedAtDesc(String userId, boolean favorite);
+
+    List<ChatSession> findAllByOrderByUpdatedAtDesc(Pageable pageable);
+
+    /**
+     * Session list of a user selected straight into response records (no entity hydration).
+     */
+    @Query("select new com.example.ragchatstorage.dto.SessionResponse(s.id, s.userId, s.title, s.favorite, "
+            + "s.createdAt, s.updatedAt, s.version, s.parentSessionId, s.forkSeq) from ChatSession s where s.userId = :userId order by s.updatedAt desc")
+    List<SessionResponse> findResponsesByUserId(@Param("userId") String userId);
+
+    @Query("select new com.example.ragchatstorage.dto.SessionResponse(s.id, s.userId, s.title, s.favorite, "
+            + "s.createdAt, s.updatedAt, s.version, s.parentSessionId, s.forkSeq) from ChatSession s "
+            + "where s.userId = :userId and s.favorite = :favorite order by s.updatedAt desc")
+    List<SessionResponse> findResponsesByUserIdAndFavorite(@Param("userId") String userId,
+                                                           @Param("favorite") boolean favorite);
+
+    @Query("select new com.example.ragchatstorage.dto.SessionResponse(s.id, s.userId, s.title, s.favorite, "
+            + "s.createdAt, s.updatedAt, s.version, s.parentSessionId, s.forkSeq) from ChatSession s where s.userId = :userId and s.id in :ids")
+    List<SessionResponse> findResponsesByUserIdAndIdIn(@Param("userId") String userId,
+                                                       @Param("ids") Collection<String> ids);
+
+    @Query("select new com.example.ragchatstorage.dto.SessionResponse(s.id, s.userId, s.title, s.favorite, "
+            + "s.createdAt, s.updatedAt, s.version, s.parentSessionId, s.forkSeq) from ChatSession s where s.id in :ids")
+    List<SessionResponse> findResponsesByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Allocates the next message seq of the session and adds the message's tokens to the
+     * session total: the increment takes the session's row lock until commit, so concurrent
+     * inserts into one session are serialized (and a rolled back insert hands its number back)
+     * while other sessions are unaffected. Empty when the session does not exist. Must run in
+     * the inserting transaction.
+     */
+    default Optional<SessionSeq> nextSeq(String id, int tokens) {
+        if (incrementLastSeq(id, tokens) == 0) {
+            return Optional.empty();
+        }
+        return findSeqById(id);
+    }
+
+    @Modifying(flushAutomatically = true)
+    @Query("update ChatSession s set s.lastSeq = s.lastSeq + 1, s.totalTokens = s.totalTokens + :tokens where s.id = :id")
+    int incrementLastSeq(@Param("id") String id, @Param("tokens") int tokens);
+
+    @Query("select new com.example.ragchatstorage.repository.SessionSeq(s.userId, s.lastSeq, s.totalTokens) "
+            + "from ChatSession s where s.id = :id")
+    Optional<SessionSeq> findSeqById(@Param("id") String id);
+
+    /**
+     * Adds tokens to the session total without allocating a seq (a draft finalized with its
+     * content); takes the row lock like nextSeq.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update ChatSession s set s.totalTokens = s.totalTokens + :tokens where s.id = :id")
+    int addTokens(@Param("id") String id, @Param("tokens") long tokens);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update ChatSession s set s.totalTokens = :total where s.id = :id")
+    int setTotalTokens(@Param("id") String id, @Param("total") long total);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ChatSession s where s.id = :id")
+    Optional<ChatSession> findForUpdate(@Param("id") String id);
+
+    @Query("select s.id from ChatSession s where s.totalTokens is null")
+    List<String> findIdsWithoutTokenTotal(Pageable pageable);
+
+    @Query("select s.lastSeq from ChatSession s where s.id = :id")
+    Optional<Long> findLastSeqById(@Param("id") String id);
+
+    @Query("select new com.example.ragchatstorage.repository.SessionHistory(s.lastSeq, s.forkSeq, s.lineage, "
+            + "s.totalTokens) from ChatSession s where s.id = :id")
+    Optional<SessionHistory> findHistoryById(@Param("id") String id);
+
+    boolean existsByParentSessionId(String parentSessionId);
+
+    /**
+     * Forks of the given sessions that are not among them.
+     */
+    @Query("select s.id from ChatSession s where s.parentSessionId in :ids and s.id not in :ids")
+    List<String> findForksOutside(@Param("ids") Collection<String> ids);
+
+    /**
+     * Sets the title in a single statement and bumps the version. With an expected version the
+     * update only applies if the session still has it. Returns 0 when nothing was updated.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update ChatSession s set s.title = :title, s.updatedAt = :now, s.version = s.version + 1 "
+            + "where s.id = :id and (:expectedVersion is null or s.version = :expectedVersion)")
+    int updateTitle(@Param("id") String id, @Param("title") String title, @Param("now") Instant now,
+                    @Param("expectedVersion") Long expectedVersion);
+
+    /**
+     * Favorite counterpart of {@link #updateTitle}.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update ChatSession s set s.favorite = :favorite, s.updatedAt = :now, s.version = s.version + 1 "
+            + "where s.id = :id and (:expectedVersion is null or s.version = :expectedVersion)")
+    int updateFavorite(@Param("id") String id, @Param("favorite") boolean favorite, @Param("now") Instant now,
+                       @Param("expectedVersion") Long expectedVersion);
+
+    @Query("select s.id from ChatSession s where s.userId = :userId and s.id in :ids")
+    List<String> findIdsByUserIdAndIdIn(@Param("userId") String userId, @Param("ids") Collection<String> ids);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update ChatSession s set s.title = :title, s.updatedAt = :now, s.version = s.version + 1 "
+            + "where s.userId = :userId and s.id in :ids")
+    int updateTitleForUser(@Param("userId") String userId, @Param("ids") Collection<String> ids,
+                           @Param("title") String title, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update ChatSession s set s.favorite = :favorite, s.updatedAt = :now, s.version = s.version + 1 "
+            + "where s.userId = :userId and s.id in :ids")
+    int updateFavoriteForUser(@Param("userId") String userId, @Param("ids") Collection<String> ids,
+                              @Param("favorite") boolean favorite, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("delete from ChatSession s where s.userId = :userId and s.id in :ids")
+    int deleteForUser(@Param("userId") String userId, @Param("ids") Collection<String> ids);
+
+    @Query("select new com.example.ragchatstorage.repository.Watermark(count(s), max(s.updatedAt)) "
+            + "from ChatSession s where s.userId = :userId")
+    Watermark findWatermarkByUserId(@Param("userId") String userId);
 }
@@ -0,0 +1,31 @@
+package com.example.ragchatstorage.repository;
+
+import com.example.ragchatstorage.model.ContextItem;
+import com.example.ragchatstorage.model.MessageStatus;
+import com.example.ragchatstorage.model.SenderType;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Row of the context view query: the session's fork point and lineage (null unless it is a fork),
+ * its latest summary (null columns if it has none) joined with one message after it (null
+ * columns if there are none).
+ */
+public record ContextRow(
+    Long forkSeq,
+    String lineage,
+    String summaryId,
+    Long summaryUpToSeq,
+    String summaryContent,
+    Instant summaryCreatedAt,
+    String messageId,
+    Long messageSeq,
+    SenderType sender,
+    String content,
+    String userId,
+    List<ContextItem> context,
+    Instant createdAt,
+    MessageStatus status,
+    Integer tokenCount
+) {}
@@ -0,0 +1,7 @@
+package com.example.ragchatstorage.repository;
+
+/**
+ * Token columns of a message with the content they are estimated from, read by the backfill.
+ */
+public record MessageTokens(String id, long seq, String content, Integer tokenCount, Long cumulativeTokens) {
+}
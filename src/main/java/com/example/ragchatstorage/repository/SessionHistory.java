@@ -0,0 +1,9 @@
+package com.example.ragchatstorage.repository;
+
+/**
+ * Where a session's message history lives: seqs 1..lastSeq, of which those up to forkSeq are
+ * inherited through the lineage (both null for a session that is not a fork), and the
+ * estimated tokens of all of it (null while the session awaits the token backfill).
+ */
+public record SessionHistory(long lastSeq, Long forkSeq, String lineage, Long totalTokens) {
+}
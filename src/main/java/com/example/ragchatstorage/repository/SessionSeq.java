@@ -0,0 +1,8 @@
+package com.example.ragchatstorage.repository;
+
+/**
+ * Owner of a session, the sequence number just allocated for its next message and the session's
+ * token total including that message (null while the session awaits the token backfill).
+ */
+public record SessionSeq(String userId, long seq, Long totalTokens) {
+}
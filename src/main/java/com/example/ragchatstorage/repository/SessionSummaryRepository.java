@@ -0,0 +1,41 @@
+package com.example.ragchatstorage.repository;
+
+import com.example.ragchatstorage.model.SessionSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SessionSummaryRepository extends JpaRepository<SessionSummary, String> {
+
+    @Query("select max(s.upToSeq) from SessionSummary s where s.sessionId = :sessionId")
+    Optional<Long> findLatestUpToSeq(@Param("sessionId") String sessionId);
+
+    /**
+     * Context view in one statement: anchored on the session row (so a missing session returns no
+     * rows), left-joined with its latest summary and the messages after it. Both joins are
+     * served by the (session_id, up_to_seq) and (session_id, seq) unique indexes, so the cost
+     * depends on the number of messages since the summary, not on the length of the session.
+     * Inherited messages of a fork are not included; SessionSummaryService reads them separately.
+     */
+    @Query("select new com.example.ragchatstorage.repository.ContextRow(c.forkSeq, c.lineage, s.id, s.upToSeq, s.content, s.createdAt, "
+            + "m.id, m.seq, m.sender, m.content, m.userId, m.context, m.createdAt, m.status, m.tokenCount) "
+            + "from ChatSession c "
+            + "left join SessionSummary s on s.sessionId = c.id and s.upToSeq = "
+            + "(select max(l.upToSeq) from SessionSummary l where l.sessionId = c.id) "
+            + "left join ChatMessage m on m.sessionId = c.id and m.seq > coalesce(s.upToSeq, 0) "
+            + "where c.id = :sessionId order by m.seq asc")
+    List<ContextRow> findContextView(@Param("sessionId") String sessionId);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("delete from SessionSummary s where s.sessionId in :sessionIds")
+    int deleteBySessionIdIn(@Param("sessionIds") Collection<String> sessionIds);
+}
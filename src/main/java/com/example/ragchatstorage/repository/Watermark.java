@@ -0,0 +1,14 @@
+package com.example.ragchatstorage.repository;
+
+import java.time.Instant;
+
+/**
+ * Row count and latest timestamp of a set of rows, used to derive ETags without reading the rows.
+ * {@code mutable} counts rows that may still change in place (streaming message drafts).
+ */
+public record Watermark(long count, Instant latest, long mutable) {
+
+    public Watermark(long count, Instant latest) {
+        this(count, latest, 0L);
+    }
+}
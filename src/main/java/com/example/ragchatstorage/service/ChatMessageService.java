@@ -1,49 +1,126 @@
 package com.example.ragchatstorage.service;
 
+import com.example.ragchatstorage.datasource.ShardRouter;
 import com.example.ragchatstorage.dto.CreateMessageRequest;
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.MessageWindowResponse;
 import com.example.ragchatstorage.exception.BadRequestException;
 import com.example.ragchatstorage.exception.BusinessException;
 import com.example.ragchatstorage.exception.DatabaseException;
+import com.example.ragchatstorage.exception.DuplicateResourceException;
 import com.example.ragchatstorage.exception.NotFoundException;
 import com.example.ragchatstorage.mapper.ChatMessageMapper;
 import com.example.ragchatstorage.model.ChatMessage;
-import com.example.ragchatstorage.model.ChatSession;
 import com.example.ragchatstorage.model.ContextItem;
 import com.example.ragchatstorage.model.SenderType;
+import com.example.ragchatstorage.repository.ChangeLogRepository;
 import com.example.ragchatstorage.repository.ChatMessageRepository;
 import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.repository.SessionHistory;
+import com.example.ragchatstorage.repository.SessionSeq;
+import com.example.ragchatstorage.storage.MessageStore;
+import com.example.ragchatstorage.stream.MessageCreatedEvent;
+import com.example.ragchatstorage.stream.MessageStreamHub;
+import com.example.ragchatstorage.tokenizer.TokenEstimator;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
 
 @Slf4j
 @Service
+@Timed(value = "ragchat.service", histogram = true)
 @RequiredArgsConstructor
 public class ChatMessageService {
 
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 128;
+    // Messages read per step when a window has to be computed without stored token totals
+    private static final int WINDOW_SCAN_CHUNK = 100;
+
     private final ChatSessionRepository sessionRepository;
     private final ChatMessageRepository messageRepository;
+    private final MessageStore messageStore;
+    private final ChangeLogRepository changeLogRepository;
     private final ChatMessageMapper messageMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MessageStreamHub messageStreamHub;
+    private final ShardRouter shardRouter;
+    private final IdempotencyCache idempotencyCache;
+    private final TokenEstimator tokenEstimator;
 
+    /**
+     * One read-write transaction with four statements: the session's seq and token total
+     * increment, the owner/seq lookup (a projection, the session entity is not loaded), the
+     * insert and its change log row. The token estimate is computed before, outside the lock.
+     */
+    @Transactional
     public ChatMessage addMessage(String sessionId, CreateMessageRequest request) {
-        ChatSession session = sessionRepository.findById(sessionId)
+        return addMessage(sessionId, request, null);
+    }
+
+    /**
+     * With an Idempotency-Key, a retry of a request that already created a message returns that
+     * message instead of inserting a second one - from memory for recent keys, otherwise through
+     * one indexed lookup. Reusing a key for a different message is rejected.
+     */
+    @Transactional
+    public ChatMessage addMessage(String sessionId, CreateMessageRequest request, String idempotencyKey) {
+        shardRouter.routeWriteBySession(sessionId);
+        if (idempotencyKey == null) {
+            return insertMessage(sessionId, request, null);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+
+        ChatMessage message = idempotencyCache.deduplicate(sessionId, idempotencyKey, () ->
+                messageStore.findByIdempotencyKey(sessionId, idempotencyKey)
+                        .orElseGet(() -> insertMessage(sessionId, request, idempotencyKey)));
+
+        String expectedUserId = request.sender() == SenderType.USER ? request.userId() : null;
+        if (message.getSender() != request.sender()
+                || !message.getContent().equals(request.content())
+                || !Objects.equals(message.getUserId(), expectedUserId)) {
+            throw new BusinessException("Idempotency-Key was already used for a different message");
+        }
+        return message;
+    }
+
+    private ChatMessage insertMessage(String sessionId, CreateMessageRequest request, String idempotencyKey) {
+        int tokens = tokenEstimator.estimate(request.content());
+        // Owner and seq in one go; a rejected insert rolls the seq back with the transaction
+        SessionSeq next = sessionRepository.nextSeq(sessionId, tokens)
                 .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+        String owner = next.userId();
 
         ChatMessage message = messageMapper.toEntity(request);
-        message.setSessionId(session.getId());
+        message.setSessionId(sessionId);
+        message.setSeq(next.seq());
+        message.setTokenCount(tokens);
+        message.setCumulativeTokens(next.totalTokens());
         message.setCreatedAt(Instant.now());
 
         // Validate and set userId based on sender type
         if (request.sender() == SenderType.USER) {
-            if (!session.getUserId().equals(request.userId())) {
+            if (!owner.equals(request.userId())) {
                 log.error("User ID mismatch. Expected={}, Got={}",
-                        session.getUserId(), request.userId());
+                        owner, request.userId());
                 throw new BusinessException("User ID does not match session owner");
             }
             message.setUserId(request.userId());
@@ -59,10 +136,154 @@ public class ChatMessageService {
             message.setContext(contextItems);
         }
 
-        return messageRepository.save(message);
+        ChatMessage saved;
+        message.setIdempotencyKey(idempotencyKey);
+        try {
+            // A keyed append checks the key right away, so a duplicate written concurrently surfaces here
+            saved = messageStore.append(message);
+        } catch (DataIntegrityViolationException ex) {
+            if (idempotencyKey == null) {
+                throw ex;
+            }
+            throw new DuplicateResourceException("A request with this Idempotency-Key is already in progress", ex);
+        }
+        changeLogRepository.recordMessage(sessionId, saved.getId());
+        eventPublisher.publishEvent(new SessionWrittenEvent(sessionId));
+        eventPublisher.publishEvent(new MessageCreatedEvent(sessionId, MessageResponse.from(saved)));
+        return saved;
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of messages added to the session from now on.
+     */
+    public SseEmitter streamMessages(String sessionId) {
+        shardRouter.routeBySession(sessionId);
+        if (!sessionRepository.existsById(sessionId)) {
+            throw new NotFoundException("Session not found: " + sessionId);
+        }
+        return messageStreamHub.subscribe(sessionId);
     }
 
+    /**
+     * Entity page straight from chat_messages (JPA storage engine only). One read-only
+     * transaction. The page query runs first; the session is only checked for
+     * existence when the page is empty, and the count query is skipped by Spring Data when
+     * the first page is not full - so a typical history read is a single statement.
+     */
+    @Transactional(readOnly = true)
     public Page<ChatMessage> getMessages(String sessionId, int page, int size) {
+        return readPage(sessionId, page, size, (id, pageable) -> {
+            Page<ChatMessage> result = messageRepository.findBySessionIdOrderBySeqAsc(id, pageable);
+            if (!result.hasContent() && !sessionRepository.existsById(id)) {
+                throw new NotFoundException("Session not found: " + id);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Reads the page as a seq range straight into response records, so no entities are hydrated,
+     * snapshotted for dirty checking or held in the persistence context. Seqs are gapless and
+     * messages are only deleted with their session, so page N is exactly seq
+     * [N * size + 1, (N + 1) * size] - an index seek however deep the page - and no COUNT is
+     * needed: a partial page is the last one, otherwise the session's last seq is the total
+     * (that lookup also tells an empty page from a missing session). Pages of a fork that reach
+     * into its inherited history add one range read per ancestor holding part of the page.
+     */
+    @Transactional(readOnly = true)
+    public Page<MessageResponse> getMessageResponses(String sessionId, int page, int size) {
+        return readPage(sessionId, page, size, (id, pageable) -> {
+            long fromSeq = pageable.getOffset() + 1;
+            long toSeq = fromSeq + pageable.getPageSize() - 1;
+            List<MessageResponse> content = messageStore.findResponsesBySeqRange(id, fromSeq, toSeq);
+            if (!content.isEmpty() && content.get(0).seq() == fromSeq && content.size() < pageable.getPageSize()) {
+                return new PageImpl<>(content, pageable, pageable.getOffset() + content.size());
+            }
+            SessionHistory history = sessionRepository.findHistoryById(id)
+                    .orElseThrow(() -> new NotFoundException("Session not found: " + id));
+            if (history.forkSeq() != null && fromSeq <= history.forkSeq()) {
+                // Page starts in the history inherited from the session's ancestors
+                List<MessageResponse> stitched = new ArrayList<>(pageable.getPageSize());
+                stitched.addAll(messageStore.findLineageResponses(history.lineage(), fromSeq,
+                        Math.min(toSeq, history.forkSeq())));
+                stitched.addAll(content);
+                content = stitched;
+            }
+            return new PageImpl<>(content, pageable, history.lastSeq());
+        });
+    }
+
+    /**
+     * The newest messages whose estimated tokens add up to at most {@code maxTokens}, for prompt
+     * assembly without re-tokenizing the history. With stored totals this is one lookup of the
+     * session's total plus one index range on the running cumulative count (and one per
+     * ancestor for a window reaching into a fork's inherited history), however long the session.
+     * Sessions still waiting for the token backfill are scanned newest first instead. A
+     * streaming draft counts with the tokens it had when it was opened (none) until finalized.
+     */
+    @Transactional(readOnly = true)
+    public MessageWindowResponse getMessageWindow(String sessionId, long maxTokens) {
+        if (maxTokens <= 0) {
+            throw new BadRequestException("maxTokens must be positive");
+        }
+        shardRouter.routeBySession(sessionId);
+        SessionHistory history = sessionRepository.findHistoryById(sessionId)
+                .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+
+        List<MessageResponse> messages;
+        if (history.totalTokens() == null) {
+            messages = scanWindow(sessionId, history, maxTokens);
+        } else {
+            long threshold = history.totalTokens() - maxTokens;
+            long forkSeq = history.forkSeq() != null ? history.forkSeq() : 0;
+            messages = messageStore.findWindowBySeqRange(sessionId, forkSeq + 1, history.lastSeq(), threshold);
+            boolean reachesInherited = messages.isEmpty() ? history.lastSeq() == forkSeq
+                    : messages.get(0).seq() == forkSeq + 1;
+            if (forkSeq > 0 && reachesInherited) {
+                List<MessageResponse> stitched = new ArrayList<>(messageStore.findLineageWindow(history.lineage(), threshold));
+                stitched.addAll(messages);
+                messages = stitched;
+            }
+        }
+
+        long tokens = 0;
+        for (MessageResponse message : messages) {
+            tokens += tokensOf(message);
+        }
+        boolean truncated = messages.isEmpty() ? history.lastSeq() > 0 : messages.get(0).seq() > 1;
+        return new MessageWindowResponse(messages, tokens, truncated);
+    }
+
+    private List<MessageResponse> scanWindow(String sessionId, SessionHistory history, long maxTokens) {
+        Deque<MessageResponse> window = new ArrayDeque<>();
+        long forkSeq = history.forkSeq() != null ? history.forkSeq() : 0;
+        long tokens = 0;
+        for (long toSeq = history.lastSeq(); toSeq >= 1; toSeq -= WINDOW_SCAN_CHUNK) {
+            long fromSeq = Math.max(1, toSeq - WINDOW_SCAN_CHUNK + 1);
+            List<MessageResponse> chunk = new ArrayList<>();
+            if (fromSeq <= forkSeq) {
+                chunk.addAll(messageStore.findLineageResponses(history.lineage(), fromSeq, Math.min(toSeq, forkSeq)));
+            }
+            if (toSeq > forkSeq) {
+                chunk.addAll(messageStore.findResponsesBySeqRange(sessionId, Math.max(fromSeq, forkSeq + 1), toSeq));
+            }
+            for (int i = chunk.size() - 1; i >= 0; i--) {
+                tokens += tokensOf(chunk.get(i));
+                if (tokens > maxTokens) {
+                    return new ArrayList<>(window);
+                }
+                window.addFirst(chunk.get(i));
+            }
+        }
+        return new ArrayList<>(window);
+    }
+
+    private int tokensOf(MessageResponse message) {
+        return message.tokenCount() != null ? message.tokenCount() : tokenEstimator.estimate(message.content());
+    }
+
+    private <T> Page<T> readPage(String sessionId, int page, int size,
+                                 BiFunction<String, Pageable, Page<T>> query) {
         log.debug("[SERVICE] Fetching messages. SessionId={}, Page={}, Size={}",
                 sessionId, page, size);
 
@@ -86,21 +307,18 @@ public class ChatMessageService {
         }
 
         try {
-            if (!sessionRepository.existsById(sessionId)) {
-                log.error("Session not found: {}", sessionId);
-                throw new NotFoundException("Session not found: " + sessionId);
-            }
-
+            shardRouter.routeBySession(sessionId);
             Pageable pageable = PageRequest.of(page, size);
-            Page<ChatMessage> result = messageRepository.findBySessionIdOrderByCreatedAtAsc(sessionId, pageable);
+            Page<T> result = query.apply(sessionId, pageable);
 
-            log.info("[SERVICE] Messages fetched. SessionId={}, Count={}, TotalElements={}",
+            log.debug("[SERVICE] Messages fetched. SessionId={}, Count={}, TotalElements={}",
                     sessionId, result.getNumberOfElements(), result.getTotalElements());
 
             return result;
 
-        } catch (NotFoundException | com.example.ragchatstorage.exception.BadRequestException ex) {
-            throw ex; // Re-throw custom exceptions
+        } catch (NotFoundException ex) {
+            log.error("Session not found: {}", sessionId);
+            throw ex;
         } catch (org.springframework.dao.DataAccessException ex) {
             log.error("Database error fetching messages. SessionId={}, Error={}",
                     sessionId, ex.getMessage(), ex);
@@ -109,6 +327,7 @@ public class ChatMessageService {
         }
     }
 
+    @Transactional
     public void deleteMessagesForSession(String sessionId) {
         log.debug("[SERVICE] Deleting messages for session: {}", sessionId);
 
@@ -119,8 +338,14 @@ public class ChatMessageService {
         }
 
         try {
-            messageRepository.deleteBySessionId(sessionId);
-            log.info("[SERVICE] Messages deleted for session: {}", sessionId);
+            shardRouter.routeWriteBySession(sessionId);
+            if (sessionRepository.existsByParentSessionId(sessionId)) {
+                // Forks read their inherited messages from this session
+                throw new BusinessException("Session has forks that read its messages; delete the forks first: " + sessionId);
+            }
+            messageStore.deleteBySessionId(sessionId);
+            eventPublisher.publishEvent(new SessionWrittenEvent(sessionId));
+            log.debug("[SERVICE] Messages deleted for session: {}", sessionId);
 
         } catch (org.springframework.dao.DataAccessException ex) {
             log.error("Database error deleting messages. SessionId={}, Error={}",
@@ -1,94 +1,216 @@
 package com.example.ragchatstorage.service;
 
+import com.example.ragchatstorage.datasource.ShardRouter;
 import com.example.ragchatstorage.dto.CreateSessionRequest;
+import com.example.ragchatstorage.dto.ForkSessionRequest;
+import com.example.ragchatstorage.dto.SessionResponse;
+import com.example.ragchatstorage.exception.BusinessException;
 import com.example.ragchatstorage.exception.DatabaseException;
 import com.example.ragchatstorage.exception.NotFoundException;
+import com.example.ragchatstorage.exception.PreconditionFailedException;
 import com.example.ragchatstorage.mapper.ChatSessionMapper;
+import com.example.ragchatstorage.model.ChangeType;
 import com.example.ragchatstorage.model.ChatSession;
+import com.example.ragchatstorage.model.MessageStatus;
+import com.example.ragchatstorage.model.SessionLineage;
+import com.example.ragchatstorage.repository.ChangeLogRepository;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
 import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.repository.SessionSummaryRepository;
+import com.example.ragchatstorage.storage.MessageStore;
+import com.example.ragchatstorage.stream.SessionDeletedEvent;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
+@Timed(value = "ragchat.service", histogram = true)
 @RequiredArgsConstructor
 @Slf4j
 public class ChatSessionService {
 
     private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final MessageStore messageStore;
+    private final ChangeLogRepository changeLogRepository;
+    private final SessionSummaryRepository summaryRepository;
     private final ChatSessionMapper sessionMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
 
-    @CacheEvict(value = "userSessions", key = "#request.userId")
+    @Transactional
     public ChatSession createSession(CreateSessionRequest request) {
+        shardRouter.routeWriteByUser(request.userId());
 
         ChatSession session = sessionMapper.toEntity(request);
         session.setFavorite(false);
+        session.setTotalTokens(0L);
 
         Instant now = Instant.now();
         session.setCreatedAt(now);
         session.setUpdatedAt(now);
 
         ChatSession saved = sessionRepository.save(session);
-        log.debug("Created session {} using MapStruct mapper and evicted userSessions cache for user {}",
+        changeLogRepository.recordSession(saved.getId(), ChangeType.SESSION_UPSERT);
+        userSessionsChanged(request.userId());
+        eventPublisher.publishEvent(new SessionWrittenEvent(saved.getId()));
+        log.debug("Created session {} using MapStruct mapper and evicted cached session lists of user {}",
                 saved.getId(), request.userId());
         return saved;
     }
 
-    @Cacheable(value = "userSessions", key = "#userId + '-' + (#favorite != null ? #favorite : 'all')")
+    /**
+     * Creates a session continuing the history of {@code id} up to seq {@code upToSeq}. Nothing
+     * is copied: the fork records where its inherited messages live (see SessionLineage) and
+     * history reads stitch them in, so a fork is one insert plus its change log row (and a
+     * lookup of the running token total at the fork point) however long the history is. The
+     * fork belongs to the parent's owner and so lives on its shard.
+     */
+    @Transactional
+    public ChatSession forkSession(String id, ForkSessionRequest request) {
+        shardRouter.routeWriteBySession(id);
+        ChatSession parent = sessionRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Session not found: " + id));
+        long upToSeq = request.upToSeq();
+        if (upToSeq > parent.getLastSeq()) {
+            throw new BusinessException("Cannot fork after the latest message; latest seq is " + parent.getLastSeq());
+        }
+        long inherited = parent.getForkSeq() != null ? parent.getForkSeq() : 0;
+        // Inherited messages are shared as they are, so they must not change anymore
+        if (upToSeq > inherited && messageStore.relational()
+                && messageRepository.existsBySessionIdAndStatusAndSeqLessThanEqual(id, MessageStatus.STREAMING, upToSeq)) {
+            throw new BusinessException("Cannot fork while a message up to seq " + upToSeq + " is still streaming");
+        }
+        String lineage = SessionLineage.fork(parent.getLineage(), id, upToSeq);
+        List<SessionLineage.Segment> segments = SessionLineage.parse(lineage);
+        if (segments.size() > SessionLineage.MAX_DEPTH) {
+            throw new BusinessException("Session is forked too deep to fork again; at most "
+                    + SessionLineage.MAX_DEPTH + " ancestors are supported");
+        }
+
+        Long totalTokens = 0L;
+        if (!segments.isEmpty()) {
+            // Running totals agree in every session sharing the prefix; null if not yet backfilled
+            String holder = segments.get(segments.size() - 1).sessionId();
+            totalTokens = messageStore.findCumulativeTokens(holder, upToSeq).orElse(null);
+        }
+
+        Instant now = Instant.now();
+        ChatSession fork = sessionRepository.save(ChatSession.builder()
+                .userId(parent.getUserId())
+                .title(request.title() != null ? request.title() : parent.getTitle())
+                .createdAt(now)
+                .updatedAt(now)
+                .lastSeq(upToSeq)
+                .parentSessionId(id)
+                .forkSeq(upToSeq)
+                .lineage(lineage)
+                .totalTokens(totalTokens)
+                .build());
+        changeLogRepository.recordSession(fork.getId(), ChangeType.SESSION_UPSERT);
+        userSessionsChanged(parent.getUserId());
+        eventPublisher.publishEvent(new SessionWrittenEvent(fork.getId()));
+        log.debug("Forked session {} at seq {} into {}", id, upToSeq, fork.getId());
+        return fork;
+    }
+
+    @Transactional(readOnly = true)
     public List<ChatSession> getSessionsForUser(String userId, Boolean favorite) {
         log.debug("Fetching sessions from database for user: {}, favorite: {}", userId, favorite);
+        shardRouter.routeByUser(userId);
         if (favorite != null) {
             return sessionRepository.findByUserIdAndFavoriteOrderByUpdatedAtDesc(userId, favorite);
         }
         return sessionRepository.findByUserIdOrderByUpdatedAtDesc(userId);
     }
 
-    @Cacheable(value = "sessions", key = "#id")
+    /**
+     * Session list for the API, read as projections. Loader of SessionListCache, which keeps
+     * the encoded result; unchanged lists are answered with 304 from the list ETag before either.
+     */
+    @Transactional(readOnly = true)
+    public List<SessionResponse> getSessionResponsesForUser(String userId, Boolean favorite) {
+        shardRouter.routeByUser(userId);
+        if (favorite != null) {
+            return sessionRepository.findResponsesByUserIdAndFavorite(userId, favorite);
+        }
+        return sessionRepository.findResponsesByUserId(userId);
+    }
+
     public ChatSession getById(String id) {
         log.debug("Fetching session from database: {}", id);
+        shardRouter.routeBySession(id);
         return sessionRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Session not found: " + id));
     }
 
-    @CachePut(value = "sessions", key = "#id")
-    @CacheEvict(value = "userSessions", allEntries = true)
-    public ChatSession renameSession(String id, String newTitle) {
-        ChatSession session = getById(id);
-        session.setTitle(newTitle);
-        session.setUpdatedAt(Instant.now());
-        ChatSession updated = sessionRepository.save(session);
-        log.debug("Renamed session {} and updated cache", id);
-        return updated;
+    /**
+     * Conditional single-statement update (no read-modify-write): concurrent renames cannot
+     * overwrite each other silently, and the row read back afterwards is the committed winner.
+     * {@code expectedVersion} (from If-Match) may be null to update unconditionally; a mismatch
+     * throws PreconditionFailedException.
+     */
+    @Transactional
+    public ChatSession renameSession(String id, String newTitle, Long expectedVersion) {
+        shardRouter.routeWriteBySession(id);
+        int updated = sessionRepository.updateTitle(id, newTitle, Instant.now(), expectedVersion);
+        ChatSession session = reloadAfterUpdate(id, updated, expectedVersion);
+        log.debug("Renamed session {} (version {})", id, session.getVersion());
+        return session;
     }
 
-    @CachePut(value = "sessions", key = "#id")
-    @CacheEvict(value = "userSessions", allEntries = true)
-    public ChatSession markFavorite(String id, boolean favorite) {
-        ChatSession session = getById(id);
-        session.setFavorite(favorite);
-        session.setUpdatedAt(Instant.now());
-        ChatSession updated = sessionRepository.save(session);
-        log.debug("Updated favorite status for session {} and refreshed cache", id);
-        return updated;
+    @Transactional
+    public ChatSession markFavorite(String id, boolean favorite, Long expectedVersion) {
+        shardRouter.routeWriteBySession(id);
+        int updated = sessionRepository.updateFavorite(id, favorite, Instant.now(), expectedVersion);
+        ChatSession session = reloadAfterUpdate(id, updated, expectedVersion);
+        log.debug("Updated favorite status for session {} (version {})", id, session.getVersion());
+        return session;
     }
 
-    @CacheEvict(value = {"sessions", "userSessions"}, allEntries = true)
+    private ChatSession reloadAfterUpdate(String id, int updated, Long expectedVersion) {
+        ChatSession session = sessionRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Session not found: " + id));
+        if (updated == 0) {
+            log.warn("Session update rejected. SessionId={}, ExpectedVersion={}, CurrentVersion={}",
+                    id, expectedVersion, session.getVersion());
+            throw new PreconditionFailedException("Session was modified concurrently; current version is "
+                    + session.getVersion());
+        }
+        changeLogRepository.recordSession(id, ChangeType.SESSION_UPSERT);
+        userSessionsChanged(session.getUserId());
+        eventPublisher.publishEvent(new SessionWrittenEvent(id));
+        return session;
+    }
+
+    @Transactional
     public void deleteSession(String id) {
         log.debug("[SERVICE] Deleting session: {}", id);
+        shardRouter.routeWriteBySession(id);
 
         try {
             ChatSession session = getById(id);
+            requireNoForks(id);
+            changeLogRepository.recordSession(id, ChangeType.SESSION_DELETE);
+            summaryRepository.deleteBySessionIdIn(List.of(id));
             sessionRepository.delete(session);
+            userSessionsChanged(session.getUserId());
+            eventPublisher.publishEvent(new SessionWrittenEvent(id));
+            eventPublisher.publishEvent(new SessionDeletedEvent(id));
 
-            log.info("[SERVICE] Session deleted. SessionId={}, Caches cleared", id);
+            log.debug("[SERVICE] Session deleted. SessionId={}, Caches cleared", id);
 
-        } catch (NotFoundException ex) {
+        } catch (NotFoundException | BusinessException ex) {
             throw ex; // Re-throw NotFoundException
         } catch (org.springframework.dao.DataAccessException ex) {
             log.error("Database error deleting session. SessionId={}, Error={}",
@@ -97,5 +219,99 @@ public class ChatSessionService {
                     "Failed to delete session due to database error", ex);
         }
     }
-}
 
+    /**
+     * Bulk operations act on sessions of one user (so on one shard) with a single set-based
+     * statement each; ids that do not exist or belong to someone else are skipped. Caches
+     * and ETags are invalidated once for the user instead of once per session.
+     */
+    @Transactional
+    public int markFavorite(String userId, List<String> ids, boolean favorite) {
+        shardRouter.routeWriteByUser(userId);
+        Set<String> distinct = new LinkedHashSet<>(ids);
+        int updated = sessionRepository.updateFavoriteForUser(userId, distinct, favorite, Instant.now());
+        if (updated > 0) {
+            changeLogRepository.recordSessions(userId, distinct, ChangeType.SESSION_UPSERT);
+        }
+        userSessionsChanged(userId);
+        log.debug("Bulk favorite={} for user {}: {} of {} sessions", favorite, userId, updated, distinct.size());
+        return updated;
+    }
+
+    @Transactional
+    public int renameSessions(String userId, List<String> ids, String title) {
+        shardRouter.routeWriteByUser(userId);
+        Set<String> distinct = new LinkedHashSet<>(ids);
+        int updated = sessionRepository.updateTitleForUser(userId, distinct, title, Instant.now());
+        if (updated > 0) {
+            changeLogRepository.recordSessions(userId, distinct, ChangeType.SESSION_UPSERT);
+        }
+        userSessionsChanged(userId);
+        log.debug("Bulk rename for user {}: {} of {} sessions", userId, updated, distinct.size());
+        return updated;
+    }
+
+    /**
+     * Deletes the sessions and their messages in one transaction. Rejected as a whole if one of
+     * them has a fork that is not deleted with it.
+     */
+    @Transactional
+    public int deleteSessions(String userId, List<String> ids) {
+        shardRouter.routeWriteByUser(userId);
+        try {
+            // Resolve ownership once so messages of other users' sessions are never touched
+            List<String> owned = sessionRepository.findIdsByUserIdAndIdIn(userId, new LinkedHashSet<>(ids));
+            if (owned.isEmpty()) {
+                return 0;
+            }
+            List<String> forks = sessionRepository.findForksOutside(owned);
+            if (!forks.isEmpty()) {
+                throw new BusinessException("Sessions have forks that read their messages; delete the forks first: " + forks);
+            }
+            changeLogRepository.recordSessions(userId, owned, ChangeType.SESSION_DELETE);
+            summaryRepository.deleteBySessionIdIn(owned);
+            messageStore.deleteBySessionIdIn(owned);
+            int deleted = sessionRepository.deleteForUser(userId, owned);
+            userSessionsChanged(userId);
+            owned.forEach(id -> {
+                eventPublisher.publishEvent(new SessionWrittenEvent(id));
+                eventPublisher.publishEvent(new SessionDeletedEvent(id));
+            });
+            log.debug("[SERVICE] Bulk delete for user {}: {} sessions", userId, deleted);
+            return deleted;
+        } catch (org.springframework.dao.DataAccessException ex) {
+            log.error("Database error deleting sessions. UserId={}, Error={}", userId, ex.getMessage(), ex);
+            throw new DatabaseException("Failed to delete sessions due to database error", ex);
+        }
+    }
+
+    /**
+     * Forks read their inherited messages from the parent, so it has to outlive them.
+     */
+    private void requireNoForks(String id) {
+        if (sessionRepository.existsByParentSessionId(id)) {
+            throw new BusinessException("Session has forks that read its messages; delete the forks first: " + id);
+        }
+    }
+
+    /**
+     * Invalidates what was derived from the user's session list: its ETag and cached lists
+     * (only this user's, whichever session changed) and the read-your-writes window. Takes
+     * effect after commit, see SessionListChangedEvent.
+     */
+    private void userSessionsChanged(String userId) {
+        eventPublisher.publishEvent(new SessionListChangedEvent(userId));
+    }
+
+    /**
+     * Most recently updated sessions of all users; gathered from every shard.
+     */
+    public List<ChatSession> getRecentSessions(int limit) {
+        return shardRouter.onEachShard(() -> sessionRepository.findAllByOrderByUpdatedAtDesc(PageRequest.of(0, limit)))
+                .stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(ChatSession::getUpdatedAt).reversed())
+                .limit(limit)
+                .toList();
+    }
+}
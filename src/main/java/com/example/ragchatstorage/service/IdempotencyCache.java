@@ -0,0 +1,99 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.exception.DuplicateResourceException;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Recently written messages by (session, Idempotency-Key), so client retries are answered
+ * from memory, and single-flight for concurrent duplicates on this instance: the first request
+ * for a key writes, the others wait for its outcome. A result is only shared once the writing
+ * transaction has committed. Across instances the unique index on
+ * (session_id, idempotency_key) is the backstop.
+ *
+ * Configuration: app.idempotency.max-entries, app.idempotency.ttl
+ */
+@Component
+public class IdempotencyCache {
+
+    private final Cache<String, ChatMessage> recent;
+    private final ConcurrentHashMap<String, CompletableFuture<ChatMessage>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyCache(@Value("${app.idempotency.max-entries:10000}") long maxEntries,
+                            @Value("${app.idempotency.ttl:10m}") Duration ttl) {
+        this.recent = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttl).build();
+    }
+
+    /**
+     * Returns the message already written for the key, waiting for a concurrent writer if there
+     * is one; otherwise runs {@code write} in the caller's transaction.
+     */
+    public ChatMessage deduplicate(String sessionId, String idempotencyKey, Supplier<ChatMessage> write) {
+        String key = sessionId + '\n' + idempotencyKey;
+        ChatMessage cached = recent.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<ChatMessage> pending = new CompletableFuture<>();
+        CompletableFuture<ChatMessage> leader = inFlight.putIfAbsent(key, pending);
+        if (leader != null) {
+            return await(leader);
+        }
+
+        ChatMessage message;
+        try {
+            message = write.get();
+        } catch (RuntimeException ex) {
+            inFlight.remove(key, pending);
+            pending.completeExceptionally(ex);
+            throw ex;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        publish(key, pending, message);
+                    } else {
+                        inFlight.remove(key, pending);
+                        pending.completeExceptionally(new DuplicateResourceException(
+                                "A request with this Idempotency-Key failed, retry it"));
+                    }
+                }
+            });
+        } else {
+            publish(key, pending, message);
+        }
+        return message;
+    }
+
+    private void publish(String key, CompletableFuture<ChatMessage> pending, ChatMessage message) {
+        recent.put(key, message);
+        inFlight.remove(key, pending);
+        pending.complete(message);
+    }
+
+    private static ChatMessage await(CompletableFuture<ChatMessage> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+}
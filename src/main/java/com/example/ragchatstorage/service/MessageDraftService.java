@@ -0,0 +1,333 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.datasource.ShardRouter;
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.OpenDraftRequest;
+import com.example.ragchatstorage.exception.BusinessException;
+import com.example.ragchatstorage.exception.NotFoundException;
+import com.example.ragchatstorage.exception.ShardRebalancingException;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.ContextItem;
+import com.example.ragchatstorage.model.MessageStatus;
+import com.example.ragchatstorage.model.SenderType;
+import com.example.ragchatstorage.repository.ChangeLogRepository;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
+import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.repository.SessionSeq;
+import com.example.ragchatstorage.storage.MessageStore;
+import com.example.ragchatstorage.stream.MessageCreatedEvent;
+import com.example.ragchatstorage.tokenizer.TokenEstimator;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incremental writes of assistant messages generated token by token.
+ *
+ * A draft is an ASSISTANT message persisted with status STREAMING and empty content.
+ * Appended chunks are coalesced in memory and flushed with a single in-place
+ * {@code content = concat(content, ?)} update once app.drafts.flush-size characters are
+ * pending or the oldest pending chunk is app.drafts.flush-interval-ms old, so readers of
+ * the message history see the partial answer without a write per token. Finalizing
+ * flushes the remainder, marks the message COMPLETE and publishes it to stream subscribers.
+ * A draft without appends for app.drafts.idle-timeout is finalized the same way with the
+ * content it has, so an abandoned draft does not stay STREAMING (which would disable the
+ * session's ETag and block forks past it).
+ *
+ * Pending chunks live on the instance that received them: appends for one draft should be
+ * routed to the same instance, and anything not yet flushed is lost if it stops. Drafts are
+ * rows of chat_messages, so they need the jpa storage engine (app.storage.engine).
+ */
+@Slf4j
+@Service
+@Timed(value = "ragchat.service", histogram = true)
+public class MessageDraftService {
+
+    private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final MessageStore messageStore;
+    private final ChangeLogRepository changeLogRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+    private final TokenEstimator tokenEstimator;
+    private final TransactionTemplate transaction;
+    private final ConcurrentHashMap<String, Draft> drafts = new ConcurrentHashMap<>();
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final long idleTimeoutNanos;
+
+    public MessageDraftService(ChatSessionRepository sessionRepository,
+                               ChatMessageRepository messageRepository,
+                               MessageStore messageStore,
+                               ChangeLogRepository changeLogRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               ShardRouter shardRouter,
+                               TokenEstimator tokenEstimator,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.drafts.flush-size:1024}") int flushSize,
+                               @Value("${app.drafts.flush-interval-ms:250}") long flushIntervalMs,
+                               @Value("${app.drafts.idle-timeout:10m}") Duration idleTimeout) {
+        this.sessionRepository = sessionRepository;
+        this.messageRepository = messageRepository;
+        this.messageStore = messageStore;
+        this.changeLogRepository = changeLogRepository;
+        this.eventPublisher = eventPublisher;
+        this.shardRouter = shardRouter;
+        this.tokenEstimator = tokenEstimator;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = Duration.ofMillis(flushIntervalMs).toNanos();
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    @Transactional
+    public ChatMessage openDraft(String sessionId, OpenDraftRequest request) {
+        if (!messageStore.relational()) {
+            // Drafts are updated in place in chat_messages
+            throw new BusinessException("Streaming drafts are not supported by the configured storage engine");
+        }
+        shardRouter.routeWriteBySession(sessionId);
+        // Counted with no tokens until finalized; content appended in between is not estimated
+        SessionSeq next = sessionRepository.nextSeq(sessionId, 0)
+                .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+
+        ChatMessage draft = ChatMessage.builder()
+                .sessionId(sessionId)
+                .seq(next.seq())
+                .tokenCount(0)
+                .cumulativeTokens(next.totalTokens())
+                .sender(SenderType.ASSISTANT)
+                .content("")
+                .status(MessageStatus.STREAMING)
+                .createdAt(Instant.now())
+                .build();
+
+        if (request != null && request.context() != null) {
+            List<ContextItem> contextItems = request.context().stream()
+                    .map(dto -> new ContextItem(dto.sourceId(), dto.snippet(), dto.metadata()))
+                    .toList();
+            draft.setContext(contextItems);
+        }
+
+        ChatMessage saved = messageRepository.save(draft);
+        drafts.put(saved.getId(), new Draft(sessionId, saved.getId()));
+        changeLogRepository.recordMessage(sessionId, saved.getId());
+        eventPublisher.publishEvent(new SessionWrittenEvent(sessionId));
+        log.debug("[SERVICE] Draft opened. SessionId={}, MessageId={}", sessionId, saved.getId());
+        return saved;
+    }
+
+    /**
+     * Buffers a chunk; it is written to the database once a flush threshold is reached.
+     */
+    public void appendChunk(String sessionId, String messageId, String chunk) {
+        Draft draft = drafts.get(messageId);
+        if (draft == null) {
+            // Opened on another instance or before a restart - adopt it after checking it is still a draft
+            ChatMessage message = findDraft(sessionId, messageId);
+            draft = drafts.computeIfAbsent(message.getId(), id -> new Draft(sessionId, id));
+        } else if (!draft.sessionId.equals(sessionId)) {
+            throw new NotFoundException("Message not found: " + messageId);
+        }
+
+        synchronized (draft) {
+            if (draft.closed) {
+                throw new BusinessException("Message is not a streaming draft: " + messageId);
+            }
+            long now = System.nanoTime();
+            if (draft.pending.isEmpty()) {
+                draft.pendingSince = now;
+            }
+            draft.pending.append(chunk);
+            draft.lastAppend = now;
+            if (draft.pending.length() >= flushSize || now - draft.pendingSince >= flushIntervalNanos) {
+                flush(draft);
+            }
+        }
+    }
+
+    /**
+     * Flushes pending chunks, marks the draft COMPLETE and publishes it as a new message.
+     */
+    @Transactional
+    public ChatMessage finalizeDraft(String sessionId, String messageId) {
+        shardRouter.routeWriteBySession(sessionId);
+        Draft draft = drafts.get(messageId);
+        if (draft != null && draft.sessionId.equals(sessionId)) {
+            synchronized (draft) {
+                if (!draft.closed) {
+                    // Closed to appends now, but only dropped once the tail is committed
+                    String tail = flush(draft);
+                    draft.closed = true;
+                    afterCompletion(() -> drafts.remove(messageId, draft), () -> reopen(draft, tail));
+                }
+            }
+        }
+        return complete(sessionId, messageId);
+    }
+
+    /** Marks a flushed draft COMPLETE; runs in the caller's transaction. */
+    private ChatMessage complete(String sessionId, String messageId) {
+        ChatMessage message = findDraft(sessionId, messageId);
+        int tokens = tokenEstimator.estimate(message.getContent());
+        int added = tokens - (message.getTokenCount() != null ? message.getTokenCount() : 0);
+        if (added != 0) {
+            // Session row first: inserts after the draft wait for this transaction, so the shift
+            // below also covers every message that got its running total before it
+            sessionRepository.addTokens(sessionId, added);
+        }
+        if (messageRepository.completeDraft(messageId, tokens) == 0) {
+            throw new BusinessException("Message is not a streaming draft: " + messageId);
+        }
+        if (added != 0) {
+            messageRepository.shiftCumulativeTokens(sessionId, message.getSeq(), added);
+        }
+        message.setStatus(MessageStatus.COMPLETE);
+        message.setTokenCount(tokens);
+        // Intermediate flushes are not logged; sync picks up the final content from here
+        changeLogRepository.recordMessage(sessionId, messageId);
+
+        eventPublisher.publishEvent(new SessionWrittenEvent(sessionId));
+        eventPublisher.publishEvent(new MessageCreatedEvent(sessionId, MessageResponse.from(message)));
+        log.debug("[SERVICE] Draft finalized. SessionId={}, MessageId={}, Length={}",
+                sessionId, messageId, message.getContent().length());
+        return message;
+    }
+
+    /**
+     * Time-based flush for drafts that stopped receiving chunks before reaching flush-size,
+     * and finalization of drafts abandoned without it.
+     */
+    @Scheduled(fixedDelayString = "${app.drafts.flush-interval-ms:250}")
+    public void flushDue() {
+        long now = System.nanoTime();
+        drafts.values().forEach(draft -> {
+            synchronized (draft) {
+                if (draft.closed) {
+                    return;
+                }
+                try {
+                    if (!draft.pending.isEmpty() && now - draft.pendingSince >= flushIntervalNanos) {
+                        flush(draft);
+                    }
+                    if (now - draft.lastAppend >= idleTimeoutNanos) {
+                        log.warn("Finalizing idle draft. sessionId={} messageId={}", draft.sessionId, draft.messageId);
+                        flush(draft);
+                        shardRouter.routeWriteBySession(draft.sessionId);
+                        transaction.executeWithoutResult(status -> complete(draft.sessionId, draft.messageId));
+                        draft.closed = true;
+                    }
+                } catch (ShardRebalancingException ex) {
+                    log.debug("Draft flush deferred while its session moves shards. messageId={}", draft.messageId);
+                } catch (BusinessException | NotFoundException ex) {
+                    // Finalized or deleted elsewhere meanwhile
+                    log.debug("Idle draft no longer streaming. messageId={}", draft.messageId);
+                    draft.closed = true;
+                } catch (RuntimeException ex) {
+                    log.error("Failed to flush draft. sessionId={} messageId={}", draft.sessionId, draft.messageId, ex);
+                    draft.closed = true;
+                } finally {
+                    shardRouter.clear();
+                }
+                // Only drafts closed here: one being finalized stays until its transaction completes
+                if (draft.closed) {
+                    drafts.remove(draft.messageId, draft);
+                }
+            }
+        });
+    }
+
+    int openDrafts() {
+        return drafts.size();
+    }
+
+    private ChatMessage findDraft(String sessionId, String messageId) {
+        shardRouter.routeBySession(sessionId);
+        ChatMessage message = messageRepository.findById(messageId)
+                .filter(m -> m.getSessionId().equals(sessionId))
+                .orElseThrow(() -> new NotFoundException("Message not found: " + messageId));
+        if (message.getStatus() != MessageStatus.STREAMING) {
+            throw new BusinessException("Message is not a streaming draft: " + messageId);
+        }
+        return message;
+    }
+
+    /** Caller holds the draft's monitor. Returns the chunk written. */
+    private String flush(Draft draft) {
+        if (draft.pending.isEmpty()) {
+            return "";
+        }
+        // Before taking the pending chunks, so they are kept if the session is being moved
+        shardRouter.routeWriteBySession(draft.sessionId);
+        String chunk = draft.pending.toString();
+        draft.pending.setLength(0);
+        if (messageRepository.appendContent(draft.messageId, chunk) == 0) {
+            // Finalized or deleted elsewhere
+            draft.closed = true;
+            drafts.remove(draft.messageId, draft);
+            throw new BusinessException("Message is not a streaming draft: " + draft.messageId);
+        }
+        eventPublisher.publishEvent(new SessionWrittenEvent(draft.sessionId));
+        return chunk;
+    }
+
+    /** Finalization rolled back: the flushed tail went with it, so it is pending again. */
+    private void reopen(Draft draft, String tail) {
+        synchronized (draft) {
+            draft.pending.insert(0, tail);
+            if (!draft.pending.isEmpty()) {
+                draft.pendingSince = System.nanoTime();
+            }
+            draft.closed = false;
+        }
+    }
+
+    /**
+     * Runs {@code onCommit} after the current transaction commits, {@code onRollback} after it
+     * rolls back, or {@code onCommit} right away without a transaction.
+     */
+    private static void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    onRollback.run();
+                } else {
+                    onCommit.run();
+                }
+            }
+        });
+    }
+
+    private static final class Draft {
+
+        private final String sessionId;
+        private final String messageId;
+        private final StringBuilder pending = new StringBuilder();
+        private long pendingSince;
+        private long lastAppend = System.nanoTime();
+        private boolean closed;
+
+        private Draft(String sessionId, String messageId) {
+            this.sessionId = sessionId;
+            this.messageId = messageId;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.datasource.ReadYourWrites;
+import com.example.ragchatstorage.datasource.ShardRouter;
+import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.repository.Watermark;
+import com.example.ragchatstorage.storage.MessageStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Strong ETags for the session list of a user and the message history of a session.
+ *
+ * Tags are derived from a data watermark (row count + latest updatedAt / createdAt), never
+ * from the response body, and are held in memory so an unchanged conditional GET is
+ * answered without a database round trip. Every write path publishes SessionListChangedEvent /
+ * SessionWrittenEvent, which drop the tags once the write has committed (a tag read before
+ * the commit would otherwise be cached for the old data); the TTL bounds staleness from
+ * writes made by other instances.
+ *
+ * Session list tags read again after app.etag.refresh-after are refreshed in the background
+ * while the current tag is still served, so a hot user's tag is renewed before it expires
+ * instead of every waiting request blocking on the watermark query. Concurrent misses of a
+ * tag share one load. A refresh runs outside any request, so it reads from the primary: the
+ * user may just have written, and a lagging replica would renew the old tag.
+ *
+ * Configuration: app.etag.max-entries, app.etag.ttl, app.etag.refresh-after
+ */
+@Service
+@Slf4j
+public class ResourceVersionService {
+
+    private final ChatSessionRepository sessionRepository;
+    private final MessageStore messageStore;
+    private final ShardRouter shardRouter;
+    private final ReadYourWrites readYourWrites;
+    private final ExecutorService refresher = Executors.newVirtualThreadPerTaskExecutor();
+    private final LoadingCache<String, String> sessionListTags;
+    private final Cache<String, String> messageTags;
+
+    public ResourceVersionService(ChatSessionRepository sessionRepository,
+                                  MessageStore messageStore,
+                                  ShardRouter shardRouter,
+                                  ReadYourWrites readYourWrites,
+                                  @Value("${app.etag.max-entries:10000}") long maxEntries,
+                                  @Value("${app.etag.ttl:30s}") Duration ttl,
+                                  @Value("${app.etag.refresh-after:20s}") Duration refreshAfter) {
+        this.sessionRepository = sessionRepository;
+        this.messageStore = messageStore;
+        this.shardRouter = shardRouter;
+        this.readYourWrites = readYourWrites;
+        this.sessionListTags = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refreshAfter)
+                .executor(refresher)
+                .build(new CacheLoader<>() {
+                    @Override
+                    public String load(String userId) {
+                        return loadSessionListETag(userId);
+                    }
+
+                    @Override
+                    public String reload(String userId, String previous) {
+                        try {
+                            return readYourWrites.onPrimary(() -> loadSessionListETag(userId));
+                        } finally {
+                            shardRouter.clear();
+                        }
+                    }
+                });
+        this.messageTags = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttl).build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * ETag covering every session of the user (any favorite filter).
+     */
+    public String sessionListETag(String userId) {
+        return sessionListTags.get(userId);
+    }
+
+    private String loadSessionListETag(String userId) {
+        shardRouter.routeByUser(userId);
+        return toETag("s", sessionRepository.findWatermarkByUserId(userId));
+    }
+
+    /**
+     * ETag covering the message history of a session, or null when the session does not exist
+     * or has a streaming draft (its content changes without moving the watermark).
+     */
+    public String messagesETag(String sessionId) {
+        return messageTags.get(sessionId, id -> {
+            shardRouter.routeBySession(id);
+            Watermark watermark = messageStore.findWatermark(id);
+            // Existence only needs checking when there are no messages
+            if (watermark.count() == 0 && !sessionRepository.existsById(id)) {
+                return null;
+            }
+            return watermark.mutable() > 0 ? null : toETag("m", watermark);
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionListChanged(SessionListChangedEvent event) {
+        sessionsChanged(event.userId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionWritten(SessionWrittenEvent event) {
+        messagesChanged(event.sessionId());
+    }
+
+    public void sessionsChanged(String userId) {
+        if (userId != null) {
+            sessionListTags.invalidate(userId);
+        }
+    }
+
+    public void messagesChanged(String sessionId) {
+        if (sessionId != null) {
+            messageTags.invalidate(sessionId);
+        }
+    }
+
+    private static String toETag(String prefix, Watermark watermark) {
+        Instant latest = watermark.latest();
+        long micros = latest != null ? ChronoUnit.MICROS.between(Instant.EPOCH, latest) : 0L;
+        return prefix + watermark.count() + "." + Long.toString(micros, 36);
+    }
+}
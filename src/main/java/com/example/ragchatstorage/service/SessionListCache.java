@@ -0,0 +1,105 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.dto.SessionResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Session lists of users as encoded JSON, keyed by user and favorite filter, so a repeated
+ * GET /sessions is written out as bytes without a query, DTO mapping or serialization. Entries
+ * are immutable and tagged with the list ETag they were read under: one is only served while
+ * the user's ETag still matches, and every committed session write of the user evicts them
+ * (SessionListChangedEvent). The TTL bounds memory held for idle users.
+ *
+ * Misses are single-flight: the first request for a key and ETag loads the list on its own
+ * thread and concurrent requests for the same key and ETag wait for that load instead of
+ * issuing the same query, so a popular user's eviction costs one query rather than one per
+ * waiting request. A failed load fails its waiters and is not kept.
+ *
+ * Configuration: app.session-cache.max-entries, app.session-cache.ttl
+ */
+@Component
+public class SessionListCache {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Flight> lists;
+
+    public SessionListCache(ObjectMapper objectMapper,
+                            @Value("${app.session-cache.max-entries:10000}") long maxEntries,
+                            @Value("${app.session-cache.ttl:10m}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.lists = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttl).build();
+    }
+
+    /**
+     * JSON of the user's session list under {@code etag}; read with {@code loader} and cached
+     * when the cached list is missing or was read under another ETag. While another request
+     * loads the same list, waits for its result.
+     */
+    public byte[] get(String userId, Boolean favorite, String etag, Supplier<List<SessionResponse>> loader) {
+        String key = key(userId, favorite);
+        Flight started = new Flight(etag, new CompletableFuture<>());
+        Flight flight = lists.asMap().compute(key, (k, current) ->
+                current != null && current.etag().equals(etag) && !current.json().isCompletedExceptionally()
+                        ? current : started);
+        if (flight == started) {
+            load(key, started, loader);
+        }
+        try {
+            return flight.json().join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+
+    private void load(String key, Flight flight, Supplier<List<SessionResponse>> loader) {
+        try {
+            flight.json().complete(encode(loader.get()));
+        } catch (RuntimeException | Error ex) {
+            lists.asMap().remove(key, flight);
+            flight.json().completeExceptionally(ex);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionListChanged(SessionListChangedEvent event) {
+        invalidate(event.userId());
+    }
+
+    /**
+     * Evicts the user's lists for every favorite filter.
+     */
+    public void invalidate(String userId) {
+        if (userId != null) {
+            lists.invalidateAll(List.of(key(userId, null), key(userId, true), key(userId, false)));
+        }
+    }
+
+    private byte[] encode(List<SessionResponse> sessions) {
+        try {
+            return objectMapper.writeValueAsBytes(sessions);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String key(String userId, Boolean favorite) {
+        return userId + '-' + (favorite != null ? favorite : "all");
+    }
+
+    /** A list read under an ETag, complete or still loading. */
+    private record Flight(String etag, CompletableFuture<byte[]> json) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.ragchatstorage.service;
+
+/**
+ * Published by write paths after changing any session of a user. The user's list ETag and
+ * cached lists are dropped and reads of the user are pinned to the primary once the
+ * surrounding transaction (if any) has committed.
+ */
+public record SessionListChangedEvent(String userId) {
+}
@@ -0,0 +1,114 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.datasource.ShardRouter;
+import com.example.ragchatstorage.dto.ContextViewResponse;
+import com.example.ragchatstorage.dto.CreateSummaryRequest;
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.SummaryResponse;
+import com.example.ragchatstorage.exception.BusinessException;
+import com.example.ragchatstorage.exception.DuplicateResourceException;
+import com.example.ragchatstorage.exception.NotFoundException;
+import com.example.ragchatstorage.model.SessionSummary;
+import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.repository.ContextRow;
+import com.example.ragchatstorage.repository.SessionSummaryRepository;
+import com.example.ragchatstorage.storage.MessageStore;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversation compaction: summaries of a session's history stored by the summarizer, and the
+ * context view (latest summary + the messages after it) that prompt assembly reads instead of
+ * the whole history.
+ */
+@Slf4j
+@Service
+@Timed(value = "ragchat.service", histogram = true)
+@RequiredArgsConstructor
+public class SessionSummaryService {
+
+    private final ChatSessionRepository sessionRepository;
+    private final MessageStore messageStore;
+    private final SessionSummaryRepository summaryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Stores a summary of the messages up to {@code upToSeq}. Summaries only move forward: one
+     * that does not cover more than the latest is rejected.
+     */
+    @Transactional
+    public SessionSummary createSummary(String sessionId, CreateSummaryRequest request) {
+        shardRouter.routeWriteBySession(sessionId);
+        long lastSeq = sessionRepository.findLastSeqById(sessionId)
+                .orElseThrow(() -> new NotFoundException("Session not found: " + sessionId));
+        if (request.upToSeq() > lastSeq) {
+            throw new BusinessException("Summary covers messages that do not exist; latest seq is " + lastSeq);
+        }
+        long latest = summaryRepository.findLatestUpToSeq(sessionId).orElse(0L);
+        if (request.upToSeq() <= latest) {
+            throw new BusinessException("Session is already summarized up to seq " + latest);
+        }
+
+        SessionSummary summary = SessionSummary.builder()
+                .sessionId(sessionId)
+                .upToSeq(request.upToSeq())
+                .content(request.content())
+                .createdAt(Instant.now())
+                .build();
+        try {
+            // Flush now so a concurrent summary up to the same seq surfaces here
+            summary = summaryRepository.saveAndFlush(summary);
+        } catch (DataIntegrityViolationException ex) {
+            throw new DuplicateResourceException("A summary up to seq " + request.upToSeq() + " already exists", ex);
+        }
+        eventPublisher.publishEvent(new SessionWrittenEvent(sessionId));
+        log.debug("[SERVICE] Summary stored. SessionId={}, UpToSeq={}", sessionId, request.upToSeq());
+        return summary;
+    }
+
+    /**
+     * Latest summary plus the messages after it, read with one statement. For a fork whose
+     * summary (if any) does not reach the fork point, the inherited messages in between are
+     * read from its ancestors first. With a storage engine outside the database the session's
+     * own messages are a second read, from the engine.
+     */
+    @Transactional(readOnly = true)
+    public ContextViewResponse getContextView(String sessionId) {
+        shardRouter.routeBySession(sessionId);
+        List<ContextRow> rows = summaryRepository.findContextView(sessionId);
+        if (rows.isEmpty()) {
+            throw new NotFoundException("Session not found: " + sessionId);
+        }
+
+        ContextRow first = rows.get(0);
+        SummaryResponse summary = first.summaryId() == null ? null : new SummaryResponse(first.summaryId(),
+                sessionId, first.summaryUpToSeq(), first.summaryContent(), first.summaryCreatedAt());
+        List<MessageResponse> messages = new ArrayList<>(rows.size());
+        long summarized = summary != null ? summary.upToSeq() : 0;
+        if (first.forkSeq() != null && summarized < first.forkSeq()) {
+            messages.addAll(messageStore.findLineageResponses(first.lineage(), summarized + 1, first.forkSeq()));
+        }
+        if (!messageStore.relational()) {
+            long forkSeq = first.forkSeq() != null ? first.forkSeq() : 0;
+            messages.addAll(messageStore.findResponsesBySeqRange(sessionId, Math.max(summarized, forkSeq) + 1, Long.MAX_VALUE));
+            return new ContextViewResponse(summary, messages);
+        }
+        for (ContextRow row : rows) {
+            if (row.messageId() != null) {
+                messages.add(new MessageResponse(row.messageId(), sessionId, row.messageSeq(), row.sender(),
+                        row.content(), row.userId(), row.context(), row.createdAt(), row.status(), row.tokenCount()));
+            }
+        }
+        return new ContextViewResponse(summary, messages);
+    }
+}
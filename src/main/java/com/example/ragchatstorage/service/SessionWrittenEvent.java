@@ -0,0 +1,9 @@
+package com.example.ragchatstorage.service;
+
+/**
+ * Published by write paths after changing a session's row, messages or summary. Its messages
+ * ETag is dropped and reads of it are pinned to the primary once the surrounding transaction
+ * (if any) has committed, so a concurrent read cannot cache what the write is replacing.
+ */
+public record SessionWrittenEvent(String sessionId) {
+}
@@ -0,0 +1,144 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.datasource.ShardRouter;
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.dto.SessionResponse;
+import com.example.ragchatstorage.dto.SyncResponse;
+import com.example.ragchatstorage.exception.BadRequestException;
+import com.example.ragchatstorage.exception.BusinessException;
+import com.example.ragchatstorage.exception.SyncResetRequiredException;
+import com.example.ragchatstorage.model.ChangeLogEntry;
+import com.example.ragchatstorage.repository.ChangeLogRepository;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
+import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.storage.MessageStore;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Delta sync over the change log: at most three statements per call (the changes after the
+ * watermark through the (user_id, id) index, then the changed sessions and messages by id),
+ * so the cost follows the number of changes, not the size of the user's history.
+ *
+ * The watermark is "{shard}-{change id}". Change ids are assigned at insert but become visible
+ * at commit, so a slow transaction can commit a lower id after a higher one was read. The
+ * watermark therefore only advances over changes older than app.sync.settle-window; newer
+ * ones are returned but read again next time, which is harmless because sync returns current
+ * state. A watermark from another shard (the user was moved) is answered with 410.
+ *
+ * Changed messages are read from chat_messages by id, so sync needs a relational MessageStore;
+ * with another engine it is rejected rather than answered without the messages.
+ */
+@Slf4j
+@Service
+@Timed(value = "ragchat.service", histogram = true)
+public class SyncService {
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final MessageStore messageStore;
+    private final ShardRouter shardRouter;
+    private final Duration settleWindow;
+    private final int maxChanges;
+
+    public SyncService(ChangeLogRepository changeLogRepository,
+                       ChatSessionRepository sessionRepository,
+                       ChatMessageRepository messageRepository,
+                       MessageStore messageStore,
+                       ShardRouter shardRouter,
+                       @Value("${app.sync.settle-window:5s}") Duration settleWindow,
+                       @Value("${app.sync.max-changes:500}") int maxChanges) {
+        this.changeLogRepository = changeLogRepository;
+        this.sessionRepository = sessionRepository;
+        this.messageRepository = messageRepository;
+        this.messageStore = messageStore;
+        this.shardRouter = shardRouter;
+        this.settleWindow = settleWindow;
+        this.maxChanges = maxChanges;
+    }
+
+    /**
+     * Changes of the user after {@code since} (null for a full sync), at most {@code limit}
+     * change log entries per call.
+     */
+    @Transactional(readOnly = true)
+    public SyncResponse changesSince(String userId, String since, Integer limit) {
+        if (!messageStore.relational()) {
+            throw new BusinessException("Sync is not supported by the configured storage engine");
+        }
+        shardRouter.routeByUser(userId);
+        int shard = shardRouter.isSharded() ? shardRouter.shardForUser(userId) : 0;
+        long after = parseWatermark(since, shard);
+        int max = limit == null ? maxChanges : Math.max(1, Math.min(limit, maxChanges));
+
+        List<ChangeLogEntry> changes = changeLogRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+                userId, after, PageRequest.of(0, max + 1));
+        boolean truncated = changes.size() > max;
+        if (truncated) {
+            changes = changes.subList(0, max);
+        }
+
+        Set<String> sessionIds = new LinkedHashSet<>();
+        Set<String> messageIds = new LinkedHashSet<>();
+        Set<String> deletedSessionIds = new LinkedHashSet<>();
+        Instant settledBefore = Instant.now().minus(settleWindow);
+        long watermark = after;
+        boolean settled = true;
+        for (ChangeLogEntry change : changes) {
+            switch (change.getChangeType()) {
+                case SESSION_UPSERT -> sessionIds.add(change.getSessionId());
+                case SESSION_DELETE -> deletedSessionIds.add(change.getSessionId());
+                case MESSAGE_UPSERT -> messageIds.add(change.getMessageId());
+            }
+            settled = settled && change.getChangedAt().isBefore(settledBefore);
+            if (settled) {
+                watermark = change.getId();
+            }
+        }
+        sessionIds.removeAll(deletedSessionIds);
+
+        List<SessionResponse> sessions = sessionIds.isEmpty()
+                ? List.of() : sessionRepository.findResponsesByUserIdAndIdIn(userId, sessionIds);
+        // Messages of sessions deleted since are gone and drop out here
+        List<MessageResponse> messages = messageIds.isEmpty()
+                ? List.of() : messageRepository.findResponsesByIdIn(messageIds);
+
+        log.debug("Sync for user {} after {}: changes={} sessions={} messages={} deleted={}", userId, after,
+                changes.size(), sessions.size(), messages.size(), deletedSessionIds.size());
+        return new SyncResponse(shard + "-" + watermark, truncated && settled, sessions, messages,
+                List.copyOf(deletedSessionIds));
+    }
+
+    private static long parseWatermark(String since, int shard) {
+        if (since == null || since.isBlank()) {
+            return 0;
+        }
+        int separator = since.indexOf('-');
+        long sinceShard;
+        long id;
+        try {
+            sinceShard = Long.parseLong(since.substring(0, Math.max(separator, 0)));
+            id = Long.parseLong(since.substring(separator + 1));
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Invalid sync watermark: " + since);
+        }
+        if (id < 0) {
+            throw new BadRequestException("Invalid sync watermark: " + since);
+        }
+        if (sinceShard != shard) {
+            throw new SyncResetRequiredException("Sync watermark is no longer valid; sync again without one");
+        }
+        return id;
+    }
+}
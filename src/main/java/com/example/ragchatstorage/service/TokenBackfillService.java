@@ -0,0 +1,124 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.datasource.ShardRouter;
+import com.example.ragchatstorage.model.ChatSession;
+import com.example.ragchatstorage.model.SessionLineage;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
+import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.repository.MessageTokens;
+import com.example.ragchatstorage.tokenizer.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fills in token estimates for sessions written before they were stored (total_tokens null).
+ *
+ * Each session is processed in its own transaction holding the session's row lock, so inserts
+ * into it wait rather than compute a running total from a half-filled history: messages are
+ * walked in seq order, estimated where token_count is missing, and their cumulative counts and
+ * the session total rewritten. A fork starts from its ancestor's running total at the fork
+ * point, backfilling that ancestor first if needed.
+ *
+ * Every shard is swept every app.tokens.backfill-interval-ms until a sweep finds nothing left;
+ * history reads of sessions not reached yet fall back to estimating on the fly.
+ */
+@Slf4j
+@Service
+public class TokenBackfillService {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final ChatSessionRepository sessionRepository;
+    private final ChatMessageRepository messageRepository;
+    private final TokenEstimator tokenEstimator;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final Set<Integer> completedShards = ConcurrentHashMap.newKeySet();
+
+    public TokenBackfillService(ChatSessionRepository sessionRepository,
+                                ChatMessageRepository messageRepository,
+                                TokenEstimator tokenEstimator,
+                                ShardRouter shardRouter,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.tokens.backfill-batch-size:100}") int batchSize) {
+        this.sessionRepository = sessionRepository;
+        this.messageRepository = messageRepository;
+        this.tokenEstimator = tokenEstimator;
+        this.shardRouter = shardRouter;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${app.tokens.backfill-interval-ms:60000}",
+            fixedDelayString = "${app.tokens.backfill-interval-ms:60000}")
+    public void backfill() {
+        shardRouter.forEachShard(shard -> {
+            if (completedShards.contains(shard)) {
+                return;
+            }
+            try {
+                int sessions = 0;
+                List<String> ids;
+                do {
+                    ids = sessionRepository.findIdsWithoutTokenTotal(PageRequest.of(0, batchSize));
+                    ids.forEach(id -> transaction.executeWithoutResult(status -> backfillSession(id)));
+                    sessions += ids.size();
+                } while (ids.size() == batchSize);
+                completedShards.add(shard);
+                if (sessions > 0) {
+                    log.info("Token backfill completed on shard {}: {} sessions", shard, sessions);
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Token backfill failed on shard {}, retrying on the next run: {}", shard, ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Backfills one session in the caller's transaction and returns its token total.
+     */
+    long backfillSession(String id) {
+        ChatSession session = sessionRepository.findForUpdate(id).orElse(null);
+        if (session == null) {
+            return 0;
+        }
+        if (session.getTotalTokens() != null) {
+            return session.getTotalTokens();
+        }
+
+        long forkSeq = session.getForkSeq() != null ? session.getForkSeq() : 0;
+        long total = 0;
+        if (forkSeq > 0) {
+            List<SessionLineage.Segment> segments = SessionLineage.parse(session.getLineage());
+            String holder = segments.get(segments.size() - 1).sessionId();
+            total = messageRepository.findCumulativeTokens(holder, forkSeq).orElseGet(() -> {
+                backfillSession(holder);
+                return messageRepository.findCumulativeTokens(holder, forkSeq).orElse(0L);
+            });
+        }
+
+        for (long fromSeq = forkSeq + 1; fromSeq <= session.getLastSeq(); fromSeq += CHUNK_SIZE) {
+            for (MessageTokens message : messageRepository.findTokensBySeqRange(id, fromSeq, fromSeq + CHUNK_SIZE - 1)) {
+                int tokens = message.tokenCount() != null ? message.tokenCount() : tokenEstimator.estimate(message.content());
+                total += tokens;
+                if (message.tokenCount() == null || !Objects.equals(message.cumulativeTokens(), total)) {
+                    messageRepository.updateTokens(message.id(), tokens, total);
+                }
+            }
+        }
+        sessionRepository.setTotalTokens(id, total);
+        log.debug("Backfilled token counts of session {}: {} tokens", id, total);
+        return total;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.ragchatstorage.storage;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
+import com.example.ragchatstorage.repository.Watermark;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Messages as rows of chat_messages, through ChatMessageRepository. Sharded and replicated
+ * with the rest of the schema, and the only engine the drafts, sync, change feed and context
+ * view work with.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaMessageStore implements MessageStore {
+
+    private final ChatMessageRepository messageRepository;
+
+    @Override
+    public ChatMessage append(ChatMessage message) {
+        // Flush keyed inserts so a duplicate key written concurrently surfaces here
+        return message.getIdempotencyKey() == null
+                ? messageRepository.save(message)
+                : messageRepository.saveAndFlush(message);
+    }
+
+    @Override
+    public Optional<ChatMessage> findByIdempotencyKey(String sessionId, String idempotencyKey) {
+        return messageRepository.findBySessionIdAndIdempotencyKey(sessionId, idempotencyKey);
+    }
+
+    @Override
+    public List<MessageResponse> findResponsesBySeqRange(String sessionId, long fromSeq, long toSeq) {
+        return messageRepository.findResponsesBySeqRange(sessionId, fromSeq, toSeq);
+    }
+
+    @Override
+    public List<MessageResponse> findWindowBySeqRange(String sessionId, long fromSeq, long toSeq, long threshold) {
+        return messageRepository.findWindowBySeqRange(sessionId, fromSeq, toSeq, threshold);
+    }
+
+    @Override
+    public Optional<Long> findCumulativeTokens(String sessionId, long seq) {
+        return messageRepository.findCumulativeTokens(sessionId, seq);
+    }
+
+    @Override
+    public Watermark findWatermark(String sessionId) {
+        return messageRepository.findWatermarkBySessionId(sessionId);
+    }
+
+    @Override
+    public void deleteBySessionId(String sessionId) {
+        messageRepository.deleteBySessionId(sessionId);
+    }
+
+    @Override
+    public void deleteBySessionIdIn(Collection<String> sessionIds) {
+        messageRepository.deleteBySessionIdIn(sessionIds);
+    }
+
+    @Override
+    public boolean relational() {
+        return true;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.ragchatstorage.storage;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.ContextItem;
+import com.example.ragchatstorage.model.MessageStatus;
+import com.example.ragchatstorage.model.SenderType;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary record format of the segment files. A record is
+ * <pre>
+ *   int length | int crc32c(body) | body
+ * </pre>
+ * and its body starts with fixed-size fields, so reads that only need seq or token counts skip
+ * the strings:
+ * <pre>
+ *   MESSAGE: byte type | long seq | long cumulativeTokens | int tokenCount | long createdAtSeconds |
+ *            int createdAtNanos | byte sender | byte status |
+ *            str16 id | str16 userId | str16 idempotencyKey | str32 content | str32 contextJson
+ *   ABORT:   byte type | long seq | str16 id
+ * </pre>
+ * Strings are UTF-8 prefixed with their byte length (short or int), -1 for null; absent token
+ * counts are -1. Sender and status are stored by ordinal, so their constants may only be
+ * appended to. A length of 0 marks the end of a segment (preallocated space is zero-filled).
+ */
+final class MessageRecordCodec {
+
+    static final byte MESSAGE = 1;
+    /** Written when the transaction of an appended message rolls back; hides that record. */
+    static final byte ABORT = 2;
+    static final int HEADER_BYTES = 8;
+
+    private static final int SEQ = 1;
+    private static final int CUMULATIVE_TOKENS = 9;
+    private static final int TOKEN_COUNT = 17;
+    private static final int CREATED_AT = 21;
+    private static final int SENDER = 33;
+    private static final int STATUS = 34;
+    private static final int STRINGS = 35;
+
+    private static final SenderType[] SENDERS = SenderType.values();
+    private static final MessageStatus[] STATUSES = MessageStatus.values();
+    private static final TypeReference<List<ContextItem>> CONTEXT_ITEMS = new TypeReference<>() { };
+    private static final TypeReference<List<Map<String, Object>>> CONTEXT_MAPS = new TypeReference<>() { };
+
+    // Own mapper: the stored JSON must not follow changes to the API's serialization settings
+    private final ObjectMapper json = new ObjectMapper();
+
+    ByteBuffer encodeMessage(ChatMessage message) {
+        byte[] id = utf8(message.getId());
+        byte[] userId = utf8(message.getUserId());
+        byte[] key = utf8(message.getIdempotencyKey());
+        byte[] content = utf8(message.getContent());
+        byte[] context = contextJson(message.getContext());
+        int bodyLength = STRINGS + 3 * 2 + 2 * 4 + length(id) + length(userId) + length(key)
+                + length(content) + length(context);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        record.putInt(bodyLength).putInt(0);
+        record.put(MESSAGE)
+                .putLong(message.getSeq())
+                .putLong(message.getCumulativeTokens() != null ? message.getCumulativeTokens() : -1)
+                .putInt(message.getTokenCount() != null ? message.getTokenCount() : -1)
+                .putLong(message.getCreatedAt().getEpochSecond())
+                .putInt(message.getCreatedAt().getNano())
+                .put((byte) message.getSender().ordinal())
+                .put((byte) message.getStatus().ordinal());
+        putShortString(record, id);
+        putShortString(record, userId);
+        putShortString(record, key);
+        putString(record, content);
+        putString(record, context);
+        return seal(record);
+    }
+
+    ByteBuffer encodeAbort(long seq, String id) {
+        byte[] idBytes = utf8(id);
+        int bodyLength = 1 + 8 + 2 + length(idBytes);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        record.putInt(bodyLength).putInt(0).put(ABORT).putLong(seq);
+        putShortString(record, idBytes);
+        return seal(record);
+    }
+
+    /**
+     * Length of the body of the record at {@code position}, or -1 when there is no complete,
+     * intact record there (end of the segment or a torn write).
+     */
+    static int checkedBodyLength(ByteBuffer segment, int position, int limit) {
+        if (position + HEADER_BYTES > limit) {
+            return -1;
+        }
+        int length = segment.getInt(position);
+        if (length <= 0 || length > limit - position - HEADER_BYTES) {
+            return -1;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(segment.slice(position + HEADER_BYTES, length));
+        return (int) crc.getValue() == segment.getInt(position + 4) ? length : -1;
+    }
+
+    static byte type(ByteBuffer segment, int position) {
+        return segment.get(position + HEADER_BYTES);
+    }
+
+    static long seq(ByteBuffer segment, int position) {
+        return segment.getLong(position + HEADER_BYTES + SEQ);
+    }
+
+    static long cumulativeTokens(ByteBuffer segment, int position) {
+        return segment.getLong(position + HEADER_BYTES + CUMULATIVE_TOKENS);
+    }
+
+    static int tokenCount(ByteBuffer segment, int position) {
+        return segment.getInt(position + HEADER_BYTES + TOKEN_COUNT);
+    }
+
+    static Instant createdAt(ByteBuffer segment, int position) {
+        int offset = position + HEADER_BYTES + CREATED_AT;
+        return Instant.ofEpochSecond(segment.getLong(offset), segment.getInt(offset + 8));
+    }
+
+    /** Id of a MESSAGE or ABORT record. */
+    static String id(ByteBuffer segment, int position) {
+        int offset = position + HEADER_BYTES + (type(segment, position) == ABORT ? SEQ + 8 : STRINGS);
+        return readShortString(segment.duplicate().position(offset));
+    }
+
+    /** Idempotency key of a MESSAGE record. */
+    static String idempotencyKey(ByteBuffer segment, int position) {
+        ByteBuffer in = segment.duplicate().position(position + HEADER_BYTES + STRINGS);
+        skipShortString(in);
+        skipShortString(in);
+        return readShortString(in);
+    }
+
+    MessageResponse decodeResponse(ByteBuffer segment, int position, String sessionId) {
+        int base = position + HEADER_BYTES;
+        ByteBuffer in = segment.duplicate().position(base + STRINGS);
+        String id = readShortString(in);
+        String userId = readShortString(in);
+        skipShortString(in);
+        String content = readString(in);
+        String context = readString(in);
+        int tokenCount = segment.getInt(base + TOKEN_COUNT);
+        return new MessageResponse(id, sessionId, seq(segment, position),
+                SENDERS[segment.get(base + SENDER)].name(), content, userId, parse(context, CONTEXT_MAPS),
+                createdAt(segment, position), STATUSES[segment.get(base + STATUS)].name(),
+                tokenCount >= 0 ? tokenCount : null);
+    }
+
+    ChatMessage decodeMessage(ByteBuffer segment, int position, String sessionId) {
+        int base = position + HEADER_BYTES;
+        ByteBuffer in = segment.duplicate().position(base + STRINGS);
+        int tokenCount = segment.getInt(base + TOKEN_COUNT);
+        long cumulativeTokens = segment.getLong(base + CUMULATIVE_TOKENS);
+        return ChatMessage.builder()
+                .id(readShortString(in))
+                .userId(readShortString(in))
+                .idempotencyKey(readShortString(in))
+                .content(readString(in))
+                .context(parse(readString(in), CONTEXT_ITEMS))
+                .sessionId(sessionId)
+                .seq(seq(segment, position))
+                .sender(SENDERS[segment.get(base + SENDER)])
+                .status(STATUSES[segment.get(base + STATUS)])
+                .createdAt(createdAt(segment, position))
+                .tokenCount(tokenCount >= 0 ? tokenCount : null)
+                .cumulativeTokens(cumulativeTokens >= 0 ? cumulativeTokens : null)
+                .build();
+    }
+
+    private static ByteBuffer seal(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), HEADER_BYTES, record.capacity() - HEADER_BYTES);
+        record.putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private byte[] contextJson(List<ContextItem> context) {
+        if (context == null) {
+            return null;
+        }
+        try {
+            return json.writeValueAsBytes(context);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private <T> T parse(String value, TypeReference<T> type) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return json.readValue(value, type);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(byte[] value) {
+        return value != null ? value.length : 0;
+    }
+
+    private static void putShortString(ByteBuffer out, byte[] value) {
+        if (value != null && value.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value too long for the segment record format");
+        }
+        out.putShort((short) (value != null ? value.length : -1));
+        if (value != null) {
+            out.put(value);
+        }
+    }
+
+    private static void putString(ByteBuffer out, byte[] value) {
+        out.putInt(value != null ? value.length : -1);
+        if (value != null) {
+            out.put(value);
+        }
+    }
+
+    private static String readShortString(ByteBuffer in) {
+        return readBytes(in, in.getShort());
+    }
+
+    private static String readString(ByteBuffer in) {
+        return readBytes(in, in.getInt());
+    }
+
+    private static void skipShortString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length > 0) {
+            in.position(in.position() + length);
+        }
+    }
+
+    private static String readBytes(ByteBuffer in, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
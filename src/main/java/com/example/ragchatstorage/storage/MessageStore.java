@@ -0,0 +1,107 @@
+package com.example.ragchatstorage.storage;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.SessionLineage;
+import com.example.ragchatstorage.repository.Watermark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage engine for the message history of sessions, below the message services. Sessions,
+ * their seq counter and running token total stay in the relational schema: the caller allocates
+ * a message's seq (and cumulative tokens) under the session's row lock before appending it, so
+ * an engine only stores and reads messages keyed by (sessionId, seq).
+ *
+ * The engine is chosen with app.storage.engine: "jpa" selects JpaMessageStore over
+ * chat_messages, "segment" the embedded SegmentMessageStore. Writes run in the caller's
+ * transaction; an engine outside the database takes part through transaction synchronization,
+ * so rolled back appends and deletes are not visible.
+ */
+public interface MessageStore {
+
+    /**
+     * Stores a message whose sessionId and seq are assigned; fills in its id when missing.
+     * A message with an idempotency key is checked against the session's keys immediately and
+     * fails with DataIntegrityViolationException when one is already taken.
+     */
+    ChatMessage append(ChatMessage message);
+
+    Optional<ChatMessage> findByIdempotencyKey(String sessionId, String idempotencyKey);
+
+    /**
+     * Messages of the session with seq in [fromSeq, toSeq], in seq order.
+     */
+    List<MessageResponse> findResponsesBySeqRange(String sessionId, long fromSeq, long toSeq);
+
+    /**
+     * Messages with seq in [fromSeq, toSeq] whose cumulative tokens before them are at least
+     * {@code threshold}, in seq order: the newest messages that fit in total - threshold tokens.
+     */
+    List<MessageResponse> findWindowBySeqRange(String sessionId, long fromSeq, long toSeq, long threshold);
+
+    Optional<Long> findCumulativeTokens(String sessionId, long seq);
+
+    /**
+     * Message count and latest creation time of the session, for ETags.
+     */
+    Watermark findWatermark(String sessionId);
+
+    void deleteBySessionId(String sessionId);
+
+    void deleteBySessionIdIn(Collection<String> sessionIds);
+
+    /**
+     * Whether messages are rows of chat_messages, where the features that work on them with SQL
+     * find them: streaming drafts (updated in place), the single-statement context view, sync
+     * and the change feed.
+     */
+    boolean relational();
+
+    /**
+     * Inherited messages of a fork with seq in [fromSeq, toSeq]: one seq range read per lineage
+     * segment overlapping it, from the ancestor that holds those seqs.
+     */
+    default List<MessageResponse> findLineageResponses(String lineage, long fromSeq, long toSeq) {
+        List<MessageResponse> messages = new ArrayList<>();
+        long segmentStart = 1;
+        for (SessionLineage.Segment segment : SessionLineage.parse(lineage)) {
+            if (segmentStart > toSeq) {
+                break;
+            }
+            long from = Math.max(fromSeq, segmentStart);
+            long to = Math.min(toSeq, segment.upToSeq());
+            if (from <= to) {
+                messages.addAll(findResponsesBySeqRange(segment.sessionId(), from, to));
+            }
+            segmentStart = segment.upToSeq() + 1;
+        }
+        return messages;
+    }
+
+    /**
+     * Inherited counterpart of {@link #findWindowBySeqRange} for a fork: reads the lineage
+     * segments newest first and stops at the first one the window does not cover entirely.
+     */
+    default List<MessageResponse> findLineageWindow(String lineage, long threshold) {
+        List<SessionLineage.Segment> segments = SessionLineage.parse(lineage);
+        List<List<MessageResponse>> parts = new ArrayList<>();
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            long segmentStart = i == 0 ? 1 : segments.get(i - 1).upToSeq() + 1;
+            List<MessageResponse> part = findWindowBySeqRange(segments.get(i).sessionId(), segmentStart,
+                    segments.get(i).upToSeq(), threshold);
+            parts.add(part);
+            if (part.isEmpty() || part.get(0).seq() != segmentStart) {
+                break;
+            }
+        }
+        List<MessageResponse> messages = new ArrayList<>();
+        for (int i = parts.size() - 1; i >= 0; i--) {
+            messages.addAll(parts.get(i));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.ragchatstorage.storage;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.repository.Watermark;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded message store for single-node deployments: an append-only log of binary records per
+ * session under app.storage.segment.dir ({@code <dir>/<last two characters of the id>/<id>/}),
+ * read through memory-mapped segments. A page or window is a lookup in the session's in-memory
+ * seq index plus decoding the records it covers; there is no query layer, network hop or
+ * per-row overhead, and a message is written once, sequentially.
+ *
+ * The log takes part in the caller's transaction through synchronization: an appended record
+ * becomes visible once the transaction commits, a rolled back one is hidden by an abort record,
+ * and a session's files are deleted on commit. A crash between the append and the commit can
+ * leave a record the database never counted; it is superseded by the next append with its seq.
+ * Messages are never changed after they are written, so streaming drafts are not supported.
+ *
+ * Up to app.storage.segment.max-open-sessions logs are kept open (least recently used first
+ * out); opening one scans its segments. Sharding and read replicas do not apply: every instance
+ * needs its own sessions' files, so run a single instance.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "segment")
+public class SegmentMessageStore implements MessageStore, DisposableBean {
+
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9-]{2,64}");
+
+    private final Path root;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final int maxOpenSessions;
+    private final MessageRecordCodec codec = new MessageRecordCodec();
+    private final LinkedHashMap<String, SessionLog> openLogs = new LinkedHashMap<>(16, 0.75f, true);
+
+    public SegmentMessageStore(@Value("${app.storage.segment.dir:data/segments}") Path root,
+                               @Value("${app.storage.segment.segment-size:1MB}") DataSize segmentSize,
+                               @Value("${app.storage.segment.fsync:true}") boolean fsync,
+                               @Value("${app.storage.segment.max-open-sessions:1000}") int maxOpenSessions) {
+        if (segmentSize.toBytes() <= 0 || segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("app.storage.segment.segment-size must be between 1B and 2GB");
+        }
+        this.root = root;
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.fsync = fsync;
+        this.maxOpenSessions = maxOpenSessions;
+        log.info("Messages are stored in segment files under {}", root.toAbsolutePath());
+    }
+
+    @Override
+    public ChatMessage append(ChatMessage message) {
+        if (message.getId() == null) {
+            message.setId(UUID.randomUUID().toString());
+        }
+        ByteBuffer record = codec.encodeMessage(message);
+        long position = withLog(message.getSessionId(), true, sessionLog -> sessionLog.append(message, record), -1L);
+        if (position < 0) {
+            throw new DataIntegrityViolationException("Duplicate idempotency key for session " + message.getSessionId());
+        }
+        afterCompletion(
+                () -> withLog(message.getSessionId(), true, sessionLog -> {
+                    sessionLog.publish(message.getSeq(), position, message);
+                    return null;
+                }, null),
+                () -> withLog(message.getSessionId(), true, sessionLog -> {
+                    sessionLog.abort(message);
+                    return null;
+                }, null));
+        return message;
+    }
+
+    @Override
+    public Optional<ChatMessage> findByIdempotencyKey(String sessionId, String idempotencyKey) {
+        return withLog(sessionId, false, sessionLog -> sessionLog.findByIdempotencyKey(idempotencyKey), Optional.empty());
+    }
+
+    @Override
+    public List<MessageResponse> findResponsesBySeqRange(String sessionId, long fromSeq, long toSeq) {
+        return withLog(sessionId, false, sessionLog -> sessionLog.findBySeqRange(fromSeq, toSeq), List.of());
+    }
+
+    @Override
+    public List<MessageResponse> findWindowBySeqRange(String sessionId, long fromSeq, long toSeq, long threshold) {
+        return withLog(sessionId, false, sessionLog -> sessionLog.findWindow(fromSeq, toSeq, threshold), List.of());
+    }
+
+    @Override
+    public Optional<Long> findCumulativeTokens(String sessionId, long seq) {
+        return withLog(sessionId, false, sessionLog -> sessionLog.findCumulativeTokens(seq), Optional.empty());
+    }
+
+    @Override
+    public Watermark findWatermark(String sessionId) {
+        return withLog(sessionId, false, SessionLog::watermark, new Watermark(0, null));
+    }
+
+    @Override
+    public void deleteBySessionId(String sessionId) {
+        deleteBySessionIdIn(List.of(sessionId));
+    }
+
+    @Override
+    public void deleteBySessionIdIn(Collection<String> sessionIds) {
+        List<String> ids = List.copyOf(sessionIds);
+        afterCompletion(() -> ids.forEach(this::delete), () -> { });
+    }
+
+    @Override
+    public boolean relational() {
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (openLogs) {
+            openLogs.values().forEach(this::close);
+            openLogs.clear();
+        }
+    }
+
+    int openSessions() {
+        synchronized (openLogs) {
+            return openLogs.size();
+        }
+    }
+
+    /**
+     * Runs {@code action} on the session's log under its lock, opening the log if needed;
+     * {@code absent} when the session has no files and {@code create} is false.
+     */
+    private <T> T withLog(String sessionId, boolean create, Function<SessionLog, T> action, T absent) {
+        while (true) {
+            SessionLog sessionLog = acquire(sessionId, create);
+            if (sessionLog == null) {
+                return absent;
+            }
+            synchronized (sessionLog) {
+                // Closed when evicted or deleted after it was acquired; acquire again
+                if (!sessionLog.isClosed()) {
+                    return action.apply(sessionLog);
+                }
+            }
+        }
+    }
+
+    private SessionLog acquire(String sessionId, boolean create) {
+        List<SessionLog> evicted = new ArrayList<>();
+        SessionLog sessionLog;
+        synchronized (openLogs) {
+            sessionLog = openLogs.get(sessionId);
+            if (sessionLog == null) {
+                Path dir = dir(sessionId);
+                if (dir == null || (!create && !Files.isDirectory(dir))) {
+                    return null;
+                }
+                sessionLog = SessionLog.open(sessionId, dir, segmentSize, fsync, codec);
+                openLogs.put(sessionId, sessionLog);
+                var eldest = openLogs.entrySet().iterator();
+                while (openLogs.size() > maxOpenSessions) {
+                    evicted.add(eldest.next().getValue());
+                    eldest.remove();
+                }
+            }
+        }
+        // Outside the map lock: closing waits for operations in progress on the evicted log
+        evicted.forEach(this::close);
+        return sessionLog;
+    }
+
+    private void delete(String sessionId) {
+        Path dir = dir(sessionId);
+        if (dir == null) {
+            return;
+        }
+        // Under the map lock so the session cannot be reopened half-deleted
+        synchronized (openLogs) {
+            SessionLog sessionLog = openLogs.remove(sessionId);
+            if (sessionLog != null) {
+                close(sessionLog);
+            }
+            try {
+                FileSystemUtils.deleteRecursively(dir);
+            } catch (IOException ex) {
+                throw new DataAccessResourceFailureException("Failed to delete message segments of session " + sessionId, ex);
+            }
+        }
+    }
+
+    private void close(SessionLog sessionLog) {
+        synchronized (sessionLog) {
+            sessionLog.close();
+        }
+    }
+
+    /** Null for ids that cannot be a directory name (never the case for generated session ids). */
+    private Path dir(String sessionId) {
+        if (sessionId == null || !SESSION_ID.matcher(sessionId).matches()) {
+            return null;
+        }
+        return root.resolve(sessionId.substring(sessionId.length() - 2)).resolve(sessionId);
+    }
+
+    /**
+     * Runs {@code onCommit} after the current transaction commits, {@code onRollback} after it
+     * rolls back, or {@code onCommit} right away without a transaction. An unknown outcome is
+     * treated as committed: hiding a committed message would lose it.
+     */
+    private static void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_ROLLED_BACK) {
+                        onRollback.run();
+                    } else {
+                        onCommit.run();
+                    }
+                } catch (RuntimeException ex) {
+                    log.error("Failed to complete a segment store write after its transaction", ex);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.ragchatstorage.storage;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.repository.Watermark;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The segment files of one session: {@code <n>.seg} files of MessageRecordCodec records,
+ * numbered in append order. Only the last segment is written to, through a read-write mapping of
+ * app.storage.segment.segment-size preallocated (sparse) bytes; once a record does not fit it is
+ * truncated to its used size and a new segment starts. Reads go through the mappings.
+ *
+ * The seq index and idempotency keys are rebuilt by scanning the segments on open; a torn
+ * record at the end of the last segment (crash mid-write) fails its checksum and is discarded.
+ * Appended records only become visible once {@link #publish published} (their transaction
+ * committed). Not thread-safe: SegmentMessageStore serializes access per session.
+ */
+final class SessionLog {
+
+    private final String sessionId;
+    private final Path dir;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final MessageRecordCodec codec;
+    private final List<Segment> segments = new ArrayList<>();
+    private final SeqIndex index = new SeqIndex();
+    // Idempotency key -> seq; checked against the record on lookup, so entries of aborted
+    // records need not be removed
+    private final Map<String, Long> keys = new HashMap<>();
+    private final Set<String> pendingKeys = new HashSet<>();
+    private Instant latest;
+    private boolean closed;
+
+    private SessionLog(String sessionId, Path dir, int segmentSize, boolean fsync, MessageRecordCodec codec) {
+        this.sessionId = sessionId;
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        this.codec = codec;
+    }
+
+    static SessionLog open(String sessionId, Path dir, int segmentSize, boolean fsync, MessageRecordCodec codec) {
+        SessionLog log = new SessionLog(sessionId, dir, segmentSize, fsync, codec);
+        try {
+            Files.createDirectories(dir);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(dir)) {
+                files = listing.filter(file -> file.getFileName().toString().endsWith(".seg")).sorted().toList();
+            }
+            for (int i = 0; i < files.size(); i++) {
+                log.recover(files.get(i), i == files.size() - 1);
+            }
+        } catch (IOException ex) {
+            log.close();
+            throw new DataAccessResourceFailureException("Failed to open message segments of session " + sessionId, ex);
+        }
+        return log;
+    }
+
+    /**
+     * Writes the record of a message whose transaction has not completed yet and returns its
+     * position for {@link #publish} or {@link #abort}.
+     */
+    long append(ChatMessage message, ByteBuffer record) {
+        String key = message.getIdempotencyKey();
+        if (key != null && !pendingKeys.add(key)) {
+            return -1;
+        }
+        if (key != null && findByIdempotencyKey(key).isPresent()) {
+            pendingKeys.remove(key);
+            return -1;
+        }
+        try {
+            return write(record);
+        } catch (RuntimeException ex) {
+            if (key != null) {
+                pendingKeys.remove(key);
+            }
+            throw ex;
+        }
+    }
+
+    void publish(long seq, long position, ChatMessage message) {
+        index.put(seq, position);
+        if (message.getIdempotencyKey() != null) {
+            keys.put(message.getIdempotencyKey(), seq);
+            pendingKeys.remove(message.getIdempotencyKey());
+        }
+        if (latest == null || message.getCreatedAt().isAfter(latest)) {
+            latest = message.getCreatedAt();
+        }
+    }
+
+    /**
+     * Records that an appended message was rolled back, so it stays hidden after a reopen, and
+     * hides it if it was visible (the log was reopened before the rollback).
+     */
+    void abort(ChatMessage message) {
+        write(codec.encodeAbort(message.getSeq(), message.getId()));
+        dropIfCurrent(message.getSeq(), message.getId());
+        if (message.getIdempotencyKey() != null) {
+            pendingKeys.remove(message.getIdempotencyKey());
+        }
+    }
+
+    Optional<ChatMessage> findByIdempotencyKey(String key) {
+        Long seq = keys.get(key);
+        long position = seq != null ? index.get(seq) : -1;
+        if (position < 0) {
+            return Optional.empty();
+        }
+        ByteBuffer segment = buffer(position);
+        int offset = offset(position);
+        if (!key.equals(MessageRecordCodec.idempotencyKey(segment, offset))) {
+            return Optional.empty();
+        }
+        return Optional.of(codec.decodeMessage(segment, offset, sessionId));
+    }
+
+    List<MessageResponse> findBySeqRange(long fromSeq, long toSeq) {
+        long from = Math.max(fromSeq, index.firstSeq());
+        long to = Math.min(toSeq, index.lastSeq());
+        List<MessageResponse> messages = new ArrayList<>((int) Math.max(0, Math.min(to - from + 1, 1024)));
+        for (long seq = from; seq <= to; seq++) {
+            long position = index.get(seq);
+            if (position >= 0) {
+                messages.add(codec.decodeResponse(buffer(position), offset(position), sessionId));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Walks back from toSeq over the fixed-size token fields only, so just the messages in the
+     * window are decoded. Running totals grow with seq, so the first one outside ends the walk.
+     */
+    List<MessageResponse> findWindow(long fromSeq, long toSeq, long threshold) {
+        long from = Math.max(fromSeq, index.firstSeq());
+        List<MessageResponse> messages = new ArrayList<>();
+        for (long seq = Math.min(toSeq, index.lastSeq()); seq >= from; seq--) {
+            long position = index.get(seq);
+            if (position < 0) {
+                continue;
+            }
+            ByteBuffer segment = buffer(position);
+            int offset = offset(position);
+            long cumulative = MessageRecordCodec.cumulativeTokens(segment, offset);
+            int tokens = MessageRecordCodec.tokenCount(segment, offset);
+            if (cumulative < 0 || tokens < 0 || cumulative - tokens < threshold) {
+                break;
+            }
+            messages.add(codec.decodeResponse(segment, offset, sessionId));
+        }
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    Optional<Long> findCumulativeTokens(long seq) {
+        long position = index.get(seq);
+        if (position < 0) {
+            return Optional.empty();
+        }
+        long cumulative = MessageRecordCodec.cumulativeTokens(buffer(position), offset(position));
+        return Optional.ofNullable(cumulative >= 0 ? cumulative : null);
+    }
+
+    Watermark watermark() {
+        return new Watermark(index.count(), latest);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+        for (Segment segment : segments) {
+            segment.closeChannel();
+        }
+    }
+
+    private void recover(Path file, boolean last) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        Segment segment = last
+                ? new Segment(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, fileSize)))
+                : new Segment(null, channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize));
+        if (!last) {
+            channel.close();
+        }
+        segments.add(segment);
+
+        MappedByteBuffer buffer = segment.buffer;
+        int limit = (int) Math.min(fileSize, buffer.capacity());
+        int offset = 0;
+        int length;
+        while ((length = MessageRecordCodec.checkedBodyLength(buffer, offset, limit)) > 0) {
+            replay(segments.size() - 1, offset);
+            offset += MessageRecordCodec.HEADER_BYTES + length;
+        }
+        segment.size = offset;
+        if (offset < limit && buffer.getInt(offset) != 0) {
+            if (!last) {
+                throw new IOException("Corrupt record at " + offset + " in " + file);
+            }
+            // Torn write: clear it so later appends are not followed by its remains
+            buffer.put(offset, new byte[limit - offset]);
+            buffer.force();
+        }
+    }
+
+    private void replay(int segmentIndex, int offset) {
+        ByteBuffer buffer = segments.get(segmentIndex).buffer;
+        long seq = MessageRecordCodec.seq(buffer, offset);
+        if (MessageRecordCodec.type(buffer, offset) == MessageRecordCodec.ABORT) {
+            dropIfCurrent(seq, MessageRecordCodec.id(buffer, offset));
+            return;
+        }
+        index.put(seq, position(segmentIndex, offset));
+        String key = MessageRecordCodec.idempotencyKey(buffer, offset);
+        if (key != null) {
+            keys.put(key, seq);
+        }
+        Instant createdAt = MessageRecordCodec.createdAt(buffer, offset);
+        if (latest == null || createdAt.isAfter(latest)) {
+            latest = createdAt;
+        }
+    }
+
+    private void dropIfCurrent(long seq, String id) {
+        long position = index.get(seq);
+        if (position >= 0 && id.equals(MessageRecordCodec.id(buffer(position), offset(position)))) {
+            index.remove(seq);
+        }
+    }
+
+    private long write(ByteBuffer record) {
+        int length = record.remaining();
+        Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        try {
+            if (active == null || active.size + length > active.buffer.capacity()) {
+                if (active != null) {
+                    active.seal();
+                }
+                // Zero-padded, so listing order is append order
+                active = Segment.create(dir.resolve(String.format("%020d.seg", segments.size())),
+                        Math.max(segmentSize, length));
+                segments.add(active);
+            }
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException("Failed to start a message segment of session " + sessionId, ex);
+        }
+        int offset = active.size;
+        active.buffer.put(offset, record, record.position(), length);
+        if (fsync) {
+            active.buffer.force(offset, length);
+        }
+        active.size += length;
+        return position(segments.size() - 1, offset);
+    }
+
+    private ByteBuffer buffer(long position) {
+        return segments.get((int) (position >>> 32)).buffer;
+    }
+
+    private static int offset(long position) {
+        return (int) position;
+    }
+
+    private static long position(int segmentIndex, int offset) {
+        return ((long) segmentIndex << 32) | offset;
+    }
+
+    private static final class Segment {
+
+        private FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int size;
+
+        private Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path file, int capacity) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new Segment(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        }
+
+        /** Drops the preallocated tail; the mapping stays valid for the used part. */
+        void seal() throws IOException {
+            buffer.force();
+            channel.truncate(size);
+            channel.force(true);
+            closeChannel();
+        }
+
+        void closeChannel() {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Read-only from here on; nothing left to flush
+            }
+            channel = null;
+        }
+    }
+
+    /** Seq -> record position for a contiguous run of seqs, -1 for seqs without a visible record. */
+    private static final class SeqIndex {
+
+        private long base = -1;
+        private long[] positions = new long[16];
+        private int length;
+        private int count;
+
+        long get(long seq) {
+            long i = seq - base;
+            return base < 0 || i < 0 || i >= length ? -1 : positions[(int) i];
+        }
+
+        void put(long seq, long position) {
+            if (base < 0 || length == 0) {
+                base = seq;
+            } else if (seq < base) {
+                int shift = (int) (base - seq);
+                ensureCapacity(length + shift);
+                System.arraycopy(positions, 0, positions, shift, length);
+                Arrays.fill(positions, 0, shift, -1);
+                length += shift;
+                base = seq;
+            }
+            int i = (int) (seq - base);
+            if (i >= length) {
+                ensureCapacity(i + 1);
+                Arrays.fill(positions, length, i, -1);
+                length = i + 1;
+                positions[i] = -1;
+            }
+            if (positions[i] < 0) {
+                count++;
+            }
+            positions[i] = position;
+        }
+
+        void remove(long seq) {
+            long i = seq - base;
+            if (base < 0 || i < 0 || i >= length || positions[(int) i] < 0) {
+                return;
+            }
+            positions[(int) i] = -1;
+            count--;
+            while (length > 0 && positions[length - 1] < 0) {
+                length--;
+            }
+        }
+
+        long firstSeq() {
+            return length == 0 ? 1 : base;
+        }
+
+        long lastSeq() {
+            return length == 0 ? 0 : base + length - 1;
+        }
+
+        int count() {
+            return count;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(capacity, positions.length * 2));
+            }
+        }
+    }
+}
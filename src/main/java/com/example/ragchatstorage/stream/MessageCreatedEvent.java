@@ -0,0 +1,10 @@
+package com.example.ragchatstorage.stream;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+
+/**
+ * Published by ChatMessageService after a message is persisted; delivered to stream subscribers
+ * once the surrounding transaction (if any) has committed.
+ */
+public record MessageCreatedEvent(String sessionId, MessageResponse message) {
+}
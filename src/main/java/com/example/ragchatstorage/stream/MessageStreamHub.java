@@ -0,0 +1,216 @@
+package com.example.ragchatstorage.stream;
+
+import com.example.ragchatstorage.exception.RateLimitExceededException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fan-out of newly persisted messages to Server-Sent Event subscribers.
+ *
+ * - Subscriptions are async-servlet SseEmitters, so an idle stream holds no request thread.
+ * - Publishing never blocks: events are offered to a bounded per-subscriber buffer and
+ *   written by a virtual thread. A subscriber whose buffer is full is disconnected
+ *   (slow consumer); it can reconnect and re-read history with GET /messages.
+ * - A periodic heartbeat comment detects dead connections behind proxies.
+ *
+ * Configuration: app.stream.* (buffer-size, timeout, heartbeat-interval, max-subscribers)
+ */
+@Component
+@Slf4j
+public class MessageStreamHub {
+
+    private final ConcurrentHashMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("sse-heartbeat").daemon().factory());
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final Counter slowConsumerDisconnects;
+
+    public MessageStreamHub(@Value("${app.stream.buffer-size:64}") int bufferSize,
+                            @Value("${app.stream.timeout:30m}") Duration timeout,
+                            @Value("${app.stream.heartbeat-interval:20s}") Duration heartbeatInterval,
+                            @Value("${app.stream.max-subscribers:50000}") int maxSubscribers,
+                            MeterRegistry meterRegistry,
+                            ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.maxSubscribers = maxSubscribers;
+        this.slowConsumerDisconnects = Counter.builder("ragchat.stream.slow.consumer.disconnects")
+                .description("Stream subscribers disconnected because their buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("ragchat.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open message stream subscriptions")
+                .register(meterRegistry);
+
+        long interval = heartbeatInterval.toMillis();
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a stream for the session. The caller is responsible for checking that the session exists.
+     */
+    public SseEmitter subscribe(String sessionId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new RateLimitExceededException("Too many open message streams");
+        }
+
+        SseEmitter emitter = newEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(sessionId, emitter, new ArrayBlockingQueue<>(bufferSize));
+        subscribers.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+
+        log.debug("Stream opened. sessionId={} subscribers={}", sessionId, subscriberCount.get());
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageCreated(MessageCreatedEvent event) {
+        if (!subscribers.containsKey(event.sessionId())) {
+            return;
+        }
+        try {
+            // Serialize once here instead of once per subscriber on send
+            publish(event.sessionId(), SseEmitter.event()
+                    .id(event.message().id())
+                    .name("message")
+                    .data(objectMapper.writeValueAsString(event.message())));
+        } catch (JsonProcessingException ex) {
+            log.error("Failed to encode stream event. sessionId={} messageId={}",
+                    event.sessionId(), event.message().id(), ex);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionDeleted(SessionDeletedEvent event) {
+        Set<Subscriber> sessionSubscribers = subscribers.get(event.sessionId());
+        if (sessionSubscribers != null) {
+            sessionSubscribers.forEach(subscriber -> subscriber.emitter.complete());
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    void publish(String sessionId, SseEmitter.SseEventBuilder builder) {
+        Set<Subscriber> sessionSubscribers = subscribers.get(sessionId);
+        if (sessionSubscribers == null) {
+            return;
+        }
+        // Encode once; the immutable result is shared by every subscriber's buffer
+        Set<DataWithMediaType> event = builder.build();
+        for (Subscriber subscriber : sessionSubscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void heartbeat() {
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.offer(ping)));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeats.shutdownNow();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+        senders.shutdown();
+    }
+
+    private final class Subscriber {
+
+        private final String sessionId;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Set<DataWithMediaType>> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(String sessionId, SseEmitter emitter, ArrayBlockingQueue<Set<DataWithMediaType>> buffer) {
+            this.sessionId = sessionId;
+            this.emitter = emitter;
+            this.buffer = buffer;
+        }
+
+        void offer(Set<DataWithMediaType> event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                log.warn("Disconnecting slow stream consumer. sessionId={} buffered={}", sessionId, buffer.size());
+                slowConsumerDisconnects.increment();
+                close();
+                emitter.complete();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<DataWithMediaType> event;
+                while ((event = buffer.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // Client went away or the emitter already completed
+                close();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // An event may have arrived between the last poll and releasing the flag
+            if (!buffer.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                buffer.clear();
+                subscribers.computeIfPresent(sessionId, (id, set) -> {
+                    set.remove(this);
+                    return set.isEmpty() ? null : set;
+                });
+                subscriberCount.decrementAndGet();
+                log.debug("Stream closed. sessionId={} subscribers={}", sessionId, subscriberCount.get());
+            }
+        }
+    }
+}
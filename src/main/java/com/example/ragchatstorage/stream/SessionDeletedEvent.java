@@ -0,0 +1,7 @@
+package com.example.ragchatstorage.stream;
+
+/**
+ * Published by ChatSessionService when a session is deleted so open streams can be closed.
+ */
+public record SessionDeletedEvent(String sessionId) {
+}
@@ -0,0 +1,32 @@
+package com.example.ragchatstorage.tokenizer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Model-agnostic estimate of one token per app.tokens.chars-per-token characters (code points),
+ * rounded up. About 4 for English text with GPT-style tokenizers; lower it for code or
+ * non-Latin scripts, which tokenize denser.
+ */
+@Component
+@ConditionalOnProperty(name = "app.tokens.estimator", havingValue = "chars", matchIfMissing = true)
+public class CharacterTokenEstimator implements TokenEstimator {
+
+    private final double charsPerToken;
+
+    public CharacterTokenEstimator(@Value("${app.tokens.chars-per-token:4}") double charsPerToken) {
+        if (charsPerToken <= 0) {
+            throw new IllegalArgumentException("app.tokens.chars-per-token must be positive");
+        }
+        this.charsPerToken = charsPerToken;
+    }
+
+    @Override
+    public int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return (int) Math.ceil(text.codePointCount(0, text.length()) / charsPerToken);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.ragchatstorage.tokenizer;
+
+/**
+ * Estimates how many model tokens a message's content takes. Estimates are computed once when a
+ * message is written and stored with it (chat_messages.token_count plus a running
+ * cumulative_tokens), so budget-aware history reads need no tokenizer.
+ *
+ * The implementation is chosen with app.tokens.estimator: "chars" selects the built-in
+ * CharacterTokenEstimator; any other value expects a TokenEstimator bean from the deployment,
+ * e.g. one wrapping the target model's BPE vocabulary.
+ */
+public interface TokenEstimator {
+
+    int estimate(String text);
+}
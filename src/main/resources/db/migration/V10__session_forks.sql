@@ -0,0 +1,8 @@
+-- Copy-on-write forks: a fork references its ancestors' messages up to fork_seq (through
+-- lineage, see SessionLineage) instead of copying them. All three are fixed at insert.
+ALTER TABLE chat_sessions
+    ADD COLUMN parent_session_id VARCHAR(36) NULL,
+    ADD COLUMN fork_seq BIGINT NULL,
+    ADD COLUMN lineage VARCHAR(2048) NULL;
+
+CREATE INDEX idx_parent_session_id ON chat_sessions (parent_session_id);
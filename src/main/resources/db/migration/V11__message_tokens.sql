@@ -0,0 +1,14 @@
+-- Per-message token estimates and a running per-session total, so a history read can select
+-- the newest messages fitting a token budget with an index range. Existing rows stay NULL
+-- until TokenBackfillService has estimated them; new sessions start at 0.
+ALTER TABLE chat_messages
+    ADD COLUMN token_count INT NULL,
+    ADD COLUMN cumulative_tokens BIGINT NULL;
+
+CREATE INDEX idx_session_id_cumulative_tokens ON chat_messages (session_id, cumulative_tokens);
+
+ALTER TABLE chat_sessions
+    ADD COLUMN total_tokens BIGINT NULL;
+
+ALTER TABLE chat_sessions
+    ALTER COLUMN total_tokens SET DEFAULT 0;
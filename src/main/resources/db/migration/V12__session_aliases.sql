@@ -0,0 +1,13 @@
+-- Sessions created before session IDs carried their owner's routing token (plain random UUIDs).
+-- Every session existing at this point is listed with its owner; the token is filled in by
+-- ShardRouter on startup with sharding enabled (see SessionAliases). Only read on shard 0.
+CREATE TABLE IF NOT EXISTS session_aliases (
+    session_id VARCHAR(36) PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    token CHAR(8),
+    INDEX idx_session_aliases_token (token),
+    INDEX idx_session_aliases_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO session_aliases (session_id, user_id)
+SELECT id, user_id FROM chat_sessions;
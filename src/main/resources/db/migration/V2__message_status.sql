@@ -0,0 +1,3 @@
+-- Streaming assistant drafts (content appended in place until finalized)
+ALTER TABLE chat_messages
+    ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'COMPLETE';
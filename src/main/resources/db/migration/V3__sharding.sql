@@ -0,0 +1,10 @@
+-- Recent sessions across users (admin listing, gathered from every shard)
+CREATE INDEX idx_updated_at ON chat_sessions (updated_at DESC);
+
+-- Directory of routing tokens moved by the shard rebalancer; only read and written on shard 0
+CREATE TABLE IF NOT EXISTS shard_placements (
+    token CHAR(8) PRIMARY KEY,
+    shard INT NOT NULL,
+    moving_to INT,
+    updated_at TIMESTAMP(6) NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
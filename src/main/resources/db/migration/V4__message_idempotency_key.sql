@@ -0,0 +1,5 @@
+-- Client-supplied Idempotency-Key on POST /messages; retries resolve to the original message
+ALTER TABLE chat_messages
+    ADD COLUMN idempotency_key VARCHAR(128) NULL;
+
+CREATE UNIQUE INDEX uk_session_id_idempotency_key ON chat_messages (session_id, idempotency_key);
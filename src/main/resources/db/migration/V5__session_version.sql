@@ -0,0 +1,3 @@
+-- Optimistic locking for session mutations (If-Match on PATCH)
+ALTER TABLE chat_sessions
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
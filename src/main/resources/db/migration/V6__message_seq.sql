@@ -0,0 +1,23 @@
+-- Gapless per-session message sequence. chat_sessions.last_seq is the allocation counter,
+-- incremented under the session's row lock by every message insert.
+ALTER TABLE chat_sessions
+    ADD COLUMN last_seq BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE chat_messages
+    ADD COLUMN seq BIGINT NULL;
+
+-- Number existing messages in their previous (created_at) order
+UPDATE chat_messages m
+    JOIN (SELECT id, ROW_NUMBER() OVER (PARTITION BY session_id ORDER BY created_at, id) AS rn
+          FROM chat_messages) numbered ON numbered.id = m.id
+SET m.seq = numbered.rn;
+
+UPDATE chat_sessions s
+    JOIN (SELECT session_id, MAX(seq) AS max_seq FROM chat_messages GROUP BY session_id) counts
+        ON counts.session_id = s.id
+SET s.last_seq = counts.max_seq;
+
+ALTER TABLE chat_messages
+    MODIFY seq BIGINT NOT NULL;
+
+CREATE UNIQUE INDEX uk_session_id_seq ON chat_messages (session_id, seq);
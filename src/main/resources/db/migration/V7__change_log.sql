@@ -0,0 +1,13 @@
+-- Per-user change log for delta sync (GET /api/v1/sync). Rows are looked up by
+-- (user_id, id > watermark), so a sync reads only what changed since the client's last one.
+CREATE TABLE IF NOT EXISTS change_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    session_id VARCHAR(36) NOT NULL,
+    message_id VARCHAR(36),
+    change_type VARCHAR(20) NOT NULL,
+    changed_at TIMESTAMP(6) NOT NULL,
+    INDEX idx_change_log_user_id_id (user_id, id),
+    -- Shard moves select a token's rows by session id prefix
+    INDEX idx_change_log_session_id (session_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,6 @@
+-- Position of the change feed relay in change_log (one row per feed, on every shard)
+CREATE TABLE IF NOT EXISTS change_feed_offsets (
+    name VARCHAR(64) PRIMARY KEY,
+    last_id BIGINT NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,9 @@
+-- Rolling summaries of long sessions; the context view reads the latest one plus the messages after it
+CREATE TABLE IF NOT EXISTS session_summaries (
+    id VARCHAR(36) PRIMARY KEY,
+    session_id VARCHAR(36) NOT NULL,
+    up_to_seq BIGINT NOT NULL,
+    content TEXT NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    UNIQUE KEY uk_session_id_up_to_seq (session_id, up_to_seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
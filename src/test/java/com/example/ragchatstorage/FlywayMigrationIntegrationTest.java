@@ -0,0 +1,105 @@
+package com.example.ragchatstorage;
+
+import com.example.ragchatstorage.dto.CreateMessageRequest;
+import com.example.ragchatstorage.dto.CreateSessionRequest;
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.model.SenderType;
+import com.example.ragchatstorage.service.ChatMessageService;
+import com.example.ragchatstorage.service.ChatSessionService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Flyway migrations on MySQL; the rest of the suite uses H2 with a Hibernate-generated schema.
+ * The application context starts with ddl-auto=validate, so the entities are checked against the result.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class FlywayMigrationIntegrationTest {
+
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0").withUsername("root");
+
+    @DynamicPropertySource
+    static void mysql(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("spring.datasource.driver-class-name", MYSQL::getDriverClassName);
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.MySQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private ChatSessionService sessionService;
+
+    @Autowired
+    private ChatMessageService messageService;
+
+    @Test
+    void migrate_shouldApplyEveryMigrationAndMatchEntities() {
+        // Given
+        String sessionId = sessionService.createSession(new CreateSessionRequest("flyway-user", "Flyway")).getId();
+
+        // When
+        messageService.addMessage(sessionId, new CreateMessageRequest(SenderType.USER, "Hello", "flyway-user", null));
+        messageService.addMessage(sessionId, new CreateMessageRequest(SenderType.ASSISTANT, "Hi", "flyway-user", null));
+        List<MessageResponse> history = messageService.getMessageResponses(sessionId, 0, 10).getContent();
+
+        // Then
+        assertEquals(0, flyway.info().pending().length);
+        assertEquals(List.of("Hello", "Hi"), history.stream().map(MessageResponse::content).toList());
+    }
+
+    @Test
+    void migrate_fromBeforeSeq_shouldNumberExistingMessages() {
+        // Given - a schema from before V6, with messages written by that version
+        Flyway legacy = Flyway.configure()
+                .dataSource(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword())
+                .schemas("legacy")
+                .locations("classpath:db/migration")
+                .target("5")
+                .load();
+        legacy.migrate();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword());
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO legacy.chat_sessions (id, user_id, created_at, updated_at)"
+                + " VALUES ('legacy-session', 'legacy-user', NOW(6), NOW(6))");
+        jdbc.update("INSERT INTO legacy.chat_messages (id, session_id, sender, content, created_at) VALUES"
+                + " ('m-2', 'legacy-session', 'ASSISTANT', 'second', '2024-01-01 00:00:02'),"
+                + " ('m-1', 'legacy-session', 'USER', 'first', '2024-01-01 00:00:01')");
+
+        // When
+        Flyway.configure()
+                .configuration(legacy.getConfiguration())
+                .target("latest")
+                .load()
+                .migrate();
+
+        // Then
+        assertEquals(List.of(1L, 2L), jdbc.queryForList(
+                "SELECT seq FROM legacy.chat_messages ORDER BY created_at", Long.class));
+        assertEquals(2L, jdbc.queryForObject(
+                "SELECT last_seq FROM legacy.chat_sessions WHERE id = 'legacy-session'", Long.class));
+        assertEquals("legacy-user", jdbc.queryForObject(
+                "SELECT user_id FROM legacy.session_aliases WHERE session_id = 'legacy-session'", String.class));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.ragchatstorage.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapPageCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OffHeapPageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // 64 blocks of 16 bytes; bodies of up to 8 blocks are cached
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new OffHeapPageCache(true, DataSize.ofBytes(1024), DataSize.ofBytes(16), meterRegistry);
+    }
+
+    @Test
+    void get_shouldReturnTheBodySpreadOverBlocks() throws IOException {
+        // Given
+        String body = "{\"content\":[\"a page that spans several blocks\"]}";
+        cache.put("page", bytes(body));
+
+        // When & Then
+        try (OffHeapPageCache.Entry entry = cache.get("page")) {
+            assertEquals(body.length(), entry.length());
+            assertEquals(body, read(entry));
+        }
+        assertNull(cache.get("other"));
+        assertEquals(1, meterRegistry.counter("ragchat.page.cache.hits").count());
+        assertEquals(1, meterRegistry.counter("ragchat.page.cache.misses").count());
+        assertEquals(48, cache.usedBytes());
+    }
+
+    @Test
+    void put_whenFull_shouldEvictLeastRecentlyUsedEntries() throws IOException {
+        // Given - 8 entries of 8 blocks fill the cache
+        for (int i = 0; i < 8; i++) {
+            cache.put("page-" + i, new byte[128]);
+        }
+        cache.get("page-0").close();
+
+        // When
+        cache.put("page-8", new byte[128]);
+
+        // Then
+        assertNull(cache.get("page-1"));
+        try (OffHeapPageCache.Entry entry = cache.get("page-0")) {
+            assertNotNull(entry);
+        }
+        assertEquals(8, cache.size());
+        assertEquals(1024, cache.usedBytes());
+        assertEquals(1, meterRegistry.counter("ragchat.page.cache.evictions").count());
+    }
+
+    @Test
+    void evictedEntry_shouldStayReadableUntilClosed() throws IOException {
+        // Given
+        cache.put("page-0", bytes("x".repeat(128)));
+        OffHeapPageCache.Entry pinned = cache.get("page-0");
+
+        // When - 8 more entries: page-0 and page-1 are evicted, but page-0's blocks stay held
+        for (int i = 1; i <= 8; i++) {
+            cache.put("page-" + i, bytes(String.valueOf(i).repeat(128)));
+        }
+
+        // Then
+        assertNull(cache.get("page-0"));
+        assertNull(cache.get("page-1"));
+        assertEquals(7, cache.size());
+        assertEquals(1024, cache.usedBytes());
+        assertEquals("x".repeat(128), read(pinned));
+        pinned.close();
+        assertEquals(896, cache.usedBytes());
+        try (OffHeapPageCache.Entry entry = cache.get("page-8")) {
+            assertEquals("8".repeat(128), read(entry));
+        }
+    }
+
+    @Test
+    void put_shouldReplaceTheEntryAndSkipOversizedBodies() throws IOException {
+        cache.put("page", bytes("old"));
+        cache.put("page", bytes("new"));
+        cache.put("large", new byte[129]);
+
+        try (OffHeapPageCache.Entry entry = cache.get("page")) {
+            assertEquals("new", read(entry));
+        }
+        assertNull(cache.get("large"));
+        assertEquals(16, cache.usedBytes());
+    }
+
+    @Test
+    void disabledCache_shouldStoreNothing() {
+        OffHeapPageCache disabled = new OffHeapPageCache(false, DataSize.ofBytes(1024), DataSize.ofBytes(16),
+                new SimpleMeterRegistry());
+
+        disabled.put("page", bytes("body"));
+
+        assertNull(disabled.get("page"));
+        assertEquals(0, disabled.usedBytes());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(OffHeapPageCache.Entry entry) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entry.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.ragchatstorage.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiKeyRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void match_shouldReturnSharedAuthenticatedTokenForValidKey() {
+        // Given
+        ApiKeyRegistry registry = new ApiKeyRegistry("changeme, frontend-key,,backend-key", "", "");
+
+        // When
+        ApiKeyAuthentication first = registry.match("frontend-key");
+        ApiKeyAuthentication second = registry.match("frontend-key");
+
+        // Then
+        assertEquals(3, registry.size());
+        assertNotNull(first);
+        assertTrue(first.isAuthenticated());
+        assertSame(first, second);
+        assertNull(first.getCredentials());
+        assertFalse(first.getPrincipal().toString().contains("frontend-key"));
+    }
+
+    @Test
+    void match_shouldNameTokensByLabelOrPosition() {
+        // Given
+        ApiKeyRegistry registry = new ApiKeyRegistry("frontend:frontend-key,backend-key", "", "");
+
+        // When & Then
+        assertEquals("frontend", registry.match("frontend-key").getName());
+        assertEquals("key-2", registry.match("backend-key").getName());
+        assertNull(registry.match("frontend:frontend-key"));
+    }
+
+    @Test
+    void match_shouldGrantAdminRoleToAdminKeysOnly() {
+        // Given
+        ApiKeyRegistry registry = new ApiKeyRegistry("frontend-key", "", "ops:ops-key");
+
+        // When
+        ApiKeyAuthentication admin = registry.match("ops-key");
+        ApiKeyAuthentication client = registry.match("frontend-key");
+
+        // Then
+        assertEquals("ops", admin.getName());
+        assertEquals(List.of("ROLE_ADMIN"), admin.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        assertTrue(client.getAuthorities().isEmpty());
+    }
+
+    @Test
+    void match_shouldRejectUnknownOrEmptyKey() {
+        // Given
+        ApiKeyRegistry registry = new ApiKeyRegistry("changeme", "", "");
+
+        // When & Then
+        assertNull(registry.match("changeme2"));
+        assertNull(registry.match(""));
+        assertNull(registry.match(null));
+    }
+
+    @Test
+    void sharedToken_shouldNotBeModifiable() {
+        // Given
+        ApiKeyAuthentication token = new ApiKeyRegistry("changeme", "", "").match("changeme");
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> token.setAuthenticated(false));
+        token.setDetails("details");
+        assertNull(token.getDetails());
+    }
+
+    @Test
+    void reloadIfChanged_shouldPickUpRotatedKeysFromFile() throws Exception {
+        // Given
+        Path keysFile = tempDir.resolve("api-keys.txt");
+        Files.writeString(keysFile, "# clients\nold-key\n");
+        ApiKeyRegistry registry = new ApiKeyRegistry("changeme", keysFile.toString(), "");
+
+        // When
+        Files.writeString(keysFile, "new-key\n");
+        Files.setLastModifiedTime(keysFile, FileTime.from(Instant.now().plusSeconds(5)));
+        registry.reloadIfChanged();
+
+        // Then
+        assertNull(registry.match("changeme"));
+        assertNull(registry.match("old-key"));
+        assertNotNull(registry.match("new-key"));
+    }
+
+    @Test
+    void reloadIfChanged_whenFileRemoved_shouldKeepExistingKeys() throws Exception {
+        // Given
+        Path keysFile = tempDir.resolve("api-keys.txt");
+        Files.writeString(keysFile, "stable-key\n");
+        ApiKeyRegistry registry = new ApiKeyRegistry("changeme", keysFile.toString(), "");
+
+        // When
+        Files.delete(keysFile);
+        registry.reloadIfChanged();
+
+        // Then
+        assertNotNull(registry.match("stable-key"));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.ragchatstorage.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AdminApiIntegrationTest {
+
+    private static final String API_KEY = "frontend-key";
+    private static final String ADMIN_KEY = "admin-key";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void adminEndpoints_withClientKey_shouldBeForbidden() throws Exception {
+        mockMvc.perform(get("/api/v1/admin/sessions").header("X-API-KEY", API_KEY))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/v1/admin/users/{userId}/move", "admin-user")
+                        .param("targetShard", "1")
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void adminEndpoints_withAdminKey_shouldBeAllowed() throws Exception {
+        mockMvc.perform(get("/api/v1/admin/sessions").header("X-API-KEY", ADMIN_KEY))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/sessions").param("userId", "admin-user").header("X-API-KEY", ADMIN_KEY))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void moveEndpoints_withoutSharding_shouldRejectTheMoveAndReportUnknownMoves() throws Exception {
+        mockMvc.perform(post("/api/v1/admin/users/{userId}/move", "admin-user")
+                        .param("targetShard", "1")
+                        .header("X-API-KEY", ADMIN_KEY))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/admin/moves/{moveId}", "no-such-move").header("X-API-KEY", ADMIN_KEY))
+                .andExpect(status().isNotFound());
+    }
+}
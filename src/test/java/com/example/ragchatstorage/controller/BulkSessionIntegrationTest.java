@@ -0,0 +1,124 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.metrics.QueryStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BulkSessionIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String userId;
+    private final List<String> sessionIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userId = "bulk-" + UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            String body = mockMvc.perform(post("/api/v1/sessions")
+                            .header("X-API-KEY", API_KEY)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"userId\":\"" + userId + "\",\"title\":\"Session " + i + "\"}"))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString();
+            sessionIds.add(objectMapper.readTree(body).get("id").asText());
+        }
+    }
+
+    @Test
+    void bulkFavorite_shouldUpdateAllSessionsInOneStatement() throws Exception {
+        // When
+        mockMvc.perform(patch("/api/v1/sessions/bulk/favorite")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(sessionIds, ",\"favorite\":true")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(5))
+                .andExpect(jsonPath("$.affected").value(5));
+
+        // Then - the update and its change log rows
+        assertEquals(2, QueryStats.current().getStatements());
+        mockMvc.perform(get("/api/v1/sessions").param("userId", userId).param("favorite", "true")
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(jsonPath("$.length()").value(5));
+    }
+
+    @Test
+    void bulkRename_shouldSkipSessionsOfOtherUsers() throws Exception {
+        // Given
+        List<String> ids = new ArrayList<>(sessionIds.subList(0, 2));
+        ids.add(UUID.randomUUID().toString());
+
+        // When & Then
+        mockMvc.perform(patch("/api/v1/sessions/bulk/rename")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(ids, ",\"title\":\"Archived\"")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(3))
+                .andExpect(jsonPath("$.affected").value(2));
+    }
+
+    @Test
+    void bulkDelete_shouldRemoveSessionsAndMessagesInOneTransaction() throws Exception {
+        // Given
+        mockMvc.perform(post("/api/v1/sessions/" + sessionIds.get(0) + "/messages")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"USER\",\"content\":\"Hello\",\"userId\":\"" + userId + "\"}"))
+                .andExpect(status().isCreated());
+
+        // When - ownership lookup, fork check, change log, summaries delete, messages delete, sessions delete
+        mockMvc.perform(post("/api/v1/sessions/bulk/delete")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(sessionIds.subList(0, 3), "")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(3));
+
+        // Then
+        assertEquals(6, QueryStats.current().getStatements());
+        mockMvc.perform(get("/api/v1/sessions").param("userId", userId).header("X-API-KEY", API_KEY))
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/api/v1/sessions/" + sessionIds.get(0) + "/messages").header("X-API-KEY", API_KEY))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void bulkDelete_withoutIds_shouldReturn400() throws Exception {
+        mockMvc.perform(post("/api/v1/sessions/bulk/delete")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(List.of(), "")))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String body(List<String> ids, String extra) throws Exception {
+        return "{\"userId\":\"" + userId + "\",\"ids\":" + objectMapper.writeValueAsString(ids) + extra + "}";
+    }
+}
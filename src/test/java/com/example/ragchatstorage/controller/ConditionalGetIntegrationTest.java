@@ -0,0 +1,208 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.dto.CreateMessageRequest;
+import com.example.ragchatstorage.metrics.QueryStats;
+import com.example.ragchatstorage.model.SenderType;
+import com.example.ragchatstorage.service.ChatMessageService;
+import com.example.ragchatstorage.service.ChatSessionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConditionalGetIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChatSessionService sessionService;
+
+    @Autowired
+    private ChatMessageService messageService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String userId;
+    private String sessionId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userId = "etag-" + UUID.randomUUID();
+        String body = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"" + userId + "\",\"title\":\"ETag\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        sessionId = objectMapper.readTree(body).get("id").asText();
+    }
+
+    @Test
+    void getSessions_withMatchingETag_shouldReturn304WithoutQueries() throws Exception {
+        // Given
+        String etag = mockMvc.perform(get("/api/v1/sessions").param("userId", userId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/sessions").param("userId", userId)
+                        .header("X-API-KEY", API_KEY)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertEquals(0, QueryStats.current().getStatements());
+    }
+
+    @Test
+    void getSessions_afterRename_shouldReturnNewETag() throws Exception {
+        // Given
+        String etag = mockMvc.perform(get("/api/v1/sessions").param("userId", userId).header("X-API-KEY", API_KEY))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When
+        mockMvc.perform(patch("/api/v1/sessions/{id}/rename", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Renamed\"}"))
+                .andExpect(status().isOk());
+
+        // Then
+        String newEtag = mockMvc.perform(get("/api/v1/sessions").param("userId", userId)
+                        .header("X-API-KEY", API_KEY)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newEtag);
+    }
+
+    @Test
+    void getMessages_shouldRevalidateAgainstMessageHighWaterMark() throws Exception {
+        // Given
+        String etag = mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertEquals(0, QueryStats.current().getStatements());
+
+        // When
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"USER\",\"content\":\"Hi\",\"userId\":\"" + userId + "\"}"))
+                .andExpect(status().isCreated());
+
+        // Then
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getSessions_duringUncommittedRename_shouldServeTheRenameOnceCommitted() throws Exception {
+        // Given - a rename that is not committed yet
+        String before = new TransactionTemplate(transactionManager).execute(status -> {
+            sessionService.renameSession(sessionId, "Renamed", null);
+
+            // When - another request reads the list meanwhile, caching its ETag and body
+            MvcResult during = performConcurrently(get("/api/v1/sessions").param("userId", userId)
+                    .header("X-API-KEY", API_KEY));
+            assertTrue(contentOf(during).contains("\"ETag\""));
+            return during.getResponse().getHeader(HttpHeaders.ETAG);
+        });
+
+        // Then
+        MvcResult after = mockMvc.perform(get("/api/v1/sessions").param("userId", userId)
+                        .header("X-API-KEY", API_KEY)
+                        .header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(before, after.getResponse().getHeader(HttpHeaders.ETAG));
+        assertTrue(contentOf(after).contains("\"Renamed\""));
+    }
+
+    @Test
+    void getMessages_duringUncommittedAdd_shouldServeTheMessageOnceCommitted() throws Exception {
+        // Given - a message that is not committed yet
+        String before = new TransactionTemplate(transactionManager).execute(status -> {
+            messageService.addMessage(sessionId, new CreateMessageRequest(SenderType.USER, "Uncommitted", userId, null));
+
+            // When - another request reads the page meanwhile, caching its ETag and body
+            MvcResult during = performConcurrently(get("/api/v1/sessions/{id}/messages", sessionId)
+                    .header("X-API-KEY", API_KEY));
+            assertFalse(contentOf(during).contains("Uncommitted"));
+            return during.getResponse().getHeader(HttpHeaders.ETAG);
+        });
+
+        // Then
+        MvcResult after = mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(before, after.getResponse().getHeader(HttpHeaders.ETAG));
+        assertTrue(contentOf(after).contains("Uncommitted"));
+    }
+
+    @Test
+    void getMessages_forUnknownSession_shouldStillReturn404() throws Exception {
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", "missing")
+                        .header("X-API-KEY", API_KEY)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"m0.0\""))
+                .andExpect(status().isNotFound());
+    }
+
+    /** Performs the request on another thread, outside the caller's transaction. */
+    private MvcResult performConcurrently(RequestBuilder request) {
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            return executor.submit(() -> mockMvc.perform(request).andExpect(status().isOk()).andReturn())
+                    .get(10, TimeUnit.SECONDS);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String contentOf(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
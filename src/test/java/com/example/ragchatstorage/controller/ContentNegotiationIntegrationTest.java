@@ -0,0 +1,77 @@
+package com.example.ragchatstorage.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ContentNegotiationIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void getMessages_withCborAccept_shouldReturnBinaryPage() throws Exception {
+        // Given
+        String body = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"cbor-user\",\"title\":\"CBOR\"}"))
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(body).get("id").asText();
+
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"USER\",\"content\":\"Hello\",\"userId\":\"cbor-user\","
+                                + "\"context\":[{\"sourceId\":\"doc-1\",\"snippet\":\"abc\",\"metadata\":{\"score\":0.9}}]}"))
+                .andExpect(status().isCreated());
+
+        // When
+        byte[] cbor = mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        JsonNode page = new CBORMapper().readTree(cbor);
+        assertEquals(1, page.get("totalElements").asInt());
+        assertEquals("Hello", page.get("content").get(0).get("content").asText());
+        assertEquals("doc-1", page.get("content").get(0).get("context").get(0).get("sourceId").asText());
+    }
+
+    @Test
+    void getMessages_withoutAccept_shouldDefaultToJson() throws Exception {
+        String body = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"cbor-user\",\"title\":\"JSON\"}"))
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(body).get("id").asText();
+
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+}
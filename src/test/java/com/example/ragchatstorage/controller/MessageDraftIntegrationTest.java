@@ -0,0 +1,92 @@
+package com.example.ragchatstorage.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"app.drafts.flush-size=8", "app.drafts.flush-interval-ms=60000"})
+@AutoConfigureMockMvc
+class MessageDraftIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void draft_shouldExposePartialContentUntilFinalized() throws Exception {
+        // Given
+        String userId = "draft-" + UUID.randomUUID();
+        String sessionId = readJson(mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"" + userId + "\",\"title\":\"Draft\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asText();
+
+        String messageId = readJson(mockMvc.perform(post("/api/v1/sessions/{id}/messages/drafts", sessionId)
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asText();
+
+        // When - first chunk stays buffered, second crosses flush-size
+        appendChunk(sessionId, messageId, "The ");
+        appendChunk(sessionId, messageId, "answer ");
+        appendChunk(sessionId, messageId, "is 42");
+
+        // Then
+        JsonNode partial = getFirstMessage(sessionId);
+        assertEquals("The answer ", partial.get("content").asText());
+        assertEquals("STREAMING", partial.get("status").asText());
+
+        // When
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages/{messageId}/finalize", sessionId, messageId)
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk());
+
+        // Then
+        JsonNode complete = getFirstMessage(sessionId);
+        assertEquals("The answer is 42", complete.get("content").asText());
+        assertEquals("COMPLETE", complete.get("status").asText());
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages/{messageId}/chunks", sessionId, messageId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"late\"}"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    private void appendChunk(String sessionId, String messageId, String content) throws Exception {
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages/{messageId}/chunks", sessionId, messageId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("content", content))))
+                .andExpect(status().isAccepted());
+    }
+
+    private JsonNode getFirstMessage(String sessionId) throws Exception {
+        return readJson(mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("content").get(0);
+    }
+
+    private JsonNode readJson(String body) throws Exception {
+        return objectMapper.readTree(body);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.metrics.QueryStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MessagePageCacheIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String userId;
+    private String sessionId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userId = "page-cache-" + UUID.randomUUID();
+        String body = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"" + userId + "\",\"title\":\"Cached\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        sessionId = objectMapper.readTree(body).get("id").asText();
+        for (int i = 1; i <= 3; i++) {
+            addMessage("Turn " + i);
+        }
+    }
+
+    @Test
+    void getMessages_repeated_shouldBeServedFromCacheWithoutQueries() throws Exception {
+        // Given
+        MockHttpServletResponse first = page(MediaType.APPLICATION_JSON, 20);
+
+        // When
+        MockHttpServletResponse second = page(MediaType.APPLICATION_JSON, 20);
+
+        // Then
+        assertEquals(0, QueryStats.current().getStatements());
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals(first.getHeader(HttpHeaders.ETAG), second.getHeader(HttpHeaders.ETAG));
+        assertEquals("no-cache", second.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertTrue(second.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(second.getContentType())));
+        assertEquals(3, objectMapper.readTree(second.getContentAsString()).get("totalElements").asInt());
+    }
+
+    @Test
+    void getMessages_afterNewMessage_shouldNotServeTheCachedPage() throws Exception {
+        // Given
+        page(MediaType.APPLICATION_JSON, 20);
+
+        // When
+        addMessage("Turn 4");
+
+        // Then
+        MockHttpServletResponse response = page(MediaType.APPLICATION_JSON, 20);
+        assertEquals(4, objectMapper.readTree(response.getContentAsString()).get("content").size());
+        assertEquals(2, objectMapper.readTree(page(MediaType.APPLICATION_JSON, 2).getContentAsString())
+                .get("content").size());
+    }
+
+    @Test
+    void getMessages_withCborAccept_shouldBypassTheCachedJson() throws Exception {
+        // Given
+        page(MediaType.APPLICATION_JSON, 20);
+        MediaType cbor = MediaType.parseMediaType("application/cbor");
+
+        // When
+        MockHttpServletResponse response = page(cbor, 20);
+
+        // Then
+        assertTrue(cbor.isCompatibleWith(MediaType.parseMediaType(response.getContentType())));
+        assertEquals(3, new CBORMapper().readTree(response.getContentAsByteArray()).get("totalElements").asInt());
+    }
+
+    private MockHttpServletResponse page(MediaType accept, int size) throws Exception {
+        return mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId)
+                        .param("size", String.valueOf(size))
+                        .header("X-API-KEY", API_KEY)
+                        .accept(accept))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+    }
+
+    private void addMessage(String content) throws Exception {
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"USER\",\"content\":\"" + content + "\",\"userId\":\"" + userId + "\"}"))
+                .andExpect(status().isCreated());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.ragchatstorage.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MessagePageIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void getMessages_withPartialContextItems_shouldReturnNullFields() throws Exception {
+        // Given - context items without snippet and metadata
+        String userId = "page-" + UUID.randomUUID();
+        String body = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"" + userId + "\",\"title\":\"Page\"}"))
+                .andReturn().getResponse().getContentAsString();
+        String sessionId = objectMapper.readTree(body).get("id").asText();
+
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"ASSISTANT\",\"content\":\"Answer\",\"userId\":\"" + userId + "\","
+                                + "\"context\":[{\"sourceId\":\"doc-1\"}]}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.context[0].snippet").doesNotExist());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].sender").value("ASSISTANT"))
+                .andExpect(jsonPath("$.content[0].status").value("COMPLETE"))
+                .andExpect(jsonPath("$.content[0].context[0].sourceId").value("doc-1"))
+                .andExpect(jsonPath("$.content[0].context[0].snippet").isEmpty());
+        mockMvc.perform(get("/api/v1/sessions").param("userId", userId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(sessionId))
+                .andExpect(jsonPath("$[0].version").value(0));
+    }
+}
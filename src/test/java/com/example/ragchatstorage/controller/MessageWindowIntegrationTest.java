@@ -0,0 +1,186 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.metrics.QueryStats;
+import com.example.ragchatstorage.service.TokenBackfillService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Backfill is triggered by the test, not the schedule
+@SpringBootTest(properties = "app.tokens.backfill-interval-ms=3600000")
+@AutoConfigureMockMvc
+class MessageWindowIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TokenBackfillService backfillService;
+
+    private String userId;
+    private String sessionId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userId = "window-" + UUID.randomUUID();
+        sessionId = createSession();
+        // 8 characters each, 2 tokens at the default 4 characters per token
+        addMessages(sessionId, 10, "Turn");
+    }
+
+    @Test
+    void window_shouldReturnNewestMessagesFittingTheBudget() throws Exception {
+        window(sessionId, 7)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages.length()").value(3))
+                .andExpect(jsonPath("$.messages[0].seq").value(8))
+                .andExpect(jsonPath("$.messages[0].tokenCount").value(2))
+                .andExpect(jsonPath("$.messages[2].content").value("Turn 010"))
+                .andExpect(jsonPath("$.tokens").value(6))
+                .andExpect(jsonPath("$.truncated").value(true));
+        // History lookup, window range
+        assertEquals(2, QueryStats.current().getStatements());
+
+        window(sessionId, 1000)
+                .andExpect(jsonPath("$.messages.length()").value(10))
+                .andExpect(jsonPath("$.tokens").value(20))
+                .andExpect(jsonPath("$.truncated").value(false));
+        window(sessionId, 1)
+                .andExpect(jsonPath("$.messages.length()").value(0))
+                .andExpect(jsonPath("$.truncated").value(true));
+    }
+
+    @Test
+    void window_ofFork_shouldContinueIntoInheritedMessages() throws Exception {
+        // Given
+        String forkId = objectMapper.readTree(mockMvc.perform(post("/api/v1/sessions/{id}/fork", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"upToSeq\":6}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asText();
+        addMessages(forkId, 2, "Fork");
+
+        // When & Then
+        window(forkId, 9)
+                .andExpect(jsonPath("$.messages.length()").value(4))
+                .andExpect(jsonPath("$.messages[0].seq").value(5))
+                .andExpect(jsonPath("$.messages[0].sessionId").value(sessionId))
+                .andExpect(jsonPath("$.messages[3].content").value("Fork 002"))
+                .andExpect(jsonPath("$.tokens").value(8));
+        window(forkId, 100)
+                .andExpect(jsonPath("$.messages.length()").value(8))
+                .andExpect(jsonPath("$.tokens").value(16))
+                .andExpect(jsonPath("$.truncated").value(false));
+    }
+
+    @Test
+    void window_shouldCountFinalizedDraftInPlace() throws Exception {
+        // Given - a draft followed by a regular message, finalized afterwards
+        String draftId = objectMapper.readTree(mockMvc.perform(post("/api/v1/sessions/{id}/messages/drafts", sessionId)
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asText();
+        addMessages(sessionId, 1, "Next");
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages/{messageId}/chunks", sessionId, draftId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"sixteen characte\"}"))
+                .andExpect(status().isAccepted());
+
+        // When
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages/{messageId}/finalize", sessionId, draftId)
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk());
+
+        // Then
+        window(sessionId, 6)
+                .andExpect(jsonPath("$.messages.length()").value(2))
+                .andExpect(jsonPath("$.messages[0].id").value(draftId))
+                .andExpect(jsonPath("$.messages[0].tokenCount").value(4))
+                .andExpect(jsonPath("$.tokens").value(6));
+        window(sessionId, 1000).andExpect(jsonPath("$.tokens").value(26));
+    }
+
+    @Test
+    void window_ofSessionWithoutStoredCounts_shouldMatchAfterBackfill() throws Exception {
+        // Given - rows written before token counts were stored
+        jdbcTemplate.update("update chat_messages set token_count = null, cumulative_tokens = null where session_id = ?", sessionId);
+        jdbcTemplate.update("update chat_sessions set total_tokens = null where id = ?", sessionId);
+
+        // When & Then - estimated on the fly
+        window(sessionId, 7)
+                .andExpect(jsonPath("$.messages.length()").value(3))
+                .andExpect(jsonPath("$.messages[0].seq").value(8))
+                .andExpect(jsonPath("$.tokens").value(6))
+                .andExpect(jsonPath("$.truncated").value(true));
+
+        // When
+        backfillService.backfill();
+
+        // Then
+        assertEquals(20L, jdbcTemplate.queryForObject("select total_tokens from chat_sessions where id = ?", Long.class, sessionId));
+        window(sessionId, 7)
+                .andExpect(jsonPath("$.messages.length()").value(3))
+                .andExpect(jsonPath("$.messages[0].tokenCount").value(2))
+                .andExpect(jsonPath("$.tokens").value(6));
+        assertEquals(2, QueryStats.current().getStatements());
+    }
+
+    @Test
+    void window_withInvalidBudgetOrMissingSession_shouldBeRejected() throws Exception {
+        window(sessionId, 0).andExpect(status().isBadRequest());
+        window(UUID.randomUUID().toString(), 100).andExpect(status().isNotFound());
+    }
+
+    private String createSession() throws Exception {
+        JsonNode json = objectMapper.readTree(mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"" + userId + "\",\"title\":\"Window\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+        return json.get("id").asText();
+    }
+
+    private void addMessages(String id, int count, String prefix) throws Exception {
+        for (int i = 1; i <= count; i++) {
+            mockMvc.perform(post("/api/v1/sessions/{id}/messages", id)
+                            .header("X-API-KEY", API_KEY)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"sender\":\"USER\",\"content\":\"" + String.format("%s %03d", prefix, i)
+                                    + "\",\"userId\":\"" + userId + "\"}"))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    private ResultActions window(String id, long maxTokens) throws Exception {
+        return mockMvc.perform(get("/api/v1/sessions/{id}/messages/window", id)
+                .param("maxTokens", String.valueOf(maxTokens))
+                .header("X-API-KEY", API_KEY));
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.metrics.QueryStats;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.storage.engine=segment")
+@AutoConfigureMockMvc
+class SegmentStorageIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+    private static final Path SEGMENT_DIR = Path.of(System.getProperty("java.io.tmpdir"), "segments-" + UUID.randomUUID());
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String userId;
+    private String sessionId;
+
+    @DynamicPropertySource
+    static void segmentDir(DynamicPropertyRegistry registry) {
+        registry.add("app.storage.segment.dir", SEGMENT_DIR::toString);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userId = "segment-" + UUID.randomUUID();
+        sessionId = createSession();
+        for (int i = 1; i <= 10; i++) {
+            mockMvc.perform(addMessage(sessionId, String.format("Turn %03d", i)))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    @Test
+    void messages_shouldBeStoredInSegmentsAndPagedWithoutTheirTable() throws Exception {
+        // When
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId)
+                        .param("page", "1").param("size", "4")
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(4))
+                .andExpect(jsonPath("$.content[0].seq").value(5))
+                .andExpect(jsonPath("$.content[0].content").value("Turn 005"))
+                .andExpect(jsonPath("$.totalElements").value(10));
+
+        // Then - only the history lookup touches the database
+        assertEquals(1, QueryStats.current().getStatements());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from chat_messages where session_id = ?",
+                Integer.class, sessionId));
+        assertTrue(Files.isDirectory(SEGMENT_DIR.resolve(sessionId.substring(sessionId.length() - 2)).resolve(sessionId)));
+    }
+
+    @Test
+    void addMessage_retriedWithSameKey_shouldReturnTheStoredMessage() throws Exception {
+        String first = mockMvc.perform(addMessage(sessionId, "Keyed").header("Idempotency-Key", "retry-1"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String retried = mockMvc.perform(addMessage(sessionId, "Keyed").header("Idempotency-Key", "retry-1"))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(objectMapper.readTree(first).get("id"), objectMapper.readTree(retried).get("id"));
+        assertEquals(11, objectMapper.readTree(retried).get("seq").asLong());
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId).header("X-API-KEY", API_KEY))
+                .andExpect(jsonPath("$.content.length()").value(11));
+    }
+
+    @Test
+    void etag_shouldChangeWithAppendedMessages() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(addMessage(sessionId, "Later")).andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void forkWindowAndContext_shouldReadThroughTheSegmentStore() throws Exception {
+        // Given
+        String forkId = objectMapper.readTree(mockMvc.perform(post("/api/v1/sessions/{id}/fork", sessionId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"upToSeq\":6}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asText();
+        mockMvc.perform(addMessage(forkId, "Fork 001")).andExpect(status().isCreated());
+        mockMvc.perform(post("/api/v1/sessions/{id}/summaries", forkId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"upToSeq\":4,\"content\":\"Turns 1-4\"}"))
+                .andExpect(status().isCreated());
+
+        // When & Then - 8 characters, 2 tokens each
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", forkId).header("X-API-KEY", API_KEY))
+                .andExpect(jsonPath("$.content.length()").value(7))
+                .andExpect(jsonPath("$.content[5].sessionId").value(sessionId))
+                .andExpect(jsonPath("$.content[6].content").value("Fork 001"));
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages/window", forkId)
+                        .param("maxTokens", "5")
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(jsonPath("$.messages.length()").value(2))
+                .andExpect(jsonPath("$.messages[0].seq").value(6))
+                .andExpect(jsonPath("$.tokens").value(4));
+        mockMvc.perform(get("/api/v1/sessions/{id}/context", forkId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.upToSeq").value(4))
+                .andExpect(jsonPath("$.messages.length()").value(3))
+                .andExpect(jsonPath("$.messages[0].seq").value(5))
+                .andExpect(jsonPath("$.messages[2].content").value("Fork 001"));
+    }
+
+    @Test
+    void openDraft_shouldBeRejectedByTheSegmentStore() throws Exception {
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages/drafts", sessionId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void sync_shouldBeRejectedByTheSegmentStore() throws Exception {
+        mockMvc.perform(get("/api/v1/sync").param("userId", userId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void deleteSession_shouldRemoveItsSegments() throws Exception {
+        Path dir = SEGMENT_DIR.resolve(sessionId.substring(sessionId.length() - 2)).resolve(sessionId);
+        assertTrue(Files.isDirectory(dir));
+
+        mockMvc.perform(delete("/api/v1/sessions/{id}", sessionId).header("X-API-KEY", API_KEY))
+                .andExpect(status().is2xxSuccessful());
+
+        assertFalse(Files.exists(dir));
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isNotFound());
+    }
+
+    private String createSession() throws Exception {
+        JsonNode json = objectMapper.readTree(mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"" + userId + "\",\"title\":\"Segments\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+        return json.get("id").asText();
+    }
+
+    private MockHttpServletRequestBuilder addMessage(String id, String content) {
+        return post("/api/v1/sessions/{id}/messages", id)
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"sender\":\"USER\",\"content\":\"" + content + "\",\"userId\":\"" + userId + "\"}");
+    }
+}
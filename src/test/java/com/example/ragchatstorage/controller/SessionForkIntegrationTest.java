@@ -0,0 +1,226 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.metrics.QueryStats;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SessionForkIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String userId;
+    private String sessionId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userId = "fork-" + UUID.randomUUID();
+        sessionId = createSession();
+        addMessages(sessionId, 50, "Turn");
+    }
+
+    @Test
+    void fork_shouldTakeTheSameStatementsHoweverLongTheHistory() throws Exception {
+        // Given
+        String shortSession = createSession();
+        addMessages(shortSession, 2, "Turn");
+
+        // When
+        fork(shortSession, 2).andExpect(status().isCreated());
+        long shortFork = QueryStats.current().getStatements();
+        fork(sessionId, 50)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.parentSessionId").value(sessionId))
+                .andExpect(jsonPath("$.forkSeq").value(50))
+                .andExpect(jsonPath("$.title").value("Original"));
+        long longFork = QueryStats.current().getStatements();
+
+        // Then - parent read, streaming check, running token total, session insert, change log insert
+        assertEquals(5, longFork);
+        assertEquals(shortFork, longFork);
+    }
+
+    @Test
+    void history_ofFork_shouldStitchInheritedPrefixAndOwnMessages() throws Exception {
+        // Given
+        String forkId = forkId(sessionId, 30);
+        addMessages(forkId, 3, "Branch");
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", forkId).param("size", "20").header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(20))
+                .andExpect(jsonPath("$.content[0].seq").value(1))
+                .andExpect(jsonPath("$.content[0].sessionId").value(sessionId))
+                .andExpect(jsonPath("$.totalElements").value(33));
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", forkId).param("page", "1").param("size", "20")
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(13))
+                .andExpect(jsonPath("$.content[0].seq").value(21))
+                .andExpect(jsonPath("$.content[9].content").value("Turn 30"))
+                .andExpect(jsonPath("$.content[9].sessionId").value(sessionId))
+                .andExpect(jsonPath("$.content[10].seq").value(31))
+                .andExpect(jsonPath("$.content[10].content").value("Branch 1"))
+                .andExpect(jsonPath("$.content[10].sessionId").value(forkId))
+                .andExpect(jsonPath("$.last").value(true));
+
+        // The parent is unaffected
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", sessionId).param("page", "1").param("size", "40")
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(jsonPath("$.content.length()").value(10))
+                .andExpect(jsonPath("$.content[0].content").value("Turn 41"))
+                .andExpect(jsonPath("$.totalElements").value(50));
+    }
+
+    @Test
+    void forkOfFork_shouldReadEachSegmentFromTheAncestorHoldingIt() throws Exception {
+        // Given
+        String child = forkId(sessionId, 30);
+        addMessages(child, 2, "Child");
+        String grandchild = forkId(child, 31);
+        String trimmed = forkId(child, 10);
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", grandchild).param("size", "50").header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(31))
+                .andExpect(jsonPath("$.content[29].sessionId").value(sessionId))
+                .andExpect(jsonPath("$.content[30].sessionId").value(child))
+                .andExpect(jsonPath("$.content[30].content").value("Child 1"))
+                .andExpect(jsonPath("$.totalElements").value(31));
+        // ETag watermark and existence check, own range, history lookup, one range per ancestor
+        assertEquals(6, QueryStats.current().getStatements());
+
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", trimmed).param("size", "50").header("X-API-KEY", API_KEY))
+                .andExpect(jsonPath("$.content.length()").value(10))
+                .andExpect(jsonPath("$.content[9].sessionId").value(sessionId));
+    }
+
+    @Test
+    void contextView_ofFork_shouldIncludeInheritedMessagesAfterItsSummary() throws Exception {
+        // Given
+        String forkId = forkId(sessionId, 30);
+        addMessages(forkId, 2, "Branch");
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/sessions/{id}/context", forkId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages.length()").value(32))
+                .andExpect(jsonPath("$.messages[0].seq").value(1))
+                .andExpect(jsonPath("$.messages[31].content").value("Branch 2"));
+
+        mockMvc.perform(post("/api/v1/sessions/{id}/summaries", forkId)
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"upToSeq\":20,\"content\":\"Turns 1-20\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/v1/sessions/{id}/context", forkId).header("X-API-KEY", API_KEY))
+                .andExpect(jsonPath("$.summary.upToSeq").value(20))
+                .andExpect(jsonPath("$.messages.length()").value(12))
+                .andExpect(jsonPath("$.messages[0].content").value("Turn 21"));
+    }
+
+    @Test
+    void delete_ofSessionWithForks_shouldBeRejectedUntilForksAreGone() throws Exception {
+        // Given
+        String forkId = forkId(sessionId, 10);
+
+        // When & Then
+        mockMvc.perform(delete("/api/v1/sessions/{id}", sessionId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(bulkDelete(sessionId)).andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(get("/api/v1/sessions/{id}/messages", forkId).param("size", "50").header("X-API-KEY", API_KEY))
+                .andExpect(jsonPath("$.content.length()").value(10));
+
+        mockMvc.perform(bulkDelete(sessionId, forkId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(2));
+    }
+
+    @Test
+    void fork_beyondLatestMessageOrOfMissingSession_shouldBeRejected() throws Exception {
+        fork(sessionId, 51).andExpect(status().isUnprocessableEntity());
+        fork(sessionId, -1).andExpect(status().isBadRequest());
+        fork(UUID.randomUUID().toString(), 1).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void fork_overStreamingDraft_shouldBeRejected() throws Exception {
+        // Given
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages/drafts", sessionId).header("X-API-KEY", API_KEY))
+                .andExpect(status().isCreated());
+
+        // When & Then
+        fork(sessionId, 51).andExpect(status().isUnprocessableEntity());
+        fork(sessionId, 50).andExpect(status().isCreated());
+    }
+
+    private String createSession() throws Exception {
+        String json = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"" + userId + "\",\"title\":\"Original\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(json).get("id").asText();
+    }
+
+    private void addMessages(String id, int count, String prefix) throws Exception {
+        for (int i = 1; i <= count; i++) {
+            mockMvc.perform(post("/api/v1/sessions/{id}/messages", id)
+                            .header("X-API-KEY", API_KEY)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"sender\":\"USER\",\"content\":\"" + prefix + " " + i + "\",\"userId\":\"" + userId + "\"}"))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    private ResultActions fork(String id, long upToSeq) throws Exception {
+        return mockMvc.perform(post("/api/v1/sessions/{id}/fork", id)
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"upToSeq\":" + upToSeq + "}"));
+    }
+
+    private String forkId(String id, long upToSeq) throws Exception {
+        JsonNode json = objectMapper.readTree(fork(id, upToSeq)
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+        return json.get("id").asText();
+    }
+
+    private RequestBuilder bulkDelete(String... ids) throws Exception {
+        return post("/api/v1/sessions/bulk/delete")
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("userId", userId, "ids", List.of(ids))));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.metrics.QueryStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SessionIfMatchIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String userId;
+    private String sessionId;
+    private String etag;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userId = "if-match-" + UUID.randomUUID();
+        var response = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"" + userId + "\",\"title\":\"Original\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andReturn().getResponse();
+        sessionId = objectMapper.readTree(response.getContentAsString()).get("id").asText();
+        etag = response.getHeader(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void rename_withCurrentETag_shouldUpdateAndReturnNextETag() throws Exception {
+        // When & Then
+        mockMvc.perform(rename("Renamed").header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.title").value("Renamed"))
+                .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    void rename_withStaleETag_shouldReturn412AndKeepTitle() throws Exception {
+        // Given - another client updates first
+        mockMvc.perform(favorite(true).header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isOk());
+
+        // When & Then
+        mockMvc.perform(rename("Lost update").header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/api/v1/sessions").param("userId", userId).header("X-API-KEY", API_KEY))
+                .andExpect(jsonPath("$[0].title").value("Original"))
+                .andExpect(jsonPath("$[0].favorite").value(true));
+    }
+
+    @Test
+    void rename_withWeakOrMalformedETag_shouldReturn412() throws Exception {
+        mockMvc.perform(rename("Renamed").header(HttpHeaders.IF_MATCH, "W/" + etag))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(rename("Renamed").header(HttpHeaders.IF_MATCH, "\"abc\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void favorite_withoutIfMatch_shouldUpdateWithoutReadingFirst() throws Exception {
+        // When
+        mockMvc.perform(favorite(true).header(HttpHeaders.IF_MATCH, "*"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.favorite").value(true));
+
+        // Then - one conditional UPDATE, the read-back of the committed row and the change log
+        assertEquals(3, QueryStats.current().getStatements());
+    }
+
+    @Test
+    void rename_ofMissingSession_shouldReturn404() throws Exception {
+        mockMvc.perform(patch("/api/v1/sessions/" + UUID.randomUUID() + "/rename")
+                        .header("X-API-KEY", API_KEY)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"x\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    private MockHttpServletRequestBuilder rename(String title) {
+        return patch("/api/v1/sessions/" + sessionId + "/rename")
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"" + title + "\"}");
+    }
+
+    private MockHttpServletRequestBuilder favorite(boolean favorite) {
+        return patch("/api/v1/sessions/" + sessionId + "/favorite")
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"favorite\":" + favorite + "}");
+    }
+}
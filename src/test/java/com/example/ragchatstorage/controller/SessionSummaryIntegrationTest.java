@@ -0,0 +1,122 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.metrics.QueryStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SessionSummaryIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String sessionId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String userId = "summary-" + UUID.randomUUID();
+        String json = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"" + userId + "\",\"title\":\"Long\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        sessionId = objectMapper.readTree(json).get("id").asText();
+        for (int i = 1; i <= 50; i++) {
+            mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages")
+                            .header("X-API-KEY", API_KEY)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"sender\":\"USER\",\"content\":\"Turn " + i + "\",\"userId\":\"" + userId + "\"}"))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    @Test
+    void contextView_withoutSummary_shouldReturnWholeHistory() throws Exception {
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/context").header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary").doesNotExist())
+                .andExpect(jsonPath("$.messages.length()").value(50))
+                .andExpect(jsonPath("$.messages[0].seq").value(1));
+    }
+
+    @Test
+    void contextView_shouldReturnLatestSummaryAndOnlyLaterMessagesInOneStatement() throws Exception {
+        // Given
+        mockMvc.perform(summary(20, "Turns 1-20"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.upToSeq").value(20));
+        mockMvc.perform(summary(45, "Turns 1-45"))
+                .andExpect(status().isCreated());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/context").header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.upToSeq").value(45))
+                .andExpect(jsonPath("$.summary.content").value("Turns 1-45"))
+                .andExpect(jsonPath("$.messages.length()").value(5))
+                .andExpect(jsonPath("$.messages[0].seq").value(46))
+                .andExpect(jsonPath("$.messages[4].content").value("Turn 50"));
+        assertEquals(1, QueryStats.current().getStatements());
+    }
+
+    @Test
+    void contextView_withSummaryOfEverything_shouldReturnNoMessages() throws Exception {
+        mockMvc.perform(summary(50, "All of it")).andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/v1/sessions/" + sessionId + "/context").header("X-API-KEY", API_KEY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.upToSeq").value(50))
+                .andExpect(jsonPath("$.messages.length()").value(0));
+    }
+
+    @Test
+    void createSummary_thatDoesNotMoveForwardOrCoversMissingMessages_shouldBeRejected() throws Exception {
+        mockMvc.perform(summary(30, "Turns 1-30")).andExpect(status().isCreated());
+
+        mockMvc.perform(summary(30, "Again")).andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(summary(10, "Older")).andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(summary(51, "Future")).andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(summary(0, "Nothing")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void missingSession_shouldReturn404() throws Exception {
+        String missing = UUID.randomUUID().toString();
+        mockMvc.perform(get("/api/v1/sessions/" + missing + "/context").header("X-API-KEY", API_KEY))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/v1/sessions/" + missing + "/summaries")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"upToSeq\":1,\"content\":\"x\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    private MockHttpServletRequestBuilder summary(long upToSeq, String content) {
+        return post("/api/v1/sessions/" + sessionId + "/summaries")
+                .header("X-API-KEY", API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"upToSeq\":" + upToSeq + ",\"content\":\"" + content + "\"}");
+    }
+}
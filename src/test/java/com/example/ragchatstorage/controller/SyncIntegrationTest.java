@@ -0,0 +1,157 @@
+package com.example.ragchatstorage.controller;
+
+import com.example.ragchatstorage.metrics.QueryStats;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.sync.settle-window=0s")
+@AutoConfigureMockMvc
+class SyncIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String userId;
+    private final List<String> sessionIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userId = "sync-" + UUID.randomUUID();
+        for (int i = 0; i < 3; i++) {
+            String json = mockMvc.perform(post("/api/v1/sessions")
+                            .header("X-API-KEY", API_KEY)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"userId\":\"" + userId + "\",\"title\":\"Session " + i + "\"}"))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString();
+            String sessionId = objectMapper.readTree(json).get("id").asText();
+            sessionIds.add(sessionId);
+            for (int m = 0; m < 10; m++) {
+                addMessage(sessionId, "Message " + m);
+            }
+        }
+    }
+
+    @Test
+    void sync_withoutWatermark_shouldReturnEverything() throws Exception {
+        // When
+        JsonNode response = sync(null);
+
+        // Then
+        assertEquals(3, response.get("sessions").size());
+        assertEquals(30, response.get("messages").size());
+        assertEquals(0, response.get("deletedSessionIds").size());
+        assertFalse(response.get("hasMore").asBoolean());
+    }
+
+    @Test
+    void sync_withWatermark_shouldReturnOnlyChangesAfterIt() throws Exception {
+        // Given
+        String watermark = sync(null).get("watermark").asText();
+        mockMvc.perform(patch("/api/v1/sessions/" + sessionIds.get(0) + "/rename")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Renamed\"}"))
+                .andExpect(status().isOk());
+        addMessage(sessionIds.get(1), "Latest");
+        mockMvc.perform(delete("/api/v1/sessions/" + sessionIds.get(2)).header("X-API-KEY", API_KEY))
+                .andExpect(status().isNoContent());
+
+        // When
+        JsonNode response = sync(watermark);
+
+        // Then - three statements however long the history is
+        assertEquals(3, QueryStats.current().getStatements());
+        assertEquals(1, response.get("sessions").size());
+        assertEquals("Renamed", response.get("sessions").get(0).get("title").asText());
+        assertEquals(1, response.get("messages").size());
+        assertEquals("Latest", response.get("messages").get(0).get("content").asText());
+        assertEquals(1, response.get("deletedSessionIds").size());
+        assertEquals(sessionIds.get(2), response.get("deletedSessionIds").get(0).asText());
+        assertNotEquals(watermark, response.get("watermark").asText());
+
+        // Nothing new
+        JsonNode empty = sync(response.get("watermark").asText());
+        assertEquals(0, empty.get("sessions").size() + empty.get("messages").size()
+                + empty.get("deletedSessionIds").size());
+        assertEquals(response.get("watermark").asText(), empty.get("watermark").asText());
+    }
+
+    @Test
+    void sync_withLimit_shouldPageThroughChanges() throws Exception {
+        // When
+        int messages = 0;
+        String watermark = null;
+        JsonNode response;
+        int calls = 0;
+        do {
+            response = objectMapper.readTree(mockMvc.perform(get("/api/v1/sync")
+                            .param("userId", userId)
+                            .param("limit", "7")
+                            .param("since", watermark != null ? watermark : "")
+                            .header("X-API-KEY", API_KEY))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            messages += response.get("messages").size();
+            watermark = response.get("watermark").asText();
+            calls++;
+        } while (response.get("hasMore").asBoolean());
+
+        // Then - 33 changes in pages of 7
+        assertEquals(30, messages);
+        assertEquals(5, calls);
+    }
+
+    @Test
+    void sync_withWatermarkOfOtherShardOrMalformed_shouldBeRejected() throws Exception {
+        mockMvc.perform(get("/api/v1/sync").param("userId", userId).param("since", "7-1")
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(status().isGone());
+        mockMvc.perform(get("/api/v1/sync").param("userId", userId).param("since", "latest")
+                        .header("X-API-KEY", API_KEY))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400));
+    }
+
+    private JsonNode sync(String since) throws Exception {
+        var request = get("/api/v1/sync").param("userId", userId).header("X-API-KEY", API_KEY);
+        if (since != null) {
+            request.param("since", since);
+        }
+        return objectMapper.readTree(mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private void addMessage(String sessionId, String content) throws Exception {
+        mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"USER\",\"content\":\"" + content + "\",\"userId\":\"" + userId + "\"}"))
+                .andExpect(status().isCreated());
+    }
+}
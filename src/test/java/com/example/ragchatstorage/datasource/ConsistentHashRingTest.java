@@ -0,0 +1,70 @@
+package com.example.ragchatstorage.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final int USERS = 100_000;
+
+    @Test
+    void shardFor_shouldSpreadUsersEvenly() {
+        // Given
+        ConsistentHashRing ring = new ConsistentHashRing(4, 128);
+        int[] perShard = new int[4];
+
+        // When
+        for (int i = 0; i < USERS; i++) {
+            perShard[ring.shardFor(ShardKeys.userToken("user-" + i))]++;
+        }
+
+        // Then - each shard within 20% of its fair share
+        for (int count : perShard) {
+            assertEquals(USERS / 4.0, count, USERS / 4.0 * 0.2);
+        }
+    }
+
+    @Test
+    void appendingShard_shouldOnlyMoveUsersOntoTheNewShard() {
+        // Given
+        ConsistentHashRing before = new ConsistentHashRing(4, 128);
+        ConsistentHashRing after = new ConsistentHashRing(5, 128);
+        int moved = 0;
+
+        // When
+        for (int i = 0; i < USERS; i++) {
+            int token = ShardKeys.userToken("user-" + i);
+            if (before.shardFor(token) != after.shardFor(token)) {
+                assertEquals(4, after.shardFor(token));
+                moved++;
+            }
+        }
+
+        // Then - about a fifth of the users
+        assertEquals(USERS / 5.0, moved, USERS / 5.0 * 0.25);
+    }
+
+    @Test
+    void sessionIds_shouldRouteToTheOwnersShard() {
+        ConsistentHashRing ring = new ConsistentHashRing(8, 128);
+        for (int i = 0; i < 1_000; i++) {
+            String userId = "user-" + i;
+            String sessionId = ShardKeys.newSessionId(userId);
+
+            assertEquals(sessionId, UUID.fromString(sessionId).toString());
+            assertTrue(ShardKeys.isDerived(sessionId));
+            assertEquals(ring.shardFor(ShardKeys.userToken(userId)), ring.shardFor(ShardKeys.sessionToken(sessionId)));
+        }
+    }
+
+    @Test
+    void sessionToken_shouldAcceptIdsNotCreatedBySharding() {
+        assertEquals(0x1234abcd, ShardKeys.sessionToken("1234abcd-0000-4000-8000-000000000000"));
+        assertEquals(ShardKeys.hash("session-1"), ShardKeys.sessionToken("session-1"));
+        assertFalse(ShardKeys.isDerived(UUID.randomUUID().toString()));
+        assertFalse(ShardKeys.isDerived("session-1"));
+    }
+}
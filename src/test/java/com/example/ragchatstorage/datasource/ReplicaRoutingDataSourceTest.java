@@ -0,0 +1,147 @@
+package com.example.ragchatstorage.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routing against two H2 instances, each holding a marker row naming itself.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+    private ReadYourWrites readYourWrites;
+
+    @BeforeEach
+    void setUp() {
+        DataSource routing = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(h2("primary"), List.of(h2("replica"))));
+        jdbc = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readYourWrites = new ReadYourWrites("jdbc:h2:mem:replica", Duration.ofMinutes(1), 100);
+    }
+
+    @Test
+    void readOnlyTransaction_shouldUseReplica() {
+        assertEquals("replica", readOnly.execute(status -> whoAmI()));
+    }
+
+    @Test
+    void readWriteTransactionAndNonTransactionalWork_shouldUsePrimary() {
+        assertEquals("primary", readWrite.execute(status -> whoAmI()));
+        assertEquals("primary", whoAmI());
+    }
+
+    @Test
+    void replicaConfig_shouldCheckReplicaHealthAndClosePoolsOnShutdown() {
+        // Given
+        AtomicReference<ReplicaDataSources> pools = new AtomicReference<>();
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(ReadReplicaConfig.class)
+                .withBean(DataSourceProperties.class, () -> {
+                    DataSourceProperties properties = new DataSourceProperties();
+                    properties.setUrl("jdbc:h2:mem:config-primary");
+                    return properties;
+                })
+                .withPropertyValues("app.datasource.replicas=jdbc:h2:mem:config-replica");
+
+        // When
+        runner.run(context -> {
+            pools.set(context.getBean(ReplicaDataSources.class));
+            CompositeHealthContributor replicas = context.getBean("replicasHealthContributor", CompositeHealthContributor.class);
+
+            // Then
+            assertEquals(Status.UP, ((HealthIndicator) replicas.getContributor("replica-0")).health().getStatus());
+        });
+        assertTrue(pools.get().primary().isClosed());
+        assertTrue(pools.get().replicas().get(0).isClosed());
+    }
+
+    @Test
+    void recentlyWrittenSession_shouldBeReadFromPrimaryThroughFilter() throws Exception {
+        // Given
+        readYourWrites.sessionWritten("s-1");
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(readYourWrites);
+        AtomicReference<String> pinned = new AtomicReference<>();
+        AtomicReference<String> other = new AtomicReference<>();
+
+        // When
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/sessions/s-1/messages"),
+                new MockHttpServletResponse(), (request, response) -> pinned.set(readOnly.execute(status -> whoAmI())));
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/sessions/s-2/messages"),
+                new MockHttpServletResponse(), (request, response) -> other.set(readOnly.execute(status -> whoAmI())));
+
+        // Then
+        assertEquals("primary", pinned.get());
+        assertEquals("replica", other.get());
+        assertFalse(ReadYourWrites.isPrimaryRequired());
+    }
+
+    @Test
+    void recentlyWrittenUser_shouldPinSessionListToPrimary() throws Exception {
+        // Given
+        readYourWrites.userWritten("user-1");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/sessions");
+        request.setParameter("userId", "user-1");
+        AtomicReference<String> result = new AtomicReference<>();
+
+        // When
+        new ReadYourWritesFilter(readYourWrites).doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> result.set(readOnly.execute(status -> whoAmI())));
+
+        // Then
+        assertEquals("primary", result.get());
+    }
+
+    @Test
+    void onPrimary_shouldPinBackgroundReadsToPrimaryOnlyForTheWork() {
+        assertEquals("primary", readYourWrites.onPrimary(() -> readOnly.execute(status -> whoAmI())));
+        assertFalse(ReadYourWrites.isPrimaryRequired());
+        assertEquals("replica", readOnly.execute(status -> whoAmI()));
+    }
+
+    @Test
+    void sessionId_shouldBeExtractedFromApiPath() {
+        assertEquals("abc", ReadYourWritesFilter.sessionId("/api/v1/sessions/abc"));
+        assertEquals("abc", ReadYourWritesFilter.sessionId("/api/v1/sessions/abc/messages/stream"));
+        assertNull(ReadYourWritesFilter.sessionId("/api/v1/sessions"));
+        assertNull(ReadYourWritesFilter.sessionId("/api/v1/sessions/"));
+    }
+
+    private String whoAmI() {
+        return jdbc.queryForObject("select name from node", String.class);
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("create table node (name varchar(20))");
+        setup.update("insert into node values (?)", name);
+        return dataSource;
+    }
+}
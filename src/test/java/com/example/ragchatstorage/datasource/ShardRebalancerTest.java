@@ -0,0 +1,266 @@
+package com.example.ragchatstorage.datasource;
+
+import com.example.ragchatstorage.exception.ShardRebalancingException;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two H2 shards with the session/message tables, routed through ShardRoutingDataSource.
+ */
+class ShardRebalancerTest {
+
+    private final List<DataSource> shards = List.of(shard(), shard());
+    private final DataSource routing = new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards));
+    private ShardRouter router;
+
+    @BeforeEach
+    void setUp() {
+        router = newRouter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.clear();
+        router.shutdown();
+    }
+
+    @Test
+    void moveUser_shouldCopyRowsSwitchRoutingAndCleanUpSource() {
+        // Given
+        String userId = "user-1";
+        int source = router.shardForUser(userId);
+        int target = 1 - source;
+        String sessionId = ShardKeys.newSessionId(userId);
+        insertSession(source, sessionId, userId);
+        insertMessage(source, sessionId, "hello");
+        insertMessage(source, sessionId, "world");
+        new JdbcTemplate(shards.get(source)).update("insert into session_summaries (id, session_id, up_to_seq, content, "
+                + "created_at) values (?, ?, 2, 'summary', ?)", UUID.randomUUID().toString(), sessionId,
+                Timestamp.from(Instant.now()));
+        insertChange(source, sessionId, "SESSION_UPSERT");
+        insertChange(source, sessionId, "MESSAGE_UPSERT");
+
+        // When
+        ShardRebalancer.MoveResult result = new ShardRebalancer(router).moveUser(userId, target);
+
+        // Then
+        assertEquals(new ShardRebalancer.MoveResult(userId, source, target, 1, 2), result);
+        assertEquals(target, router.shardForUser(userId));
+        assertEquals(target, router.shardForSession(sessionId));
+        assertEquals(2, count(target, "chat_messages"));
+        assertEquals(0, count(source, "chat_sessions"));
+        assertEquals(0, count(source, "chat_messages"));
+        assertEquals(List.of("SESSION_UPSERT", "MESSAGE_UPSERT"), new JdbcTemplate(shards.get(target))
+                .queryForList("select change_type from change_log order by id", String.class));
+        assertEquals(0, count(source, "change_log"));
+        assertEquals(1, count(target, "session_summaries"));
+        assertEquals(0, count(source, "session_summaries"));
+
+        // Another instance picks the placement up from the directory
+        ShardRouter other = newRouter();
+        assertEquals(target, other.shardForUser(userId));
+        other.shutdown();
+    }
+
+    @Test
+    void preShardingSessions_shouldStayWithTheirOwnerOnShardZeroUntilMoved() {
+        // Given - a user the ring places on shard 1, with a random session ID listed by migration V12
+        String userId = IntStream.range(0, 100).mapToObj(i -> "legacy-" + i)
+                .filter(user -> router.shardForUser(user) == 1)
+                .findFirst().orElseThrow();
+        String legacyId = UUID.randomUUID().toString();
+        insertSession(0, legacyId, userId);
+        insertMessage(0, legacyId, "from before sharding");
+        new JdbcTemplate(shards.get(0)).update("insert into session_aliases (session_id, user_id) values (?, ?)",
+                legacyId, userId);
+
+        // When
+        ShardRouter restarted = newRouter();
+
+        // Then
+        assertEquals(0, restarted.shardForUser(userId));
+        assertEquals(0, restarted.shardForSession(legacyId));
+        assertEquals(0, restarted.shardForSession(ShardKeys.newSessionId(userId)));
+
+        // When - moved like any other user
+        ShardRebalancer.MoveResult result = new ShardRebalancer(restarted).moveUser(userId, 1);
+
+        // Then
+        assertEquals(new ShardRebalancer.MoveResult(userId, 0, 1, 1, 1), result);
+        assertEquals(1, restarted.shardForSession(legacyId));
+        assertEquals(1, count(1, "chat_messages"));
+        assertEquals(0, count(0, "chat_sessions"));
+        restarted.shutdown();
+    }
+
+    @Test
+    void startMove_shouldRunInTheBackgroundAndReportTheResult() throws InterruptedException {
+        // Given
+        String userId = "user-4";
+        int source = router.shardForUser(userId);
+        insertSession(source, ShardKeys.newSessionId(userId), userId);
+        ShardRebalancer rebalancer = new ShardRebalancer(router);
+
+        // When
+        ShardRebalancer.MoveStatus started = rebalancer.startMove(userId, 1 - source);
+        ShardRebalancer.MoveStatus status = started;
+        for (int i = 0; i < 100 && status.state() == ShardRebalancer.MoveState.RUNNING; i++) {
+            Thread.sleep(50);
+            status = rebalancer.moveStatus(started.moveId()).orElseThrow();
+        }
+
+        // Then
+        assertEquals(ShardRebalancer.MoveState.COMPLETED, status.state());
+        assertEquals(new ShardRebalancer.MoveResult(userId, source, 1 - source, 1, 0), status.result());
+        assertEquals(1 - source, router.shardForUser(userId));
+        assertTrue(rebalancer.moveStatus(UUID.randomUUID().toString()).isEmpty());
+        rebalancer.shutdown();
+    }
+
+    @Test
+    void routeWrite_whileMoving_shouldBeRejectedButReadsStayOnSource() {
+        // Given
+        String userId = "user-2";
+        int source = router.shardForUser(userId);
+        router.beginMove(ShardKeys.userToken(userId), source, 1 - source);
+
+        // When & Then
+        assertThrows(ShardRebalancingException.class, () -> router.routeWriteByUser(userId));
+        router.routeByUser(userId);
+        assertEquals(source, ShardRouter.currentShard());
+    }
+
+    @Test
+    void shardRoutingFilter_shouldClearTheRouteWhenTheRequestEnds() throws Exception {
+        // Given
+        ShardRoutingFilter filter = new ShardRoutingFilter(router);
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                router.routeByUser("user-3");
+                assertEquals(router.shardForUser("user-3"), ShardRouter.currentShard());
+            }
+        });
+
+        // When
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/sessions"), new MockHttpServletResponse(), chain);
+
+        // Then - the next request on this thread starts on the default shard
+        assertNull(ShardRouter.currentShard());
+        router.routeByUser(null);
+        assertNull(ShardRouter.currentShard());
+    }
+
+    @Test
+    void onEachShard_shouldQueryEveryShard() {
+        // Given
+        insertSession(0, ShardKeys.newSessionId("a"), "a");
+        insertSession(1, ShardKeys.newSessionId("b"), "b");
+        insertSession(1, ShardKeys.newSessionId("c"), "c");
+
+        // When
+        List<Integer> counts = router.onEachShard(() ->
+                new JdbcTemplate(routing).queryForObject("select count(*) from chat_sessions", Integer.class));
+
+        // Then
+        assertEquals(List.of(1, 2), counts);
+    }
+
+    @Test
+    void shardingConfig_shouldCheckShardHealthAndClosePoolsOnShutdown() {
+        // Given
+        AtomicReference<ShardDataSources> pools = new AtomicReference<>();
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(ShardingConfig.class)
+                .withBean(DataSourceProperties.class, DataSourceProperties::new)
+                .withPropertyValues("app.sharding.urls=jdbc:h2:mem:config-shard-0,jdbc:h2:mem:config-shard-1");
+
+        // When
+        runner.run(context -> {
+            pools.set(context.getBean(ShardDataSources.class));
+            CompositeHealthContributor health = context.getBean("shardsHealthContributor", CompositeHealthContributor.class);
+
+            // Then
+            assertEquals(Status.UP, ((HealthIndicator) health.getContributor("shard-1")).health().getStatus());
+        });
+        assertTrue(pools.get().shards().stream().allMatch(shard -> ((HikariDataSource) shard).isClosed()));
+    }
+
+    private ShardRouter newRouter() {
+        return new ShardRouter(Optional.of(new ShardDataSources(shards)), 64, Duration.ofMillis(10), 1_000,
+                new DataSourceTransactionManager(routing));
+    }
+
+    private void insertSession(int shard, String id, String userId) {
+        Timestamp now = Timestamp.from(Instant.now());
+        new JdbcTemplate(shards.get(shard)).update(
+                "insert into chat_sessions (id, user_id, title, favorite, created_at, updated_at) values (?, ?, ?, false, ?, ?)",
+                id, userId, "title", now, now);
+    }
+
+    private void insertMessage(int shard, String sessionId, String content) {
+        new JdbcTemplate(shards.get(shard)).update(
+                "insert into chat_messages (id, session_id, sender, content, status, created_at) values (?, ?, 'USER', ?, 'COMPLETE', ?)",
+                UUID.randomUUID().toString(), sessionId, content, Timestamp.from(Instant.now()));
+    }
+
+    private void insertChange(int shard, String sessionId, String type) {
+        new JdbcTemplate(shards.get(shard)).update(
+                "insert into change_log (user_id, session_id, change_type, changed_at) values ('user-1', ?, ?, ?)",
+                sessionId, type, Timestamp.from(Instant.now()));
+    }
+
+    private int count(int shard, String table) {
+        return new JdbcTemplate(shards.get(shard)).queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+    private static DataSource shard() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:shard-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("create table chat_sessions (id varchar(36) primary key, user_id varchar(255) not null, "
+                + "title varchar(500), favorite boolean not null, created_at timestamp(6) not null, updated_at timestamp(6) not null)");
+        setup.execute("create table chat_messages (id varchar(36) primary key, session_id varchar(255) not null, "
+                + "sender varchar(50) not null, content text not null, context json, user_id varchar(255), "
+                + "status varchar(20) not null, created_at timestamp(6) not null)");
+        setup.execute("create table session_summaries (id varchar(36) primary key, session_id varchar(36) not null, "
+                + "up_to_seq bigint not null, content text not null, created_at timestamp(6) not null)");
+        setup.execute("create table change_log (id bigint auto_increment primary key, user_id varchar(255) not null, "
+                + "session_id varchar(36) not null, message_id varchar(36), change_type varchar(20) not null, "
+                + "changed_at timestamp(6) not null)");
+        setup.execute("create table shard_placements (token char(8) primary key, shard int not null, moving_to int, "
+                + "updated_at timestamp(6) not null)");
+        setup.execute("create table session_aliases (session_id varchar(36) primary key, user_id varchar(255) not null, "
+                + "token char(8))");
+        return dataSource;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.ragchatstorage.logging;
+
+import ch.qos.logback.classic.LoggerContext;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogFormatDefinerTest {
+
+    @Test
+    void getPropertyValue_shouldNameTheAppenderOfAKnownFormatInAnyCase() {
+        assertEquals("ASYNC_json", appenderFor("json"));
+        assertEquals("ASYNC_json", appenderFor(" JSON "));
+        assertEquals("ASYNC_plain", appenderFor("Plain"));
+    }
+
+    @Test
+    void getPropertyValue_withUnknownFormat_shouldFallBackToPlain() {
+        assertEquals("ASYNC_plain", appenderFor("jsno"));
+        assertEquals("ASYNC_plain", appenderFor(""));
+        assertEquals("ASYNC_plain", appenderFor(null));
+    }
+
+    private static String appenderFor(String format) {
+        LogFormatDefiner definer = new LogFormatDefiner();
+        definer.setContext(new LoggerContext());
+        definer.setFormat(format);
+        return definer.getPropertyValue();
+    }
+}
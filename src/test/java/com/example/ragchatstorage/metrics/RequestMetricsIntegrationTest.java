@@ -0,0 +1,60 @@
+package com.example.ragchatstorage.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RequestMetricsIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void apiRequests_shouldBeExposedOnPrometheusEndpoint() throws Exception {
+        // Given
+        String sessionJson = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"metrics-user\",\"title\":\"Metrics\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode session = objectMapper.readTree(sessionJson);
+
+        // When
+        mockMvc.perform(post("/api/v1/sessions/{id}/messages", session.get("id").asText())
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"USER\",\"content\":\"Hello\",\"userId\":\"metrics-user\","
+                                + "\"context\":[{\"sourceId\":\"doc-1\",\"snippet\":\"abc\",\"metadata\":{}}]}"))
+                .andExpect(status().isCreated());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then
+        assertTrue(scrape.contains("ragchat_db_queries_count{method=\"POST\",uri=\"/api/v1/sessions/{sessionId}/messages\""));
+        assertTrue(scrape.contains("ragchat_db_time_seconds_bucket"));
+        assertTrue(scrape.contains("ragchat_message_content_length_chars_count"));
+        assertTrue(scrape.contains("ragchat_message_context_items_sum"));
+        assertTrue(scrape.contains("ragchat_service_seconds_count{class=\"com.example.ragchatstorage.service.ChatMessageService\""));
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket"));
+    }
+}
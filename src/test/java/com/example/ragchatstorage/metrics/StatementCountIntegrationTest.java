@@ -0,0 +1,105 @@
+package com.example.ragchatstorage.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Exact number of JDBC statements per endpoint, as tallied by QueryStats for the request.
+ * A change in these numbers is a change in database round trips and should be deliberate.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class StatementCountIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void endpoints_shouldIssueExpectedStatementCounts() throws Exception {
+        // Create session: insert + change log
+        String sessionJson = perform(post("/api/v1/sessions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"count-user\",\"title\":\"Counts\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        assertStatements(2);
+        String sessionId = objectMapper.readTree(sessionJson).get("id").asText();
+
+        // Add message: seq increment + owner/seq projection + insert + change log
+        perform(post("/api/v1/sessions/{id}/messages", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"USER\",\"content\":\"Hello\",\"userId\":\"count-user\"}"))
+                .andExpect(status().isCreated());
+        assertStatements(4);
+
+        perform(post("/api/v1/sessions/{id}/messages", sessionId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"ASSISTANT\",\"content\":\"Hi there\",\"userId\":\"count-user\"}"))
+                .andExpect(status().isCreated());
+        assertStatements(4);
+
+        // Keyed add: key lookup + seq increment + owner/seq projection + insert + change log; the retry is
+        // answered from memory
+        for (int expected : new int[]{5, 0}) {
+            perform(post("/api/v1/sessions/{id}/messages", sessionId)
+                            .header("Idempotency-Key", "turn-3")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"sender\":\"USER\",\"content\":\"Again\",\"userId\":\"count-user\"}"))
+                    .andExpect(status().isCreated());
+            assertStatements(expected);
+        }
+
+        // Message history: watermark for the ETag + seq range (no total lookup, the page is not full)
+        String etag = perform(get("/api/v1/sessions/{id}/messages", sessionId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertStatements(2);
+
+        // Unchanged history: answered from the in-memory ETag
+        perform(get("/api/v1/sessions/{id}/messages", sessionId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertStatements(0);
+
+        // Session list: watermark for the ETag + list
+        perform(get("/api/v1/sessions").param("userId", "count-user"))
+                .andExpect(status().isOk());
+        assertStatements(2);
+
+        // Unchanged session list: ETag and encoded list both held in memory
+        perform(get("/api/v1/sessions").param("userId", "count-user"))
+                .andExpect(status().isOk());
+        assertStatements(0);
+
+        // Sync: changes + changed sessions + changed messages
+        perform(get("/api/v1/sync").param("userId", "count-user"))
+                .andExpect(status().isOk());
+        assertStatements(3);
+    }
+
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request.header("X-API-KEY", API_KEY));
+    }
+
+    private static void assertStatements(int expected) {
+        // MockMvc serves the request on the calling thread, so its tally is still current here
+        assertEquals(expected, QueryStats.current().getStatements());
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.ragchatstorage.outbox;
+
+import com.example.ragchatstorage.model.ChangeType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.outbox.sink=queue",
+        "app.outbox.batch-size=10",
+        "app.outbox.queue-capacity=15",
+        "app.outbox.poll-interval-ms=3600000",
+        "app.sync.settle-window=0s"
+})
+@AutoConfigureMockMvc
+class ChangeFeedRelayIntegrationTest {
+
+    private static final String API_KEY = "changeme";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChangeFeedRelay relay;
+
+    @Autowired
+    private QueueChangeFeedSink sink;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = "feed-" + UUID.randomUUID();
+        // Start from an empty feed
+        List<ChangeEvent> drained = new ArrayList<>();
+        do {
+            drained.clear();
+            relay.relay();
+        } while (sink.drainTo(drained) > 0);
+    }
+
+    @Test
+    void relay_shouldPublishCommittedWritesInOrderWithCurrentState() throws Exception {
+        // Given
+        String first = createSession("First");
+        String second = createSession("Second");
+        addMessage(first, "Hello");
+        mockMvc.perform(patch("/api/v1/sessions/" + first + "/rename")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Renamed\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/v1/sessions/" + second).header("X-API-KEY", API_KEY))
+                .andExpect(status().isNoContent());
+        // Rejected write: rolled back, never published
+        mockMvc.perform(post("/api/v1/sessions/" + first + "/messages")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"USER\",\"content\":\"Hi\",\"userId\":\"someone-else\"}"))
+                .andExpect(status().isUnprocessableEntity());
+
+        // When
+        relay.relay();
+
+        // Then
+        List<ChangeEvent> events = drain();
+        assertEquals(List.of(ChangeType.SESSION_UPSERT, ChangeType.SESSION_UPSERT, ChangeType.MESSAGE_UPSERT,
+                        ChangeType.SESSION_UPSERT, ChangeType.SESSION_DELETE),
+                events.stream().map(ChangeEvent::type).toList());
+        assertEquals("Renamed", events.get(0).session().title());
+        assertNull(events.get(1).session());
+        assertEquals("Hello", events.get(2).message().content());
+        assertEquals(second, events.get(4).sessionId());
+        assertEquals(0.0, meterRegistry.get("ragchat.outbox.lag").gauge().value());
+    }
+
+    @Test
+    void relay_whenSinkRejectsBatch_shouldRedeliverWithoutGapsOrDuplicates() throws Exception {
+        // Given - 1 + 24 changes; the queue takes one batch of 10 but not a second
+        String sessionId = createSession("Busy");
+        for (int i = 0; i < 24; i++) {
+            addMessage(sessionId, "Message " + i);
+        }
+
+        // When
+        relay.relay();
+        List<ChangeEvent> events = new ArrayList<>(drain());
+        assertEquals(10, events.size());
+        assertTrue(meterRegistry.get("ragchat.outbox.failures").counter().count() >= 1);
+        assertTrue(meterRegistry.get("ragchat.outbox.lag").gauge().value() >= 0);
+        relay.relay();
+        events.addAll(drain());
+        relay.relay();
+        events.addAll(drain());
+
+        // Then
+        assertEquals(25, events.size());
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i).id() > events.get(i - 1).id());
+        }
+        assertEquals("Message 23", events.get(24).message().content());
+    }
+
+    private List<ChangeEvent> drain() {
+        List<ChangeEvent> events = new ArrayList<>();
+        sink.drainTo(events);
+        return events.stream().filter(event -> event.userId().equals(userId)).toList();
+    }
+
+    private String createSession(String title) throws Exception {
+        String json = mockMvc.perform(post("/api/v1/sessions")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":\"" + userId + "\",\"title\":\"" + title + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(json).get("id").asText();
+    }
+
+    private void addMessage(String sessionId, String content) throws Exception {
+        mockMvc.perform(post("/api/v1/sessions/" + sessionId + "/messages")
+                        .header("X-API-KEY", API_KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sender\":\"USER\",\"content\":\"" + content + "\",\"userId\":\"" + userId + "\"}"))
+                .andExpect(status().isCreated());
+    }
+}
@@ -1,19 +1,26 @@
 package com.example.ragchatstorage.service;
 
+import com.example.ragchatstorage.datasource.ShardRouter;
 import com.example.ragchatstorage.dto.CreateMessageRequest;
 import com.example.ragchatstorage.exception.NotFoundException;
 import com.example.ragchatstorage.mapper.ChatMessageMapper;
 import com.example.ragchatstorage.model.ChatMessage;
 import com.example.ragchatstorage.model.ChatSession;
 import com.example.ragchatstorage.model.SenderType;
+import com.example.ragchatstorage.repository.ChangeLogRepository;
 import com.example.ragchatstorage.repository.ChatMessageRepository;
 import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.storage.MessageStore;
+import com.example.ragchatstorage.repository.SessionSeq;
+import com.example.ragchatstorage.stream.MessageStreamHub;
+import com.example.ragchatstorage.tokenizer.TokenEstimator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -37,9 +44,30 @@ class ChatMessageServiceTest {
     @Mock
     private ChatMessageRepository messageRepository;
 
+    @Mock
+    private MessageStore messageStore;
+
+    @Mock
+    private ChangeLogRepository changeLogRepository;
+
     @Mock
     private ChatMessageMapper messageMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private IdempotencyCache idempotencyCache;
+
+    @Mock
+    private MessageStreamHub messageStreamHub;
+
+    @Mock
+    private TokenEstimator tokenEstimator;
+
     @InjectMocks
     private ChatMessageService chatMessageService;
 
@@ -72,18 +100,18 @@ class ChatMessageServiceTest {
         String sessionId = "session-1";
         CreateMessageRequest request = new CreateMessageRequest(SenderType.USER, "Test message", "user-123", null);
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession));
+        when(sessionRepository.nextSeq(sessionId, 0)).thenReturn(Optional.of(new SessionSeq(testSession.getUserId(), 1, 0L)));
         when(messageMapper.toEntity(any(CreateMessageRequest.class))).thenReturn(testMessage);
-        when(messageRepository.save(any(ChatMessage.class))).thenReturn(testMessage);
+        when(messageStore.append(any(ChatMessage.class))).thenReturn(testMessage);
 
         // When
         ChatMessage result = chatMessageService.addMessage(sessionId, request);
 
         // Then
         assertNotNull(result);
-        verify(sessionRepository, times(1)).findById(sessionId);
+        verify(sessionRepository, times(1)).nextSeq(sessionId, 0);
         verify(messageMapper, times(1)).toEntity(any(CreateMessageRequest.class));
-        verify(messageRepository, times(1)).save(any(ChatMessage.class));
+        verify(messageStore, times(1)).append(any(ChatMessage.class));
     }
 
     @Test
@@ -92,12 +120,12 @@ class ChatMessageServiceTest {
         String sessionId = "non-existent";
         CreateMessageRequest request = new CreateMessageRequest(SenderType.USER, "Test message", "user-123", null);
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.empty());
+        when(sessionRepository.nextSeq(sessionId, 0)).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(NotFoundException.class, () -> chatMessageService.addMessage(sessionId, request));
-        verify(sessionRepository, times(1)).findById(sessionId);
-        verify(messageRepository, never()).save(any(ChatMessage.class));
+        verify(sessionRepository, times(1)).nextSeq(sessionId, 0);
+        verify(messageStore, never()).append(any(ChatMessage.class));
     }
 
     @Test
@@ -106,13 +134,13 @@ class ChatMessageServiceTest {
         String sessionId = "session-1";
         CreateMessageRequest request = new CreateMessageRequest(SenderType.USER, "Test message", "other-user", null);
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession));
+        when(sessionRepository.nextSeq(sessionId, 0)).thenReturn(Optional.of(new SessionSeq(testSession.getUserId(), 1, 0L)));
         when(messageMapper.toEntity(any(CreateMessageRequest.class))).thenReturn(testMessage);
 
         // When & Then
         assertThrows(NotFoundException.class, () -> chatMessageService.addMessage(sessionId, request));
-        verify(sessionRepository, times(1)).findById(sessionId);
-        verify(messageRepository, never()).save(any(ChatMessage.class));
+        verify(sessionRepository, times(1)).nextSeq(sessionId, 0);
+        verify(messageStore, never()).append(any(ChatMessage.class));
     }
 
     @Test
@@ -124,8 +152,7 @@ class ChatMessageServiceTest {
         Pageable pageable = PageRequest.of(page, size);
         Page<ChatMessage> messagePage = new PageImpl<>(List.of(testMessage));
 
-        when(sessionRepository.existsById(sessionId)).thenReturn(true);
-        when(messageRepository.findBySessionIdOrderByCreatedAtAsc(eq(sessionId), any(Pageable.class)))
+        when(messageRepository.findBySessionIdOrderBySeqAsc(eq(sessionId), any(Pageable.class)))
                 .thenReturn(messagePage);
 
         // When
@@ -134,33 +161,34 @@ class ChatMessageServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
-        verify(sessionRepository, times(1)).existsById(sessionId);
-        verify(messageRepository, times(1)).findBySessionIdOrderByCreatedAtAsc(eq(sessionId), any(Pageable.class));
+        verify(sessionRepository, never()).existsById(sessionId);
+        verify(messageRepository, times(1)).findBySessionIdOrderBySeqAsc(eq(sessionId), any(Pageable.class));
     }
 
     @Test
     void getMessages_whenSessionNotFound_shouldThrowNotFoundException() {
         // Given
         String sessionId = "non-existent";
+        when(messageRepository.findBySessionIdOrderBySeqAsc(eq(sessionId), any(Pageable.class)))
+                .thenReturn(Page.empty());
         when(sessionRepository.existsById(sessionId)).thenReturn(false);
 
         // When & Then
         assertThrows(NotFoundException.class, () -> chatMessageService.getMessages(sessionId, 0, 20));
         verify(sessionRepository, times(1)).existsById(sessionId);
-        verify(messageRepository, never()).findBySessionIdOrderByCreatedAtAsc(any(), any());
     }
 
     @Test
     void deleteMessagesForSession_shouldDeleteMessages() {
         // Given
         String sessionId = "session-1";
-        doNothing().when(messageRepository).deleteBySessionId(sessionId);
+        doNothing().when(messageStore).deleteBySessionId(sessionId);
 
         // When
         chatMessageService.deleteMessagesForSession(sessionId);
 
         // Then
-        verify(messageRepository, times(1)).deleteBySessionId(sessionId);
+        verify(messageStore, times(1)).deleteBySessionId(sessionId);
     }
 }
 
@@ -1,78 +1,66 @@
 package com.example.ragchatstorage.service;
 
+import com.example.ragchatstorage.datasource.ShardRouter;
 import com.example.ragchatstorage.dto.CreateSessionRequest;
 import com.example.ragchatstorage.mapper.ChatSessionMapper;
 import com.example.ragchatstorage.model.ChatSession;
+import com.example.ragchatstorage.repository.ChangeLogRepository;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
 import com.example.ragchatstorage.repository.ChatSessionRepository;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.example.ragchatstorage.storage.MessageStore;
+import com.example.ragchatstorage.repository.SessionSummaryRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.test.context.ContextConfiguration;
-import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
-@ExtendWith({SpringExtension.class, MockitoExtension.class})
-@ContextConfiguration(classes = {ChatSessionServiceCacheTest.TestConfig.class})
+@ExtendWith(MockitoExtension.class)
 class ChatSessionServiceCacheTest {
 
     @Mock
     private ChatSessionRepository sessionRepository;
 
+    @Mock
+    private ChatMessageRepository messageRepository;
+
+    @Mock
+    private MessageStore messageStore;
+
+    @Mock
+    private ChangeLogRepository changeLogRepository;
+
+    @Mock
+    private SessionSummaryRepository summaryRepository;
+
     @Mock
     private ChatSessionMapper sessionMapper;
 
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+
+    @Mock
+    private ShardRouter shardRouter;
+
+
     private ChatSessionService chatSessionService;
-    private CacheManager cacheManager;
     private ChatSession testSession;
 
-    @Configuration
-    @EnableCaching
-    static class TestConfig {
-        @Bean
-        public CacheManager cacheManager() {
-            CaffeineCacheManager cacheManager = new CaffeineCacheManager("sessions", "userSessions");
-            cacheManager.setCaffeine(Caffeine.newBuilder()
-                    .maximumSize(100)
-                    .expireAfterWrite(10, TimeUnit.MINUTES));
-            return cacheManager;
-        }
-    }
-
     @BeforeEach
     void setUp() {
-        // Initialize cache manager from test config
-        cacheManager = TestConfig.class.getAnnotation(Configuration.class) != null
-            ? new TestConfig().cacheManager()
-            : null;
-
         // Create service with mocks
-        chatSessionService = new ChatSessionService(sessionRepository, sessionMapper);
-
-        // Clear all caches before each test
-        if (cacheManager != null) {
-            cacheManager.getCacheNames().forEach(cacheName -> {
-                var cache = cacheManager.getCache(cacheName);
-                if (cache != null) {
-                    cache.clear();
-                }
-            });
-        }
+        chatSessionService = new ChatSessionService(sessionRepository, messageRepository, messageStore, changeLogRepository, summaryRepository, sessionMapper, eventPublisher, shardRouter);
 
         testSession = ChatSession.builder()
                 .id("session-1")
@@ -117,16 +105,17 @@ class ChatSessionServiceCacheTest {
     @Test
     void renameSession_shouldUpdateTitle() {
         // Given
+        when(sessionRepository.updateTitle(eq("session-1"), eq("New Title"), any(Instant.class), isNull())).thenReturn(1);
         when(sessionRepository.findById("session-1")).thenReturn(Optional.of(testSession));
-        when(sessionRepository.save(any(ChatSession.class))).thenReturn(testSession);
 
         // When
-        ChatSession updated = chatSessionService.renameSession("session-1", "New Title");
+        ChatSession updated = chatSessionService.renameSession("session-1", "New Title", null);
 
-        // Then
+        // Then - only the owner's cached lists are evicted
         assertNotNull(updated);
         verify(sessionRepository, times(1)).findById("session-1");
-        verify(sessionRepository, times(1)).save(any(ChatSession.class));
+        verify(eventPublisher).publishEvent(new SessionListChangedEvent("user-123"));
+        verify(eventPublisher, times(1)).publishEvent(any(SessionListChangedEvent.class));
     }
 
     @Test
@@ -144,6 +133,7 @@ class ChatSessionServiceCacheTest {
         assertNotNull(result);
         verify(sessionMapper, times(1)).toEntity(any(CreateSessionRequest.class));
         verify(sessionRepository, times(1)).save(any(ChatSession.class));
+        verify(eventPublisher).publishEvent(new SessionListChangedEvent("user-123"));
     }
 
     @Test
@@ -158,6 +148,7 @@ class ChatSessionServiceCacheTest {
         // Then
         verify(sessionRepository, times(1)).findById("session-1");
         verify(sessionRepository, times(1)).delete(any(ChatSession.class));
+        verify(eventPublisher).publishEvent(new SessionListChangedEvent("user-123"));
     }
 
     @Test
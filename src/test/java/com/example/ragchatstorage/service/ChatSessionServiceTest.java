@@ -1,20 +1,29 @@
 package com.example.ragchatstorage.service;
 
+import com.example.ragchatstorage.datasource.ShardRouter;
 import com.example.ragchatstorage.dto.CreateSessionRequest;
 import com.example.ragchatstorage.exception.NotFoundException;
+import com.example.ragchatstorage.exception.PreconditionFailedException;
 import com.example.ragchatstorage.mapper.ChatSessionMapper;
 import com.example.ragchatstorage.model.ChatSession;
+import com.example.ragchatstorage.repository.ChangeLogRepository;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
 import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.storage.MessageStore;
+import com.example.ragchatstorage.repository.SessionSummaryRepository;
+import com.example.ragchatstorage.stream.SessionDeletedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -26,9 +35,30 @@ class ChatSessionServiceTest {
     @Mock
     private ChatSessionRepository sessionRepository;
 
+    @Mock
+    private ChatMessageRepository messageRepository;
+
+    @Mock
+    private MessageStore messageStore;
+
+    @Mock
+    private ChangeLogRepository changeLogRepository;
+
+    @Mock
+    private SessionSummaryRepository summaryRepository;
+
     @Mock
     private ChatSessionMapper sessionMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private SessionListCache sessionListCache;
+
     @InjectMocks
     private ChatSessionService chatSessionService;
 
@@ -126,32 +156,55 @@ class ChatSessionServiceTest {
         // Given
         String sessionId = "session-1";
         String newTitle = "Updated Title";
+        when(sessionRepository.updateTitle(eq(sessionId), eq(newTitle), any(Instant.class), isNull())).thenReturn(1);
         when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession));
-        when(sessionRepository.save(any(ChatSession.class))).thenReturn(testSession);
 
         // When
-        ChatSession result = chatSessionService.renameSession(sessionId, newTitle);
+        ChatSession result = chatSessionService.renameSession(sessionId, newTitle, null);
 
         // Then
         assertNotNull(result);
-        verify(sessionRepository, times(1)).findById(sessionId);
-        verify(sessionRepository, times(1)).save(any(ChatSession.class));
+        verify(sessionRepository, times(1)).updateTitle(eq(sessionId), eq(newTitle), any(Instant.class), isNull());
+        verify(sessionRepository, never()).save(any(ChatSession.class));
+    }
+
+    @Test
+    void renameSession_withStaleVersion_shouldThrowPreconditionFailedException() {
+        // Given
+        String sessionId = "session-1";
+        when(sessionRepository.updateTitle(eq(sessionId), anyString(), any(Instant.class), eq(3L))).thenReturn(0);
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession));
+
+        // When & Then
+        assertThrows(PreconditionFailedException.class,
+                () -> chatSessionService.renameSession(sessionId, "Updated Title", 3L));
+        verify(eventPublisher, never()).publishEvent(any(SessionListChangedEvent.class));
+    }
+
+    @Test
+    void renameSession_whenSessionNotFound_shouldThrowNotFoundException() {
+        // Given
+        when(sessionRepository.updateTitle(eq("missing"), anyString(), any(Instant.class), isNull())).thenReturn(0);
+        when(sessionRepository.findById("missing")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(NotFoundException.class, () -> chatSessionService.renameSession("missing", "Title", null));
     }
 
     @Test
     void markFavorite_shouldUpdateFavoriteStatus() {
         // Given
         String sessionId = "session-1";
+        when(sessionRepository.updateFavorite(eq(sessionId), eq(true), any(Instant.class), eq(0L))).thenReturn(1);
         when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(testSession));
-        when(sessionRepository.save(any(ChatSession.class))).thenReturn(testSession);
 
         // When
-        ChatSession result = chatSessionService.markFavorite(sessionId, true);
+        ChatSession result = chatSessionService.markFavorite(sessionId, true, 0L);
 
         // Then
         assertNotNull(result);
-        verify(sessionRepository, times(1)).findById(sessionId);
-        verify(sessionRepository, times(1)).save(any(ChatSession.class));
+        verify(sessionRepository, times(1)).updateFavorite(eq(sessionId), eq(true), any(Instant.class), eq(0L));
+        verify(sessionRepository, never()).save(any(ChatSession.class));
     }
 
     @Test
@@ -168,5 +221,51 @@ class ChatSessionServiceTest {
         verify(sessionRepository, times(1)).findById(sessionId);
         verify(sessionRepository, times(1)).delete(any(ChatSession.class));
     }
-}
 
+    @Test
+    void bulkMarkFavorite_shouldIssueOneUpdateAndInvalidateUserOnce() {
+        // Given
+        when(sessionRepository.updateFavoriteForUser(eq("user-123"), anyCollection(), eq(true), any(Instant.class)))
+                .thenReturn(2);
+
+        // When
+        int affected = chatSessionService.markFavorite("user-123", List.of("session-1", "session-2", "session-1"), true);
+
+        // Then
+        assertEquals(2, affected);
+        verify(sessionRepository).updateFavoriteForUser(eq("user-123"), eq(Set.of("session-1", "session-2")),
+                eq(true), any(Instant.class));
+        verify(eventPublisher, times(1)).publishEvent(new SessionListChangedEvent("user-123"));
+        verify(sessionRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void bulkDeleteSessions_shouldDeleteOnlyOwnedSessionsAndTheirMessages() {
+        // Given
+        when(sessionRepository.findIdsByUserIdAndIdIn(eq("user-123"), anyCollection())).thenReturn(List.of("session-1"));
+        when(sessionRepository.deleteForUser("user-123", List.of("session-1"))).thenReturn(1);
+
+        // When
+        int deleted = chatSessionService.deleteSessions("user-123", List.of("session-1", "other-users-session"));
+
+        // Then
+        assertEquals(1, deleted);
+        verify(messageStore).deleteBySessionIdIn(List.of("session-1"));
+        verify(eventPublisher, times(1)).publishEvent(any(SessionDeletedEvent.class));
+        verify(eventPublisher, times(1)).publishEvent(new SessionListChangedEvent("user-123"));
+    }
+
+    @Test
+    void bulkDeleteSessions_whenNoneOwned_shouldNotDelete() {
+        // Given
+        when(sessionRepository.findIdsByUserIdAndIdIn(eq("user-123"), anyCollection())).thenReturn(List.of());
+
+        // When
+        int deleted = chatSessionService.deleteSessions("user-123", List.of("other-users-session"));
+
+        // Then
+        assertEquals(0, deleted);
+        verify(messageStore, never()).deleteBySessionIdIn(anyCollection());
+        verify(sessionRepository, never()).deleteForUser(anyString(), anyCollection());
+    }
+}
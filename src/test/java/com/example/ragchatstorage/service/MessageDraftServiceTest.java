@@ -0,0 +1,217 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.datasource.ShardRouter;
+import com.example.ragchatstorage.exception.BusinessException;
+import com.example.ragchatstorage.exception.NotFoundException;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.MessageStatus;
+import com.example.ragchatstorage.model.SenderType;
+import com.example.ragchatstorage.repository.ChangeLogRepository;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
+import com.example.ragchatstorage.repository.ChatSessionRepository;
+import com.example.ragchatstorage.repository.SessionSeq;
+import com.example.ragchatstorage.storage.MessageStore;
+import com.example.ragchatstorage.stream.MessageCreatedEvent;
+import com.example.ragchatstorage.tokenizer.CharacterTokenEstimator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageDraftServiceTest {
+
+    @Mock
+    private ChatSessionRepository sessionRepository;
+
+    @Mock
+    private ChatMessageRepository messageRepository;
+
+    @Mock
+    private MessageStore messageStore;
+
+    @Mock
+    private ChangeLogRepository changeLogRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MessageDraftService draftService;
+
+    @BeforeEach
+    void setUp() {
+        draftService = new MessageDraftService(sessionRepository, messageRepository, messageStore, changeLogRepository,
+                eventPublisher, shardRouter, new CharacterTokenEstimator(4), transactionManager,
+                10, 60_000, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void appendChunk_shouldCoalesceChunksUntilFlushSize() {
+        // Given
+        openDraft("draft-1");
+        when(messageRepository.appendContent(anyString(), anyString())).thenReturn(1);
+
+        // When
+        draftService.appendChunk("session-1", "draft-1", "Hel");
+        draftService.appendChunk("session-1", "draft-1", "lo, ");
+        draftService.appendChunk("session-1", "draft-1", "world");
+
+        // Then
+        verify(messageRepository, times(1)).appendContent("draft-1", "Hello, world");
+    }
+
+    @Test
+    void flushDue_shouldWritePendingChunksAfterInterval() throws InterruptedException {
+        // Given
+        draftService = new MessageDraftService(sessionRepository, messageRepository, messageStore, changeLogRepository,
+                eventPublisher, shardRouter, new CharacterTokenEstimator(4), transactionManager,
+                1024, 50, Duration.ofMinutes(10));
+        openDraft("draft-1");
+        when(messageRepository.appendContent(anyString(), anyString())).thenReturn(1);
+        draftService.appendChunk("session-1", "draft-1", "partial");
+        verify(messageRepository, never()).appendContent(anyString(), anyString());
+
+        // When
+        Thread.sleep(60);
+        draftService.flushDue();
+
+        // Then
+        verify(messageRepository).appendContent("draft-1", "partial");
+        assertEquals(1, draftService.openDrafts());
+    }
+
+    @Test
+    void flushDue_afterIdleTimeout_shouldFinalizeDraftWithFlushedContent() throws InterruptedException {
+        // Given
+        draftService = new MessageDraftService(sessionRepository, messageRepository, messageStore, changeLogRepository,
+                eventPublisher, shardRouter, new CharacterTokenEstimator(4), transactionManager,
+                1024, 60_000, Duration.ofMillis(20));
+        openDraft("draft-1");
+        when(messageRepository.appendContent("draft-1", "partial")).thenReturn(1);
+        when(messageRepository.findById("draft-1")).thenReturn(Optional.of(draft("draft-1", "partial")));
+        when(messageRepository.completeDraft("draft-1", 2)).thenReturn(1);
+        draftService.appendChunk("session-1", "draft-1", "partial");
+
+        // When
+        Thread.sleep(30);
+        draftService.flushDue();
+
+        // Then
+        verify(messageRepository).appendContent("draft-1", "partial");
+        verify(messageRepository).completeDraft("draft-1", 2);
+        verify(transactionManager).commit(any());
+        verify(eventPublisher).publishEvent(any(MessageCreatedEvent.class));
+        assertEquals(0, draftService.openDrafts());
+    }
+
+    @Test
+    void finalizeDraft_shouldFlushRemainderCompleteAndPublish() {
+        // Given
+        openDraft("draft-1");
+        draftService.appendChunk("session-1", "draft-1", "tail");
+        when(messageRepository.appendContent("draft-1", "tail")).thenReturn(1);
+        when(messageRepository.findById("draft-1")).thenReturn(Optional.of(draft("draft-1", "tail")));
+        when(messageRepository.completeDraft("draft-1", 1)).thenReturn(1);
+
+        // When
+        ChatMessage result = draftService.finalizeDraft("session-1", "draft-1");
+
+        // Then
+        assertEquals(MessageStatus.COMPLETE, result.getStatus());
+        assertEquals("tail", result.getContent());
+        assertEquals(0, draftService.openDrafts());
+        verify(eventPublisher).publishEvent(any(MessageCreatedEvent.class));
+    }
+
+    @Test
+    void finalizeDraft_whenRolledBack_shouldKeepTailPending() {
+        // Given
+        openDraft("draft-1");
+        draftService.appendChunk("session-1", "draft-1", "tail");
+        when(messageRepository.appendContent(eq("draft-1"), anyString())).thenReturn(1);
+        when(messageRepository.findById("draft-1")).thenReturn(Optional.of(draft("draft-1", "tail")));
+        when(sessionRepository.addTokens("session-1", 1)).thenThrow(new IllegalStateException("connection lost"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        try {
+            assertThrows(IllegalStateException.class, () -> draftService.finalizeDraft("session-1", "draft-1"));
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        draftService.appendChunk("session-1", "draft-1", " and more");
+
+        // Then
+        assertEquals(1, draftService.openDrafts());
+        verify(messageRepository).appendContent("draft-1", "tail and more");
+    }
+
+    @Test
+    void appendChunk_toFinalizedMessage_shouldThrowBusinessException() {
+        // Given
+        ChatMessage complete = draft("message-1", "done");
+        complete.setStatus(MessageStatus.COMPLETE);
+        when(messageRepository.findById("message-1")).thenReturn(Optional.of(complete));
+
+        // When & Then
+        assertThrows(BusinessException.class, () -> draftService.appendChunk("session-1", "message-1", "more"));
+        verify(messageRepository, never()).appendContent(anyString(), anyString());
+    }
+
+    @Test
+    void appendChunk_toMessageOfOtherSession_shouldThrowNotFoundException() {
+        // Given
+        openDraft("draft-1");
+
+        // When & Then
+        assertThrows(NotFoundException.class, () -> draftService.appendChunk("session-2", "draft-1", "x"));
+    }
+
+    private void openDraft(String id) {
+        when(sessionRepository.nextSeq("session-1", 0)).thenReturn(Optional.of(new SessionSeq("user-123", 1, 0L)));
+        when(messageRepository.save(any(ChatMessage.class))).thenAnswer(invocation -> {
+            ChatMessage message = invocation.getArgument(0);
+            message.setId(id);
+            return message;
+        });
+        when(messageStore.relational()).thenReturn(true);
+        ChatMessage opened = draftService.openDraft("session-1", null);
+        assertEquals(MessageStatus.STREAMING, opened.getStatus());
+        assertEquals(SenderType.ASSISTANT, opened.getSender());
+    }
+
+    private static ChatMessage draft(String id, String content) {
+        return ChatMessage.builder()
+                .id(id)
+                .sessionId("session-1")
+                .sender(SenderType.ASSISTANT)
+                .content(content)
+                .status(MessageStatus.STREAMING)
+                .createdAt(Instant.now())
+                .build();
+    }
+}
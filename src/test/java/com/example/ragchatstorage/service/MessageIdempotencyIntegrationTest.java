@@ -0,0 +1,105 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.dto.CreateMessageRequest;
+import com.example.ragchatstorage.dto.CreateSessionRequest;
+import com.example.ragchatstorage.exception.BusinessException;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.SenderType;
+import com.example.ragchatstorage.repository.ChatMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class MessageIdempotencyIntegrationTest {
+
+    @Autowired
+    private ChatSessionService sessionService;
+
+    @Autowired
+    private ChatMessageService messageService;
+
+    @Autowired
+    private ChatMessageRepository messageRepository;
+
+    @Test
+    void concurrentDuplicates_shouldCreateOneMessage() throws Exception {
+        // Given
+        String sessionId = sessionService.createSession(new CreateSessionRequest("idem-user", "Retries")).getId();
+        CreateMessageRequest request = new CreateMessageRequest(SenderType.USER, "Only once", "idem-user", null);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<ChatMessage>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return messageService.addMessage(sessionId, request, "key-1");
+                }));
+            }
+            start.countDown();
+        }
+
+        // Then
+        Set<String> ids = new HashSet<>();
+        for (Future<ChatMessage> result : results) {
+            ids.add(result.get().getId());
+        }
+        assertEquals(1, ids.size());
+        assertEquals(1, messageRepository.findBySessionIdOrderBySeqAsc(sessionId, PageRequest.of(0, 10))
+                .getTotalElements());
+    }
+
+    @Test
+    void keyWrittenByAnotherInstance_shouldResolveThroughTheStoredKey() {
+        // Given - a message stored with the key but never seen by this instance's cache
+        String sessionId = sessionService.createSession(new CreateSessionRequest("idem-user", "Other instance")).getId();
+        ChatMessage stored = messageRepository.save(ChatMessage.builder()
+                .sessionId(sessionId)
+                .sender(SenderType.USER)
+                .content("Stored key")
+                .userId("idem-user")
+                .idempotencyKey("key-2")
+                .createdAt(Instant.now())
+                .build());
+
+        // When
+        ChatMessage result = messageService.addMessage(sessionId,
+                new CreateMessageRequest(SenderType.USER, "Stored key", "idem-user", null), "key-2");
+
+        // Then
+        assertEquals(stored.getId(), result.getId());
+        assertEquals(1, messageRepository.findBySessionIdOrderBySeqAsc(sessionId, PageRequest.of(0, 10))
+                .getTotalElements());
+    }
+
+    @Test
+    void reusedKeyForDifferentMessage_shouldBeRejected() {
+        // Given
+        String sessionId = sessionService.createSession(new CreateSessionRequest("idem-user", "Reuse")).getId();
+        messageService.addMessage(sessionId,
+                new CreateMessageRequest(SenderType.USER, "First", "idem-user", null), "key-3");
+
+        // When & Then
+        assertThrows(BusinessException.class, () -> messageService.addMessage(sessionId,
+                new CreateMessageRequest(SenderType.USER, "Second", "idem-user", null), "key-3"));
+        Set<String> contents = messageRepository.findBySessionIdOrderBySeqAsc(sessionId, PageRequest.of(0, 10))
+                .stream().map(ChatMessage::getContent).collect(Collectors.toSet());
+        assertEquals(Set.of("First"), contents);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.dto.CreateMessageRequest;
+import com.example.ragchatstorage.dto.CreateSessionRequest;
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.exception.BusinessException;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.SenderType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class MessageSeqIntegrationTest {
+
+    @Autowired
+    private ChatSessionService sessionService;
+
+    @Autowired
+    private ChatMessageService messageService;
+
+    @Test
+    void concurrentAdds_shouldGetGaplessSeqs() throws Exception {
+        // Given
+        String sessionId = sessionService.createSession(new CreateSessionRequest("seq-user", "Seq")).getId();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<ChatMessage>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 20; i++) {
+                int turn = i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    SenderType sender = turn % 2 == 0 ? SenderType.USER : SenderType.ASSISTANT;
+                    return messageService.addMessage(sessionId,
+                            new CreateMessageRequest(sender, "turn " + turn, "seq-user", null));
+                }));
+            }
+            start.countDown();
+        }
+
+        // Then
+        List<Long> seqs = new ArrayList<>();
+        for (Future<ChatMessage> result : results) {
+            seqs.add(result.get().getSeq());
+        }
+        assertEquals(LongStream.rangeClosed(1, 20).boxed().toList(), seqs.stream().sorted().toList());
+    }
+
+    @Test
+    void rejectedAdd_shouldNotConsumeSeq() {
+        // Given
+        String sessionId = sessionService.createSession(new CreateSessionRequest("seq-owner", "Seq")).getId();
+        messageService.addMessage(sessionId, new CreateMessageRequest(SenderType.USER, "first", "seq-owner", null));
+
+        // When
+        assertThrows(BusinessException.class, () -> messageService.addMessage(sessionId,
+                new CreateMessageRequest(SenderType.USER, "intruder", "someone-else", null)));
+        ChatMessage next = messageService.addMessage(sessionId,
+                new CreateMessageRequest(SenderType.ASSISTANT, "second", "seq-owner", null));
+
+        // Then
+        assertEquals(2, next.getSeq());
+    }
+
+    @Test
+    void getMessageResponses_shouldReadPagesAsSeqRanges() {
+        // Given
+        String sessionId = sessionService.createSession(new CreateSessionRequest("seq-pages", "Seq")).getId();
+        for (int i = 1; i <= 7; i++) {
+            messageService.addMessage(sessionId, new CreateMessageRequest(SenderType.USER, "m" + i, "seq-pages", null));
+        }
+
+        // When
+        Page<MessageResponse> full = messageService.getMessageResponses(sessionId, 1, 3);
+        Page<MessageResponse> last = messageService.getMessageResponses(sessionId, 2, 3);
+        Page<MessageResponse> beyond = messageService.getMessageResponses(sessionId, 5, 3);
+
+        // Then
+        assertEquals(List.of(4L, 5L, 6L), full.getContent().stream().map(MessageResponse::seq).toList());
+        assertEquals(7, full.getTotalElements());
+        assertFalse(full.isLast());
+        assertEquals(List.of("m7"), last.getContent().stream().map(MessageResponse::content).toList());
+        assertTrue(last.isLast());
+        assertTrue(beyond.getContent().isEmpty());
+        assertEquals(7, beyond.getTotalElements());
+    }
+}
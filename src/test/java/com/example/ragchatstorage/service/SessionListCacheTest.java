@@ -0,0 +1,146 @@
+package com.example.ragchatstorage.service;
+
+import com.example.ragchatstorage.dto.SessionResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionListCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final AtomicInteger loads = new AtomicInteger();
+    private SessionListCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SessionListCache(objectMapper, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void get_withUnchangedETag_shouldReturnEncodedListWithoutLoading() throws IOException {
+        // Given
+        byte[] first = cache.get("user-1", null, "s1.a", loader("First"));
+
+        // When
+        byte[] second = cache.get("user-1", null, "s1.a", loader("Second"));
+
+        // Then
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        JsonNode json = objectMapper.readTree(second);
+        assertEquals("First", json.get(0).get("title").asText());
+        assertEquals("user-1", json.get(0).get("userId").asText());
+    }
+
+    @Test
+    void get_withChangedETag_shouldLoadAgain() throws IOException {
+        cache.get("user-1", null, "s1.a", loader("First"));
+
+        byte[] json = cache.get("user-1", null, "s1.b", loader("Renamed"));
+
+        assertEquals(2, loads.get());
+        assertEquals("Renamed", objectMapper.readTree(json).get(0).get("title").asText());
+    }
+
+    @Test
+    void invalidate_shouldEvictEveryFilterOfTheUserOnly() {
+        // Given
+        cache.get("user-1", null, "s1.a", loader("All"));
+        cache.get("user-1", true, "s1.a", loader("Favorites"));
+        cache.get("user-2", null, "s1.a", loader("Other"));
+
+        // When
+        cache.invalidate("user-1");
+
+        // Then
+        cache.get("user-1", null, "s1.a", loader("All"));
+        cache.get("user-1", true, "s1.a", loader("Favorites"));
+        cache.get("user-2", null, "s1.a", loader("Other"));
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void get_underConcurrentMisses_shouldLoadOncePerKey() throws Exception {
+        // Given - loads block until every request has arrived
+        int requests = 32;
+        CountDownLatch arrived = new CountDownLatch(requests);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger allLoads = new AtomicInteger();
+        AtomicInteger favoriteLoads = new AtomicInteger();
+        List<Future<byte[]>> results = new ArrayList<>();
+
+        // When - a herd of requests for two filters of the same user
+        try (ExecutorService executor = Executors.newFixedThreadPool(requests)) {
+            for (int i = 0; i < requests; i++) {
+                Boolean favorite = i % 2 == 0 ? null : true;
+                AtomicInteger counter = favorite == null ? allLoads : favoriteLoads;
+                results.add(executor.submit(() -> {
+                    arrived.countDown();
+                    return cache.get("user-1", favorite, "s1.a", () -> {
+                        counter.incrementAndGet();
+                        await(release);
+                        return loader("Title").get();
+                    });
+                }));
+            }
+            assertTrue(arrived.await(10, TimeUnit.SECONDS));
+            release.countDown();
+
+            // Then
+            for (Future<byte[]> result : results) {
+                assertEquals("Title", objectMapper.readTree(result.get(10, TimeUnit.SECONDS)).get(0).get("title").asText());
+            }
+        }
+        assertEquals(1, allLoads.get());
+        assertEquals(1, favoriteLoads.get());
+    }
+
+    @Test
+    void get_whenTheLoadFails_shouldFailWaitersAndLoadAgainNextTime() {
+        // Given
+        IllegalStateException failure = new IllegalStateException("database down");
+
+        // When
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> cache.get("user-1", null, "s1.a", () -> { throw failure; }));
+
+        // Then
+        assertSame(failure, thrown);
+        cache.get("user-1", null, "s1.a", loader("Recovered"));
+        assertEquals(1, loads.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Supplier<List<SessionResponse>> loader(String title) {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(new SessionResponse("session-1", "user-1", title, false, Instant.EPOCH, Instant.EPOCH,
+                    0, null, null));
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.ragchatstorage.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+class JpaMessageStoreTest extends MessageStoreConformanceTest {
+
+    @Autowired
+    private JpaMessageStore store;
+
+    @Override
+    protected MessageStore store() {
+        return store;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.ragchatstorage.storage;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.ContextItem;
+import com.example.ragchatstorage.model.SenderType;
+import com.example.ragchatstorage.repository.Watermark;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every MessageStore must share, run against each engine by a subclass.
+ */
+abstract class MessageStoreConformanceTest {
+
+    private final Instant start = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    protected abstract MessageStore store();
+
+    @Test
+    void append_thenRangeRead_shouldReturnMessagesInSeqOrderWithAllFields() {
+        // Given
+        String sessionId = newSessionId();
+        appendTurns(sessionId, 1, 4);
+
+        // When
+        List<MessageResponse> page = store().findResponsesBySeqRange(sessionId, 1, 4);
+
+        // Then
+        assertEquals(List.of(1L, 2L, 3L, 4L), page.stream().map(MessageResponse::seq).toList());
+        MessageResponse user = page.get(0);
+        assertNotNull(user.id());
+        assertEquals(sessionId, user.sessionId());
+        assertEquals("USER", user.sender());
+        assertEquals("Turn 1 ✓", user.content());
+        assertEquals("user-1", user.userId());
+        assertNull(user.context());
+        assertEquals(start.plusMillis(1), user.createdAt());
+        assertEquals("COMPLETE", user.status());
+        assertEquals(3, user.tokenCount());
+
+        MessageResponse assistant = page.get(1);
+        assertEquals("ASSISTANT", assistant.sender());
+        assertNull(assistant.userId());
+        assertEquals(1, assistant.context().size());
+        assertEquals("doc-2", assistant.context().get(0).get("sourceId"));
+        assertEquals("Passage", assistant.context().get(0).get("snippet"));
+        assertEquals(Map.of("page", 2), assistant.context().get(0).get("metadata"));
+    }
+
+    @Test
+    void rangeRead_shouldReturnOnlyStoredSeqsOfTheSession() {
+        // Given
+        String sessionId = newSessionId();
+        String other = newSessionId();
+        appendTurns(sessionId, 1, 5);
+        appendTurns(other, 1, 2);
+
+        // When & Then
+        assertEquals(List.of(4L, 5L), store().findResponsesBySeqRange(sessionId, 4, 100).stream()
+                .map(MessageResponse::seq).toList());
+        assertTrue(store().findResponsesBySeqRange(sessionId, 6, 10).isEmpty());
+        assertTrue(store().findResponsesBySeqRange(newSessionId(), 1, 10).isEmpty());
+    }
+
+    @Test
+    void findByIdempotencyKey_shouldReturnKeyedMessageAndRejectItsReuse() {
+        // Given
+        String sessionId = newSessionId();
+        appendTurns(sessionId, 1, 1);
+        ChatMessage keyed = message(sessionId, 2);
+        keyed.setIdempotencyKey("key-1");
+        String id = store().append(keyed).getId();
+
+        // When
+        ChatMessage found = store().findByIdempotencyKey(sessionId, "key-1").orElseThrow();
+
+        // Then
+        assertEquals(id, found.getId());
+        assertEquals(2, found.getSeq());
+        assertEquals("Turn 2 ✓", found.getContent());
+        assertEquals(SenderType.ASSISTANT, found.getSender());
+        assertTrue(store().findByIdempotencyKey(sessionId, "key-2").isEmpty());
+        assertTrue(store().findByIdempotencyKey(newSessionId(), "key-1").isEmpty());
+
+        ChatMessage reused = message(sessionId, 3);
+        reused.setIdempotencyKey("key-1");
+        assertThrows(DataIntegrityViolationException.class, () -> store().append(reused));
+    }
+
+    @Test
+    void findWindow_shouldReturnNewestMessagesWithinTheBudget() {
+        // Given - 3 tokens each, running totals 3, 6, ..., 30
+        String sessionId = newSessionId();
+        appendTurns(sessionId, 1, 10);
+
+        // When & Then - at most 10 tokens: threshold 30 - 10
+        assertEquals(List.of(8L, 9L, 10L), store().findWindowBySeqRange(sessionId, 1, 10, 20).stream()
+                .map(MessageResponse::seq).toList());
+        assertEquals(List.of(8L, 9L), store().findWindowBySeqRange(sessionId, 1, 9, 20).stream()
+                .map(MessageResponse::seq).toList());
+        assertEquals(10, store().findWindowBySeqRange(sessionId, 1, 10, 0).size());
+        assertTrue(store().findWindowBySeqRange(sessionId, 1, 10, 28).isEmpty());
+        assertEquals(18L, store().findCumulativeTokens(sessionId, 6).orElseThrow());
+        assertTrue(store().findCumulativeTokens(sessionId, 11).isEmpty());
+    }
+
+    @Test
+    void findWatermark_shouldCountMessagesAndTrackTheLatest() {
+        // Given
+        String sessionId = newSessionId();
+        assertEquals(0, store().findWatermark(sessionId).count());
+        appendTurns(sessionId, 1, 3);
+
+        // When
+        Watermark watermark = store().findWatermark(sessionId);
+
+        // Then
+        assertEquals(3, watermark.count());
+        assertEquals(start.plusMillis(3), watermark.latest());
+        assertEquals(0, watermark.mutable());
+    }
+
+    @Test
+    void delete_shouldRemoveOnlyTheGivenSessions() {
+        // Given
+        String first = newSessionId();
+        String second = newSessionId();
+        String kept = newSessionId();
+        List.of(first, second, kept).forEach(id -> appendTurns(id, 1, 2));
+
+        // When
+        store().deleteBySessionId(first);
+        store().deleteBySessionIdIn(List.of(second));
+
+        // Then
+        assertTrue(store().findResponsesBySeqRange(first, 1, 10).isEmpty());
+        assertTrue(store().findResponsesBySeqRange(second, 1, 10).isEmpty());
+        assertEquals(0, store().findWatermark(second).count());
+        assertEquals(2, store().findResponsesBySeqRange(kept, 1, 10).size());
+    }
+
+    @Test
+    void findLineage_shouldReadInheritedSeqsFromTheirHolders() {
+        // Given - a fork of the parent after seq 3 with two messages of its own
+        String parent = newSessionId();
+        String fork = newSessionId();
+        appendTurns(parent, 1, 5);
+        appendTurns(fork, 4, 5);
+        String lineage = parent + ":3";
+
+        // When
+        List<MessageResponse> inherited = store().findLineageResponses(lineage, 2, 3);
+        List<MessageResponse> window = store().findLineageWindow(lineage, 3);
+
+        // Then
+        assertEquals(List.of(2L, 3L), inherited.stream().map(MessageResponse::seq).toList());
+        assertEquals(parent, inherited.get(0).sessionId());
+        assertEquals(List.of(2L, 3L), window.stream().map(MessageResponse::seq).toList());
+    }
+
+    protected String newSessionId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /** Messages fromSeq..toSeq of 3 tokens each, alternating USER and ASSISTANT. */
+    protected void appendTurns(String sessionId, long fromSeq, long toSeq) {
+        for (long seq = fromSeq; seq <= toSeq; seq++) {
+            store().append(message(sessionId, seq));
+        }
+    }
+
+    protected ChatMessage message(String sessionId, long seq) {
+        boolean user = seq % 2 == 1;
+        return ChatMessage.builder()
+                .sessionId(sessionId)
+                .seq(seq)
+                .sender(user ? SenderType.USER : SenderType.ASSISTANT)
+                .content("Turn " + seq + " ✓")
+                .userId(user ? "user-1" : null)
+                .context(user ? null : List.of(new ContextItem("doc-" + seq, "Passage", Map.of("page", 2))))
+                .createdAt(start.plusMillis(seq))
+                .tokenCount(3)
+                .cumulativeTokens(seq * 3)
+                .build();
+    }
+}
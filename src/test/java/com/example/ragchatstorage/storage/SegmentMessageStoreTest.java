@@ -0,0 +1,186 @@
+package com.example.ragchatstorage.storage;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.model.ChatMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentMessageStoreTest extends MessageStoreConformanceTest {
+
+    @TempDir
+    Path dir;
+
+    private SegmentMessageStore store;
+
+    @BeforeEach
+    void setUp() {
+        // Small segments and few open sessions, so rolling and eviction happen in every test
+        store = newStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.destroy();
+    }
+
+    @Override
+    protected MessageStore store() {
+        return store;
+    }
+
+    @Test
+    void reopen_shouldRecoverMessagesAndKeysFromAllSegments() throws IOException {
+        // Given - about 100 bytes a record, so 60 of them span several 4KB segments
+        String sessionId = newSessionId();
+        appendTurns(sessionId, 1, 59);
+        ChatMessage keyed = message(sessionId, 60);
+        keyed.setIdempotencyKey("key-60");
+        store.append(keyed);
+        assertTrue(segmentFiles(sessionId).size() > 1);
+
+        // When
+        store.destroy();
+        store = newStore();
+
+        // Then
+        List<MessageResponse> messages = store.findResponsesBySeqRange(sessionId, 1, 100);
+        assertEquals(60, messages.size());
+        assertEquals(60, messages.get(59).seq());
+        assertEquals("Turn 60 ✓", messages.get(59).content());
+        assertEquals(60, store.findWatermark(sessionId).count());
+        assertEquals(keyed.getId(), store.findByIdempotencyKey(sessionId, "key-60").orElseThrow().getId());
+        assertEquals(List.of(58L, 59L, 60L), store.findWindowBySeqRange(sessionId, 1, 60, 171).stream()
+                .map(MessageResponse::seq).toList());
+    }
+
+    @Test
+    void reopen_shouldDiscardATornLastRecordAndKeepAppending() throws IOException {
+        // Given - the body of the last record damaged, as by a crash mid-write
+        String sessionId = newSessionId();
+        appendTurns(sessionId, 1, 3);
+        store.destroy();
+        Path segment = segmentFiles(sessionId).get(0);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int last = 0;
+        for (int offset = 0; bytes.getInt(offset) != 0; offset += MessageRecordCodec.HEADER_BYTES + bytes.getInt(offset)) {
+            last = offset;
+        }
+        int damaged = last + MessageRecordCodec.HEADER_BYTES + bytes.getInt(last) - 1;
+        bytes.put(damaged, (byte) (bytes.get(damaged) ^ 0x55));
+        Files.write(segment, bytes.array());
+
+        // When
+        store = newStore();
+        store.append(message(sessionId, 3));
+
+        // Then
+        assertEquals(List.of(1L, 2L, 3L), store.findResponsesBySeqRange(sessionId, 1, 10).stream()
+                .map(MessageResponse::seq).toList());
+        store.destroy();
+        store = newStore();
+        assertEquals(3, store.findWatermark(sessionId).count());
+    }
+
+    @Test
+    void append_shouldStayHiddenUntilCommitAndAfterRollback() {
+        // Given
+        String sessionId = newSessionId();
+        appendTurns(sessionId, 1, 1);
+        ChatMessage rolledBack = message(sessionId, 2);
+        rolledBack.setIdempotencyKey("key-2");
+
+        // When
+        List<TransactionSynchronization> synchronizations = inTransaction(() -> store.append(rolledBack));
+        assertEquals(1, store.findWatermark(sessionId).count());
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Then - hidden, including after a reopen, and its seq and key free again
+        assertTrue(store.findByIdempotencyKey(sessionId, "key-2").isEmpty());
+        store.destroy();
+        store = newStore();
+        assertEquals(1, store.findWatermark(sessionId).count());
+        ChatMessage retried = message(sessionId, 2);
+        retried.setIdempotencyKey("key-2");
+        store.append(retried);
+        assertEquals(retried.getId(), store.findByIdempotencyKey(sessionId, "key-2").orElseThrow().getId());
+        assertEquals(List.of(1L, 2L), store.findResponsesBySeqRange(sessionId, 1, 10).stream()
+                .map(MessageResponse::seq).toList());
+    }
+
+    @Test
+    void delete_shouldApplyOnlyWhenTheTransactionCommits() {
+        // Given
+        String kept = newSessionId();
+        String deleted = newSessionId();
+        appendTurns(kept, 1, 2);
+        appendTurns(deleted, 1, 2);
+
+        // When
+        TransactionSynchronizationUtils.invokeAfterCompletion(inTransaction(() -> store.deleteBySessionId(kept)),
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+        List<TransactionSynchronization> committed = inTransaction(() -> store.deleteBySessionId(deleted));
+        assertEquals(2, store.findWatermark(deleted).count());
+        TransactionSynchronizationUtils.invokeAfterCompletion(committed, TransactionSynchronization.STATUS_COMMITTED);
+
+        // Then
+        assertEquals(2, store.findWatermark(kept).count());
+        assertEquals(0, store.findWatermark(deleted).count());
+        assertFalse(Files.exists(dir.resolve(deleted.substring(deleted.length() - 2)).resolve(deleted)));
+    }
+
+    @Test
+    void openSessions_shouldBeBoundedAndEvictedLogsReopened() {
+        // Given
+        List<String> sessionIds = List.of(newSessionId(), newSessionId(), newSessionId());
+        sessionIds.forEach(id -> appendTurns(id, 1, 2));
+
+        // When & Then
+        assertEquals(2, store.openSessions());
+        for (String sessionId : sessionIds) {
+            assertEquals(2, store.findResponsesBySeqRange(sessionId, 1, 10).size());
+        }
+        assertEquals(2, store.openSessions());
+    }
+
+    @Test
+    void reads_shouldTreatIdsThatAreNotDirectoryNamesAsAbsent() {
+        assertTrue(store.findResponsesBySeqRange("../" + newSessionId(), 1, 10).isEmpty());
+        assertEquals(0, store.findWatermark("..").count());
+    }
+
+    private SegmentMessageStore newStore() {
+        return new SegmentMessageStore(dir, DataSize.ofKilobytes(4), false, 2);
+    }
+
+    private List<Path> segmentFiles(String sessionId) throws IOException {
+        try (Stream<Path> files = Files.list(dir.resolve(sessionId.substring(sessionId.length() - 2)).resolve(sessionId))) {
+            return files.sorted().toList();
+        }
+    }
+
+    /** Runs {@code action} with transaction synchronization active and returns what it registered. */
+    private static List<TransactionSynchronization> inTransaction(Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.ragchatstorage.stream;
+
+import com.example.ragchatstorage.dto.MessageResponse;
+import com.example.ragchatstorage.exception.RateLimitExceededException;
+import com.example.ragchatstorage.model.ChatMessage;
+import com.example.ragchatstorage.model.SenderType;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageStreamHubTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean blockSends;
+    private MessageStreamHub hub;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        hub.shutdown();
+    }
+
+    @Test
+    void publish_shouldDeliverOnlyToSubscribersOfTheSession() throws Exception {
+        // Given
+        hub = newHub(8, 10);
+        RecordingEmitter first = (RecordingEmitter) hub.subscribe("s1");
+        RecordingEmitter second = (RecordingEmitter) hub.subscribe("s1");
+        RecordingEmitter other = (RecordingEmitter) hub.subscribe("s2");
+
+        // When
+        hub.onMessageCreated(new MessageCreatedEvent("s1", message("s1", "Hello")));
+
+        // Then
+        assertTrue(first.delivered.await(5, TimeUnit.SECONDS));
+        assertTrue(second.delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(0, other.sent.size());
+        assertSame(first.sent.get(0), second.sent.get(0));
+        assertTrue(first.sent.get(0).stream().anyMatch(part -> part.getData().toString().contains("Hello")));
+    }
+
+    @Test
+    void publish_shouldDisconnectSlowConsumerWithoutBlockingPublisher() throws Exception {
+        // Given
+        hub = newHub(2, 10);
+        blockSends = true;
+        RecordingEmitter slow = (RecordingEmitter) hub.subscribe("s1");
+
+        // When - one event is stuck in send, two fill the buffer, the next overflows
+        for (int i = 0; i < 4; i++) {
+            hub.onMessageCreated(new MessageCreatedEvent("s1", message("s1", "m" + i)));
+            if (i == 0) {
+                assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+            }
+        }
+
+        // Then
+        assertEquals(0, hub.getSubscriberCount());
+        assertEquals(1.0, meterRegistry.counter("ragchat.stream.slow.consumer.disconnects").count());
+    }
+
+    @Test
+    void subscribe_shouldRejectBeyondMaxSubscribers() {
+        // Given
+        hub = newHub(8, 1);
+        hub.subscribe("s1");
+
+        // When & Then
+        assertThrows(RateLimitExceededException.class, () -> hub.subscribe("s2"));
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    @Test
+    void onSessionDeleted_shouldCloseSessionStreams() {
+        // Given
+        hub = newHub(8, 10);
+        RecordingEmitter emitter = (RecordingEmitter) hub.subscribe("s1");
+
+        // When
+        hub.onSessionDeleted(new SessionDeletedEvent("s1"));
+        hub.onMessageCreated(new MessageCreatedEvent("s1", message("s1", "late")));
+
+        // Then
+        assertTrue(emitter.completed);
+    }
+
+    private MessageStreamHub newHub(int bufferSize, int maxSubscribers) {
+        return new MessageStreamHub(bufferSize, Duration.ofMinutes(1), Duration.ofMinutes(1), maxSubscribers,
+                meterRegistry, JsonMapper.builder().addModule(new JavaTimeModule()).build()) {
+            @Override
+            SseEmitter newEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter(timeoutMillis);
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private static MessageResponse message(String sessionId, String content) {
+        return MessageResponse.from(ChatMessage.builder()
+                .id(UUID.randomUUID().toString())
+                .sessionId(sessionId)
+                .sender(SenderType.USER)
+                .content(content)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    private class RecordingEmitter extends SseEmitter {
+
+        final List<Set<DataWithMediaType>> sent = new CopyOnWriteArrayList<>();
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final CountDownLatch sending = new CountDownLatch(1);
+        volatile boolean completed;
+
+        RecordingEmitter(long timeoutMillis) {
+            super(timeoutMillis);
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            sending.countDown();
+            if (blockSends) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.add(items);
+            delivered.countDown();
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            super.complete();
+        }
+    }
+}